@@ -5,9 +5,7 @@ import dhrlang.error.ErrorReporter;
 import dhrlang.error.ErrorMessages;
 import dhrlang.interpreter.Interpreter;
 import dhrlang.interpreter.RuntimeError;
-import dhrlang.lexer.Lexer;
-import dhrlang.lexer.Token;
-import dhrlang.parser.Parser;
+import dhrlang.parser.ParallelParser;
 import dhrlang.parser.ParseException;
 import dhrlang.typechecker.TypeChecker;
 
@@ -19,11 +17,18 @@ import java.util.List;
 public class Main {
 
     private static ErrorReporter errorReporter = new ErrorReporter();
+    private static dhrlang.runtime.Profiler profiler; // set by --profile for the ir and bytecode backends
+    private static dhrlang.runtime.SamplingProfiler sampler; // set by --sample for the ast, ir and bytecode backends
 
     public static void main(String[] args) {
         CliOptions options = parseArgs(args);
         if (options.showHelp) { printHelp(); return; }
         if (options.showVersion) { printVersion(); return; }
+        if (options.command != null) { runDirectory(options); return; }
+        if (options.daemon) { runDaemon(options); return; }
+        if (options.client && runClient(options)) return;
+        if (options.batchFile != null) { runBatch(options); return; }
+        if (options.runBc) { runBytecodeFile(options); return; }
 
         String filePath = options.filePath != null ? options.filePath : "input/sample.dhr";
         String sourceCode;
@@ -71,9 +76,10 @@ public class Main {
             System.err.println();
             errorReporter.printAllWarnings();
         }
+        if(profiler != null && !options.jsonMode) System.err.print(profiler.report());
         if(options.timeMode && !options.jsonMode){
             printTimings(timings);
-        } else if(options.timeMode && options.jsonMode && !errorReporter.hasErrors()) {
+        } else if((options.timeMode || profiler != null) && options.jsonMode && !errorReporter.hasErrors()) {
             System.out.println(buildJsonOutput(options, timings));
         }
     }
@@ -90,6 +96,7 @@ public class Main {
         sb.append("\"typeMs\":").append(timings.typeMs).append(',');
         sb.append("\"execMs\":").append(timings.execMs).append(',');
         sb.append("\"totalMs\":").append(timings.totalMs).append('}');
+        if(profiler != null) sb.append(",\"profile\":").append(profiler.toJson());
         String core = errorReporter.toJson();
         if(core.startsWith("{")) core = core.substring(1);
         sb.append(',').append(core);
@@ -106,23 +113,43 @@ public class Main {
     }
 
     private static void printVersion() {
-        // Version is embedded at build time via manifest Implementation-Version if available
+        System.out.println("DhrLang version " + compilerVersion());
+    }
+
+    private static String compilerVersion() {
+        // Version is embedded at build time via manifest Implementation-Version if available; the build fingerprint
+        // separates builds sharing it, so the compile cache and the daemon notice a rebuilt compiler
         String version = Main.class.getPackage() != null ? Main.class.getPackage().getImplementationVersion() : null;
-        if (version == null) version = "(development)";
-        System.out.println("DhrLang version " + version);
+        return (version != null ? version : "(development)") + " (build " + dhrlang.util.BuildFingerprint.current() + ")";
     }
 
     private static void printHelp() {
         System.out.println("DhrLang - a compact statically typed language (num/duo/sab/kya/ek/kaam)\n");
-        System.out.println("Usage: java -jar DhrLang.jar [options] <file.dhr>\n");
+        System.out.println("Usage: java -jar DhrLang.jar [options] <file.dhr>");
+        System.out.println("       java -jar DhrLang.jar check|compile [options] <dir>\n");
     System.out.println("Options:");
     System.out.println("  --help           Show this help and exit");
     System.out.println("  --version        Print version and exit");
     System.out.println("  --json           Emit diagnostics as JSON (errors/warnings)");
     System.out.println("  --time           Show phase timings (lex/parse/type/exec)");
+    System.out.println("  --profile        Report calls, time per function and opcode counts (ir, bytecode)");
+    System.out.println("  --sample=<file>  Write sampled call stacks in collapsed (flame graph) format");
+    System.out.println("  --sample-rate=<hz>  Samples per second for --sample (default 1000)");
     System.out.println("  --no-color       Disable ANSI colors in diagnostics");
+    System.out.println("  --backend=<b>    Execution backend: ast (default), ir, bytecode, auto (tiered)");
+    System.out.println("  --cache-dir=<d>  Reuse compiled bytecode for unchanged sources (bytecode backend)");
+    System.out.println("  --run-bc         Execute a bytecode file (.dbc, e.g. from --emit-bc) instead of source");
+    System.out.println("  --batch=<jobs>   Compile once, run every job of a JSON-lines file concurrently (bytecode)");
+    System.out.println("  --batch-threads=<n>  Run --batch jobs on n platform threads (default: virtual threads)");
+    System.out.println("  --check          Report diagnostics without running the program");
+    System.out.println("  --daemon         Serve check/run requests from a warm JVM on a loopback port");
+    System.out.println("  --daemon-port=<p>  Port for --daemon (default: any free port, see ~/.dhrlang/daemon.json)");
+    System.out.println("  --client         Send the file to a running --daemon (runs in-process if none answers)");
+    System.out.println("  --threads=<n>    Files checked at once by check/compile (default: one per processor)");
         System.out.println();
         System.out.println("If no file is provided, defaults to input/sample.dhr");
+        System.out.println("check/compile type-check every .dhr file under <dir> (default: .) in parallel; compile also");
+        System.out.println("writes each file's bytecode to build/bytecode/<relative path>.dbc");
     }
 
     private static class CliOptions {
@@ -131,10 +158,23 @@ public class Main {
         boolean jsonMode;
         String filePath;
         boolean timeMode;
+        boolean profileMode;
+        String sampleFile;
+        int sampleRate = Integer.getInteger("dhrlang.sample.rate", 1000);
         boolean noColor;
-        String backend = "ast"; // ast | ir | bytecode
+        String backend = "ast"; // ast | ir | bytecode | auto
         boolean emitIr;
         boolean emitBc;
+        boolean runBc;
+        String cacheDir = System.getProperty("dhrlang.cacheDir");
+        String batchFile;
+        int batchThreads;
+        boolean checkOnly;
+        boolean daemon;
+        int daemonPort;
+        boolean client;
+        String command; // check | compile: every .dhr file under filePath
+        int threads;
     }
 
     private static CliOptions parseArgs(String[] args) {
@@ -151,22 +191,68 @@ public class Main {
                     opts.jsonMode = true; break;
                 case "--time":
                     opts.timeMode = true; break;
+                case "--profile":
+                    opts.profileMode = true; break;
                 case "--no-color":
                     opts.noColor = true; break;
                 case "--emit-ir":
                     opts.emitIr = true; break;
                 case "--emit-bc":
                     opts.emitBc = true; break;
+                case "--run-bc":
+                    opts.runBc = true; break;
+                case "--check":
+                    opts.checkOnly = true; break;
+                case "--daemon":
+                    opts.daemon = true; break;
+                case "--client":
+                    opts.client = true; break;
                 default:
                     // First non-flag is treated as file path
                     if (!a.startsWith("-")) {
-                        opts.filePath = a;
+                        if(opts.command == null && opts.filePath == null && (a.equals("check") || a.equals("compile"))) opts.command = a;
+                        else opts.filePath = a;
+                    } else if(a.startsWith("--sample=")) {
+                        opts.sampleFile = a.substring("--sample=".length());
+                    } else if(a.startsWith("--sample-rate=")) {
+                        try { opts.sampleRate = Integer.parseInt(a.substring("--sample-rate=".length())); }
+                        catch(NumberFormatException e){ opts.sampleRate = 0; }
+                        if(opts.sampleRate <= 0){
+                            System.err.println("Invalid sample rate '"+a.substring("--sample-rate=".length())+"' (expected a positive number of samples per second)");
+                            opts.showHelp = true;
+                        }
+                    } else if(a.startsWith("--batch=")) {
+                        opts.batchFile = a.substring("--batch=".length());
+                    } else if(a.startsWith("--batch-threads=")) {
+                        try { opts.batchThreads = Integer.parseInt(a.substring("--batch-threads=".length())); }
+                        catch(NumberFormatException e){ opts.batchThreads = 0; }
+                        if(opts.batchThreads <= 0){
+                            System.err.println("Invalid thread count '"+a.substring("--batch-threads=".length())+"' (expected a positive number)");
+                            opts.showHelp = true;
+                        }
+                    } else if(a.startsWith("--threads=")) {
+                        try { opts.threads = Integer.parseInt(a.substring("--threads=".length())); }
+                        catch(NumberFormatException e){ opts.threads = 0; }
+                        if(opts.threads <= 0){
+                            System.err.println("Invalid thread count '"+a.substring("--threads=".length())+"' (expected a positive number)");
+                            opts.showHelp = true;
+                        }
+                    } else if(a.startsWith("--daemon-port=")) {
+                        try { opts.daemonPort = Integer.parseInt(a.substring("--daemon-port=".length())); }
+                        catch(NumberFormatException e){ opts.daemonPort = -1; }
+                        if(opts.daemonPort < 0 || opts.daemonPort > 65535){
+                            System.err.println("Invalid port '"+a.substring("--daemon-port=".length())+"' (expected 0-65535)");
+                            opts.showHelp = true;
+                        }
+                        opts.daemon = true;
+                    } else if(a.startsWith("--cache-dir=")) {
+                        opts.cacheDir = a.substring("--cache-dir=".length());
                     } else if(a.startsWith("--backend=")) {
                         String val = a.substring("--backend=".length());
-                        if(val.equals("ast") || val.equals("ir") || val.equals("bytecode")) {
+                        if(val.equals("ast") || val.equals("ir") || val.equals("bytecode") || val.equals("auto")) {
                             opts.backend = val;
                         } else {
-                            System.err.println("Unknown backend '"+val+"' (supported: ast, ir, bytecode)");
+                            System.err.println("Unknown backend '"+val+"' (supported: ast, ir, bytecode, auto)");
                             opts.showHelp = true;
                         }
                     } else {
@@ -181,28 +267,52 @@ public class Main {
         long tStart = System.nanoTime();
         errorReporter.setColorEnabled(!opts.noColor);
         PhaseTimings pt = new PhaseTimings();
+        if(opts.profileMode){
+            if("ir".equalsIgnoreCase(opts.backend) || "bytecode".equalsIgnoreCase(opts.backend)) profiler = new dhrlang.runtime.Profiler(opts.backend.toLowerCase());
+            else System.err.println("--profile is supported by the ir and bytecode backends; running without it");
+        }
+        if(opts.sampleFile != null){
+            if("auto".equalsIgnoreCase(opts.backend)) System.err.println("--sample is supported by the ast, ir and bytecode backends; running without it");
+            else sampler = new dhrlang.runtime.SamplingProfiler(opts.sampleRate);
+        }
         long s = System.nanoTime();
-        Lexer lexer = new Lexer(sourceCode, errorReporter);
-        List<Token> tokens = lexer.scanTokens();
-        pt.lexMs = msSince(s);
-        if(errorReporter.hasErrors()){ pt.totalMs = msSince(tStart); return pt; }
 
-        s = System.nanoTime();
-        Parser parser = new Parser(tokens, errorReporter);
+        // A cache hit skips straight to execution, re-reporting the warnings recorded with the entry
+        dhrlang.bytecode.CompileCache cache = null;
+        String cacheKey = null;
+        dhrlang.bytecode.CompileCache.Entry cached = null;
+        if(opts.cacheDir != null && "bytecode".equalsIgnoreCase(opts.backend)){
+            cache = new dhrlang.bytecode.CompileCache(Path.of(opts.cacheDir));
+            cacheKey = dhrlang.bytecode.CompileCache.key(sourceCode, compilerVersion(), "backend=bytecode", "file="+opts.filePath,
+                    "treeShake="+System.getProperty("dhrlang.bytecode.treeShake", "true"));
+            cached = cache.get(cacheKey);
+            if(cached != null){
+                for(dhrlang.error.DhrError w : cached.warnings) errorReporter.warning(w.getLocation(), w.getMessage(), w.getHint(), w.getCode());
+                if(opts.checkOnly){ pt.totalMs = msSince(tStart); return pt; }
+            }
+        }
+
         Program program = null;
-        try { program = parser.parse(); } catch (ParseException ignored) {}
-        pt.parseMs = msSince(s);
-        if(errorReporter.hasErrors()){ pt.totalMs = msSince(tStart); return pt; }
+        if(cached == null){
+            // Lexing streams into the parser (or feeds the parallel parser); the time spent pulling tokens is lexMs
+            long[] lexNanos = new long[1];
+            try { program = ParallelParser.parse(sourceCode, errorReporter, n -> lexNanos[0] = n); } catch (ParseException ignored) {}
+            pt.lexMs = lexNanos[0] / 1_000_000L;
+            pt.parseMs = (System.nanoTime() - s - lexNanos[0]) / 1_000_000L;
+            if(errorReporter.hasErrors()){ pt.totalMs = msSince(tStart); return pt; }
 
-        s = System.nanoTime();
-        TypeChecker typeChecker = new TypeChecker(errorReporter);
-        typeChecker.check(program);
-        pt.typeMs = msSince(s);
-        if(errorReporter.hasErrors()){ pt.totalMs = msSince(tStart); return pt; }
+            s = System.nanoTime();
+            TypeChecker typeChecker = new TypeChecker(errorReporter);
+            typeChecker.check(program);
+            pt.typeMs = msSince(s);
+            if(errorReporter.hasErrors() || opts.checkOnly){ pt.totalMs = msSince(tStart); return pt; }
+        }
 
         s = System.nanoTime();
         try {
-            if("ir".equalsIgnoreCase(opts.backend)) {
+            if(cached != null) {
+                runBytecode(cached.bytecode, opts);
+            } else if("ir".equalsIgnoreCase(opts.backend)) {
                 dhrlang.ir.AstToIrLowerer lowerer = new dhrlang.ir.AstToIrLowerer(errorReporter);
                 dhrlang.ir.IrProgram irProgram = lowerer.lower(program);
                 if(errorReporter.hasErrors()){
@@ -213,7 +323,10 @@ public class Main {
                 if(opts.emitIr){
                     System.out.println(serializeIr(irProgram));
                 }
-                new dhrlang.ir.IrInterpreter().execute(irProgram);
+                dhrlang.ir.IrInterpreter interpreter = new dhrlang.ir.IrInterpreter();
+                interpreter.setProfiler(profiler);
+                interpreter.setSampler(sampler);
+                interpreter.execute(irProgram);
             } else if("bytecode".equalsIgnoreCase(opts.backend)) {
                 dhrlang.ir.AstToIrLowerer lowerer = new dhrlang.ir.AstToIrLowerer(errorReporter);
                 dhrlang.ir.IrProgram irProgram = lowerer.lower(program);
@@ -224,31 +337,270 @@ public class Main {
                 }
                 dhrlang.bytecode.BytecodeWriter writer = new dhrlang.bytecode.BytecodeWriter();
                 byte[] bc = writer.write(irProgram);
-                if(opts.emitBc){
-                    try{
-                        java.nio.file.Path outPath = java.nio.file.Paths.get("build","bytecode","Main.dbc");
-                        java.nio.file.Files.createDirectories(outPath.getParent());
-                        java.nio.file.Files.write(outPath, bc);
-                        System.out.println("[bytecode] wrote "+outPath.toAbsolutePath());
-                    } catch(Exception ex){ System.err.println("Failed to write bytecode: "+ex); }
+                if(cache != null){
+                    try{ cache.put(cacheKey, bc, errorReporter.getWarnings()); }
+                    catch(Exception ex){ System.err.println("Failed to write compile cache: "+ex); }
+                }
+                runBytecode(bc, opts);
+            } else if("auto".equalsIgnoreCase(opts.backend)) {
+                // Tiered: interpret IR first, promote hot functions to bytecode. Programs outside the
+                // IR subset run on the AST interpreter instead of failing.
+                ErrorReporter loweringReporter = new ErrorReporter();
+                dhrlang.ir.IrProgram irProgram = new dhrlang.ir.AstToIrLowerer(loweringReporter).lower(program);
+                if(loweringReporter.hasErrors()){
+                    new Interpreter().execute(program);
+                } else {
+                    new dhrlang.bytecode.TieredExecutor().execute(irProgram);
                 }
-                new dhrlang.bytecode.BytecodeVM().execute(bc);
             } else {
                 Interpreter interpreter = new Interpreter();
+                if(sampler != null) sampler.attach(interpreter.getExecutionStack());
                 interpreter.execute(program);
             }
         } catch (dhrlang.interpreter.DhrRuntimeException e) {
                 printRuntimeError(e, sourceCode);
+            if(profiler != null) System.err.print(profiler.report());
+            finishSampling(opts);
             System.exit(2);
         } catch (RuntimeError e) {
                 printSystemError(e);
+            if(profiler != null) System.err.print(profiler.report());
+            finishSampling(opts);
             System.exit(2);
         }
+        finishSampling(opts);
         pt.execMs = msSince(s);
         pt.totalMs = msSince(tStart);
         return pt;
     }
 
+    private static void runBytecode(byte[] bc, CliOptions opts){
+        if(opts.emitBc){
+            try{
+                java.nio.file.Path outPath = java.nio.file.Paths.get("build","bytecode","Main.dbc");
+                java.nio.file.Files.createDirectories(outPath.getParent());
+                java.nio.file.Files.write(outPath, bc);
+                System.out.println("[bytecode] wrote "+outPath.toAbsolutePath());
+            } catch(Exception ex){ System.err.println("Failed to write bytecode: "+ex); }
+        }
+        dhrlang.bytecode.BytecodeVM vm = new dhrlang.bytecode.BytecodeVM();
+        vm.setProfiler(profiler);
+        vm.setSampler(sampler);
+        vm.execute(bc);
+    }
+
+    // Stops --sample and writes the collapsed stacks
+    private static void finishSampling(CliOptions opts){
+        if(sampler == null) return;
+        sampler.close();
+        try(java.io.Writer w = Files.newBufferedWriter(Path.of(opts.sampleFile))){
+            sampler.writeCollapsed(w);
+            System.err.println("[sample] wrote "+sampler.getSampleCount()+" samples to "+Path.of(opts.sampleFile).toAbsolutePath());
+        } catch(IOException ex){
+            System.err.println("Failed to write samples: "+ex);
+        }
+        sampler = null;
+    }
+
+    // --run-bc: the file is memory-mapped and functions are decoded from the mapping on first call
+    private static void runBytecodeFile(CliOptions opts){
+        if(opts.filePath == null){
+            System.err.println("--run-bc requires a bytecode file");
+            System.exit(1);
+            return;
+        }
+        long tStart = System.nanoTime();
+        if(opts.profileMode) profiler = new dhrlang.runtime.Profiler("bytecode");
+        if(opts.sampleFile != null) sampler = new dhrlang.runtime.SamplingProfiler(opts.sampleRate);
+        try {
+            dhrlang.bytecode.BytecodeVM.load(Path.of(opts.filePath)).newExecution().profileWith(profiler).sampleWith(sampler).run();
+        } catch (IOException e) {
+            System.err.println("Error reading file: " + opts.filePath);
+            System.exit(1);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error loading bytecode: " + e.getMessage());
+            System.exit(1);
+        } catch (dhrlang.interpreter.DhrRuntimeException e) {
+            printRuntimeError(e, "");
+            if(profiler != null) System.err.print(profiler.report());
+            finishSampling(opts);
+            System.exit(2);
+        } catch (RuntimeError e) {
+            printSystemError(e);
+            if(profiler != null) System.err.print(profiler.report());
+            finishSampling(opts);
+            System.exit(2);
+        }
+        finishSampling(opts);
+        if(profiler != null) System.err.print(profiler.report());
+        if(opts.timeMode){
+            PhaseTimings pt = new PhaseTimings();
+            pt.execMs = pt.totalMs = msSince(tStart);
+            printTimings(pt);
+        }
+    }
+
+    // --daemon: serves until a shutdown request or dhrlang.daemon.idleMinutes (default 30, 0 = never) without requests
+    private static void runDaemon(CliOptions opts){
+        java.nio.file.Path infoFile = dhrlang.daemon.CompilerDaemon.defaultInfoFile();
+        try(dhrlang.daemon.CompilerDaemon daemon = new dhrlang.daemon.CompilerDaemon(opts.daemonPort, compilerVersion())){
+            daemon.publish(infoFile);
+            System.err.println("[daemon] listening on 127.0.0.1:"+daemon.port()+" ("+infoFile.toAbsolutePath()+")");
+            daemon.serve(java.util.concurrent.TimeUnit.MINUTES.toMillis(Long.getLong("dhrlang.daemon.idleMinutes", 30)));
+        } catch(IOException e){
+            System.err.println("Failed to start daemon: "+e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    // --client: false when no daemon answers, so the caller compiles and runs in-process instead
+    private static boolean runClient(CliOptions opts){
+        String path = opts.filePath != null ? opts.filePath : "input/sample.dhr";
+        String sourceCode;
+        try {
+            sourceCode = Files.readString(Path.of(path));
+        } catch (IOException e) {
+            System.err.println("Error reading file: " + path);
+            System.exit(1);
+            return true;
+        }
+        java.util.Map<String,Object> reply;
+        try(dhrlang.daemon.DaemonClient client = dhrlang.daemon.DaemonClient.connect(dhrlang.daemon.CompilerDaemon.defaultInfoFile(), compilerVersion())){
+            java.util.Map<String,Object> request = new java.util.LinkedHashMap<>();
+            request.put("op", opts.checkOnly || opts.jsonMode ? "check" : "run");
+            request.put("name", path);
+            request.put("source", sourceCode);
+            request.put("backend", "auto".equals(opts.backend) ? "ast" : opts.backend);
+            request.put("color", !opts.noColor);
+            reply = client.request(request);
+        } catch(java.nio.file.NoSuchFileException e){
+            System.err.println("[client] no daemon running; compiling in-process");
+            return false;
+        } catch(IOException e){
+            System.err.println("[client] daemon unavailable ("+e.getMessage()+"); compiling in-process");
+            return false;
+        }
+        if(reply.get("error") != null){
+            System.err.println("[client] daemon rejected the request: "+reply.get("error"));
+            System.exit(1);
+        }
+        if(opts.jsonMode && reply.get("diagnostics") != null){
+            System.out.println(dhrlang.batch.MiniJson.write(reply.get("diagnostics")));
+        } else {
+            System.out.print(reply.getOrDefault("stdout", ""));
+            System.err.print(reply.getOrDefault("stderr", ""));
+        }
+        System.out.flush();
+        int exitCode = reply.get("exitCode") instanceof Long code ? code.intValue() : 1;
+        if(opts.jsonMode && exitCode == 1) exitCode = 65;
+        if(exitCode != 0) System.exit(exitCode);
+        return true;
+    }
+
+    // --batch: one compiled program, one execution per job line, results as JSON lines on stdout
+    private static void runBatch(CliOptions opts){
+        String path = opts.filePath != null ? opts.filePath : "input/sample.dhr";
+        dhrlang.bytecode.LoadedProgram program;
+        List<dhrlang.batch.BatchExecutor.Job> jobs;
+        try {
+            if(opts.runBc){
+                program = dhrlang.bytecode.BytecodeVM.load(Path.of(path));
+            } else {
+                String sourceCode = Files.readString(Path.of(path));
+                errorReporter.setSource(path, sourceCode);
+                errorReporter.setColorEnabled(!opts.noColor);
+                byte[] bc = compileToBytecode(sourceCode);
+                if(bc == null){
+                    errorReporter.printAllErrors();
+                    System.exit(1);
+                    return;
+                }
+                program = dhrlang.bytecode.BytecodeVM.load(bc);
+            }
+            jobs = dhrlang.batch.BatchExecutor.readJobs(Path.of(opts.batchFile));
+        } catch (IOException e) {
+            System.err.println("Error reading file: " + e.getMessage());
+            System.exit(1);
+            return;
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error loading batch: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        dhrlang.batch.BatchExecutor.Report report;
+        try {
+            report = new dhrlang.batch.BatchExecutor(program, opts.batchThreads).run(jobs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.exit(130);
+            return;
+        }
+        System.out.print(dhrlang.batch.BatchExecutor.toJsonLines(report));
+        System.out.flush();
+        System.err.println(report.summary());
+        if(report.failures() > 0) System.exit(2);
+    }
+
+    // check|compile <dir>: one ErrorReporter per file, JSON lines on stdout with --json, a timing summary on stderr
+    private static void runDirectory(CliOptions opts){
+        Path root = Path.of(opts.filePath != null ? opts.filePath : ".");
+        boolean compile = "compile".equals(opts.command);
+        dhrlang.batch.DirectoryCompiler.Report report;
+        try {
+            List<Path> files = dhrlang.batch.DirectoryCompiler.discover(root);
+            if(files.isEmpty()) System.err.println("No .dhr files under " + root);
+            report = new dhrlang.batch.DirectoryCompiler(opts.threads, compile).compile(files);
+        } catch (IOException | java.io.UncheckedIOException e) {
+            System.err.println("Error reading files: " + e.getMessage());
+            System.exit(1);
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.exit(130);
+            return;
+        }
+        if(opts.jsonMode){
+            System.out.print(dhrlang.batch.DirectoryCompiler.toJsonLines(report));
+            System.out.flush();
+        } else {
+            for(dhrlang.batch.DirectoryCompiler.FileResult f : report.files){
+                f.diagnostics.setColorEnabled(!opts.noColor);
+                f.diagnostics.printAllErrors();
+                f.diagnostics.printAllWarnings();
+            }
+        }
+        if(compile){
+            Path outDir = Path.of("build", "bytecode");
+            for(dhrlang.batch.DirectoryCompiler.FileResult f : report.files){
+                if(f.bytecode == null) continue;
+                String relative = (Files.isDirectory(root) ? root.relativize(f.file) : f.file.getFileName()).toString();
+                if(relative.endsWith(".dhr")) relative = relative.substring(0, relative.length() - ".dhr".length());
+                Path outPath = outDir.resolve(relative + ".dbc");
+                try {
+                    Files.createDirectories(outPath.getParent());
+                    Files.write(outPath, f.bytecode);
+                } catch(IOException e){
+                    System.err.println("Failed to write bytecode: " + e);
+                    System.exit(1);
+                }
+            }
+        }
+        System.err.println(report.summary());
+        if(report.failures() > 0) System.exit(opts.jsonMode ? 65 : 1);
+    }
+
+    // Front end plus lowering and encoding; null when errorReporter has errors
+    private static byte[] compileToBytecode(String sourceCode){
+        Program program = null;
+        try { program = ParallelParser.parse(sourceCode, errorReporter); } catch (ParseException ignored) {}
+        if(errorReporter.hasErrors() || program == null) return null;
+        new TypeChecker(errorReporter).check(program);
+        if(errorReporter.hasErrors()) return null;
+        dhrlang.ir.IrProgram irProgram = new dhrlang.ir.AstToIrLowerer(errorReporter).lower(program);
+        if(errorReporter.hasErrors()) return null;
+        return new dhrlang.bytecode.BytecodeWriter().write(irProgram);
+    }
+
     private static long msSince(long start){ return (System.nanoTime()-start)/1_000_000L; }
 
     private static class PhaseTimings {
@@ -13,7 +13,7 @@ public class AssignmentExpr extends Expression {
         this.name = name;
         this.value = value;
         if (name != null) {
-            this.setSourceLocation(name.getLocation());
+            this.setSourceLocation(name.getPackedLocation());
         }
     }
 
@@ -15,7 +15,7 @@ public class BinaryExpr extends Expression {
         this.operator = operator;
         this.right = right;
         if (operator != null) {
-            this.setSourceLocation(operator.getLocation());
+            this.setSourceLocation(operator.getPackedLocation());
         }
     }
 
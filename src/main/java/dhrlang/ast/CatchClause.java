@@ -7,7 +7,7 @@ public class CatchClause implements ASTNode {
     private final String exceptionType;
     private final String parameter;
     private final Block body;
-    private SourceLocation location; // start location of 'catch' keyword / clause
+    private long location = SourceLocation.NONE; // packed start location of 'catch' keyword / clause
 
     // Constructor with exception type support
     public CatchClause(String exceptionType, String parameter, Block body) {
@@ -33,9 +33,10 @@ public class CatchClause implements ASTNode {
         return body;
     }
 
-    public void setSourceLocation(SourceLocation loc){ this.location = loc; }
+    public void setSourceLocation(SourceLocation loc){ this.location = SourceLocation.pack(loc); }
+    public void setSourceLocation(long packedLoc){ this.location = packedLoc; }
     @Override
-    public dhrlang.error.SourceLocation getSourceLocation(){ return location; }
+    public dhrlang.error.SourceLocation getSourceLocation(){ return SourceLocation.unpack(location); }
 
     @Override
     public String toString() {
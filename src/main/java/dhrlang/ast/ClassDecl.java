@@ -16,7 +16,7 @@ public class ClassDecl implements ASTNode {
     private final Set<Modifier> modifiers;
     private boolean isBeingResolved = false;
     private boolean isResolved = false;
-    private SourceLocation sourceLocation;
+    private long sourceLocation = SourceLocation.NONE;
 
     public ClassDecl(String name, VariableExpr superclass, List<FunctionDecl> functions, List<VarDecl> variables) {
         this(name, superclass, new ArrayList<>(), functions, variables, new HashSet<>());
@@ -90,12 +90,16 @@ public class ClassDecl implements ASTNode {
     }
     
     public void setSourceLocation(SourceLocation location) {
-        this.sourceLocation = location;
+        this.sourceLocation = SourceLocation.pack(location);
+    }
+
+    public void setSourceLocation(long packedLocation) {
+        this.sourceLocation = packedLocation;
     }
     
     @Override
     public SourceLocation getSourceLocation() {
-        return sourceLocation;
+        return SourceLocation.unpack(sourceLocation);
     }
     
     @Override
@@ -13,7 +13,7 @@ public class GenericType implements ASTNode {
     private final Token baseName;
     private final List<GenericType> typeArguments;
     private final WildcardType wildcardType;
-    private SourceLocation sourceLocation;
+    private long sourceLocation = SourceLocation.NONE;
     
     // For simple types like T, String, Integer
     public GenericType(Token baseName) {
@@ -31,7 +31,7 @@ public class GenericType implements ASTNode {
         this.typeArguments = typeArguments != null ? typeArguments : new ArrayList<>();
         this.wildcardType = wildcardType;
         if (baseName != null) {
-            this.sourceLocation = baseName.getLocation();
+            this.sourceLocation = baseName.getPackedLocation();
         }
     }
     
@@ -74,12 +74,16 @@ public class GenericType implements ASTNode {
     }
     
     public void setSourceLocation(SourceLocation location) {
-        this.sourceLocation = location;
+        this.sourceLocation = SourceLocation.pack(location);
+    }
+
+    public void setSourceLocation(long packedLocation) {
+        this.sourceLocation = packedLocation;
     }
     
     @Override
     public SourceLocation getSourceLocation() {
-        return sourceLocation;
+        return SourceLocation.unpack(sourceLocation);
     }
     
     @Override
@@ -10,7 +10,7 @@ public class GetExpr extends Expression {
         this.object = object;
         this.name = name;
         if (name != null) {
-            this.setSourceLocation(name.getLocation());
+            this.setSourceLocation(name.getPackedLocation());
         }
     }
 
@@ -11,7 +11,7 @@ public class InterfaceDecl implements ASTNode {
     private final List<VariableExpr> parentInterfaces; // Support for interface inheritance
     private final List<FunctionDecl> methods;
     private final Set<Modifier> modifiers;
-    private SourceLocation sourceLocation;
+    private long sourceLocation = SourceLocation.NONE;
     private boolean isBeingResolved = false;
     private boolean isResolved = false;
 
@@ -76,12 +76,16 @@ public class InterfaceDecl implements ASTNode {
     }
     
     public void setSourceLocation(SourceLocation location) {
-        this.sourceLocation = location;
+        this.sourceLocation = SourceLocation.pack(location);
+    }
+
+    public void setSourceLocation(long packedLocation) {
+        this.sourceLocation = packedLocation;
     }
     
     @Override
     public SourceLocation getSourceLocation() {
-        return sourceLocation;
+        return SourceLocation.unpack(sourceLocation);
     }
     
     @Override
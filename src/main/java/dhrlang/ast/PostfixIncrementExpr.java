@@ -10,7 +10,7 @@ public class PostfixIncrementExpr extends Expression {
         this.target = target;
         this.operator = operator;
         if (operator != null) {
-            this.setSourceLocation(operator.getLocation());
+            this.setSourceLocation(operator.getPackedLocation());
         }
     }
 
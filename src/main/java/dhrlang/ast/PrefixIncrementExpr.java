@@ -10,7 +10,7 @@ public class PrefixIncrementExpr extends Expression {
         this.operator = operator;
         this.target = target;
         if (operator != null) {
-            this.setSourceLocation(operator.getLocation());
+            this.setSourceLocation(operator.getPackedLocation());
         }
     }
 
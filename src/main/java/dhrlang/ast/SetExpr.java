@@ -12,7 +12,7 @@ public  class SetExpr extends Expression {
         this.name = name;
         this.value = value;
         if (name != null) {
-            this.setSourceLocation(name.getLocation());
+            this.setSourceLocation(name.getPackedLocation());
         }
     }
 
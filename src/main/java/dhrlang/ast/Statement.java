@@ -3,14 +3,19 @@ package dhrlang.ast;
 import dhrlang.error.SourceLocation;
 
 public abstract class Statement implements ASTNode {
-    protected SourceLocation sourceLocation;
+    // Packed line/column, see SourceLocation.pack
+    private long sourceLocation = SourceLocation.NONE;
     
     public void setSourceLocation(SourceLocation location) {
-        this.sourceLocation = location;
+        this.sourceLocation = SourceLocation.pack(location);
+    }
+
+    public void setSourceLocation(long packedLocation) {
+        this.sourceLocation = packedLocation;
     }
     
     @Override
     public SourceLocation getSourceLocation() {
-        return sourceLocation;
+        return SourceLocation.unpack(sourceLocation);
     }
 }
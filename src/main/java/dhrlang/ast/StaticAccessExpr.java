@@ -10,7 +10,7 @@ public class StaticAccessExpr extends Expression {
         this.className = className;
         this.memberName = memberName;
         if (memberName != null) {
-            this.setSourceLocation(memberName.getLocation());
+            this.setSourceLocation(memberName.getPackedLocation());
         }
     }
 
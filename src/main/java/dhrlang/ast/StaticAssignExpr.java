@@ -12,7 +12,7 @@ public class StaticAssignExpr extends Expression {
         this.memberName = memberName;
         this.value = value;
         if (memberName != null) {
-            this.setSourceLocation(memberName.getLocation());
+            this.setSourceLocation(memberName.getPackedLocation());
         }
     }
 
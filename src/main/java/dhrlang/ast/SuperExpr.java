@@ -10,7 +10,7 @@ public class SuperExpr extends Expression {
         this.keyword = keyword;
         this.method = method;
         if (keyword != null) {
-            this.setSourceLocation(keyword.getLocation());
+            this.setSourceLocation(keyword.getPackedLocation());
         }
     }
 
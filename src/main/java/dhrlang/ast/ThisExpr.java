@@ -8,7 +8,7 @@ public class ThisExpr extends Expression {
     public ThisExpr(Token keyword) {
         this.keyword = keyword;
         if (keyword != null) {
-            this.setSourceLocation(keyword.getLocation());
+            this.setSourceLocation(keyword.getPackedLocation());
         }
     }
 
@@ -12,13 +12,13 @@ import java.util.ArrayList;
 public class TypeParameter implements ASTNode {
     private final Token name;
     private final List<GenericType> bounds; // extends bounds
-    private SourceLocation sourceLocation;
+    private long sourceLocation = SourceLocation.NONE;
     
     public TypeParameter(Token name, List<GenericType> bounds) {
         this.name = name;
         this.bounds = bounds != null ? bounds : new ArrayList<>();
         if (name != null) {
-            this.sourceLocation = name.getLocation();
+            this.sourceLocation = name.getPackedLocation();
         }
     }
     
@@ -39,12 +39,16 @@ public class TypeParameter implements ASTNode {
     }
     
     public void setSourceLocation(SourceLocation location) {
-        this.sourceLocation = location;
+        this.sourceLocation = SourceLocation.pack(location);
+    }
+
+    public void setSourceLocation(long packedLocation) {
+        this.sourceLocation = packedLocation;
     }
     
     @Override
     public SourceLocation getSourceLocation() {
-        return sourceLocation;
+        return SourceLocation.unpack(sourceLocation);
     }
     
     @Override
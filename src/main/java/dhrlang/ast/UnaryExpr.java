@@ -13,7 +13,7 @@ public class UnaryExpr extends Expression {
         this.operator = operator;
         this.right = right;
         if (operator != null) {
-            this.setSourceLocation(operator.getLocation());
+            this.setSourceLocation(operator.getPackedLocation());
         }
     }
 
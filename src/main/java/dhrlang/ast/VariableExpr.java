@@ -11,7 +11,7 @@ public class VariableExpr extends Expression {
     public VariableExpr(Token name) {
         this.name = name;
         if (name != null) {
-            this.setSourceLocation(name.getLocation());
+            this.setSourceLocation(name.getPackedLocation());
         }
     }
 
@@ -0,0 +1,226 @@
+package dhrlang.batch;
+
+import dhrlang.bytecode.LoadedProgram;
+import dhrlang.runtime.CancellationToken;
+import dhrlang.runtime.ExecutionBudget;
+import dhrlang.runtime.OutputSink;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs one {@link LoadedProgram} against many jobs at once. The program is compiled, decoded and verified
+ * once; every job gets a fresh execution with its own statics, output sink and step, allocation and time
+ * budgets. Jobs run on virtual threads when the JVM has them (JDK 21+) and otherwise on a pool of platform
+ * threads bounded by the available processors; a positive {@code parallelism} always selects a pool of
+ * that size.
+ */
+public final class BatchExecutor {
+
+    /** One run: static fields to set after static initialization, and limits (0 for the defaults). */
+    public static final class Job {
+        public final String id;
+        public final Map<String,Object> statics;
+        public final long maxSteps, maxArrayCells, timeoutMs;
+
+        public Job(String id, Map<String,Object> statics, long maxSteps, long maxArrayCells, long timeoutMs){
+            this.id = id;
+            this.statics = statics == null ? Collections.emptyMap() : statics;
+            this.maxSteps = maxSteps;
+            this.maxArrayCells = maxArrayCells;
+            this.timeoutMs = timeoutMs;
+        }
+    }
+
+    /** Outcome of one job. {@code error} is null when it completed normally. */
+    public static final class Result {
+        public final String id;
+        public final String output;
+        public final String error;
+        public final long steps;
+        public final long nanos;
+
+        Result(String id, String output, String error, long steps, long nanos){
+            this.id = id; this.output = output; this.error = error; this.steps = steps; this.nanos = nanos;
+        }
+
+        public boolean ok(){ return error == null; }
+    }
+
+    /** Results in job order, with wall time and latency percentiles over all jobs. */
+    public static final class Report {
+        public final List<Result> results;
+        public final long wallNanos;
+        public final String threads;
+        private final long[] sortedNanos;
+
+        Report(List<Result> results, long wallNanos, String threads){
+            this.results = results;
+            this.wallNanos = wallNanos;
+            this.threads = threads;
+            this.sortedNanos = new long[results.size()];
+            for(int i=0;i<sortedNanos.length;i++) sortedNanos[i] = results.get(i).nanos;
+            Arrays.sort(sortedNanos);
+        }
+
+        /** Latency at percentile {@code p} (0-100), nearest rank; 0 without results. */
+        public long percentileNanos(double p){
+            if(sortedNanos.length == 0) return 0;
+            int rank = (int) Math.ceil(p / 100.0 * sortedNanos.length);
+            return sortedNanos[Math.max(0, Math.min(sortedNanos.length - 1, rank - 1))];
+        }
+
+        public long failures(){ return results.stream().filter(r -> !r.ok()).count(); }
+
+        /** One-line summary: job counts, wall time, throughput and latency percentiles in milliseconds. */
+        public String summary(){
+            double wallMs = wallNanos / 1e6;
+            return String.format("[batch] %d jobs (%d ok, %d failed) in %.1f ms on %s, %.0f jobs/s; latency ms p50=%.3f p90=%.3f p99=%.3f max=%.3f",
+                    results.size(), results.size() - failures(), failures(), wallMs, threads,
+                    wallMs > 0 ? results.size() / (wallMs / 1000.0) : 0.0,
+                    percentileNanos(50) / 1e6, percentileNanos(90) / 1e6, percentileNanos(99) / 1e6, percentileNanos(100) / 1e6);
+        }
+    }
+
+    private final LoadedProgram program;
+    private final int parallelism;
+
+    /** Executor for {@code program}; {@code parallelism} of 0 picks virtual threads when available. */
+    public BatchExecutor(LoadedProgram program, int parallelism){
+        if(parallelism < 0) throw new IllegalArgumentException("Parallelism must not be negative: "+parallelism);
+        this.program = program;
+        this.parallelism = parallelism;
+    }
+
+    /** Runs every job and waits for all of them. */
+    public Report run(List<Job> jobs) throws InterruptedException {
+        ExecutorService pool = parallelism > 0 ? null : newVirtualThreadExecutor();
+        String threads = pool != null ? "virtual threads" : (parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors()) + " platform threads";
+        if(pool == null) pool = Executors.newFixedThreadPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        long start = System.nanoTime();
+        List<Result> results = new ArrayList<>(jobs.size());
+        try {
+            List<Future<Result>> futures = new ArrayList<>(jobs.size());
+            for(Job job : jobs) futures.add(pool.submit(() -> runOne(job)));
+            for(Future<Result> f : futures){
+                try { results.add(f.get()); }
+                catch(ExecutionException e){ throw new IllegalStateException("Batch job failed unexpectedly", e.getCause()); }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return new Report(results, System.nanoTime() - start, threads);
+    }
+
+    /** Runs one job on the calling thread. */
+    public Result runOne(Job job){
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OutputSink out = new OutputSink(bytes, 0);
+        long maxSteps = job.maxSteps > 0 ? job.maxSteps : Long.getLong("dhrlang.backend.maxSteps", 50_000_000);
+        long maxCells = job.maxArrayCells > 0 ? job.maxArrayCells : Long.getLong("dhrlang.backend.maxArrayCells", Long.MAX_VALUE);
+        long timeoutMs = job.timeoutMs > 0 ? job.timeoutMs : Long.getLong("dhrlang.backend.timeoutMs", 0L);
+        CancellationToken token = timeoutMs > 0 ? CancellationToken.withTimeout(Duration.ofMillis(timeoutMs)) : null;
+        ExecutionBudget budget = new ExecutionBudget(maxSteps, maxCells, token);
+        long start = System.nanoTime();
+        String error = null;
+        try {
+            LoadedProgram.Execution exec = program.newExecution(out, budget);
+            for(Map.Entry<String,Object> e : job.statics.entrySet()){
+                String name = e.getKey();
+                int dot = name.lastIndexOf('.');
+                if(dot <= 0) throw new IllegalArgumentException("Static field must be qualified as Class.field: "+name);
+                exec.setStatic(name.substring(0, dot), name.substring(dot + 1), e.getValue());
+            }
+            exec.run();
+        } catch(dhrlang.interpreter.DhrRuntimeException | dhrlang.interpreter.RuntimeError | IllegalArgumentException e){
+            error = String.valueOf(e.getMessage());
+        }
+        long nanos = System.nanoTime() - start;
+        out.flush();
+        return new Result(job.id, bytes.toString(StandardCharsets.UTF_8), error, budget.getSteps(), nanos);
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() exists from JDK 21; the build targets 17
+    private static ExecutorService newVirtualThreadExecutor(){
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch(ReflectiveOperationException e){
+            return null;
+        }
+    }
+
+    /**
+     * Reads a job file: one JSON object per line, e.g. {@code {"id":"a","statics":{"Main.n":30},"maxSteps":1000000,
+     * "maxArrayCells":100000,"timeoutMs":500}}. Every key is optional; {@code id} defaults to the line number.
+     * Blank lines are skipped.
+     */
+    public static List<Job> readJobs(Path file) throws IOException {
+        List<Job> jobs = new ArrayList<>();
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        for(int i=0;i<lines.size();i++){
+            String line = lines.get(i).strip();
+            if(line.isEmpty()) continue;
+            try { jobs.add(parseJob(line, String.valueOf(i + 1))); }
+            catch(IllegalArgumentException e){ throw new IllegalArgumentException(file+":"+(i + 1)+": "+e.getMessage(), e); }
+        }
+        return jobs;
+    }
+
+    @SuppressWarnings("unchecked")
+    static Job parseJob(String line, String defaultId){
+        if(!(MiniJson.parse(line) instanceof Map<?,?> map)) throw new IllegalArgumentException("a job must be a JSON object");
+        String id = defaultId;
+        Map<String,Object> statics = null;
+        long maxSteps = 0, maxArrayCells = 0, timeoutMs = 0;
+        for(Map.Entry<?,?> e : map.entrySet()){
+            Object v = e.getValue();
+            switch(String.valueOf(e.getKey())){
+                case "id" -> id = String.valueOf(v);
+                case "statics" -> {
+                    if(!(v instanceof Map<?,?>)) throw new IllegalArgumentException("\"statics\" must be an object");
+                    statics = (Map<String,Object>) v;
+                }
+                case "maxSteps" -> maxSteps = positive("maxSteps", v);
+                case "maxArrayCells" -> maxArrayCells = positive("maxArrayCells", v);
+                case "timeoutMs" -> timeoutMs = positive("timeoutMs", v);
+                default -> throw new IllegalArgumentException("unknown job key \""+e.getKey()+"\"");
+            }
+        }
+        return new Job(id, statics, maxSteps, maxArrayCells, timeoutMs);
+    }
+
+    private static long positive(String key, Object v){
+        if(!(v instanceof Long n) || n <= 0) throw new IllegalArgumentException("\""+key+"\" must be a positive integer");
+        return n;
+    }
+
+    /** Results as JSON lines, one object per job in job order. */
+    public static String toJsonLines(Report report){
+        StringBuilder sb = new StringBuilder();
+        for(Result r : report.results){
+            Map<String,Object> o = new LinkedHashMap<>();
+            o.put("id", r.id);
+            o.put("ok", r.ok());
+            o.put("steps", r.steps);
+            o.put("ms", r.nanos / 1e6);
+            o.put("output", r.output);
+            if(r.error != null) o.put("error", r.error);
+            sb.append(MiniJson.write(o)).append('\n');
+        }
+        return sb.toString();
+    }
+}
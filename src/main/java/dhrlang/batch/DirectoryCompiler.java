@@ -0,0 +1,163 @@
+package dhrlang.batch;
+
+import dhrlang.ast.Program;
+import dhrlang.error.ErrorReporter;
+import dhrlang.parser.ParallelParser;
+import dhrlang.parser.ParseException;
+import dhrlang.typechecker.TypeChecker;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Checks (and optionally compiles to bytecode) many independent source files at once. Every file gets its own
+ * {@link ErrorReporter} and runs lex, parse and type check on a pool of platform threads bounded by the
+ * available processors; a positive {@code parallelism} selects a pool of that size. Results come back in the
+ * order the files were given, so the output does not depend on scheduling.
+ */
+public final class DirectoryCompiler {
+
+    /** Outcome of one file; {@code bytecode} is null unless emission was requested and the file compiled. */
+    public static final class FileResult {
+        public final Path file;
+        public final ErrorReporter diagnostics;
+        public final byte[] bytecode;
+        public final long lexNanos, parseNanos, typeNanos, emitNanos, totalNanos;
+
+        FileResult(Path file, ErrorReporter diagnostics, byte[] bytecode, long lexNanos, long parseNanos, long typeNanos, long emitNanos, long totalNanos){
+            this.file = file; this.diagnostics = diagnostics; this.bytecode = bytecode;
+            this.lexNanos = lexNanos; this.parseNanos = parseNanos; this.typeNanos = typeNanos; this.emitNanos = emitNanos; this.totalNanos = totalNanos;
+        }
+
+        public boolean ok(){ return !diagnostics.hasErrors(); }
+
+        /**
+         * The file's diagnostics as one document of diagnostics.schema.json. Lexing streams into the parser; the
+         * time spent pulling tokens is lexMs and the rest parseMs. Lowering and encoding bytecode are reported as execMs.
+         */
+        public String toJson(){
+            String core = diagnostics.toJson();
+            return "{\"schemaVersion\":1,\"timings\":{\"lexMs\":" + lexNanos / 1_000_000L + ",\"parseMs\":" + parseNanos / 1_000_000L
+                    + ",\"typeMs\":" + typeNanos / 1_000_000L + ",\"execMs\":" + emitNanos / 1_000_000L
+                    + ",\"totalMs\":" + totalNanos / 1_000_000L + "}," + core.substring(1);
+        }
+    }
+
+    /** Results in file order, with wall time and the time summed over files per phase. */
+    public static final class Report {
+        public final List<FileResult> files;
+        public final long wallNanos;
+        public final int threads;
+        private final String mode;
+
+        Report(List<FileResult> files, long wallNanos, int threads, String mode){
+            this.files = files;
+            this.wallNanos = wallNanos;
+            this.threads = threads;
+            this.mode = mode;
+        }
+
+        public long failures(){ return files.stream().filter(f -> !f.ok()).count(); }
+        public long errors(){ return files.stream().mapToLong(f -> f.diagnostics.getErrorCount()).sum(); }
+        public long warnings(){ return files.stream().mapToLong(f -> f.diagnostics.getWarningCount()).sum(); }
+
+        /** One-line summary: file and diagnostic counts, wall time, throughput and summed phase times in milliseconds. */
+        public String summary(){
+            double wallMs = wallNanos / 1e6;
+            long lex = 0, parse = 0, type = 0, emit = 0, slowest = 0;
+            for(FileResult f : files){ lex += f.lexNanos; parse += f.parseNanos; type += f.typeNanos; emit += f.emitNanos; slowest = Math.max(slowest, f.totalNanos); }
+            return String.format("[%s] %d files (%d ok, %d failed; %d errors, %d warnings) in %.1f ms on %d threads, %.0f files/s; summed ms lex=%.1f parse=%.1f type=%.1f emit=%.1f; slowest file %.1f ms",
+                    mode, files.size(), files.size() - failures(), failures(), errors(), warnings(), wallMs, threads,
+                    wallMs > 0 ? files.size() / (wallMs / 1000.0) : 0.0, lex / 1e6, parse / 1e6, type / 1e6, emit / 1e6, slowest / 1e6);
+        }
+    }
+
+    private final int parallelism;
+    private final boolean emitBytecode;
+
+    /** Compiler for many files; {@code parallelism} of 0 uses one thread per available processor. */
+    public DirectoryCompiler(int parallelism, boolean emitBytecode){
+        if(parallelism < 0) throw new IllegalArgumentException("Parallelism must not be negative: "+parallelism);
+        this.parallelism = parallelism;
+        this.emitBytecode = emitBytecode;
+    }
+
+    /** {@code root} itself when it is a file, otherwise every {@code .dhr} file below it in path order. */
+    public static List<Path> discover(Path root) throws IOException {
+        if(!Files.isDirectory(root)) return List.of(root);
+        try(Stream<Path> walk = Files.walk(root)){
+            return walk.filter(p -> p.getFileName().toString().endsWith(".dhr") && Files.isRegularFile(p))
+                    .sorted().collect(Collectors.toList());
+        }
+    }
+
+    /** Compiles every file and waits for all of them. */
+    public Report compile(List<Path> files) throws InterruptedException {
+        int threads = Math.max(1, Math.min(files.size(), parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors()));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        List<FileResult> results = new ArrayList<>(files.size());
+        try {
+            List<Future<FileResult>> futures = new ArrayList<>(files.size());
+            for(Path file : files) futures.add(pool.submit(() -> compileOne(file)));
+            for(Future<FileResult> f : futures){
+                try { results.add(f.get()); }
+                catch(ExecutionException e){
+                    if(e.getCause() instanceof UncheckedIOException io) throw io;
+                    throw new IllegalStateException("Compiling a file failed unexpectedly", e.getCause());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return new Report(results, System.nanoTime() - start, threads, emitBytecode ? "compile" : "check");
+    }
+
+    /** Compiles one file on the calling thread. */
+    public FileResult compileOne(Path file){
+        long start = System.nanoTime();
+        String source;
+        try {
+            source = Files.readString(file, StandardCharsets.UTF_8);
+        } catch(IOException e){
+            throw new UncheckedIOException("Error reading file: " + file, e);
+        }
+        ErrorReporter er = new ErrorReporter(file.toString(), source);
+        long s = System.nanoTime();
+        Program program = null;
+        long[] lex = new long[1];
+        try { program = ParallelParser.parse(source, er, n -> lex[0] = n); } catch(ParseException ignored) {}
+        long parse = System.nanoTime() - s - lex[0], type = 0, emit = 0;
+        byte[] bytecode = null;
+        if(program != null && !er.hasErrors()){
+            s = System.nanoTime();
+            new TypeChecker(er).check(program);
+            type = System.nanoTime() - s;
+            if(emitBytecode && !er.hasErrors()){
+                s = System.nanoTime();
+                dhrlang.ir.IrProgram ir = new dhrlang.ir.AstToIrLowerer(er).lower(program);
+                if(!er.hasErrors()) bytecode = new dhrlang.bytecode.BytecodeWriter().write(ir);
+                emit = System.nanoTime() - s;
+            }
+        }
+        return new FileResult(file, er, bytecode, lex[0], parse, type, emit, System.nanoTime() - start);
+    }
+
+    /** One diagnostics document per file, one per line, in file order. */
+    public static String toJsonLines(Report report){
+        StringBuilder sb = new StringBuilder();
+        for(FileResult f : report.files) sb.append(f.toJson()).append('\n');
+        return sb.toString();
+    }
+}
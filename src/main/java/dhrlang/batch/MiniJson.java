@@ -0,0 +1,191 @@
+package dhrlang.batch;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Just enough JSON for job files and results: objects, arrays, strings, numbers, booleans and null. Integral
+ * numbers become {@link Long} and all others {@link Double}, matching the runtime's {@code num} and {@code duo}.
+ */
+public final class MiniJson {
+    private final String s;
+    private int pos;
+
+    private MiniJson(String s){ this.s = s; }
+
+    /** Parses one JSON value spanning all of {@code text}. */
+    public static Object parse(String text){
+        MiniJson p = new MiniJson(text);
+        Object v = p.value();
+        p.skipWhitespace();
+        if(p.pos != text.length()) throw p.error("unexpected trailing characters");
+        return v;
+    }
+
+    private Object value(){
+        skipWhitespace();
+        if(pos >= s.length()) throw error("unexpected end of input");
+        char c = s.charAt(pos);
+        switch(c){
+            case '{': return object();
+            case '[': return array();
+            case '"': return string();
+            case 't': return literal("true", Boolean.TRUE);
+            case 'f': return literal("false", Boolean.FALSE);
+            case 'n': return literal("null", null);
+            default:
+                if(c == '-' || (c >= '0' && c <= '9')) return number();
+                throw error("unexpected character '"+c+"'");
+        }
+    }
+
+    private Map<String,Object> object(){
+        Map<String,Object> map = new LinkedHashMap<>();
+        pos++;
+        skipWhitespace();
+        if(peek('}')){ pos++; return map; }
+        while(true){
+            skipWhitespace();
+            if(!peek('"')) throw error("expected a string key");
+            String key = string();
+            skipWhitespace();
+            expect(':');
+            map.put(key, value());
+            skipWhitespace();
+            if(peek(',')){ pos++; continue; }
+            expect('}');
+            return map;
+        }
+    }
+
+    private List<Object> array(){
+        List<Object> list = new ArrayList<>();
+        pos++;
+        skipWhitespace();
+        if(peek(']')){ pos++; return list; }
+        while(true){
+            list.add(value());
+            skipWhitespace();
+            if(peek(',')){ pos++; continue; }
+            expect(']');
+            return list;
+        }
+    }
+
+    private String string(){
+        pos++; // opening quote
+        StringBuilder sb = new StringBuilder();
+        while(true){
+            if(pos >= s.length()) throw error("unterminated string");
+            char c = s.charAt(pos++);
+            if(c == '"') return sb.toString();
+            if(c != '\\'){ sb.append(c); continue; }
+            if(pos >= s.length()) throw error("unterminated escape");
+            char e = s.charAt(pos++);
+            switch(e){
+                case '"', '\\', '/' -> sb.append(e);
+                case 'b' -> sb.append('\b');
+                case 'f' -> sb.append('\f');
+                case 'n' -> sb.append('\n');
+                case 'r' -> sb.append('\r');
+                case 't' -> sb.append('\t');
+                case 'u' -> {
+                    if(pos + 4 > s.length()) throw error("truncated \\u escape");
+                    try { sb.append((char) Integer.parseInt(s.substring(pos, pos + 4), 16)); }
+                    catch(NumberFormatException ex){ throw error("bad \\u escape"); }
+                    pos += 4;
+                }
+                default -> throw error("bad escape '\\"+e+"'");
+            }
+        }
+    }
+
+    private Object number(){
+        int start = pos;
+        if(peek('-')) pos++;
+        boolean integral = true;
+        while(pos < s.length()){
+            char c = s.charAt(pos);
+            if(c >= '0' && c <= '9'){ pos++; continue; }
+            if(c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-'){ integral = false; pos++; continue; }
+            break;
+        }
+        String text = s.substring(start, pos);
+        try { return integral ? (Object) Long.parseLong(text) : (Object) Double.parseDouble(text); }
+        catch(NumberFormatException e){ throw error("bad number '"+text+"'"); }
+    }
+
+    private Object literal(String word, Object value){
+        if(!s.startsWith(word, pos)) throw error("unexpected token");
+        pos += word.length();
+        return value;
+    }
+
+    private void skipWhitespace(){
+        while(pos < s.length() && Character.isWhitespace(s.charAt(pos))) pos++;
+    }
+
+    private boolean peek(char c){ return pos < s.length() && s.charAt(pos) == c; }
+
+    private void expect(char c){
+        if(!peek(c)) throw error("expected '"+c+"'");
+        pos++;
+    }
+
+    private IllegalArgumentException error(String message){
+        return new IllegalArgumentException("Invalid JSON at column "+(pos + 1)+": "+message);
+    }
+
+    /** Serializes maps, lists, strings, numbers, booleans and null. */
+    public static String write(Object v){
+        StringBuilder sb = new StringBuilder();
+        write(v, sb);
+        return sb.toString();
+    }
+
+    private static void write(Object v, StringBuilder sb){
+        if(v == null){ sb.append("null"); return; }
+        if(v instanceof String str){ quote(str, sb); return; }
+        if(v instanceof Number || v instanceof Boolean){ sb.append(v); return; }
+        if(v instanceof Map<?,?> map){
+            sb.append('{');
+            boolean first = true;
+            for(Map.Entry<?,?> e : map.entrySet()){
+                if(!first) sb.append(',');
+                first = false;
+                quote(String.valueOf(e.getKey()), sb);
+                sb.append(':');
+                write(e.getValue(), sb);
+            }
+            sb.append('}');
+            return;
+        }
+        if(v instanceof List<?> list){
+            sb.append('[');
+            for(int i=0;i<list.size();i++){
+                if(i > 0) sb.append(',');
+                write(list.get(i), sb);
+            }
+            sb.append(']');
+            return;
+        }
+        quote(String.valueOf(v), sb);
+    }
+
+    private static void quote(String str, StringBuilder sb){
+        sb.append('"');
+        for(char c : str.toCharArray()){
+            switch(c){
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> { if(c < 0x20) sb.append(String.format("\\u%04x", (int) c)); else sb.append(c); }
+            }
+        }
+        sb.append('"');
+    }
+}
@@ -5,38 +5,163 @@ import java.io.*;
 /** Tiny VM executing DhrLang bytecode for the current IR subset. */
 public class BytecodeVM {
     private static final int MAGIC = 0x44484243; // 'DHBC'
-    private static final int VERSION = 2;
-    private static final Object NO_EXCEPTION = new Object();
-
-    // Exception handler descriptor for this VM
-    private static class Handler {
-        final int pc;
-        final String type;
-        Handler(int pc, String type){ this.pc = pc; this.type = type; }
-    }
+    private static final int VERSION = 6; // plus the declared type of each static
+    private static final int LINE_TABLE_VERSION = 5; // compact, plus a pc -> source line table per function
+    private static final int COMPACT_VERSION = 4; // LEB128 operands, string table, function offset table
+    private static final int FIXED_WIDTH_VERSION = 3; // i32 operands, functions stored inline
+    private static final int LEGACY_VERSION = 2; // try regions as TRY_PUSH/TRY_POP instead of a handler table
+    private static final int MAX_SLOTS = 256;
+    private static final int[] NONE = new int[0];
 
     private static class Func {
         String name;
         int insCount;
+        int maxSlots = MAX_SLOTS, frameSize = MAX_SLOTS; // frames always have room for the four CALL arguments
         BytecodeOpcode[] op;
         int[][] args;
         boolean[] printNl;
+        // Handler table: pcs [hStart, hEnd) are covered by the catch at hPc for type cp[hType], innermost first
+        int[] hStart = NONE, hEnd = NONE, hPc = NONE, hType = NONE;
+        // Line table, left encoded in the image's code section: lineCount (u pcDelta, s lineDelta) entries at lineTable
+        String sourceFile;
+        int lineTable = -1, lineCount;
+    }
+
+    /**
+     * Decoded bytecode, ready to run. Functions of a compact (v4) image are decoded and verified on first
+     * use, so loading costs scale with the header rather than with the code; older versions load eagerly.
+     */
+    static final class Image {
+        final Object[] cp;
+        final String[] names;
+        final java.util.Map<String,Integer> fnIndex;
+        final boolean untrusted;
+        final dhrlang.ir.StaticLayout layout;
+        private final boolean lineTables; // bodies end with a line table (version 5)
+        private final String[] strings;
+        private final java.util.concurrent.atomic.AtomicReferenceArray<Func> funcs;
+        // Compact images only: the code section, each body's extent in it, and file static index -> layout index
+        private final java.nio.ByteBuffer code;
+        private final int[] offset, length, staticMap;
+
+        Image(Object[] cp, Func[] funcs, boolean untrusted, dhrlang.ir.StaticLayout layout){
+            this(cp, namesOf(funcs), new java.util.concurrent.atomic.AtomicReferenceArray<>(funcs), null, null, null, null, null, false, untrusted, layout);
+        }
+
+        Image(Object[] cp, String[] names, String[] strings, java.nio.ByteBuffer code, int[] offset, int[] length, int[] staticMap,
+              boolean lineTables, boolean untrusted, dhrlang.ir.StaticLayout layout){
+            this(cp, names, new java.util.concurrent.atomic.AtomicReferenceArray<>(names.length), strings, code, offset, length, staticMap, lineTables, untrusted, layout);
+        }
+
+        private Image(Object[] cp, String[] names, java.util.concurrent.atomic.AtomicReferenceArray<Func> funcs, String[] strings, java.nio.ByteBuffer code,
+                      int[] offset, int[] length, int[] staticMap, boolean lineTables, boolean untrusted, dhrlang.ir.StaticLayout layout){
+            this.cp = cp; this.names = names; this.funcs = funcs; this.strings = strings; this.code = code;
+            this.offset = offset; this.length = length; this.staticMap = staticMap; this.lineTables = lineTables;
+            this.untrusted = untrusted; this.layout = layout;
+            this.fnIndex = new java.util.HashMap<>();
+            for(int i=0;i<names.length;i++) fnIndex.put(names[i], i);
+        }
+
+        private static String[] namesOf(Func[] funcs){
+            String[] names = new String[funcs.length];
+            for(int i=0;i<funcs.length;i++) names[i] = funcs[i].name;
+            return names;
+        }
+
+        int functionCount(){ return names.length; }
+
+        /** An empty slot array sized for function {@code index}. */
+        Object[] newFrame(int index){ return new Object[func(index).frameSize]; }
+
+        /** Function {@code index}, decoding and verifying it first if this is its first use. */
+        Func func(int index){
+            Func fn = funcs.get(index);
+            if(fn == null){
+                fn = decodeFunction(this, index);
+                if(!funcs.compareAndSet(index, null, fn)) fn = funcs.get(index);
+            }
+            return fn;
+        }
     }
 
+    private dhrlang.runtime.CancellationToken cancellationToken;
+
+    /** Token polled at loop back-edges and calls, letting the host stop a running program. */
+    public void setCancellationToken(dhrlang.runtime.CancellationToken token){ this.cancellationToken = token; }
+
+    private dhrlang.runtime.Profiler profiler;
+
+    /** Profiler recording calls, time and opcode counts of the next {@link #execute}; null turns profiling off. */
+    public void setProfiler(dhrlang.runtime.Profiler profiler){ this.profiler = profiler; }
+
+    private dhrlang.runtime.SamplingProfiler sampler;
+
+    /** Sampler that reads the call stack of the next {@link #execute}; null turns sampling off. */
+    public void setSampler(dhrlang.runtime.SamplingProfiler sampler){ this.sampler = sampler; }
+
+    private dhrlang.runtime.OutputSink output;
+
+    /** Where the next {@link #execute} prints; null (the default) prints to {@code System.out}. */
+    public void setOutput(dhrlang.runtime.OutputSink output){ this.output = output; }
+
     public void execute(byte[] code){
+        load(code).newExecution(output != null ? output : dhrlang.runtime.OutputSink.stdout(), cancellationToken).profileWith(profiler).sampleWith(sampler).run();
+    }
+
+    /** Decodes and verifies {@code code} once; the result can be executed any number of times, also concurrently. */
+    public static LoadedProgram load(byte[] code){ return new LoadedProgram(decode(code)); }
+
+    /** Like {@link #load(byte[])}, reading the remaining bytes of {@code code} without copying them. */
+    public static LoadedProgram load(java.nio.ByteBuffer code){
+        return new LoadedProgram(decode(code, new dhrlang.ir.StaticLayout()));
+    }
+
+    /**
+     * Maps {@code file} read-only and loads it. Function bodies are decoded from the mapping on first call,
+     * so start-up touches only the header and the code that actually runs.
+     */
+    public static LoadedProgram load(java.nio.file.Path file) throws IOException {
+        try(java.nio.channels.FileChannel ch = java.nio.channels.FileChannel.open(file, java.nio.file.StandardOpenOption.READ)){
+            long size = ch.size();
+            if(size > Integer.MAX_VALUE) throw new IllegalArgumentException("Bytecode too large: "+size+" bytes");
+            return load(ch.map(java.nio.channels.FileChannel.MapMode.READ_ONLY, 0, size)); // the mapping outlives the channel
+        }
+    }
+
+    static Image decode(byte[] code){ return decode(code, new dhrlang.ir.StaticLayout()); }
+
+    /** Decodes and verifies {@code code}, linking its statics against {@code layout}. */
+    static Image decode(byte[] code, dhrlang.ir.StaticLayout layout){
+        if(code == null) throw new IllegalArgumentException("Bytecode is null");
+        return decode(java.nio.ByteBuffer.wrap(code), layout);
+    }
+
+    /**
+     * Decodes the bytes remaining in {@code code}. Compact images keep a view of the buffer and read each
+     * function body from it on first call, so a memory-mapped file is never copied onto the heap.
+     */
+    static Image decode(java.nio.ByteBuffer code, dhrlang.ir.StaticLayout layout){
+        boolean untrusted = Boolean.getBoolean("dhrlang.bytecode.untrusted");
+        int maxBytecodeBytes = Integer.getInteger(
+            "dhrlang.bytecode.maxBytes",
+            untrusted ? (10 * 1024 * 1024) : (50 * 1024 * 1024)
+        );
+        if(code.remaining() > maxBytecodeBytes) throw new IllegalArgumentException("Bytecode too large: "+code.remaining()+" bytes (max: "+maxBytecodeBytes+")");
+        java.nio.ByteBuffer in = code.slice(); // big-endian, independent position
+        if(in.remaining() < 8) throw new IllegalArgumentException("Invalid bytecode: truncated header");
+        if(in.getInt()!=MAGIC) throw new IllegalArgumentException("Bad magic");
+        int version = in.getInt();
+        if(version == VERSION || version == LINE_TABLE_VERSION || version == COMPACT_VERSION) return decodeCompact(in.slice(), version, untrusted, layout);
+        if(version!=FIXED_WIDTH_VERSION && version!=LEGACY_VERSION) throw new IllegalArgumentException("Bad version");
+        byte[] rest = new byte[in.remaining()];
+        in.get(rest);
+        return decodeFixedWidth(new DataInputStream(new ByteArrayInputStream(rest)), version, untrusted, layout);
+    }
+
+    /** Versions 2 and 3, decoded and verified eagerly (everything after magic and version). */
+    private static Image decodeFixedWidth(DataInputStream in, int version, boolean untrusted, dhrlang.ir.StaticLayout layout){
         try{
-            boolean untrusted = Boolean.getBoolean("dhrlang.bytecode.untrusted");
-
-            int maxBytecodeBytes = Integer.getInteger(
-                "dhrlang.bytecode.maxBytes",
-                untrusted ? (10 * 1024 * 1024) : (50 * 1024 * 1024)
-            );
-            if(code == null) throw new IllegalArgumentException("Bytecode is null");
-            if(code.length > maxBytecodeBytes) throw new IllegalArgumentException("Bytecode too large: "+code.length+" bytes (max: "+maxBytecodeBytes+")");
-
-            DataInputStream in = new DataInputStream(new ByteArrayInputStream(code));
-            if(in.readInt()!=MAGIC) throw new IllegalArgumentException("Bad magic");
-            if(in.readInt()!=VERSION) throw new IllegalArgumentException("Bad version");
+            boolean legacy = version == LEGACY_VERSION;
             // Read constants
             int cpCount = in.readInt();
             if(cpCount < 0) throw new IllegalArgumentException("Invalid constant pool size: "+cpCount);
@@ -57,8 +182,9 @@ public class BytecodeVM {
             int fnCount = in.readInt();
             if(fnCount < 0) throw new IllegalArgumentException("Invalid function count: "+fnCount);
             int maxFns = Integer.getInteger("dhrlang.bytecode.maxFunctions", untrusted ? 2_000 : 10_000);
+            int maxHandlers = Integer.getInteger("dhrlang.bytecode.maxHandlersPerFrame", untrusted ? 512 : 2_048);
             if(fnCount > maxFns) throw new IllegalArgumentException("Too many functions: "+fnCount+" (max: "+maxFns+")");
-            if(fnCount<=0) return;
+            if(fnCount<=0) return new Image(cp, new Func[0], untrusted, layout);
             Func[] funcs = new Func[fnCount];
             for(int f=0; f<fnCount; f++){
                 Func fn = new Func();
@@ -99,278 +225,548 @@ public class BytecodeVM {
                         case CATCH_BIND -> fn.args[i] = new int[]{ in.readInt() }; // targetSlot
                     }
                 }
+                if(!legacy){
+                    int hCount = in.readInt();
+                    if(hCount < 0 || hCount > maxHandlers) throw new IllegalArgumentException("Invalid handler count in function "+fn.name+": "+hCount+" (max: "+maxHandlers+")");
+                    fn.hStart = new int[hCount]; fn.hEnd = new int[hCount]; fn.hPc = new int[hCount]; fn.hType = new int[hCount];
+                    for(int k=0;k<hCount;k++){
+                        fn.hStart[k] = in.readInt(); fn.hEnd[k] = in.readInt(); fn.hPc[k] = in.readInt(); fn.hType[k] = in.readInt();
+                    }
+                }
                 funcs[f] = fn;
             }
 
             // Validate bytecode (bounds, indices, types) before executing.
-            validateBytecode(cp, funcs);
-
-            // Build name->index map
-            java.util.Map<String,Integer> fnIndex = new java.util.HashMap<>();
-            for(int i=0;i<fnCount;i++) fnIndex.put(funcs[i].name, i);
-
-            // Call stack
-            java.util.Deque<Integer> stackFunc = new java.util.ArrayDeque<>();
-            java.util.Deque<Integer> stackPc = new java.util.ArrayDeque<>();
-            java.util.Deque<Object[]> stackSlots = new java.util.ArrayDeque<>();
-            java.util.Deque<Integer> stackRetDest = new java.util.ArrayDeque<>();
-            // Exception handling stacks (per frame)
-            java.util.Deque<java.util.Deque<Handler>> stackHandlers = new java.util.ArrayDeque<>();
-            java.util.Deque<Object> stackPendingEx = new java.util.ArrayDeque<>();
-
-            int curFunc = 0;
-            Integer entryIdx = fnIndex.get("Main.main");
-            if(entryIdx == null){
-                for(int i=0;i<funcs.length;i++){
-                    if(funcs[i] != null && funcs[i].name != null && funcs[i].name.endsWith(".main")){
-                        entryIdx = i;
-                        break;
-                    }
+            validateBytecode(cp, funcs, version);
+            if(legacy){ for(Func fn : funcs) compileLegacyTryRegions(fn); }
+            linkStatics(cp, funcs, layout);
+            return new Image(cp, funcs, untrusted, layout);
+        }catch(IOException e){ throw new RuntimeException(e); }
+    }
+
+    /** Decodes a v4-v6 header (after magic and version); function bodies stay encoded until first use. */
+    private static Image decodeCompact(java.nio.ByteBuffer in, int version, boolean untrusted, dhrlang.ir.StaticLayout layout){
+        boolean lineTables = version >= LINE_TABLE_VERSION;
+        try{
+            String[] strings = new String[readCount(in, "string table size", Integer.MAX_VALUE)];
+            for(int i=0;i<strings.length;i++){
+                byte[] utf8 = new byte[readCount(in, "string length", Integer.MAX_VALUE)];
+                in.get(utf8);
+                strings[i] = new String(utf8, java.nio.charset.StandardCharsets.UTF_8);
+            }
+            int maxCp = Integer.getInteger("dhrlang.bytecode.maxConstPool", untrusted ? 10_000 : 50_000);
+            Object[] cp = new Object[readCount(in, "constant pool size", maxCp)];
+            for(int i=0;i<cp.length;i++){
+                int tag = in.get();
+                switch(tag){
+                    case 0 -> cp[i] = null;
+                    case 1 -> cp[i] = Leb128.readSigned(in);
+                    case 2 -> cp[i] = in.getDouble();
+                    case 3 -> cp[i] = stringAt(strings, Leb128.readUnsigned(in));
+                    case 4 -> cp[i] = in.get() != 0;
+                    default -> throw new IllegalArgumentException("Unknown const tag "+tag);
+                }
+            }
+            // Statics are already linked to file-local indices; map those onto the shared layout once, up front
+            int[] staticMap = new int[readCount(in, "static table size", Integer.MAX_VALUE)];
+            for(int i=0;i<staticMap.length;i++){
+                String className = stringAt(strings, Leb128.readUnsigned(in));
+                staticMap[i] = layout.indexOf(className, stringAt(strings, Leb128.readUnsigned(in)));
+                if(version >= VERSION) layout.declare(staticMap[i], stringAt(strings, Leb128.readUnsigned(in)));
+            }
+            int maxFns = Integer.getInteger("dhrlang.bytecode.maxFunctions", untrusted ? 2_000 : 10_000);
+            int fnCount = readCount(in, "function count", maxFns);
+            String[] names = new String[fnCount];
+            int[] offset = new int[fnCount], length = new int[fnCount];
+            for(int f=0; f<fnCount; f++){
+                names[f] = stringAt(strings, Leb128.readUnsigned(in));
+                offset[f] = Leb128.readUnsigned(in);
+                length[f] = Leb128.readUnsigned(in);
+            }
+            java.nio.ByteBuffer code = in.slice();
+            for(int f=0; f<fnCount; f++){
+                if((long) offset[f] + length[f] > code.remaining()){
+                    throw new IllegalArgumentException("Invalid bytecode: body of function "+names[f]+" out of range (offset="+offset[f]+", length="+length[f]+", code size="+code.remaining()+")");
                 }
             }
+            Image image = new Image(cp, names, strings, code, offset, length, staticMap, lineTables, untrusted, layout);
+            if(!getBooleanProperty("dhrlang.bytecode.lazyDecode", !untrusted)){
+                for(int f=0; f<fnCount; f++) image.func(f);
+            }
+            return image;
+        }catch(java.nio.BufferUnderflowException e){
+            throw new IllegalArgumentException("Invalid bytecode: truncated header");
+        }
+    }
 
-            boolean strictEntry = getBooleanProperty("dhrlang.bytecode.strictEntry", untrusted);
-            if(strictEntry && entryIdx == null){
-                throw new IllegalArgumentException("Invalid bytecode: no entrypoint found (expected Main.main or any *.main). Set -Ddhrlang.bytecode.strictEntry=false to allow defaulting to function index 0.");
+    private static Func decodeFunction(Image image, int index){
+        java.nio.ByteBuffer in = image.code.duplicate();
+        in.limit(image.offset[index] + image.length[index]).position(image.offset[index]);
+        Func fn = new Func();
+        fn.name = image.names[index];
+        try{
+            fn.maxSlots = Leb128.readUnsigned(in);
+            if(fn.maxSlots > MAX_SLOTS) throw new IllegalArgumentException("Too many slots in function "+fn.name+": "+fn.maxSlots+" (max: "+MAX_SLOTS+")");
+            fn.frameSize = Math.max(fn.maxSlots, 4);
+            int maxHandlers = Integer.getInteger("dhrlang.bytecode.maxHandlersPerFrame", image.untrusted ? 512 : 2_048);
+            int hCount = Leb128.readUnsigned(in);
+            if(hCount > maxHandlers) throw new IllegalArgumentException("Invalid handler count in function "+fn.name+": "+hCount+" (max: "+maxHandlers+")");
+            int maxIns = Integer.getInteger("dhrlang.bytecode.maxInstructionsPerFunction", image.untrusted ? 200_000 : 500_000);
+            fn.insCount = Leb128.readUnsigned(in);
+            if(fn.insCount > maxIns) throw new IllegalArgumentException("Too many instructions in function "+fn.name+": "+fn.insCount+" (max: "+maxIns+")");
+            if(fn.insCount > in.remaining()) throw new IllegalArgumentException("Invalid bytecode: function "+fn.name+" is truncated");
+            fn.op = new BytecodeOpcode[fn.insCount];
+            fn.args = new int[fn.insCount][];
+            fn.printNl = new boolean[fn.insCount];
+            for(int pc=0; pc<fn.insCount; pc++){
+                BytecodeOpcode opc = BytecodeOpcode.from(Leb128.readUnsigned(in));
+                int[] a = new int[operandCount(opc)];
+                for(int k=0;k<a.length;k++) a[k] = Leb128.readSignedInt(in);
+                if(opc == BytecodeOpcode.PRINT){ fn.printNl[pc] = a[1] != 0; a = new int[]{ a[0] }; }
+                else if(opc == BytecodeOpcode.GET_STATIC || opc == BytecodeOpcode.SET_STATIC){
+                    if(a[0] < 0 || a[0] >= image.staticMap.length) throw new IllegalArgumentException("Invalid bytecode in "+fn.name+" @pc="+pc+": static index out of range: "+a[0]);
+                    a[0] = image.staticMap[a[0]];
+                }
+                fn.op[pc] = opc; fn.args[pc] = a;
             }
-            if(entryIdx != null) curFunc = entryIdx;
-
-            int pc = 0; Object[] slots = new Object[256];
-            java.util.Deque<Handler> handlers = new java.util.ArrayDeque<>();
-            Object pendingEx = null; // bubbling exception (dispatch)
-            Object catchValue = null; // value to be bound by CATCH_BIND
-            java.util.Map<String, java.util.Map<String,Object>> statics = new java.util.HashMap<>();
-            Func cur = funcs[curFunc];
-            int safetyCounter = 0;
-            int maxSteps = Integer.getInteger("dhrlang.backend.maxSteps", untrusted ? 5_000_000 : 50_000_000);
-            int maxCallDepth = Integer.getInteger("dhrlang.bytecode.maxCallDepth", untrusted ? 2_000 : 10_000);
-            int maxHandlersPerFrame = Integer.getInteger("dhrlang.bytecode.maxHandlersPerFrame", untrusted ? 512 : 2_048);
-            while(true){
-                if(++safetyCounter > maxSteps){
-                    throw dhrlang.error.ErrorFactory.runtimeError("Execution aborted: exceeded max instruction steps ("+maxSteps+") - possible infinite loop.", (dhrlang.error.SourceLocation) null);
-                }
-                if(pc >= cur.insCount){
-                    // Implicit return
-                    if(stackFunc.isEmpty()) return; else {
-                        stackRetDest.pop();
-                        int prevFunc = stackFunc.pop();
-                        int prevPc = stackPc.pop();
-                        Object[] prevSlots = stackSlots.pop();
-                        handlers = stackHandlers.pop();
-                        {
-                            Object pe = stackPendingEx.pop();
-                            pendingEx = (pe==NO_EXCEPTION)? null : pe;
+            fn.hStart = new int[hCount]; fn.hEnd = new int[hCount]; fn.hPc = new int[hCount]; fn.hType = new int[hCount];
+            for(int k=0;k<hCount;k++){
+                fn.hStart[k] = Leb128.readUnsigned(in); fn.hEnd[k] = Leb128.readUnsigned(in);
+                fn.hPc[k] = Leb128.readUnsigned(in); fn.hType[k] = Leb128.readUnsigned(in);
+            }
+            if(image.lineTables) readLineTable(in, image, fn);
+        }catch(java.nio.BufferUnderflowException e){
+            throw new IllegalArgumentException("Invalid bytecode: function "+fn.name+" is truncated");
+        }
+        if(in.hasRemaining()) throw new IllegalArgumentException("Invalid bytecode: "+in.remaining()+" trailing bytes after function "+fn.name);
+        validateFunction(image.cp, fn, image.functionCount(), VERSION);
+        return fn;
+    }
+
+    // Checks the line table and remembers where it is; entries are decoded again only by lineAt
+    private static void readLineTable(java.nio.ByteBuffer in, Image image, Func fn){
+        int file = Leb128.readUnsigned(in);
+        fn.sourceFile = file == 0 ? null : stringAt(image.strings, file - 1);
+        fn.lineCount = readCount(in, "line table size of "+fn.name, fn.insCount);
+        fn.lineTable = in.position();
+        long pc = 0, line = 0;
+        for(int k=0; k<fn.lineCount; k++){
+            int delta = Leb128.readUnsigned(in);
+            pc += delta;
+            line += Leb128.readSignedInt(in);
+            if((k > 0 && delta == 0) || pc >= fn.insCount || line <= 0 || line > Integer.MAX_VALUE){
+                throw new IllegalArgumentException("Invalid bytecode in "+fn.name+": bad line table entry "+k+" (pc="+pc+", line="+line+")");
+            }
+        }
+    }
+
+    /**
+     * Source line of {@code pc} in {@code fn}, or -1 when the image has no line table for it. Decodes the
+     * table on every call, so it is meant for errors and profiles rather than for execution.
+     */
+    static int lineAt(Image image, Func fn, int pc){
+        if(fn.lineTable < 0) return -1;
+        java.nio.ByteBuffer in = image.code.duplicate();
+        in.position(fn.lineTable);
+        int entryPc = 0, line = -1, prevLine = 0;
+        for(int k=0; k<fn.lineCount; k++){
+            entryPc += Leb128.readUnsigned(in);
+            int entryLine = prevLine + Leb128.readSignedInt(in);
+            if(entryPc > pc) break;
+            line = prevLine = entryLine;
+        }
+        return line;
+    }
+
+    /** Source line of every pc of function {@code index}; -1 where unknown. */
+    static int[] linesOf(Image image, int index){
+        Func fn = image.func(index);
+        int[] lines = new int[fn.insCount];
+        java.util.Arrays.fill(lines, -1);
+        if(fn.lineTable < 0) return lines;
+        java.nio.ByteBuffer in = image.code.duplicate();
+        in.position(fn.lineTable);
+        int pc = 0, line = 0, from = 0, current = -1;
+        for(int k=0; k<fn.lineCount; k++){
+            pc += Leb128.readUnsigned(in);
+            line += Leb128.readSignedInt(in);
+            java.util.Arrays.fill(lines, from, pc, current);
+            from = pc; current = line;
+        }
+        java.util.Arrays.fill(lines, from, fn.insCount, current);
+        return lines;
+    }
+
+    private static dhrlang.error.SourceLocation locationAt(Image image, Func fn, int pc){
+        int line = lineAt(image, fn, pc);
+        return line < 0 ? null : new dhrlang.error.SourceLocation(fn.sourceFile, line, 0);
+    }
+
+    private static int operandCount(BytecodeOpcode opc){
+        return switch(opc){
+            case TRY_POP -> 0;
+            case JUMP, RETURN, THROW, CATCH_BIND -> 1;
+            case CONST, LOAD_LOCAL, STORE_LOCAL, JUMP_IF_FALSE, PRINT, NEG, NOT, ARRAY_LENGTH, GET_STATIC, SET_STATIC, TRY_PUSH -> 2;
+            case ADD, SUB, MUL, DIV, EQ, NEQ, LT, LE, GT, GE, NEW_ARRAY, LOAD_ELEM, STORE_ELEM, GET_FIELD, SET_FIELD -> 3;
+            case CALL -> 6;
+        };
+    }
+
+    // A count can never exceed the bytes left, since every counted item occupies at least one byte
+    private static int readCount(java.nio.ByteBuffer in, String label, int max){
+        int n = Leb128.readUnsigned(in);
+        if(n > max) throw new IllegalArgumentException("Invalid bytecode: "+label+" too large: "+n+" (max: "+max+")");
+        if(n > in.remaining()) throw new IllegalArgumentException("Invalid bytecode: "+label+" exceeds remaining input: "+n);
+        return n;
+    }
+
+    private static String stringAt(String[] strings, int idx){
+        if(idx >= strings.length) throw new IllegalArgumentException("Invalid bytecode: string index out of range: "+idx+" (strings="+strings.length+")");
+        return strings[idx];
+    }
+
+    // v2 try regions are compiled into the handler table at load; the TRY_PUSH/TRY_POP markers are dropped
+    private static void compileLegacyTryRegions(Func fn){
+        int n = fn.insCount;
+        int[] newPc = new int[n + 1];
+        int kept = 0;
+        for(int pc=0; pc<n; pc++){
+            newPc[pc] = kept;
+            if(fn.op[pc] != BytecodeOpcode.TRY_PUSH && fn.op[pc] != BytecodeOpcode.TRY_POP) kept++;
+        }
+        newPc[n] = kept;
+        if(kept == n) return;
+
+        java.util.List<int[]> table = new java.util.ArrayList<>();
+        java.util.Deque<Integer> open = new java.util.ArrayDeque<>();
+        for(int pc=0; pc<n; pc++){
+            if(fn.op[pc] == BytecodeOpcode.TRY_PUSH) open.push(pc);
+            else if(fn.op[pc] == BytecodeOpcode.TRY_POP && !open.isEmpty()) addLegacyRegion(fn, open.pop(), pc, newPc, table);
+        }
+        while(!open.isEmpty()) addLegacyRegion(fn, open.pop(), n, newPc, table);
+
+        BytecodeOpcode[] op = new BytecodeOpcode[kept];
+        int[][] args = new int[kept][];
+        boolean[] printNl = new boolean[kept];
+        for(int pc=0; pc<n; pc++){
+            if(fn.op[pc] == BytecodeOpcode.TRY_PUSH || fn.op[pc] == BytecodeOpcode.TRY_POP) continue;
+            int[] a = fn.args[pc];
+            if(fn.op[pc] == BytecodeOpcode.JUMP) a = new int[]{ newPc[a[0]] };
+            else if(fn.op[pc] == BytecodeOpcode.JUMP_IF_FALSE) a = new int[]{ a[0], newPc[a[1]] };
+            op[newPc[pc]] = fn.op[pc]; args[newPc[pc]] = a; printNl[newPc[pc]] = fn.printNl[pc];
+        }
+        fn.op = op; fn.args = args; fn.printNl = printNl; fn.insCount = kept;
+        fn.hStart = new int[table.size()]; fn.hEnd = new int[table.size()]; fn.hPc = new int[table.size()]; fn.hType = new int[table.size()];
+        for(int k=0;k<table.size();k++){
+            int[] e = table.get(k);
+            fn.hStart[k] = e[0]; fn.hEnd[k] = e[1]; fn.hPc[k] = e[2]; fn.hType[k] = e[3];
+        }
+    }
+
+    private static void addLegacyRegion(Func fn, int push, int pop, int[] newPc, java.util.List<int[]> table){
+        int start = newPc[push + 1], end = newPc[pop];
+        if(start < end) table.add(new int[]{ start, end, newPc[fn.args[push][0]], fn.args[push][1] });
+    }
+
+    // Load-time link: GET_STATIC/SET_STATIC operands become {staticIndex, slot}
+    private static void linkStatics(Object[] cp, Func[] funcs, dhrlang.ir.StaticLayout layout){
+        for(Func fn : funcs){
+            for(int pc=0; pc<fn.insCount; pc++){
+                if(fn.op[pc] == BytecodeOpcode.GET_STATIC || fn.op[pc] == BytecodeOpcode.SET_STATIC){
+                    int[] a = fn.args[pc];
+                    fn.args[pc] = new int[]{ layout.indexOf((String) cp[a[0]], (String) cp[a[1]]), a[2] };
+                }
+            }
+        }
+    }
+
+    static int resolveEntry(Image image){
+        String[] names = image.names;
+        Integer entryIdx = image.fnIndex.get("Main.main");
+        if(entryIdx == null){
+            for(int i=0;i<names.length;i++){
+                if(names[i] != null && names[i].endsWith(".main")){
+                    entryIdx = i;
+                    break;
+                }
+            }
+        }
+
+        boolean strictEntry = getBooleanProperty("dhrlang.bytecode.strictEntry", image.untrusted);
+        if(strictEntry && entryIdx == null){
+            throw new IllegalArgumentException("Invalid bytecode: no entrypoint found (expected Main.main or any *.main). Set -Ddhrlang.bytecode.strictEntry=false to allow defaulting to function index 0.");
+        }
+        return entryIdx != null ? entryIdx : 0;
+    }
+
+    /** Profiler counters for function {@code index} of a profiled execution. */
+    static dhrlang.runtime.Profiler.Function profiled(LoadedProgram.Execution exec, int index){
+        dhrlang.runtime.Profiler.Function pf = exec.profiled[index];
+        if(pf == null){
+            Func fn = exec.image.func(index);
+            String[] ops = new String[fn.insCount];
+            for(int pc=0;pc<ops.length;pc++) ops[pc] = fn.op[pc].name();
+            pf = exec.profiled[index] = exec.profiler.function(fn.name, ops).withLines(fn.sourceFile, linesOf(exec.image, index));
+        }
+        return pf;
+    }
+
+    /**
+     * Runs function {@code startFunc} from {@code startPc} over {@code startSlots} until it returns, and
+     * yields its return value. With {@code propagateUncaught}, an exception escaping that activation is
+     * raised as {@link dhrlang.ir.IrUncaughtThrow} instead of silently ending execution. The execution's
+     * budget is charged only at entry, calls and backward jumps. All mutable state is local to this call
+     * or owned by {@code exec}, so runs over one shared image may proceed in parallel.
+     */
+    static Object run(LoadedProgram.Execution exec, int startFunc, Object[] startSlots, int startPc, boolean propagateUncaught){
+        Image image = exec.image;
+        Object[] statics = exec.statics;
+        dhrlang.runtime.ExecutionBudget budget = exec.budget;
+        dhrlang.runtime.OutputSink out = exec.out;
+        // Profiling hooks sit only at control transfers: each straight-line run [segStart, pc] is recorded once
+        dhrlang.runtime.Profiler prof = exec.profiler;
+        int segStart = startPc;
+        dhrlang.runtime.LogicalStack calls = exec.calls; // null unless a sampler is attached
+        Object[] cp = image.cp;
+        boolean untrusted = image.untrusted;
+
+        // Call stack
+        java.util.Deque<Integer> stackFunc = new java.util.ArrayDeque<>();
+        java.util.Deque<Integer> stackPc = new java.util.ArrayDeque<>();
+        java.util.Deque<Object[]> stackSlots = new java.util.ArrayDeque<>();
+        java.util.Deque<Integer> stackRetDest = new java.util.ArrayDeque<>();
+
+        int curFunc = startFunc;
+        int pc = startPc; Object[] slots = startSlots;
+        Object catchValue = null; // value to be bound by CATCH_BIND
+        Func cur = image.func(curFunc);
+        int maxCallDepth = Integer.getInteger("dhrlang.bytecode.maxCallDepth", untrusted ? 2_000 : 10_000);
+        budget.charge(cur.insCount - startPc);
+        try {
+        while(true){
+            if(pc >= cur.insCount){
+                // Implicit return
+                if(prof != null) profiled(exec, curFunc).block(segStart, cur.insCount - 1);
+                if(stackFunc.isEmpty()) return null; else {
+                    stackRetDest.pop();
+                    int prevFunc = stackFunc.pop();
+                    int prevPc = stackPc.pop();
+                    Object[] prevSlots = stackSlots.pop();
+                    if(prof != null){ prof.exit(); segStart = prevPc; }
+                    if(calls != null) calls.pop();
+                    // No value on implicit return
+                    slots = prevSlots; curFunc = prevFunc; cur = image.func(curFunc); pc = prevPc; continue;
+                }
+            }
+            BytecodeOpcode opc = cur.op[pc];
+            int[] a = cur.args[pc];
+            switch(opc){
+                case CONST -> slots[a[0]] = cp[a[1]];
+                case LOAD_LOCAL -> slots[a[1]] = slots[a[0]];
+                case STORE_LOCAL -> slots[a[1]] = slots[a[0]];
+                case ADD, SUB, MUL, DIV -> {
+                    Object lv = slots[a[0]], rv = slots[a[1]];
+                    if(opc==BytecodeOpcode.ADD && (!(lv instanceof Number) || !(rv instanceof Number))){
+                        if(lv instanceof String || rv instanceof String) slots[a[2]] = String.valueOf(lv) + String.valueOf(rv);
+                        else throw dhrlang.error.ErrorFactory.typeError("Operands for '+' must be two numbers or at least one string for concatenation.", (dhrlang.error.SourceLocation) null);
+                    } else {
+                        if(!(lv instanceof Number) || !(rv instanceof Number)) throw dhrlang.error.ErrorFactory.typeError("Operands must be numbers for operator: "+opc.name(), (dhrlang.error.SourceLocation) null);
+                        Number l = (Number) lv;
+                        Number r = (Number) rv;
+                        if(opc==BytecodeOpcode.DIV){
+                            double divisor = r.doubleValue();
+                            if(divisor==0.0) throw dhrlang.error.ErrorFactory.arithmeticError("Division by zero.", (dhrlang.error.SourceLocation) null);
+                            slots[a[2]] = l.doubleValue()/divisor;
+                        } else if(l instanceof Double || r instanceof Double){
+                            double v = switch(opc){
+                                case ADD -> l.doubleValue()+r.doubleValue();
+                                case SUB -> l.doubleValue()-r.doubleValue();
+                                case MUL -> l.doubleValue()*r.doubleValue();
+                                default -> 0;
+                            };
+                            slots[a[2]] = v;
+                        } else {
+                            long lvv = l.longValue(), rvv = r.longValue();
+                            slots[a[2]] = switch(opc){
+                                case ADD -> lvv+rvv;
+                                case SUB -> lvv-rvv;
+                                case MUL -> lvv*rvv;
+                                default -> 0;
+                            };
                         }
-                        // No value on implicit return
-                        slots = prevSlots; curFunc = prevFunc; cur = funcs[curFunc]; pc = prevPc; continue;
                     }
                 }
-                BytecodeOpcode opc = cur.op[pc];
-                int[] a = cur.args[pc];
-                // If an exception is pending, attempt to transfer to nearest matching handler
-                if(pendingEx != null){
-                    if(!handlers.isEmpty()){
-                        Handler target = null;
-                        java.util.Iterator<Handler> it = handlers.iterator();
-                        while(it.hasNext()){
-                            Handler h = it.next();
-                            if(matchesCatch(h.type, pendingEx)) { target = h; it.remove(); break; }
-                        }
-                        if(target!=null){
-                            catchValue = pendingEx;
-                            pendingEx = null;
-                            pc = target.pc;
-                            continue;
+                case EQ, NEQ, LT, LE, GT, GE -> {
+                    Object left = slots[a[0]];
+                    Object right = slots[a[1]];
+                    boolean bool;
+                    switch(opc){
+                        case EQ -> bool = java.util.Objects.equals(left, right);
+                        case NEQ -> bool = !java.util.Objects.equals(left, right);
+                        case LT, LE, GT, GE -> {
+                            if(!(left instanceof Number) || !(right instanceof Number)) throw dhrlang.error.ErrorFactory.typeError("Operands must be numbers for operator: "+opc.name(), (dhrlang.error.SourceLocation) null);
+                            double ld = ((Number)left).doubleValue();
+                            double rd = ((Number)right).doubleValue();
+                            bool = switch(opc){
+                                case LT -> ld < rd;
+                                case LE -> ld <= rd;
+                                case GT -> ld > rd;
+                                case GE -> ld >= rd;
+                                default -> false;
+                            };
                         }
+                        default -> bool = false;
                     }
-                    // Unwind: pop frame
-                    if(stackFunc.isEmpty()) return; else {
-                        stackRetDest.pop();
+                    slots[a[2]] = bool;
+                }
+                case JUMP -> {
+                    if(a[0] <= pc) budget.charge(pc - a[0] + 1); // back-edge: bill the loop body in one go
+                    if(prof != null){ profiled(exec, curFunc).block(segStart, pc); segStart = a[0]; }
+                    pc = a[0]-1;
+                }
+                case JUMP_IF_FALSE -> {
+                    if(!truthy(slots[a[0]])){
+                        if(a[1] <= pc) budget.charge(pc - a[1] + 1);
+                        if(prof != null){ profiled(exec, curFunc).block(segStart, pc); segStart = a[1]; }
+                        pc = a[1]-1;
+                    }
+                }
+                case PRINT -> { Object v = slots[a[0]]; if(cur.printNl[pc]) out.println(String.valueOf(v)); else out.print(String.valueOf(v)); }
+                case RETURN -> {
+                    int retSlot = a[0]; Object retVal = (retSlot>=0? slots[retSlot] : null);
+                    if(prof != null) profiled(exec, curFunc).block(segStart, pc);
+                    if(stackFunc.isEmpty()) return retVal; else {
+                        int dest = stackRetDest.pop();
                         int prevFunc = stackFunc.pop();
                         int prevPc = stackPc.pop();
                         Object[] prevSlots = stackSlots.pop();
-                        handlers = stackHandlers.pop();
-                        Object prevPendingObj = stackPendingEx.pop();
-                        Object prevPending = (prevPendingObj==NO_EXCEPTION)? null : prevPendingObj;
-                        // bubble exception to caller (prefer caller's pending if any)
-                        pendingEx = (prevPending!=null)? prevPending : pendingEx;
-                        slots = prevSlots; curFunc = prevFunc; cur = funcs[curFunc]; pc = prevPc; continue;
+                        if(prof != null){ prof.exit(); segStart = prevPc; }
+                        if(calls != null) calls.pop();
+                        if(dest>=0) prevSlots[dest] = retVal;
+                        slots = prevSlots; curFunc = prevFunc; cur = image.func(curFunc); pc = prevPc;
+                        continue;
                     }
                 }
-                switch(opc){
-                    case CONST -> slots[a[0]] = cp[a[1]];
-                    case LOAD_LOCAL -> slots[a[1]] = slots[a[0]];
-                    case STORE_LOCAL -> slots[a[1]] = slots[a[0]];
-                    case ADD, SUB, MUL, DIV -> {
-                        Object lv = slots[a[0]], rv = slots[a[1]];
-                        if(opc==BytecodeOpcode.ADD && (!(lv instanceof Number) || !(rv instanceof Number))){
-                            if(lv instanceof String || rv instanceof String) slots[a[2]] = String.valueOf(lv) + String.valueOf(rv);
-                            else throw dhrlang.error.ErrorFactory.typeError("Operands for '+' must be two numbers or at least one string for concatenation.", (dhrlang.error.SourceLocation) null);
-                        } else {
-                            if(!(lv instanceof Number) || !(rv instanceof Number)) throw dhrlang.error.ErrorFactory.typeError("Operands must be numbers for operator: "+opc.name(), (dhrlang.error.SourceLocation) null);
-                            Number l = (Number) lv;
-                            Number r = (Number) rv;
-                            if(opc==BytecodeOpcode.DIV){
-                                double divisor = r.doubleValue();
-                                if(divisor==0.0) throw dhrlang.error.ErrorFactory.arithmeticError("Division by zero.", (dhrlang.error.SourceLocation) null);
-                                slots[a[2]] = l.doubleValue()/divisor;
-                            } else if(l instanceof Double || r instanceof Double){
-                                double v = switch(opc){
-                                    case ADD -> l.doubleValue()+r.doubleValue();
-                                    case SUB -> l.doubleValue()-r.doubleValue();
-                                    case MUL -> l.doubleValue()*r.doubleValue();
-                                    default -> 0;
-                                };
-                                slots[a[2]] = v;
-                            } else {
-                                long lvv = l.longValue(), rvv = r.longValue();
-                                slots[a[2]] = switch(opc){
-                                    case ADD -> lvv+rvv;
-                                    case SUB -> lvv-rvv;
-                                    case MUL -> lvv*rvv;
-                                    default -> 0;
-                                };
-                            }
-                        }
-                    }
-                    case EQ, NEQ, LT, LE, GT, GE -> {
-                        Object left = slots[a[0]];
-                        Object right = slots[a[1]];
-                        boolean bool;
-                        switch(opc){
-                            case EQ -> bool = java.util.Objects.equals(left, right);
-                            case NEQ -> bool = !java.util.Objects.equals(left, right);
-                            case LT, LE, GT, GE -> {
-                                if(!(left instanceof Number) || !(right instanceof Number)) throw dhrlang.error.ErrorFactory.typeError("Operands must be numbers for operator: "+opc.name(), (dhrlang.error.SourceLocation) null);
-                                double ld = ((Number)left).doubleValue();
-                                double rd = ((Number)right).doubleValue();
-                                bool = switch(opc){
-                                    case LT -> ld < rd;
-                                    case LE -> ld <= rd;
-                                    case GT -> ld > rd;
-                                    case GE -> ld >= rd;
-                                    default -> false;
-                                };
-                            }
-                            default -> bool = false;
-                        }
-                        slots[a[2]] = bool;
-                    }
-                    case JUMP -> { pc = a[0]-1; }
-                    case JUMP_IF_FALSE -> { if(!truthy(slots[a[0]])) pc = a[1]-1; }
-                    case PRINT -> { Object v = slots[a[0]]; if(cur.printNl[pc]) System.out.println(String.valueOf(v)); else System.out.print(String.valueOf(v)); }
-                    case RETURN -> {
-                        int retSlot = a[0]; Object retVal = (retSlot>=0? slots[retSlot] : null);
-                        if(stackFunc.isEmpty()) return; else {
-                            int dest = stackRetDest.pop();
-                            int prevFunc = stackFunc.pop();
-                            int prevPc = stackPc.pop();
-                            Object[] prevSlots = stackSlots.pop();
-                            java.util.Deque<Handler> prevHandlers = stackHandlers.pop();
-                            Object prevPendingObj = stackPendingEx.pop();
-                            Object prevPending = (prevPendingObj==NO_EXCEPTION)? null : prevPendingObj;
-                            if(dest>=0) prevSlots[dest] = retVal;
-                            slots = prevSlots; handlers = prevHandlers; pendingEx = prevPending; curFunc = prevFunc; cur = funcs[curFunc]; pc = prevPc;
-                            continue;
-                        }
-                    }
-                    case NEG -> {
-                        Object v = slots[a[0]]; Object r;
-                        if(v instanceof Integer i) r = -i.longValue();
-                        else if(v instanceof Long l) r = -l;
-                        else if(v instanceof Double d) r = -d;
-                        else throw dhrlang.error.ErrorFactory.typeError("Operand for '-' must be a number.", (dhrlang.error.SourceLocation) null);
-                        slots[a[1]] = r;
-                    }
-                    case NOT -> { slots[a[1]] = !truthy(slots[a[0]]); }
-                    case NEW_ARRAY -> {
-                        Object sz = slots[a[0]];
-                        if(!(sz instanceof Long) && !(sz instanceof Integer)) throw dhrlang.error.ErrorFactory.typeError("Array size must be a number.", (dhrlang.error.SourceLocation) null);
-                        int n = ((Number)sz).intValue();
-                        if(n < 0) throw dhrlang.error.ErrorFactory.validationError("Array size cannot be negative.", (dhrlang.error.SourceLocation) null);
-                        if(n > 1_000_000) throw dhrlang.error.ErrorFactory.validationError("Array size too large (max: 1,000,000).", (dhrlang.error.SourceLocation) null);
-                        Object[] arr = new Object[n];
-                        int typeIdx = a[2];
-                        String elementType = typeIdx >= 0 ? (String) cp[typeIdx] : null;
-                        Object def = dhrlang.runtime.RuntimeDefaults.getDefaultValue(elementType);
-                        if(def != null) java.util.Arrays.fill(arr, def);
-                        slots[a[1]] = arr;
-                    }
-                    case LOAD_ELEM -> {
-                        Object arrObj = slots[a[0]];
-                        Object idxObj = slots[a[1]];
-                        if(!(arrObj instanceof Object[] arr)) throw dhrlang.error.ErrorFactory.typeError("Can only index arrays.", (dhrlang.error.SourceLocation) null);
-                        if(!(idxObj instanceof Long) && !(idxObj instanceof Integer)) throw dhrlang.error.ErrorFactory.typeError("Array index must be a number.", (dhrlang.error.SourceLocation) null);
-                        int i = ((Number)idxObj).intValue();
-                        if(i<0 || i>=arr.length) throw dhrlang.error.ErrorFactory.indexError("Array index "+i+" out of bounds for array of length "+arr.length+".", (dhrlang.error.SourceLocation) null);
-                        slots[a[2]] = arr[i];
-                    }
-                    case STORE_ELEM -> {
-                        Object arrObj = slots[a[0]];
-                        Object idxObj = slots[a[1]];
-                        if(!(arrObj instanceof Object[] arr)) throw dhrlang.error.ErrorFactory.typeError("Can only assign to array elements.", (dhrlang.error.SourceLocation) null);
-                        if(!(idxObj instanceof Long) && !(idxObj instanceof Integer)) throw dhrlang.error.ErrorFactory.typeError("Array index must be a number.", (dhrlang.error.SourceLocation) null);
-                        int i = ((Number)idxObj).intValue();
-                        if(i<0 || i>=arr.length) throw dhrlang.error.ErrorFactory.indexError("Array index "+i+" out of bounds for array of length "+arr.length+".", (dhrlang.error.SourceLocation) null);
-                        arr[i] = slots[a[2]];
-                    }
-                    case ARRAY_LENGTH -> {
-                        Object arrObj = slots[a[0]];
-                        if(!(arrObj instanceof Object[] arr)) throw dhrlang.error.ErrorFactory.typeError("Can only call arrayLength on arrays.", (dhrlang.error.SourceLocation) null);
-                        slots[a[1]] = (long) arr.length;
-                    }
-                    case GET_STATIC -> {
-                        String cls = (String) cp[a[0]]; String field = (String) cp[a[1]];
-                        java.util.Map<String,Object> map = statics.computeIfAbsent(cls, k-> new java.util.HashMap<>());
-                        slots[a[2]] = map.get(field);
-                    }
-                    case SET_STATIC -> {
-                        String cls = (String) cp[a[0]]; String field = (String) cp[a[1]];
-                        java.util.Map<String,Object> map = statics.computeIfAbsent(cls, k-> new java.util.HashMap<>());
-                        map.put(field, slots[a[2]]);
-                    }
-                    case GET_FIELD -> {
-                        Object obj = slots[a[0]]; String field = (String) cp[a[1]];
-                        Object val = null; if(obj instanceof java.util.Map<?,?> m){ val = ((java.util.Map<?,?>)m).get(field); }
-                        slots[a[2]] = val;
-                    }
-                    case SET_FIELD -> {
-                        Object obj = slots[a[0]]; String field = (String) cp[a[1]];
-                        if(obj instanceof java.util.Map<?,?>){ @SuppressWarnings("unchecked") java.util.Map<Object,Object> m = (java.util.Map<Object,Object>) obj; m.put(field, slots[a[2]]); }
+                case NEG -> {
+                    Object v = slots[a[0]]; Object r;
+                    if(v instanceof Integer i) r = -i.longValue();
+                    else if(v instanceof Long l) r = -l;
+                    else if(v instanceof Double d) r = -d;
+                    else throw dhrlang.error.ErrorFactory.typeError("Operand for '-' must be a number.", (dhrlang.error.SourceLocation) null);
+                    slots[a[1]] = r;
+                }
+                case NOT -> { slots[a[1]] = !truthy(slots[a[0]]); }
+                case NEW_ARRAY -> {
+                    Object sz = slots[a[0]];
+                    if(!(sz instanceof Long) && !(sz instanceof Integer)) throw dhrlang.error.ErrorFactory.typeError("Array size must be a number.", (dhrlang.error.SourceLocation) null);
+                    int n = ((Number)sz).intValue();
+                    if(n < 0) throw dhrlang.error.ErrorFactory.validationError("Array size cannot be negative.", (dhrlang.error.SourceLocation) null);
+                    if(n > 1_000_000) throw dhrlang.error.ErrorFactory.validationError("Array size too large (max: 1,000,000).", (dhrlang.error.SourceLocation) null);
+                    budget.allocate(n);
+                    Object[] arr = new Object[n];
+                    int typeIdx = a[2];
+                    String elementType = typeIdx >= 0 ? (String) cp[typeIdx] : null;
+                    Object def = dhrlang.runtime.RuntimeDefaults.getDefaultValue(elementType);
+                    if(def != null) java.util.Arrays.fill(arr, def);
+                    slots[a[1]] = arr;
+                }
+                case LOAD_ELEM -> {
+                    Object arrObj = slots[a[0]];
+                    Object idxObj = slots[a[1]];
+                    if(!(arrObj instanceof Object[] arr)) throw dhrlang.error.ErrorFactory.typeError("Can only index arrays.", (dhrlang.error.SourceLocation) null);
+                    if(!(idxObj instanceof Long) && !(idxObj instanceof Integer)) throw dhrlang.error.ErrorFactory.typeError("Array index must be a number.", (dhrlang.error.SourceLocation) null);
+                    int i = ((Number)idxObj).intValue();
+                    if(i<0 || i>=arr.length) throw dhrlang.error.ErrorFactory.indexError("Array index "+i+" out of bounds for array of length "+arr.length+".", (dhrlang.error.SourceLocation) null);
+                    slots[a[2]] = arr[i];
+                }
+                case STORE_ELEM -> {
+                    Object arrObj = slots[a[0]];
+                    Object idxObj = slots[a[1]];
+                    if(!(arrObj instanceof Object[] arr)) throw dhrlang.error.ErrorFactory.typeError("Can only assign to array elements.", (dhrlang.error.SourceLocation) null);
+                    if(!(idxObj instanceof Long) && !(idxObj instanceof Integer)) throw dhrlang.error.ErrorFactory.typeError("Array index must be a number.", (dhrlang.error.SourceLocation) null);
+                    int i = ((Number)idxObj).intValue();
+                    if(i<0 || i>=arr.length) throw dhrlang.error.ErrorFactory.indexError("Array index "+i+" out of bounds for array of length "+arr.length+".", (dhrlang.error.SourceLocation) null);
+                    arr[i] = slots[a[2]];
+                }
+                case ARRAY_LENGTH -> {
+                    Object arrObj = slots[a[0]];
+                    if(!(arrObj instanceof Object[] arr)) throw dhrlang.error.ErrorFactory.typeError("Can only call arrayLength on arrays.", (dhrlang.error.SourceLocation) null);
+                    slots[a[1]] = (long) arr.length;
+                }
+                case GET_STATIC -> slots[a[1]] = statics[a[0]];
+                case SET_STATIC -> statics[a[0]] = slots[a[1]];
+                case GET_FIELD -> {
+                    Object obj = slots[a[0]]; String field = (String) cp[a[1]];
+                    Object val = null; if(obj instanceof java.util.Map<?,?> m){ val = ((java.util.Map<?,?>)m).get(field); }
+                    slots[a[2]] = val;
+                }
+                case SET_FIELD -> {
+                    Object obj = slots[a[0]]; String field = (String) cp[a[1]];
+                    if(obj instanceof java.util.Map<?,?>){ @SuppressWarnings("unchecked") java.util.Map<Object,Object> m = (java.util.Map<Object,Object>) obj; m.put(field, slots[a[2]]); }
+                }
+                case CALL -> {
+                    int callee = a[0];
+                    if(stackFunc.size() >= maxCallDepth){
+                        throw dhrlang.error.ErrorFactory.runtimeError("Execution aborted: exceeded max call depth ("+maxCallDepth+").", (dhrlang.error.SourceLocation) null);
                     }
-                    case CALL -> {
-                        int callee = a[0];
-                        if(stackFunc.size() >= maxCallDepth){
-                            throw dhrlang.error.ErrorFactory.runtimeError("Execution aborted: exceeded max call depth ("+maxCallDepth+").", (dhrlang.error.SourceLocation) null);
+                    if(prof != null) profiled(exec, curFunc).block(segStart, pc);
+                    // Save current state; next instruction will resume after call returns
+                    stackFunc.push(curFunc); stackPc.push(pc+1); stackSlots.push(slots); stackRetDest.push(a[5]);
+                    // Switch to callee
+                    curFunc = callee; cur = image.func(curFunc); pc = 0; slots = new Object[cur.frameSize];
+                    budget.charge(cur.insCount);
+                    if(prof != null){ prof.enter(profiled(exec, curFunc)); segStart = 0; }
+                    if(calls != null) calls.push(image.names[curFunc]);
+                    catchValue = null;
+                    // args: a1..a4
+                    Object[] callerSlots = stackSlots.peek();
+                    if(a[1] >= 0) slots[0] = callerSlots[a[1]];
+                    if(a[2] >= 0) slots[1] = callerSlots[a[2]];
+                    if(a[3] >= 0) slots[2] = callerSlots[a[3]];
+                    if(a[4] >= 0) slots[3] = callerSlots[a[4]];
+                    continue;
+                }
+                case TRY_PUSH, TRY_POP -> { /* compiled into the handler table at load */ }
+                case THROW -> {
+                    Object ex = slots[a[0]];
+                    // Only now are handler tables consulted: each frame at the pc it is suspended on
+                    int at = pc;
+                    int handlerPc;
+                    if(prof != null) profiled(exec, curFunc).block(segStart, pc);
+                    while((handlerPc = findHandler(cur, at, ex, cp)) < 0){
+                        if(stackFunc.isEmpty()){
+                            if(propagateUncaught) throw new dhrlang.ir.IrUncaughtThrow(ex);
+                            return null;
                         }
-                        // Save current state; next instruction will resume after call returns
-                        stackFunc.push(curFunc); stackPc.push(pc+1); stackSlots.push(slots); stackRetDest.push(a[5]);
-                        stackHandlers.push(handlers); stackPendingEx.push(pendingEx==null? NO_EXCEPTION : pendingEx);
-                        // Switch to callee
-                        curFunc = callee; cur = funcs[curFunc]; pc = 0; slots = new Object[256];
-                        handlers = new java.util.ArrayDeque<>(); pendingEx = null; catchValue = null;
-                        // args: a1..a4
-                        Object[] callerSlots = stackSlots.peek();
-                        if(a[1] >= 0) slots[0] = callerSlots[a[1]];
-                        if(a[2] >= 0) slots[1] = callerSlots[a[2]];
-                        if(a[3] >= 0) slots[2] = callerSlots[a[3]];
-                        if(a[4] >= 0) slots[3] = callerSlots[a[4]];
-                        continue;
-                    }
-                    case TRY_PUSH -> { handlers.push(new Handler(a[0], (String) cp[a[1]])); }
-                    case TRY_POP -> {
-                        if(handlers.isEmpty()) throw new IllegalArgumentException("Invalid bytecode in "+cur.name+" @pc="+pc+": TRY_POP with empty handler stack");
-                        handlers.pop();
+                        stackRetDest.pop();
+                        curFunc = stackFunc.pop(); cur = image.func(curFunc);
+                        at = stackPc.pop() - 1; // the CALL still in progress
+                        slots = stackSlots.pop();
+                        if(prof != null) prof.exit();
+                        if(calls != null) calls.pop();
                     }
-                    case THROW -> { pendingEx = slots[a[0]]; }
-                    case CATCH_BIND -> { slots[a[0]] = catchValue; catchValue = null; }
+                    catchValue = ex;
+                    pc = handlerPc;
+                    segStart = handlerPc;
+                    continue;
                 }
-                if(handlers.size() > maxHandlersPerFrame){
-                    throw dhrlang.error.ErrorFactory.runtimeError("Execution aborted: exceeded max try-handler depth ("+maxHandlersPerFrame+").", (dhrlang.error.SourceLocation) null);
-                }
-                pc++;
+                case CATCH_BIND -> { slots[a[0]] = catchValue; catchValue = null; }
             }
-        }catch(IOException e){ throw new RuntimeException(e); }
+            pc++;
+        }
+        } catch(dhrlang.interpreter.DhrRuntimeException e){
+            // The line table is only consulted here, once an error has already left the dispatch loop
+            dhrlang.error.SourceLocation at = e.getLocation() == null ? locationAt(image, cur, pc) : null;
+            if(at == null) throw e;
+            throw new dhrlang.interpreter.DhrRuntimeException(e.getValue(), at, e.getCategory());
+        }
+    }
+
+    private static int findHandler(Func fn, int pc, Object ex, Object[] cp){
+        for(int k=0;k<fn.hStart.length;k++){
+            if(fn.hStart[k] <= pc && pc < fn.hEnd[k] && matchesCatch((String) cp[fn.hType[k]], ex)) return fn.hPc[k];
+        }
+        return -1;
     }
 
     private static boolean getBooleanProperty(String key, boolean defaultValue){
@@ -379,64 +775,89 @@ public class BytecodeVM {
         return Boolean.parseBoolean(v);
     }
 
-    private static void validateBytecode(Object[] cp, Func[] funcs){
+    private static void validateBytecode(Object[] cp, Func[] funcs, int version){
+        for(int f=0; f<funcs.length; f++){
+            if(funcs[f] == null) throw new IllegalArgumentException("Invalid bytecode: null function at index "+f);
+            if(funcs[f].name == null) throw new IllegalArgumentException("Invalid bytecode: function name is null at index "+f);
+            validateFunction(cp, funcs[f], funcs.length, version);
+        }
+    }
+
+    private static void validateFunction(Object[] cp, Func fn, int fnCount, int version){
         boolean verifyControlFlow = Boolean.parseBoolean(System.getProperty("dhrlang.bytecode.verifyControlFlow", "true"));
-        int fnCount = funcs.length;
-        for(int f=0; f<fnCount; f++){
-            Func fn = funcs[f];
-            if(fn == null) throw new IllegalArgumentException("Invalid bytecode: null function at index "+f);
-            if(fn.name == null) throw new IllegalArgumentException("Invalid bytecode: function name is null at index "+f);
-            boolean[] isHandlerEntry = new boolean[fn.insCount];
-            for(int pc=0; pc<fn.insCount; pc++){
-                BytecodeOpcode opc = fn.op[pc];
-                int[] a = fn.args[pc];
-                switch(opc){
-                    case CONST -> { verifySlot(a[0], fn.name, pc, "targetSlot"); verifyCpIndex(a[1], cp.length, fn.name, pc, "constIndex"); }
-                    case LOAD_LOCAL, STORE_LOCAL -> { verifySlot(a[0], fn.name, pc, "sourceSlot"); verifySlot(a[1], fn.name, pc, "targetSlot"); }
-                    case ADD, SUB, MUL, DIV, EQ, NEQ, LT, LE, GT, GE -> {
-                        verifySlot(a[0], fn.name, pc, "leftSlot"); verifySlot(a[1], fn.name, pc, "rightSlot"); verifySlot(a[2], fn.name, pc, "targetSlot");
-                    }
-                    case JUMP -> verifyPcTarget(a[0], fn.insCount, fn.name, pc, "jumpTarget");
-                    case JUMP_IF_FALSE -> { verifySlot(a[0], fn.name, pc, "condSlot"); verifyPcTarget(a[1], fn.insCount, fn.name, pc, "jumpTarget"); }
-                    case PRINT -> verifySlot(a[0], fn.name, pc, "valueSlot");
-                    case RETURN -> verifySlotAllowMinusOne(a[0], fn.name, pc, "returnSlot");
-                    case NEG, NOT -> { verifySlot(a[0], fn.name, pc, "sourceSlot"); verifySlot(a[1], fn.name, pc, "targetSlot"); }
-                    case NEW_ARRAY -> {
-                        verifySlot(a[0], fn.name, pc, "sizeSlot"); verifySlot(a[1], fn.name, pc, "targetSlot");
-                        if(a[2] != -1) verifyCpString(a[2], cp, fn.name, pc, "elementType");
-                    }
-                    case LOAD_ELEM -> { verifySlot(a[0], fn.name, pc, "arraySlot"); verifySlot(a[1], fn.name, pc, "indexSlot"); verifySlot(a[2], fn.name, pc, "targetSlot"); }
-                    case STORE_ELEM -> { verifySlot(a[0], fn.name, pc, "arraySlot"); verifySlot(a[1], fn.name, pc, "indexSlot"); verifySlot(a[2], fn.name, pc, "valueSlot"); }
-                    case ARRAY_LENGTH -> { verifySlot(a[0], fn.name, pc, "arraySlot"); verifySlot(a[1], fn.name, pc, "targetSlot"); }
-                    case CALL -> {
-                        int callee = a[0];
-                        if(callee < 0 || callee >= fnCount) throw new IllegalArgumentException("Invalid bytecode in "+fn.name+" @pc="+pc+": invalid callee function index "+callee);
-                        verifySlotAllowMinusOne(a[1], fn.name, pc, "arg0");
-                        verifySlotAllowMinusOne(a[2], fn.name, pc, "arg1");
-                        verifySlotAllowMinusOne(a[3], fn.name, pc, "arg2");
-                        verifySlotAllowMinusOne(a[4], fn.name, pc, "arg3");
-                        verifySlotAllowMinusOne(a[5], fn.name, pc, "destSlot");
-                    }
-                    case GET_STATIC -> { verifyCpString(a[0], cp, fn.name, pc, "className"); verifyCpString(a[1], cp, fn.name, pc, "fieldName"); verifySlot(a[2], fn.name, pc, "targetSlot"); }
-                    case SET_STATIC -> { verifyCpString(a[0], cp, fn.name, pc, "className"); verifyCpString(a[1], cp, fn.name, pc, "fieldName"); verifySlot(a[2], fn.name, pc, "valueSlot"); }
-                    case GET_FIELD -> { verifySlot(a[0], fn.name, pc, "objectSlot"); verifyCpString(a[1], cp, fn.name, pc, "fieldName"); verifySlot(a[2], fn.name, pc, "targetSlot"); }
-                    case SET_FIELD -> { verifySlot(a[0], fn.name, pc, "objectSlot"); verifyCpString(a[1], cp, fn.name, pc, "fieldName"); verifySlot(a[2], fn.name, pc, "valueSlot"); }
-                    case TRY_PUSH -> { verifyPcTarget(a[0], fn.insCount, fn.name, pc, "catchPc"); verifyCpString(a[1], cp, fn.name, pc, "catchType"); }
-                    case TRY_POP -> {}
-                    case THROW -> verifySlot(a[0], fn.name, pc, "valueSlot");
-                    case CATCH_BIND -> verifySlot(a[0], fn.name, pc, "targetSlot");
+        boolean legacy = version == LEGACY_VERSION;
+        boolean[] isHandlerEntry = new boolean[fn.insCount];
+        for(int pc=0; pc<fn.insCount; pc++){
+            BytecodeOpcode opc = fn.op[pc];
+            int[] a = fn.args[pc];
+            switch(opc){
+                case CONST -> { verifySlot(a[0], fn, pc, "targetSlot"); verifyCpIndex(a[1], cp.length, fn.name, pc, "constIndex"); }
+                case LOAD_LOCAL, STORE_LOCAL -> { verifySlot(a[0], fn, pc, "sourceSlot"); verifySlot(a[1], fn, pc, "targetSlot"); }
+                case ADD, SUB, MUL, DIV, EQ, NEQ, LT, LE, GT, GE -> {
+                    verifySlot(a[0], fn, pc, "leftSlot"); verifySlot(a[1], fn, pc, "rightSlot"); verifySlot(a[2], fn, pc, "targetSlot");
                 }
-
-                if(opc == BytecodeOpcode.TRY_PUSH){
-                    int catchPc = a[0];
-                    if(catchPc >= 0 && catchPc < fn.insCount) isHandlerEntry[catchPc] = true;
+                case JUMP -> verifyPcTarget(a[0], fn.insCount, fn.name, pc, "jumpTarget");
+                case JUMP_IF_FALSE -> { verifySlot(a[0], fn, pc, "condSlot"); verifyPcTarget(a[1], fn.insCount, fn.name, pc, "jumpTarget"); }
+                case PRINT -> verifySlot(a[0], fn, pc, "valueSlot");
+                case RETURN -> verifySlotAllowMinusOne(a[0], fn, pc, "returnSlot");
+                case NEG, NOT -> { verifySlot(a[0], fn, pc, "sourceSlot"); verifySlot(a[1], fn, pc, "targetSlot"); }
+                case NEW_ARRAY -> {
+                    verifySlot(a[0], fn, pc, "sizeSlot"); verifySlot(a[1], fn, pc, "targetSlot");
+                    if(a[2] != -1) verifyCpString(a[2], cp, fn.name, pc, "elementType");
+                }
+                case LOAD_ELEM -> { verifySlot(a[0], fn, pc, "arraySlot"); verifySlot(a[1], fn, pc, "indexSlot"); verifySlot(a[2], fn, pc, "targetSlot"); }
+                case STORE_ELEM -> { verifySlot(a[0], fn, pc, "arraySlot"); verifySlot(a[1], fn, pc, "indexSlot"); verifySlot(a[2], fn, pc, "valueSlot"); }
+                case ARRAY_LENGTH -> { verifySlot(a[0], fn, pc, "arraySlot"); verifySlot(a[1], fn, pc, "targetSlot"); }
+                case CALL -> {
+                    int callee = a[0];
+                    if(callee < 0 || callee >= fnCount) throw new IllegalArgumentException("Invalid bytecode in "+fn.name+" @pc="+pc+": invalid callee function index "+callee);
+                    verifySlotAllowMinusOne(a[1], fn, pc, "arg0");
+                    verifySlotAllowMinusOne(a[2], fn, pc, "arg1");
+                    verifySlotAllowMinusOne(a[3], fn, pc, "arg2");
+                    verifySlotAllowMinusOne(a[4], fn, pc, "arg3");
+                    verifySlotAllowMinusOne(a[5], fn, pc, "destSlot");
+                }
+                // v4+ statics arrive linked as {staticIndex, slot}; older versions name them through the constant pool
+                case GET_STATIC -> {
+                    if(version >= COMPACT_VERSION){ verifySlot(a[1], fn, pc, "targetSlot"); }
+                    else { verifyCpString(a[0], cp, fn.name, pc, "className"); verifyCpString(a[1], cp, fn.name, pc, "fieldName"); verifySlot(a[2], fn, pc, "targetSlot"); }
+                }
+                case SET_STATIC -> {
+                    if(version >= COMPACT_VERSION){ verifySlot(a[1], fn, pc, "valueSlot"); }
+                    else { verifyCpString(a[0], cp, fn.name, pc, "className"); verifyCpString(a[1], cp, fn.name, pc, "fieldName"); verifySlot(a[2], fn, pc, "valueSlot"); }
+                }
+                case GET_FIELD -> { verifySlot(a[0], fn, pc, "objectSlot"); verifyCpString(a[1], cp, fn.name, pc, "fieldName"); verifySlot(a[2], fn, pc, "targetSlot"); }
+                case SET_FIELD -> { verifySlot(a[0], fn, pc, "objectSlot"); verifyCpString(a[1], cp, fn.name, pc, "fieldName"); verifySlot(a[2], fn, pc, "valueSlot"); }
+                case TRY_PUSH -> {
+                    if(!legacy) throw new IllegalArgumentException("Invalid bytecode in "+fn.name+" @pc="+pc+": TRY_PUSH is only valid in version "+LEGACY_VERSION+" (use the handler table)");
+                    verifyPcTarget(a[0], fn.insCount, fn.name, pc, "catchPc"); verifyCpString(a[1], cp, fn.name, pc, "catchType");
+                }
+                case TRY_POP -> {
+                    if(!legacy) throw new IllegalArgumentException("Invalid bytecode in "+fn.name+" @pc="+pc+": TRY_POP is only valid in version "+LEGACY_VERSION+" (use the handler table)");
                 }
+                case THROW -> verifySlot(a[0], fn, pc, "valueSlot");
+                case CATCH_BIND -> verifySlot(a[0], fn, pc, "targetSlot");
             }
 
-            if(verifyControlFlow){
-                validateTryStackControlFlow(fn, isHandlerEntry);
+            if(opc == BytecodeOpcode.TRY_PUSH){
+                int catchPc = a[0];
+                if(catchPc >= 0 && catchPc < fn.insCount) isHandlerEntry[catchPc] = true;
             }
         }
+
+        for(int k=0;k<fn.hStart.length;k++){
+            int hpc = fn.hPc[k];
+            if(fn.hStart[k] < 0 || fn.hStart[k] >= fn.hEnd[k] || fn.hEnd[k] > fn.insCount){
+                throw new IllegalArgumentException("Invalid bytecode in "+fn.name+" @pc="+fn.hStart[k]+": handler range ["+fn.hStart[k]+", "+fn.hEnd[k]+") out of range (insCount="+fn.insCount+")");
+            }
+            verifyPcTarget(hpc, fn.insCount, fn.name, fn.hStart[k], "handlerPc");
+            verifyCpString(fn.hType[k], cp, fn.name, hpc, "catchType");
+            isHandlerEntry[hpc] = true;
+        }
+
+        if(verifyControlFlow){
+            validateTryStackControlFlow(fn, isHandlerEntry);
+        }
     }
 
     private static void validateTryStackControlFlow(Func fn, boolean[] isHandlerEntry){
@@ -554,11 +975,11 @@ public class BytecodeVM {
         }
     }
 
-    private static void verifySlot(int slot, String fn, int pc, String label){
-        if(slot < 0 || slot >= 256) throw new IllegalArgumentException("Invalid bytecode in "+fn+" @pc="+pc+": "+label+" out of range: "+slot);
+    private static void verifySlot(int slot, Func fn, int pc, String label){
+        if(slot < 0 || slot >= fn.maxSlots) throw new IllegalArgumentException("Invalid bytecode in "+fn.name+" @pc="+pc+": "+label+" out of range: "+slot+" (maxSlots="+fn.maxSlots+")");
     }
 
-    private static void verifySlotAllowMinusOne(int slot, String fn, int pc, String label){
+    private static void verifySlotAllowMinusOne(int slot, Func fn, int pc, String label){
         if(slot == -1) return;
         verifySlot(slot, fn, pc, label);
     }
@@ -2,12 +2,13 @@ package dhrlang.bytecode;
 
 import dhrlang.ir.*;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
-/** Serializes IR program to a simple DhrLang bytecode (.dbc). */
+/** Serializes IR program to compact DhrLang bytecode (.dbc); see design/bytecode-format.md. */
 public class BytecodeWriter {
     private static final int MAGIC = 0x44484243; // 'DHBC'
-    private static final int VERSION = 2;
+    static final int VERSION = 6;
 
     private static class ConstPool {
         final Map<Object,Integer> indexMap = new HashMap<>();
@@ -22,164 +23,224 @@ public class BytecodeWriter {
             return ni;
         }
     }
-            private enum Tag{ NULL, LONG, DOUBLE, STRING, BOOLEAN }
+    private static class StringTable {
+        final Map<String,Integer> indexMap = new HashMap<>();
+        final List<String> entries = new ArrayList<>();
+        int indexOf(String s){
+            return indexMap.computeIfAbsent(s, k -> { entries.add(k); return entries.size() - 1; });
+        }
+    }
+    // Statics are linked at write time: GET_STATIC/SET_STATIC carry an index into this (class, field) table
+    private static class StaticTable {
+        final Map<String,Integer> indexMap = new HashMap<>();
+        final List<String[]> entries = new ArrayList<>();
+        int indexOf(String className, String fieldName){
+            return indexMap.computeIfAbsent(className + "." + fieldName, k -> { entries.add(new String[]{ className, fieldName }); return entries.size() - 1; });
+        }
+    }
+    private enum Tag{ NULL, LONG, DOUBLE, STRING, BOOLEAN }
     private enum NullConst{ INSTANCE }
 
+    /**
+     * Encodes {@code program}. Functions unreachable from the entry and {@code <clinit>} are dropped first
+     * (disable with {@code -Ddhrlang.bytecode.treeShake=false}); since the constant pool and string table
+     * are filled only from the bodies actually written, their constants and names go with them.
+     */
     public byte[] write(IrProgram program){
+        if(Boolean.parseBoolean(System.getProperty("dhrlang.bytecode.treeShake", "true"))) program = TreeShaker.shake(program);
         try{
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            DataOutputStream out = new DataOutputStream(baos);
-            out.writeInt(MAGIC); out.writeInt(VERSION);
-            // We will build constant pool while walking functions
-            ConstPool cp = new ConstPool();
-            // First pass: collect constants, function indices, and compute label positions per function
-            List<Map<String,Integer>> labelPositions = new ArrayList<>();
             Map<String,Integer> functionIndex = new HashMap<>();
             for(int i=0;i<program.functions.size();i++){
                 functionIndex.put(program.functions.get(i).name, i);
             }
-            for(IrFunction f: program.functions){
-                Map<String,Integer> map = new HashMap<>();
-                int pc = 0;
-                for(IrInstruction ins: f.instructions){
-                    if(ins instanceof IrConst c){ cp.indexOf(c.value); pc++; }
-                    else if(ins instanceof IrLabel lab){ map.put(lab.name, pc); }
-                    else if(ins instanceof IrGetStatic gs){ cp.indexOf(gs.className); cp.indexOf(gs.fieldName); pc++; }
-                    else if(ins instanceof IrSetStatic ss){ cp.indexOf(ss.className); cp.indexOf(ss.fieldName); pc++; }
-                    else if(ins instanceof IrGetField gf){ cp.indexOf(gf.fieldName); pc++; }
-                    else if(ins instanceof IrSetField sf){ cp.indexOf(sf.fieldName); pc++; }
-                    else if(ins instanceof IrNewArray na){ if(na.elementType!=null) cp.indexOf(na.elementType); pc++; }
-                    else if(ins instanceof IrTryPush tp){ cp.indexOf(tp.catchType); pc++; }
-                    else if(ins instanceof IrTryPop){ pc++; }
-                    else if(ins instanceof IrThrow th){ pc++; }
-                    else if(ins instanceof IrCatchBind cb){ pc++; }
-                    else if(!(ins instanceof IrLabel)){ pc++; }
-                }
-                labelPositions.add(map);
+            // Bodies first: encoding them fills the constant pool and the static table
+            ConstPool cp = new ConstPool();
+            StaticTable statics = new StaticTable();
+            StringTable strings = new StringTable(); // source file names go in while the bodies are written
+            List<byte[]> bodies = new ArrayList<>();
+            for(IrFunction f: program.functions) bodies.add(writeFunction(f, functionIndex, cp, statics, strings));
+
+            for(IrFunction f: program.functions) strings.indexOf(f.name);
+            for(String[] s: statics.entries){ strings.indexOf(s[0]); strings.indexOf(s[1]); strings.indexOf(staticType(program, s)); }
+            for(Object e: cp.entries){ if(e instanceof String s) strings.indexOf(s); }
+
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(baos);
+            out.writeInt(MAGIC); out.writeInt(VERSION);
+            Leb128.writeUnsigned(out, strings.entries.size());
+            for(String s: strings.entries){
+                byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+                Leb128.writeUnsigned(out, utf8.length); out.write(utf8);
             }
-            // Write constant pool
-            out.writeInt(cp.entries.size());
+            Leb128.writeUnsigned(out, cp.entries.size());
             for(Object e: cp.entries){
                 if(e==NullConst.INSTANCE){ out.writeByte(Tag.NULL.ordinal()); }
-                else if(e instanceof Long l){ out.writeByte(Tag.LONG.ordinal()); out.writeLong(l); }
-                else if(e instanceof Integer i){ out.writeByte(Tag.LONG.ordinal()); out.writeLong(i.longValue()); }
+                else if(e instanceof Long l){ out.writeByte(Tag.LONG.ordinal()); Leb128.writeSigned(out, l); }
+                else if(e instanceof Integer i){ out.writeByte(Tag.LONG.ordinal()); Leb128.writeSigned(out, i.longValue()); }
                 else if(e instanceof Double d){ out.writeByte(Tag.DOUBLE.ordinal()); out.writeDouble(d); }
-                else if(e instanceof String s){ out.writeByte(Tag.STRING.ordinal()); out.writeUTF(s); }
+                else if(e instanceof String s){ out.writeByte(Tag.STRING.ordinal()); Leb128.writeUnsigned(out, strings.indexOf(s)); }
                 else if(e instanceof Boolean b){ out.writeByte(Tag.BOOLEAN.ordinal()); out.writeBoolean(b); }
                 else { // fallback stringify
-                    out.writeByte(Tag.STRING.ordinal()); out.writeUTF(String.valueOf(e));
+                    out.writeByte(Tag.STRING.ordinal()); Leb128.writeUnsigned(out, strings.indexOf(String.valueOf(e)));
                 }
             }
-            // Write functions
-            out.writeInt(program.functions.size());
+            Leb128.writeUnsigned(out, statics.entries.size());
+            for(String[] s: statics.entries){
+                Leb128.writeUnsigned(out, strings.indexOf(s[0])); Leb128.writeUnsigned(out, strings.indexOf(s[1]));
+                Leb128.writeUnsigned(out, strings.indexOf(staticType(program, s)));
+            }
+            // Function table: name and (offset, length) of each body within the code section
+            Leb128.writeUnsigned(out, program.functions.size());
+            int offset = 0;
             for(int fi=0; fi<program.functions.size(); fi++){
-                IrFunction f = program.functions.get(fi);
-                out.writeUTF(f.name);
-                // Count non-label instructions
-                int count = 0; for(IrInstruction ins: f.instructions){ if(!(ins instanceof IrLabel)) count++; }
-                out.writeInt(count);
-                Map<String,Integer> labelPc = labelPositions.get(fi);
-                for(IrInstruction ins: f.instructions){
-                    if(ins instanceof IrLabel) continue;
-                    if(ins instanceof IrConst c){
-                        out.writeInt(BytecodeOpcode.CONST.code);
-                        out.writeInt(c.targetSlot); out.writeInt(cp.indexOf(c.value));
-                    } else if(ins instanceof IrLoadLocal ll){
-                        out.writeInt(BytecodeOpcode.LOAD_LOCAL.code);
-                        out.writeInt(ll.slot); out.writeInt(ll.targetSlot);
-                    } else if(ins instanceof IrStoreLocal sl){
-                        out.writeInt(BytecodeOpcode.STORE_LOCAL.code);
-                        out.writeInt(sl.sourceSlot); out.writeInt(sl.destSlot);
-                    } else if(ins instanceof IrBinOp b){
-                        BytecodeOpcode op = switch(b.op){
-                            case ADD -> BytecodeOpcode.ADD; case SUB -> BytecodeOpcode.SUB; case MUL -> BytecodeOpcode.MUL; case DIV -> BytecodeOpcode.DIV; };
-                        out.writeInt(op.code);
-                        out.writeInt(b.leftSlot); out.writeInt(b.rightSlot); out.writeInt(b.targetSlot);
-                    } else if(ins instanceof IrCompare cmp){
-                        BytecodeOpcode op = switch(cmp.op){
-                            case EQ->BytecodeOpcode.EQ; case NEQ->BytecodeOpcode.NEQ; case LT->BytecodeOpcode.LT; case LE->BytecodeOpcode.LE; case GT->BytecodeOpcode.GT; case GE->BytecodeOpcode.GE; };
-                        out.writeInt(op.code);
-                        out.writeInt(cmp.leftSlot); out.writeInt(cmp.rightSlot); out.writeInt(cmp.targetSlot);
-                    } else if(ins instanceof IrJump j){
-                        out.writeInt(BytecodeOpcode.JUMP.code);
-                        Integer target = labelPc.get(j.label);
-                        if(target == null) throw new IllegalArgumentException("Unresolved label in function "+f.name+": "+j.label);
-                        out.writeInt(target);
-                    } else if(ins instanceof IrJumpIfFalse jf){
-                        out.writeInt(BytecodeOpcode.JUMP_IF_FALSE.code);
-                        Integer target = labelPc.get(jf.label);
-                        if(target == null) throw new IllegalArgumentException("Unresolved label in function "+f.name+": "+jf.label);
-                        out.writeInt(jf.condSlot); out.writeInt(target);
-                    } else if(ins instanceof IrPrint p){
-                        out.writeInt(BytecodeOpcode.PRINT.code);
-                        out.writeInt(p.slot); out.writeBoolean(p.newline);
-                    } else if(ins instanceof IrReturn r){
-                        out.writeInt(BytecodeOpcode.RETURN.code);
-                        out.writeInt(r.slot==null?-1:r.slot);
-                    } else if(ins instanceof IrUnaryOp u){
-                        BytecodeOpcode op = (u.op== IrUnaryOp.Op.NEG)? BytecodeOpcode.NEG : BytecodeOpcode.NOT;
-                        out.writeInt(op.code);
-                        out.writeInt(u.sourceSlot); out.writeInt(u.targetSlot);
-                    } else if(ins instanceof IrNewArray na){
-                        out.writeInt(BytecodeOpcode.NEW_ARRAY.code);
-                        out.writeInt(na.sizeSlot); out.writeInt(na.targetSlot);
-                        out.writeInt(na.elementType==null? -1 : cp.indexOf(na.elementType));
-                    } else if(ins instanceof IrLoadElement le){
-                        out.writeInt(BytecodeOpcode.LOAD_ELEM.code);
-                        out.writeInt(le.arraySlot); out.writeInt(le.indexSlot); out.writeInt(le.targetSlot);
-                    } else if(ins instanceof IrStoreElement se){
-                        out.writeInt(BytecodeOpcode.STORE_ELEM.code);
-                        out.writeInt(se.arraySlot); out.writeInt(se.indexSlot); out.writeInt(se.valueSlot);
-                    } else if(ins instanceof IrArrayLength al){
-                        out.writeInt(BytecodeOpcode.ARRAY_LENGTH.code);
-                        out.writeInt(al.arraySlot); out.writeInt(al.targetSlot);
-                    } else if(ins instanceof IrCall call){
-                        out.writeInt(BytecodeOpcode.CALL.code);
-                        int idx = functionIndex.getOrDefault(call.functionName, -1);
-                        int a0=-1,a1=-1,a2=-1,a3=-1; int n = call.argSlots.length;
-                        if(n>0) a0 = call.argSlots[0]; if(n>1) a1 = call.argSlots[1]; if(n>2) a2 = call.argSlots[2]; if(n>3) a3 = call.argSlots[3];
-                        out.writeInt(idx); out.writeInt(a0); out.writeInt(a1); out.writeInt(a2); out.writeInt(a3); out.writeInt(call.destSlot);
-                    } else if(ins instanceof IrGetStatic gs){
-                        out.writeInt(BytecodeOpcode.GET_STATIC.code);
-                        out.writeInt(cp.indexOf(gs.className));
-                        out.writeInt(cp.indexOf(gs.fieldName));
-                        out.writeInt(gs.targetSlot);
-                    } else if(ins instanceof IrSetStatic ss){
-                        out.writeInt(BytecodeOpcode.SET_STATIC.code);
-                        out.writeInt(cp.indexOf(ss.className));
-                        out.writeInt(cp.indexOf(ss.fieldName));
-                        out.writeInt(ss.valueSlot);
-                    } else if(ins instanceof IrGetField gf){
-                        out.writeInt(BytecodeOpcode.GET_FIELD.code);
-                        out.writeInt(gf.objectSlot);
-                        out.writeInt(cp.indexOf(gf.fieldName));
-                        out.writeInt(gf.targetSlot);
-                    } else if(ins instanceof IrSetField sf){
-                        out.writeInt(BytecodeOpcode.SET_FIELD.code);
-                        out.writeInt(sf.objectSlot);
-                        out.writeInt(cp.indexOf(sf.fieldName));
-                        out.writeInt(sf.valueSlot);
-                    } else if(ins instanceof IrTryPush tp){
-                        out.writeInt(BytecodeOpcode.TRY_PUSH.code);
-                        Integer target = labelPc.get(tp.catchLabel);
-                        if(target == null) throw new IllegalArgumentException("Unresolved label in function "+f.name+": "+tp.catchLabel);
-                        out.writeInt(target);
-                        out.writeInt(cp.indexOf(tp.catchType));
-                    } else if(ins instanceof IrTryPop){
-                        out.writeInt(BytecodeOpcode.TRY_POP.code);
-                    } else if(ins instanceof IrThrow th){
-                        out.writeInt(BytecodeOpcode.THROW.code);
-                        out.writeInt(th.valueSlot);
-                    } else if(ins instanceof IrCatchBind cb){
-                        out.writeInt(BytecodeOpcode.CATCH_BIND.code);
-                        out.writeInt(cb.targetSlot);
-                    } else {
-                        // unknowns ignored
-                    }
-                }
+                Leb128.writeUnsigned(out, strings.indexOf(program.functions.get(fi).name));
+                Leb128.writeUnsigned(out, offset); Leb128.writeUnsigned(out, bodies.get(fi).length);
+                offset += bodies.get(fi).length;
             }
+            for(byte[] body: bodies) out.write(body);
             out.flush();
             return baos.toByteArray();
         }catch(IOException e){ throw new RuntimeException(e); }
     }
+
+    // Declared type of a static table entry; the empty string when the IR does not know it
+    private static String staticType(IrProgram program, String[] entry){
+        return program.staticTypes.getOrDefault(entry[0] + "." + entry[1], "");
+    }
+
+    // u maxSlots, u handlerCount, u insCount, then (u opcode, s operand...) per instruction, the handler table and the line table
+    private static byte[] writeFunction(IrFunction f, Map<String,Integer> functionIndex, ConstPool cp, StaticTable statics, StringTable strings) throws IOException {
+        Map<String,Integer> labelPc = new HashMap<>();
+        int count = 0;
+        for(IrInstruction ins: f.instructions){
+            if(ins instanceof IrLabel lab) labelPc.put(lab.name, count);
+            else if(emitted(ins)) count++;
+        }
+        FunctionEncoder e = new FunctionEncoder();
+        for(IrInstruction ins: f.instructions){
+            if(!emitted(ins)) continue;
+            if(ins instanceof IrConst c){
+                e.op(BytecodeOpcode.CONST).slot(c.targetSlot).operand(cp.indexOf(c.value));
+            } else if(ins instanceof IrLoadLocal ll){
+                e.op(BytecodeOpcode.LOAD_LOCAL).slot(ll.slot).slot(ll.targetSlot);
+            } else if(ins instanceof IrStoreLocal sl){
+                e.op(BytecodeOpcode.STORE_LOCAL).slot(sl.sourceSlot).slot(sl.destSlot);
+            } else if(ins instanceof IrBinOp b){
+                BytecodeOpcode op = switch(b.op){
+                    case ADD -> BytecodeOpcode.ADD; case SUB -> BytecodeOpcode.SUB; case MUL -> BytecodeOpcode.MUL; case DIV -> BytecodeOpcode.DIV; };
+                e.op(op).slot(b.leftSlot).slot(b.rightSlot).slot(b.targetSlot);
+            } else if(ins instanceof IrCompare cmp){
+                BytecodeOpcode op = switch(cmp.op){
+                    case EQ->BytecodeOpcode.EQ; case NEQ->BytecodeOpcode.NEQ; case LT->BytecodeOpcode.LT; case LE->BytecodeOpcode.LE; case GT->BytecodeOpcode.GT; case GE->BytecodeOpcode.GE; };
+                e.op(op).slot(cmp.leftSlot).slot(cmp.rightSlot).slot(cmp.targetSlot);
+            } else if(ins instanceof IrJump j){
+                e.op(BytecodeOpcode.JUMP).operand(labelTarget(f, labelPc, j.label));
+            } else if(ins instanceof IrJumpIfFalse jf){
+                e.op(BytecodeOpcode.JUMP_IF_FALSE).slot(jf.condSlot).operand(labelTarget(f, labelPc, jf.label));
+            } else if(ins instanceof IrPrint p){
+                e.op(BytecodeOpcode.PRINT).slot(p.slot).operand(p.newline ? 1 : 0);
+            } else if(ins instanceof IrReturn r){
+                e.op(BytecodeOpcode.RETURN).slot(r.slot==null?-1:r.slot);
+            } else if(ins instanceof IrUnaryOp u){
+                e.op(u.op== IrUnaryOp.Op.NEG ? BytecodeOpcode.NEG : BytecodeOpcode.NOT).slot(u.sourceSlot).slot(u.targetSlot);
+            } else if(ins instanceof IrNewArray na){
+                e.op(BytecodeOpcode.NEW_ARRAY).slot(na.sizeSlot).slot(na.targetSlot).operand(na.elementType==null? -1 : cp.indexOf(na.elementType));
+            } else if(ins instanceof IrLoadElement le){
+                e.op(BytecodeOpcode.LOAD_ELEM).slot(le.arraySlot).slot(le.indexSlot).slot(le.targetSlot);
+            } else if(ins instanceof IrStoreElement se){
+                e.op(BytecodeOpcode.STORE_ELEM).slot(se.arraySlot).slot(se.indexSlot).slot(se.valueSlot);
+            } else if(ins instanceof IrArrayLength al){
+                e.op(BytecodeOpcode.ARRAY_LENGTH).slot(al.arraySlot).slot(al.targetSlot);
+            } else if(ins instanceof IrCall call){
+                int a0=-1,a1=-1,a2=-1,a3=-1; int n = call.argSlots.length;
+                if(n>0) a0 = call.argSlots[0]; if(n>1) a1 = call.argSlots[1]; if(n>2) a2 = call.argSlots[2]; if(n>3) a3 = call.argSlots[3];
+                e.op(BytecodeOpcode.CALL).operand(functionIndex.getOrDefault(call.functionName, -1))
+                        .slot(a0).slot(a1).slot(a2).slot(a3).slot(call.destSlot);
+            } else if(ins instanceof IrGetStatic gs){
+                e.op(BytecodeOpcode.GET_STATIC).operand(statics.indexOf(gs.className, gs.fieldName)).slot(gs.targetSlot);
+            } else if(ins instanceof IrSetStatic ss){
+                e.op(BytecodeOpcode.SET_STATIC).operand(statics.indexOf(ss.className, ss.fieldName)).slot(ss.valueSlot);
+            } else if(ins instanceof IrGetField gf){
+                e.op(BytecodeOpcode.GET_FIELD).slot(gf.objectSlot).operand(cp.indexOf(gf.fieldName)).slot(gf.targetSlot);
+            } else if(ins instanceof IrSetField sf){
+                e.op(BytecodeOpcode.SET_FIELD).slot(sf.objectSlot).operand(cp.indexOf(sf.fieldName)).slot(sf.valueSlot);
+            } else if(ins instanceof IrThrow th){
+                e.op(BytecodeOpcode.THROW).slot(th.valueSlot);
+            } else if(ins instanceof IrCatchBind cb){
+                e.op(BytecodeOpcode.CATCH_BIND).slot(cb.targetSlot);
+            } else {
+                throw new IllegalArgumentException("Unsupported IR instruction in function "+f.name+": "+ins.getClass().getSimpleName());
+            }
+        }
+        for(IrInstruction ins: f.instructions){
+            if(ins instanceof IrTryPush tp && !labelPc.containsKey(tp.catchLabel)) throw new IllegalArgumentException("Unresolved label in function "+f.name+": "+tp.catchLabel);
+        }
+        IrHandlerTable table = IrHandlerTable.build(f);
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        Leb128.writeUnsigned(body, e.maxSlot + 1);
+        Leb128.writeUnsigned(body, table.size());
+        Leb128.writeUnsigned(body, count);
+        e.code.writeTo(body);
+        // (startPc, endPc, handlerPc, catchTypeConstIndex) per entry, innermost first
+        for(int k=0;k<table.size();k++){
+            Leb128.writeUnsigned(body, pcOf(f, table.start[k]));
+            Leb128.writeUnsigned(body, pcOf(f, table.end[k]));
+            Leb128.writeUnsigned(body, pcOf(f, table.handler[k]));
+            Leb128.writeUnsigned(body, cp.indexOf(table.type[k]));
+        }
+        writeLineTable(body, f, strings);
+        return body.toByteArray();
+    }
+
+    // u (sourceFile string index + 1, 0 when none), u entryCount, then (u pcDelta, s lineDelta) per entry
+    private static void writeLineTable(ByteArrayOutputStream body, IrFunction f, StringTable strings) throws IOException {
+        // IR entries map to bytecode pcs; entries left covering only labels or try markers collapse into the next
+        int[] pcAt = new int[f.instructions.size() + 1];
+        for(int i=0; i<f.instructions.size(); i++) pcAt[i+1] = pcAt[i] + (emitted(f.instructions.get(i)) ? 1 : 0);
+        int[] pcs = new int[f.lineEntries()], lines = new int[f.lineEntries()];
+        int n = 0, insCount = pcAt[f.instructions.size()];
+        for(int k=0; k<f.lineEntries(); k++){
+            int pc = pcAt[Math.min(f.lineEntryStart(k), f.instructions.size())], line = f.lineEntryLine(k);
+            if(pc >= insCount) break;
+            if(n > 0 && pcs[n-1] == pc) n--;
+            if(n > 0 && lines[n-1] == line) continue;
+            pcs[n] = pc; lines[n++] = line;
+        }
+        Leb128.writeUnsigned(body, f.sourceFile == null ? 0 : strings.indexOf(f.sourceFile) + 1);
+        Leb128.writeUnsigned(body, n);
+        int prevPc = 0, prevLine = 0;
+        for(int k=0; k<n; k++){
+            Leb128.writeUnsigned(body, pcs[k] - prevPc); Leb128.writeSigned(body, lines[k] - prevLine);
+            prevPc = pcs[k]; prevLine = lines[k];
+        }
+    }
+
+    private static int labelTarget(IrFunction f, Map<String,Integer> labelPc, String label){
+        Integer target = labelPc.get(label);
+        if(target == null) throw new IllegalArgumentException("Unresolved label in function "+f.name+": "+label);
+        return target;
+    }
+
+    private static final class FunctionEncoder {
+        final ByteArrayOutputStream code = new ByteArrayOutputStream();
+        int maxSlot = -1;
+        FunctionEncoder op(BytecodeOpcode op) throws IOException { Leb128.writeUnsigned(code, op.code); return this; }
+        FunctionEncoder operand(int v) throws IOException { Leb128.writeSigned(code, v); return this; }
+        FunctionEncoder slot(int slot) throws IOException { maxSlot = Math.max(maxSlot, slot); return operand(slot); }
+    }
+
+    // Try regions become a handler table, so labels and TRY_PUSH/TRY_POP markers occupy no pc
+    private static boolean emitted(IrInstruction ins){
+        return !(ins instanceof IrLabel) && !(ins instanceof IrTryPush) && !(ins instanceof IrTryPop);
+    }
+
+    /** Bytecode pc that IR instruction {@code irIndex} of {@code f} is written at (labels and try markers occupy no pc). */
+    public static int pcOf(IrFunction f, int irIndex){
+        int pc = 0;
+        for(int i=0; i<irIndex && i<f.instructions.size(); i++){
+            if(emitted(f.instructions.get(i))) pc++;
+        }
+        return pc;
+    }
 }
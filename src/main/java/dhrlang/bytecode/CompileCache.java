@@ -0,0 +1,145 @@
+package dhrlang.bytecode;
+
+import dhrlang.error.DhrError;
+import dhrlang.error.ErrorCode;
+import dhrlang.error.ErrorType;
+import dhrlang.error.SourceLocation;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Content-addressed cache of compiled programs. An entry is keyed by a SHA-256 over the source text, the
+ * compiler version and the flags that affect compilation. It holds verified DHBC plus the warnings reported
+ * while compiling, so a repeat run can go straight to the VM without lexing, parsing, type checking or
+ * lowering. Entries are written to a temporary file and atomically renamed into place, so concurrent runs
+ * never see a partial entry; anything unreadable is treated as a miss.
+ */
+public final class CompileCache {
+    private static final int MAGIC = 0x44484343; // 'DHCC'
+    private static final int FORMAT = 1;
+
+    private final Path dir;
+
+    public CompileCache(Path dir){ this.dir = dir; }
+
+    /** A cache hit: the bytecode and the warnings to re-report. */
+    public static final class Entry {
+        public final byte[] bytecode;
+        public final List<DhrError> warnings;
+        Entry(byte[] bytecode, List<DhrError> warnings){ this.bytecode = bytecode; this.warnings = warnings; }
+    }
+
+    /** Cache key for {@code source} compiled by {@code compilerVersion} with {@code flags}. */
+    public static String key(String source, String compilerVersion, String... flags){
+        try{
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            update(sha, "dhbc=" + BytecodeWriter.VERSION);
+            update(sha, compilerVersion);
+            for(String f : flags) update(sha, f);
+            update(sha, source);
+            StringBuilder hex = new StringBuilder(64);
+            for(byte b : sha.digest()) hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            return hex.toString();
+        }catch(NoSuchAlgorithmException e){ throw new IllegalStateException(e); }
+    }
+
+    // Length-prefixed so that ("ab","c") and ("a","bc") hash differently
+    private static void update(MessageDigest sha, String s){
+        byte[] b = String.valueOf(s).getBytes(StandardCharsets.UTF_8);
+        sha.update(new byte[]{ (byte)(b.length >>> 24), (byte)(b.length >>> 16), (byte)(b.length >>> 8), (byte) b.length });
+        sha.update(b);
+    }
+
+    /** The entry for {@code key}, or null on a miss (including a corrupt or unverifiable entry). */
+    public Entry get(String key){
+        Path file = dir.resolve(key + ".dhcc");
+        if(!Files.isRegularFile(file)) return null;
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))){
+            if(in.readInt() != MAGIC || in.readInt() != FORMAT || !key.equals(readString(in))) return null;
+            int count = in.readInt();
+            if(count < 0) return null;
+            List<DhrError> warnings = new ArrayList<>(Math.min(count, 1024));
+            for(int i=0;i<count;i++) warnings.add(readWarning(in));
+            int length = in.readInt();
+            if(length < 0) return null;
+            byte[] bytecode = in.readNBytes(length);
+            if(bytecode.length != length || in.read() != -1) return null;
+            BytecodeVM.load(bytecode); // header and table checks; bodies are verified again when first called
+            return new Entry(bytecode, warnings);
+        }catch(IOException | RuntimeException e){
+            return null;
+        }
+    }
+
+    /**
+     * Verifies {@code bytecode} in full and stores it with {@code warnings} under {@code key}, replacing any
+     * existing entry atomically.
+     */
+    public void put(String key, byte[] bytecode, List<DhrError> warnings) throws IOException {
+        BytecodeVM.load(bytecode).verifyAll();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, key, ".tmp");
+        try{
+            try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))){
+                out.writeInt(MAGIC); out.writeInt(FORMAT);
+                writeString(out, key);
+                out.writeInt(warnings.size());
+                for(DhrError w : warnings) writeWarning(out, w);
+                out.writeInt(bytecode.length);
+                out.write(bytecode);
+            }
+            Path target = dir.resolve(key + ".dhcc");
+            try{
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }catch(AtomicMoveNotSupportedException e){
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }finally{
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static void writeWarning(DataOutputStream out, DhrError w) throws IOException {
+        SourceLocation loc = w.getLocation();
+        out.writeBoolean(loc != null);
+        if(loc != null){
+            writeString(out, loc.getFilename());
+            out.writeInt(loc.getLine()); out.writeInt(loc.getColumn());
+            out.writeInt(loc.getStartOffset()); out.writeInt(loc.getEndOffset());
+        }
+        writeString(out, w.getMessage());
+        writeString(out, w.getHint());
+        writeString(out, w.getCode() == null ? null : w.getCode().name());
+    }
+
+    private static DhrError readWarning(DataInputStream in) throws IOException {
+        SourceLocation loc = null;
+        if(in.readBoolean()){
+            String file = readString(in);
+            loc = new SourceLocation(file, in.readInt(), in.readInt(), in.readInt(), in.readInt());
+        }
+        String message = readString(in), hint = readString(in), code = readString(in);
+        return new DhrError(ErrorType.WARNING, loc, message, hint, code == null ? null : ErrorCode.valueOf(code));
+    }
+
+    // i32 byte length (-1 for null), then UTF-8; unlike writeUTF there is no 64 KB limit
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if(s == null){ out.writeInt(-1); return; }
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length); out.write(b);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        if(n < 0) return null;
+        byte[] b = in.readNBytes(n);
+        if(b.length != n) throw new EOFException();
+        return new String(b, StandardCharsets.UTF_8);
+    }
+}
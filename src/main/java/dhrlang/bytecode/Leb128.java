@@ -0,0 +1,62 @@
+package dhrlang.bytecode;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/** LEB128 variable-length integers used by the compact bytecode encoding. */
+final class Leb128 {
+    private Leb128(){}
+
+    static void writeUnsigned(OutputStream out, int value) throws IOException {
+        if(value < 0) throw new IllegalArgumentException("Negative value for unsigned LEB128: "+value);
+        while((value & ~0x7F) != 0){
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    static void writeSigned(OutputStream out, long value) throws IOException {
+        while(true){
+            int b = (int) (value & 0x7F);
+            value >>= 7;
+            boolean done = (value == 0 && (b & 0x40) == 0) || (value == -1 && (b & 0x40) != 0);
+            out.write(done ? b : (b | 0x80));
+            if(done) return;
+        }
+    }
+
+    /** Reads a non-negative value that fits in an {@code int}. */
+    static int readUnsigned(ByteBuffer in){
+        int result = 0;
+        for(int shift = 0; shift < 35; shift += 7){
+            int b = in.get() & 0xFF;
+            result |= (b & 0x7F) << shift;
+            if((b & 0x80) == 0){
+                if(shift == 28 && (b & 0x78) != 0) break;
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("Invalid bytecode: unsigned LEB128 value out of range");
+    }
+
+    static long readSigned(ByteBuffer in){
+        long result = 0;
+        for(int shift = 0; shift < 70; shift += 7){
+            int b = in.get() & 0xFF;
+            result |= (long) (b & 0x7F) << shift;
+            if((b & 0x80) == 0){
+                if(shift + 7 < 64 && (b & 0x40) != 0) result |= -1L << (shift + 7);
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("Invalid bytecode: signed LEB128 value too long");
+    }
+
+    static int readSignedInt(ByteBuffer in){
+        long v = readSigned(in);
+        if(v < Integer.MIN_VALUE || v > Integer.MAX_VALUE) throw new IllegalArgumentException("Invalid bytecode: operand out of range: "+v);
+        return (int) v;
+    }
+}
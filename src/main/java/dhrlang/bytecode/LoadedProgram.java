@@ -0,0 +1,167 @@
+package dhrlang.bytecode;
+
+import dhrlang.ir.IrProgram;
+import dhrlang.ir.IrUncaughtThrow;
+import dhrlang.runtime.CancellationToken;
+import dhrlang.runtime.ExecutionBudget;
+import dhrlang.runtime.LogicalStack;
+import dhrlang.runtime.OutputSink;
+import dhrlang.runtime.Profiler;
+import dhrlang.runtime.SamplingProfiler;
+
+import java.io.PrintStream;
+
+/**
+ * Bytecode decoded and verified once by {@link BytecodeVM#load}. Immutable and safe to share between
+ * threads: every {@link #newExecution} has its own frames, statics, step budget and output, so one loaded
+ * program can serve many runs, concurrently or one after another. Functions that are decoded lazily are
+ * verified on their first call from any execution and reused by all later ones.
+ */
+public final class LoadedProgram {
+    final BytecodeVM.Image image;
+    private final int entry;
+    private final int staticInit;
+
+    LoadedProgram(BytecodeVM.Image image){
+        this.image = image;
+        boolean empty = image.functionCount() == 0;
+        this.entry = empty ? -1 : BytecodeVM.resolveEntry(image);
+        this.staticInit = image.fnIndex.getOrDefault(IrProgram.STATIC_INIT, -1);
+    }
+
+    /** A fresh execution printing to {@code System.out}, with no cancellation token. */
+    public Execution newExecution(){ return newExecution(OutputSink.stdout(), (CancellationToken) null); }
+
+    /** A fresh execution printing to {@code out}, flushed when the run ends; {@code token} (may be null) lets the host stop it. */
+    public Execution newExecution(PrintStream out, CancellationToken token){ return newExecution(new OutputSink(out, 0), token); }
+
+    /** A fresh execution printing to {@code out}; {@code token} (may be null) lets the host stop it. */
+    public Execution newExecution(OutputSink out, CancellationToken token){
+        ExecutionBudget budget = ExecutionBudget.fromProperties(image.untrusted ? 5_000_000 : 50_000_000, token);
+        return newExecution(out, budget);
+    }
+
+    /** A fresh execution printing to {@code out} and charging {@code budget}, which must not be shared with another run. */
+    public Execution newExecution(OutputSink out, ExecutionBudget budget){
+        return new Execution(image, image.layout.newStorage(), budget, out, entry, staticInit);
+    }
+
+    /** Decodes and verifies every function now rather than on its first call. */
+    public LoadedProgram verifyAll(){
+        for(int i=0;i<image.functionCount();i++) image.func(i);
+        return this;
+    }
+
+    /** Number of functions in the program. */
+    public int getFunctionCount(){ return image.functionCount(); }
+
+    /** One run of a {@link LoadedProgram}. Not thread-safe itself; use one execution per thread. */
+    public static final class Execution {
+        final BytecodeVM.Image image;
+        final Object[] statics;
+        final ExecutionBudget budget;
+        final OutputSink out;
+        Profiler profiler;
+        Profiler.Function[] profiled; // by function index, created on first call
+        LogicalStack calls; // published call stack while a sampler is attached
+        private SamplingProfiler sampler;
+        private java.util.Map<Integer,Object> staticOverrides;
+        private final int entry, staticInit;
+        private boolean started;
+
+        Execution(BytecodeVM.Image image, Object[] statics, ExecutionBudget budget, OutputSink out, int entry, int staticInit){
+            this.image = image; this.statics = statics; this.budget = budget; this.out = out;
+            this.entry = entry; this.staticInit = staticInit;
+        }
+
+        /** Records calls, time and instruction counts of this execution into {@code profiler}. Call before {@link #run}. */
+        public Execution profileWith(Profiler profiler){
+            this.profiler = profiler;
+            this.profiled = profiler == null ? null : new Profiler.Function[image.functionCount()];
+            return this;
+        }
+
+        /** Publishes this execution's call stack to {@code sampler} while it runs. Call before {@link #run}. */
+        public Execution sampleWith(SamplingProfiler sampler){
+            this.sampler = sampler;
+            this.calls = sampler == null ? null : new LogicalStack();
+            return this;
+        }
+
+        /**
+         * Gives static {@code className.fieldName} the value {@code value} once static initialization has run,
+         * e.g. to hand each run its own input. Call before {@link #run}. The value must suit the field's declared
+         * type: a Long for num (Integer widened), a Double for duo (integers widened), a String for sab, a Boolean
+         * for kya and a one-character String for ek; reference types accept only null. Statics of unknown type
+         * (hand-built IR, files before DHBC v6) take any value.
+         *
+         * @throws IllegalArgumentException if the static does not exist or the value does not fit its type
+         */
+        public Execution setStatic(String className, String fieldName, Object value){
+            int idx = image.layout.find(className, fieldName);
+            if(idx < 0) throw new IllegalArgumentException("Unknown static field: "+className+"."+fieldName);
+            String type = image.layout.typeAt(idx);
+            if(staticOverrides == null) staticOverrides = new java.util.HashMap<>();
+            staticOverrides.put(idx, type == null ? value : coerce(className+"."+fieldName, type, value));
+            return this;
+        }
+
+        private static Object coerce(String name, String type, Object value){
+            Object v = switch(type){
+                case "num" -> value instanceof Long || value instanceof Integer ? ((Number) value).longValue() : null;
+                case "duo" -> value instanceof Double || value instanceof Long || value instanceof Integer ? ((Number) value).doubleValue() : null;
+                case "sab" -> value instanceof String ? value : null;
+                case "kya" -> value instanceof Boolean ? value : null;
+                case "ek" -> value instanceof Character ? value : value instanceof String s && s.length() == 1 ? s.charAt(0) : null;
+                default -> null;
+            };
+            if(v != null) return v;
+            // null is only a value of the types that default to it: objects, arrays and generics
+            if(value == null && dhrlang.runtime.RuntimeDefaults.getDefaultValue(type) == null) return null;
+            throw new IllegalArgumentException("Static "+name+" is "+type+" and cannot hold "+describe(value));
+        }
+
+        private static String describe(Object value){
+            if(value == null) return "null";
+            if(value instanceof String s) return "the string \""+s+"\"";
+            if(value instanceof java.util.Map<?,?>) return "an object";
+            if(value instanceof java.util.List<?>) return "an array";
+            return (value instanceof Double ? "the duo " : value instanceof Number ? "the num " : value instanceof Boolean ? "the kya " : "") + value;
+        }
+
+        /** Runs static initialization and then the entrypoint, flushing the output however it ends. Each execution runs at most once. */
+        public void run(){
+            if(started) throw new IllegalStateException("Execution already started; use LoadedProgram.newExecution() for another run");
+            started = true;
+            if(entry < 0) return;
+            if(sampler != null) sampler.attach(calls);
+            try {
+                if(staticInit >= 0){
+                    try { call(staticInit, true); }
+                    catch(IrUncaughtThrow t){ return; }
+                }
+                if(staticOverrides != null) staticOverrides.forEach((idx, value) -> statics[idx] = value);
+                call(entry, false);
+            } finally {
+                out.flush();
+                if(sampler != null) sampler.detach(calls);
+            }
+        }
+
+        private void call(int fn, boolean propagateUncaught){
+            if(profiler == null && calls == null){ BytecodeVM.run(this, fn, image.newFrame(fn), 0, propagateUncaught); return; }
+            int depth = profiler == null ? 0 : profiler.depth();
+            if(profiler != null) profiler.enter(BytecodeVM.profiled(this, fn));
+            if(calls != null) calls.push(image.names[fn]);
+            try { BytecodeVM.run(this, fn, image.newFrame(fn), 0, propagateUncaught); }
+            finally {
+                // the outermost frame, and every frame an error unwound
+                if(profiler != null) profiler.unwindTo(depth);
+                if(calls != null) calls.unwindTo(0);
+            }
+        }
+
+        /** Budget steps charged so far. */
+        public long getSteps(){ return budget.getSteps(); }
+    }
+}
@@ -0,0 +1,87 @@
+package dhrlang.bytecode;
+
+import dhrlang.ir.*;
+import dhrlang.runtime.CancellationToken;
+import dhrlang.runtime.ExecutionBudget;
+import dhrlang.runtime.OutputSink;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Tiered execution ({@code --backend=auto}): starts in the IR interpreter with no bytecode encoding or
+ * verification up front, and moves hot functions to the bytecode VM once they cross the call or loop
+ * back-edge thresholds ({@code dhrlang.tiered.callThreshold}, {@code dhrlang.tiered.backEdgeThreshold}).
+ * A long-running loop is moved mid-activation via on-stack replacement. Both tiers share static storage.
+ * If the program cannot be compiled to verified bytecode, everything simply stays interpreted.
+ */
+public class TieredExecutor implements IrTier {
+    private final Set<String> promoted = new LinkedHashSet<>();
+    private IrProgram program;
+    private StaticLayout layout;
+    private Object[] statics;
+    private ExecutionBudget budget;
+    private OutputSink output; // shared by both tiers so their prints stay in order
+    private CancellationToken cancellationToken;
+    private LoadedProgram.Execution execution; // the bytecode tier, over the interpreter's statics and budget
+    private boolean compileFailed;
+    private int osrTransitions;
+
+    /** Token polled by both tiers at loop back-edges and calls. */
+    public void setCancellationToken(CancellationToken token){ this.cancellationToken = token; }
+
+    /** Where both tiers print; null (the default) prints to {@code System.out}. */
+    public void setOutput(OutputSink output){ this.output = output; }
+
+    public void execute(IrProgram program){
+        this.program = program;
+        layout = StaticLayout.link(program);
+        statics = layout.newStorage();
+        budget = ExecutionBudget.fromProperties(50_000_000, cancellationToken); // one budget across both tiers
+        if(output == null) output = OutputSink.stdout();
+        IrInterpreter interpreter = new IrInterpreter(statics, this, budget);
+        interpreter.setOutput(output);
+        interpreter.execute(program);
+    }
+
+    @Override
+    public boolean promote(IrFunction fn){
+        if(execution == null && !compileFailed){
+            // Compile the whole program the first time anything gets hot
+            try {
+                // Link against the interpreter's layout so both tiers index the same storage
+                BytecodeVM.Image compiled = BytecodeVM.decode(new BytecodeWriter().write(program), layout);
+                // Verify every body now rather than lazily: a callee rejected mid-run could not fall back
+                for(int i=0;i<compiled.functionCount();i++) compiled.func(i);
+                if(layout.size() != statics.length) compileFailed = true;
+                else execution = new LoadedProgram.Execution(compiled, statics, budget, output, -1, -1);
+            } catch(IllegalArgumentException e){
+                compileFailed = true;
+            }
+        }
+        if(execution == null || !execution.image.fnIndex.containsKey(fn.name)) return false;
+        promoted.add(fn.name);
+        return true;
+    }
+
+    @Override
+    public Object invoke(IrFunction fn, Object[] args){
+        int index = execution.image.fnIndex.get(fn.name);
+        // Sized like any bytecode frame of this function; the verifier bounded every slot it uses by that size
+        Object[] slots = execution.image.newFrame(index);
+        System.arraycopy(args, 0, slots, 0, Math.min(args.length, slots.length));
+        return BytecodeVM.run(execution, index, slots, 0, true);
+    }
+
+    @Override
+    public Object resume(IrFunction fn, Object[] slots, int resumeIndex){
+        osrTransitions++;
+        return BytecodeVM.run(execution, execution.image.fnIndex.get(fn.name), slots, BytecodeWriter.pcOf(fn, resumeIndex), true);
+    }
+
+    /** Names of functions promoted to the bytecode tier so far, in promotion order. */
+    public Set<String> getPromotedFunctions(){ return promoted; }
+
+    /** Number of interpreted activations that were continued in the bytecode tier via on-stack replacement. */
+    public int getOsrTransitions(){ return osrTransitions; }
+}
@@ -0,0 +1,398 @@
+package dhrlang.daemon;
+
+import dhrlang.ast.Program;
+import dhrlang.batch.MiniJson;
+import dhrlang.bytecode.BytecodeVM;
+import dhrlang.bytecode.BytecodeWriter;
+import dhrlang.bytecode.CompileCache;
+import dhrlang.bytecode.LoadedProgram;
+import dhrlang.error.ErrorReporter;
+import dhrlang.ir.AstToIrLowerer;
+import dhrlang.ir.IrProgram;
+import dhrlang.runtime.CancellationToken;
+import dhrlang.runtime.ExecutionBudget;
+import dhrlang.runtime.OutputSink;
+import dhrlang.util.CompilationSession;
+import dhrlang.util.MiniRunner;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A long-lived compiler process for the CLI client ({@code --client}) and the VS Code extension. It listens on a
+ * loopback port and answers requests with the lexer, parser, type checker and backends already loaded and warmed
+ * up, keeping recent check results and loaded bytecode programs keyed by source content.
+ *
+ * <p>Protocol: one JSON object per line in each direction, any number of requests per connection. Every request
+ * carries the {@code token} published in the info file and an {@code op}: {@code ping}, {@code check}, {@code run}
+ * or {@code shutdown}. {@code check} and {@code run} take the program as {@code source} (or a {@code file} path), an
+ * optional {@code name} for diagnostics and {@code color}; {@code run} also takes {@code backend} ({@code ast},
+ * {@code ir} or {@code bytecode}). Replies carry {@code status}, the {@code exitCode} the CLI would have exited with,
+ * {@code stdout}, {@code stderr} and, for {@code check}, {@code diagnostics} in the {@code --json} format.
+ *
+ * <p>A {@code run} ends with a runtime error after {@code dhrlang.daemon.runTimeoutMs} (default 30000) or
+ * {@code dhrlang.daemon.maxSteps} steps (default 50000000), and is cancelled when its client closes the
+ * connection. {@code readLine} sees an empty standard input rather than waiting on the daemon's.
+ *
+ * <p>Editors keep a {@link CompilationSession} per document: {@code open} takes {@code name} and {@code source},
+ * {@code edit} takes {@code name} and {@code edits}, a list of {@code offset}/{@code length}/{@code text} changes
+ * applied in order, and {@code close} drops the session. {@code open} and {@code edit} reply like {@code check},
+ * without {@code stderr}, after re-checking only what the edits touched.
+ */
+public final class CompilerDaemon implements Closeable {
+    private static final int CACHE_ENTRIES = 64;
+
+    private final ServerSocket server;
+    private final String token;
+    private final String version;
+    private final ExecutorService connections = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "dhrlang-daemon");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Map<String, Map<String, Object>> checks = lru();
+    private final Map<String, LoadedProgram> programs = lru();
+    private final Map<String, CompilationSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final long runTimeoutMillis = Long.getLong("dhrlang.daemon.runTimeoutMs", 30_000L);
+    private final long maxSteps = Long.getLong("dhrlang.daemon.maxSteps", 50_000_000L);
+    private volatile long lastActivity = System.nanoTime();
+    private volatile boolean running = true;
+    private Path infoFile;
+
+    /** Binds to {@code port} on the loopback interface; 0 picks a free port. */
+    public CompilerDaemon(int port, String version) throws IOException {
+        this.server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.version = version;
+        byte[] secret = new byte[16];
+        new SecureRandom().nextBytes(secret);
+        StringBuilder hex = new StringBuilder(32);
+        for (byte b : secret) hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        this.token = hex.toString();
+    }
+
+    public int port() { return server.getLocalPort(); }
+    public String token() { return token; }
+
+    /** Where clients look for a running daemon unless {@code dhrlang.daemon.file} says otherwise. */
+    public static Path defaultInfoFile() {
+        String file = System.getProperty("dhrlang.daemon.file");
+        return file != null ? Path.of(file) : Path.of(System.getProperty("user.home"), ".dhrlang", "daemon.json");
+    }
+
+    /** Writes port, token and pid to {@code file}, readable by the owner only where the file system allows. */
+    public void publish(Path file) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("port", (long) port());
+        info.put("token", token);
+        info.put("pid", ProcessHandle.current().pid());
+        info.put("version", version);
+        Path tmp = Files.createTempFile(dir, "daemon", ".tmp");
+        try {
+            Files.setPosixFilePermissions(tmp, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException ignored) {
+            // Non-POSIX file systems keep the directory's permissions
+        }
+        Files.writeString(tmp, MiniJson.write(info), StandardCharsets.UTF_8);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        infoFile = file;
+    }
+
+    /**
+     * Accepts connections until a {@code shutdown} request or until no request has arrived for
+     * {@code idleMillis} (0 never idles out), then closes the daemon.
+     */
+    public void serve(long idleMillis) throws IOException {
+        if (idleMillis > 0) server.setSoTimeout((int) Math.min(idleMillis, 1000));
+        try {
+            while (running) {
+                try {
+                    Socket socket = server.accept();
+                    connections.execute(() -> serveConnection(socket));
+                } catch (SocketTimeoutException e) {
+                    if (inFlight.get() == 0 && System.nanoTime() - lastActivity > TimeUnit.MILLISECONDS.toNanos(idleMillis)) break;
+                } catch (SocketException e) {
+                    if (running) throw e;
+                }
+            }
+        } finally {
+            close();
+        }
+    }
+
+    // This thread keeps reading while a worker answers requests in order, so a client that hangs up mid-run
+    // cancels that run and drops its queued requests instead of leaving them to spin
+    private void serveConnection(Socket socket) {
+        ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "dhrlang-daemon-request");
+            t.setDaemon(true);
+            return t;
+        });
+        AtomicReference<CancellationToken> current = new AtomicReference<>();
+        AtomicBoolean hungUp = new AtomicBoolean();
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+            String line;
+            while (running && (line = in.readLine()) != null) {
+                if (line.isBlank()) continue;
+                String request = line;
+                worker.execute(() -> {
+                    CancellationToken cancel = runToken();
+                    current.set(cancel);
+                    if (hungUp.get()) return;
+                    String reply = handle(request, cancel);
+                    try {
+                        out.write(reply);
+                        out.write('\n');
+                        out.flush();
+                    } catch (IOException e) {
+                        hungUp.set(true);
+                    }
+                });
+            }
+        } catch (IOException ignored) {
+            // The client went away; nothing to answer
+        } finally {
+            hungUp.set(true);
+            CancellationToken cancel = current.get();
+            if (cancel != null) cancel.cancel();
+            worker.shutdownNow();
+        }
+    }
+
+    /** Answers one request line with one reply line (without the newline). */
+    public String handle(String line) {
+        return handle(line, runToken());
+    }
+
+    // A run stops when its time is up or when cancel is cancelled, whichever comes first
+    private String handle(String line, CancellationToken cancel) {
+        inFlight.incrementAndGet();
+        lastActivity = System.nanoTime();
+        Map<String, Object> reply = new LinkedHashMap<>();
+        try {
+            if (!(MiniJson.parse(line) instanceof Map<?, ?> request)) throw new IllegalArgumentException("a request must be a JSON object");
+            if (!token.equals(request.get("token"))) {
+                reply.put("status", "DENIED");
+                reply.put("error", "missing or wrong token");
+                return MiniJson.write(reply);
+            }
+            String op = String.valueOf(request.get("op"));
+            switch (op) {
+                case "ping" -> { reply.put("status", "OK"); reply.put("version", version); }
+                case "check" -> reply.putAll(check(request));
+                case "run" -> reply.putAll(run(request, cancel));
+                case "open" -> {
+                    CompilationSession session = new CompilationSession(name(request), source(request));
+                    sessions.put(name(request), session);
+                    reply.putAll(diagnostics(session.diagnostics()));
+                }
+                case "edit" -> reply.putAll(edit(request));
+                case "close" -> { sessions.remove(name(request)); reply.put("status", "OK"); }
+                case "shutdown" -> { reply.put("status", "OK"); shutdown(); }
+                default -> throw new IllegalArgumentException("unknown op \"" + op + "\"");
+            }
+        } catch (IllegalArgumentException | IOException e) {
+            reply.clear();
+            reply.put("status", "BAD_REQUEST");
+            reply.put("error", String.valueOf(e.getMessage()));
+        } finally {
+            lastActivity = System.nanoTime();
+            inFlight.decrementAndGet();
+        }
+        return MiniJson.write(reply);
+    }
+
+    // Compile only: diagnostics as --json has them plus the formatted text, cached per source, name and color
+    private Map<String, Object> check(Map<?, ?> request) throws IOException {
+        String name = name(request);
+        String source = source(request);
+        boolean color = Boolean.TRUE.equals(request.get("color"));
+        String key = CompileCache.key(source, version, "op=check", "name=" + name, "color=" + color);
+        Map<String, Object> reply = checks.get(key);
+        if (reply != null) return reply;
+
+        ErrorReporter er = new ErrorReporter(name, source);
+        er.setColorEnabled(color);
+        Program program = MiniRunner.compile(source, er);
+        ByteArrayOutputStream errBuf = new ByteArrayOutputStream();
+        OutputSink err = new OutputSink(errBuf, 0);
+        er.printAllErrors(err);
+        er.printAllWarnings(err);
+        err.flush();
+        reply = diagnostics(er);
+        if (program == null) reply.put("status", MiniRunner.Status.COMPILE_ERROR.name());
+        reply.put("stderr", errBuf.toString(StandardCharsets.UTF_8));
+        checks.put(key, reply);
+        return reply;
+    }
+
+    private Map<String, Object> edit(Map<?, ?> request) {
+        CompilationSession session = sessions.get(name(request));
+        if (session == null) throw new IllegalArgumentException("no open session for \"" + name(request) + "\"");
+        if (!(request.get("edits") instanceof List<?> edits)) throw new IllegalArgumentException("an edit request needs \"edits\"");
+        for (Object e : edits) {
+            if (!(e instanceof Map<?, ?> change) || !(change.get("offset") instanceof Long offset)
+                    || !(change.get("length") instanceof Long length) || !(change.get("text") instanceof String text)) {
+                throw new IllegalArgumentException("each edit needs \"offset\", \"length\" and \"text\"");
+            }
+            session.edit(offset.intValue(), length.intValue(), text);
+        }
+        return diagnostics(session.diagnostics());
+    }
+
+    private static Map<String, Object> diagnostics(ErrorReporter er) {
+        Map<String, Object> reply = new LinkedHashMap<>();
+        reply.put("status", er.hasErrors() ? MiniRunner.Status.COMPILE_ERROR.name() : MiniRunner.Status.OK.name());
+        reply.put("exitCode", er.hasErrors() ? 1L : 0L);
+        reply.put("stdout", "");
+        reply.put("diagnostics", MiniJson.parse(er.toJson()));
+        return reply;
+    }
+
+    private Map<String, Object> run(Map<?, ?> request, CancellationToken cancel) throws IOException {
+        String name = name(request);
+        String source = source(request);
+        MiniRunner.Backend backend;
+        try {
+            backend = MiniRunner.Backend.valueOf(String.valueOf(request.containsKey("backend") ? request.get("backend") : "ast").toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown backend \"" + request.get("backend") + "\" (supported: ast, ir, bytecode)");
+        }
+        ByteArrayOutputStream outBuf = new ByteArrayOutputStream();
+        ByteArrayOutputStream errBuf = new ByteArrayOutputStream();
+        OutputSink out = new OutputSink(outBuf, 0);
+        OutputSink err = new OutputSink(errBuf, 0);
+        ErrorReporter er = new ErrorReporter(name, source);
+        er.setColorEnabled(Boolean.TRUE.equals(request.get("color")));
+        ExecutionBudget budget = new ExecutionBudget(maxSteps, cancel);
+        MiniRunner.Status status = backend == MiniRunner.Backend.BYTECODE
+                ? runBytecode(source, out, err, er, budget)
+                : MiniRunner.run(source, backend, out, err, er, budget);
+        Map<String, Object> reply = new LinkedHashMap<>();
+        reply.put("status", status.name());
+        reply.put("exitCode", switch (status) {
+            case OK -> 0L;
+            case COMPILE_ERROR -> 1L;
+            case RUNTIME_ERROR -> 2L;
+            case INTERNAL_ERROR -> 70L;
+        });
+        reply.put("stdout", outBuf.toString(StandardCharsets.UTF_8));
+        reply.put("stderr", errBuf.toString(StandardCharsets.UTF_8));
+        return reply;
+    }
+
+    // Like MiniRunner's bytecode path, but an unchanged source reuses its loaded program and skips compilation
+    private MiniRunner.Status runBytecode(String source, OutputSink out, OutputSink err, ErrorReporter er, ExecutionBudget budget) {
+        try {
+            String key = CompileCache.key(source, version, "backend=bytecode",
+                    "treeShake=" + System.getProperty("dhrlang.bytecode.treeShake", "true"));
+            LoadedProgram program = programs.get(key);
+            if (program == null) {
+                Program ast = MiniRunner.compile(source, er);
+                IrProgram ir = ast == null || er.hasErrors() ? null : new AstToIrLowerer(er).lower(ast);
+                if (ir == null || er.hasErrors()) {
+                    er.printAllErrors(err);
+                    return MiniRunner.Status.COMPILE_ERROR;
+                }
+                program = BytecodeVM.load(new BytecodeWriter().write(ir));
+                programs.put(key, program);
+            }
+            try {
+                program.newExecution(out, budget).run();
+            } catch (dhrlang.interpreter.DhrRuntimeException | dhrlang.interpreter.RuntimeError e) {
+                err.println(String.valueOf(e.getMessage()));
+                return MiniRunner.Status.RUNTIME_ERROR;
+            }
+            return MiniRunner.Status.OK;
+        } catch (Exception ex) {
+            err.println("EX:" + (ex.getMessage() == null ? ex.getClass().getName() : ex.getMessage()));
+            return MiniRunner.Status.INTERNAL_ERROR;
+        } finally {
+            out.flush();
+            err.flush();
+        }
+    }
+
+    private CancellationToken runToken() {
+        return CancellationToken.withTimeout(Duration.ofMillis(runTimeoutMillis));
+    }
+
+    private static String name(Map<?, ?> request) {
+        Object name = request.get("name");
+        if (name == null) name = request.get("file");
+        return name == null ? "unknown" : String.valueOf(name);
+    }
+
+    private static String source(Map<?, ?> request) throws IOException {
+        if (request.get("source") instanceof String source) return source;
+        if (request.get("file") instanceof String file) return Files.readString(Path.of(file));
+        throw new IllegalArgumentException("a check or run request needs \"source\" or \"file\"");
+    }
+
+    private void shutdown() {
+        running = false;
+        try {
+            server.close();
+        } catch (IOException ignored) {
+            // Already closed
+        }
+    }
+
+    @Override
+    public void close() {
+        shutdown();
+        connections.shutdownNow();
+        if (infoFile != null) {
+            try {
+                // A replacement daemon may already have published its own info file here; leave that one alone
+                if (MiniJson.parse(Files.readString(infoFile, StandardCharsets.UTF_8)) instanceof Map<?, ?> info && token.equals(info.get("token"))) {
+                    Files.deleteIfExists(infoFile);
+                }
+            } catch (IOException | IllegalArgumentException ignored) {
+                // A stale info file only costs the next client a failed connect
+            }
+            infoFile = null;
+        }
+    }
+
+    private static <V> Map<String, V> lru() {
+        return Collections.synchronizedMap(new LinkedHashMap<String, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > CACHE_ENTRIES;
+            }
+        });
+    }
+}
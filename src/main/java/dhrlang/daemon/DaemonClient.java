@@ -0,0 +1,83 @@
+package dhrlang.daemon;
+
+import dhrlang.batch.MiniJson;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** One connection to a running {@link CompilerDaemon}; requests are answered in order. */
+public final class DaemonClient implements Closeable {
+    private final Socket socket;
+    private final BufferedReader in;
+    private final Writer out;
+    private final String token;
+
+    public DaemonClient(int port, String token) throws IOException {
+        this.socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        this.out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+        this.token = token;
+    }
+
+    /** Connects to the daemon described by an info file written by {@link CompilerDaemon#publish}, whatever its version. */
+    public static DaemonClient connect(Path infoFile) throws IOException {
+        return connect(infoFile, null);
+    }
+
+    /**
+     * Connects to the daemon described by {@code infoFile} if it runs compiler {@code version} (null accepts any).
+     * A daemon left over from another build is asked to shut down, so the caller can compile in-process or start
+     * a current one, and this throws.
+     */
+    public static DaemonClient connect(Path infoFile, String version) throws IOException {
+        Object info;
+        try {
+            info = MiniJson.parse(Files.readString(infoFile, StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Unreadable daemon info file " + infoFile + ": " + e.getMessage());
+        }
+        if (!(info instanceof Map<?, ?> map) || !(map.get("port") instanceof Long port) || !(map.get("token") instanceof String token)) {
+            throw new IOException("Daemon info file " + infoFile + " lacks port or token");
+        }
+        DaemonClient client = new DaemonClient(port.intValue(), token);
+        if (version != null && !version.equals(map.get("version"))) {
+            try (client) {
+                client.request(Map.of("op", "shutdown"));
+            } catch (IOException ignored) {
+                // Already gone
+            }
+            throw new IOException("daemon runs version " + map.get("version") + ", not " + version + "; asked it to shut down");
+        }
+        return client;
+    }
+
+    /** Sends {@code request} (the token is added) and waits for the reply. */
+    public Map<String, Object> request(Map<String, Object> request) throws IOException {
+        Map<String, Object> withToken = new LinkedHashMap<>(request);
+        withToken.put("token", token);
+        out.write(MiniJson.write(withToken));
+        out.write('\n');
+        out.flush();
+        String line = in.readLine();
+        if (line == null) throw new IOException("Daemon closed the connection");
+        @SuppressWarnings("unchecked")
+        Map<String, Object> reply = (Map<String, Object>) MiniJson.parse(line);
+        return reply;
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
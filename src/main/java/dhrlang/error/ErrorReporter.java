@@ -15,6 +15,8 @@ public class ErrorReporter {
     // fast de-dup keys for errors & warnings (type|line|col|code|message)
     private final java.util.Set<String> errorKeys = new java.util.HashSet<>();
     private final java.util.Set<String> warningKeys = new java.util.HashSet<>();
+    // Offsets where each source line starts, built when the first diagnostic is printed
+    private int[] lineStarts;
 
     public ErrorReporter() {
     this("unknown", "");
@@ -26,9 +28,52 @@ public class ErrorReporter {
     parseSuppressDirectives();
     }
 
+    // Same source and suppressions as parent, no diagnostics
+    private ErrorReporter(ErrorReporter parent) {
+        this.filename = parent.filename;
+        this.sourceCode = parent.sourceCode;
+        this.colorEnabled = parent.colorEnabled;
+        this.lineSuppressions.putAll(parent.lineSuppressions);
+        this.fileSuppressions.addAll(parent.fileSuppressions);
+    }
+
+    /**
+     * An empty reporter for the same source that one worker thread can fill independently; fold it back
+     * with {@link #merge} in a fixed order to keep diagnostics deterministic.
+     */
+    public ErrorReporter fork() {
+        return new ErrorReporter(this);
+    }
+
+    /** Appends the errors and warnings of {@code other} in their order, skipping duplicates. */
+    public void merge(ErrorReporter other) {
+        for (DhrError e : other.errors) addError(e);
+        for (DhrError w : other.warnings) addWarning(w);
+    }
+
+    /**
+     * Like {@link #merge(ErrorReporter)} for diagnostics kept from an earlier version of the source: every line
+     * moves by {@code lineDelta}, and warnings are filtered by this reporter's suppressions.
+     */
+    public void merge(ErrorReporter other, int lineDelta) {
+        for (DhrError e : other.errors) addError(moved(e, lineDelta));
+        for (DhrError w : other.warnings) {
+            DhrError m = moved(w, lineDelta);
+            if (!isSuppressed(m.getLocation(), m.getCode())) addWarning(m);
+        }
+    }
+
+    private static DhrError moved(DhrError e, int lineDelta) {
+        SourceLocation l = e.getLocation();
+        if (lineDelta == 0 || l == null) return e;
+        SourceLocation at = new SourceLocation(l.getFilename(), l.getLine() + lineDelta, l.getColumn(), l.getStartOffset(), l.getEndOffset());
+        return new DhrError(e.getType(), at, e.getMessage(), e.getHint(), e.getCode());
+    }
+
     public void setSource(String filename, String sourceCode) {
         this.filename = filename;
         this.sourceCode = sourceCode;
+        this.lineStarts = null;
     parseSuppressDirectives();
     }
 
@@ -98,40 +143,53 @@ public class ErrorReporter {
     }
 
     public void printAllErrors() {
+        dhrlang.runtime.OutputSink err = dhrlang.runtime.OutputSink.stderr();
+        printAllErrors(err);
+        err.flush();
+    }
+
+    public void printAllWarnings() {
+        dhrlang.runtime.OutputSink err = dhrlang.runtime.OutputSink.stderr();
+        printAllWarnings(err);
+        err.flush();
+    }
+
+    /** Prints the errors to {@code out} instead of {@code System.err}, e.g. to capture them per run. */
+    public void printAllErrors(dhrlang.runtime.OutputSink out) {
         for (DhrError error : errors) {
-            printError(error);
+            printError(error, out);
         }
     }
 
-    public void printAllWarnings() {
+    public void printAllWarnings(dhrlang.runtime.OutputSink out) {
         for (DhrError warning : warnings) {
-            printError(warning);
+            printError(warning, out);
         }
     }
 
     // Removed unused printAll() and printSummary() for leaner API.
 
-    private void printError(DhrError error) {
+    private void printError(DhrError error, dhrlang.runtime.OutputSink out) {
         // Format the error with professional styling
         String formattedError = formatError(error);
-        System.err.println(formattedError);
+        out.println(formattedError);
         
         // Show source context for better debugging
         if (sourceCode != null && !sourceCode.isEmpty()) {
             String context = getSourceContext(error.getLocation());
             if (!context.isEmpty()) {
-                System.err.println(context);
+                out.println(context);
             }
         }
         
         // Show helpful hints
         if (error.hasHint()) {
             if(colorEnabled)
-                System.err.println("\u001B[93m💡 Hint: " + error.getHint() + "\u001B[0m");
+                out.println("\u001B[93m💡 Hint: " + error.getHint() + "\u001B[0m");
             else
-                System.err.println("Hint: " + error.getHint());
+                out.println("Hint: " + error.getHint());
         }
-        System.err.println();
+        out.println("");
     }
 
     private String formatError(DhrError error) {
@@ -161,7 +219,7 @@ public class ErrorReporter {
             return "";
         }
 
-        String[] lines = sourceCode.split("\n");
+        int lineCount = lineCount();
         int lineNum = location.getLine();
         
         // Handle EOF errors by showing context from the last available lines
@@ -170,20 +228,20 @@ public class ErrorReporter {
         }
         
         // If error is beyond last line, show context from the end of file
-        if (lineNum > lines.length) {
-            lineNum = lines.length;
+        if (lineNum > lineCount) {
+            lineNum = lineCount;
         }
 
         StringBuilder context = new StringBuilder();
     if(colorEnabled) context.append("\u001B[2m");
         
         int startLine = Math.max(1, lineNum - 2);
-        int endLine = Math.min(lines.length, lineNum + 2);
+        int endLine = Math.min(lineCount, lineNum + 2);
         
         int maxLineNumWidth = String.valueOf(endLine).length();
         
         for (int i = startLine; i <= endLine; i++) {
-            String line = lines[i - 1];
+            String line = sourceLine(i);
             String lineNumStr = String.format("%" + maxLineNumWidth + "d", i);
             
             if (i == lineNum) {
@@ -215,6 +273,28 @@ public class ErrorReporter {
         return context.toString();
     }
 
+    // Lines as sourceCode.split("\n") would give them: trailing empty lines do not count
+    private int lineCount() {
+        if (lineStarts == null) {
+            int n = 1;
+            for (int i = 0; i < sourceCode.length(); i++) if (sourceCode.charAt(i) == '\n') n++;
+            int[] starts = new int[n];
+            for (int i = 0, k = 1; i < sourceCode.length(); i++) if (sourceCode.charAt(i) == '\n') starts[k++] = i + 1;
+            lineStarts = starts;
+        }
+        int count = lineStarts.length;
+        while (count > 0 && lineEnd(count) == lineStarts[count - 1]) count--;
+        return count;
+    }
+
+    private int lineEnd(int line) {
+        return line < lineStarts.length ? lineStarts[line] - 1 : sourceCode.length();
+    }
+
+    private String sourceLine(int line) {
+        return sourceCode.substring(lineStarts[line - 1], lineEnd(line));
+    }
+
     public void clear() {
         errors.clear();
         warnings.clear();
@@ -247,7 +327,9 @@ public class ErrorReporter {
         StringBuilder sb = new StringBuilder();
         sb.append('{');
         if(e.getLocation()!=null){
-            sb.append("\"file\":\"").append(escape(e.getLocation().getFilename())).append('\"').append(',');
+            // Token locations carry no file name; they belong to this reporter's source
+            String file = e.getLocation().getFilename() != null ? e.getLocation().getFilename() : filename;
+            sb.append("\"file\":\"").append(escape(file)).append('\"').append(',');
             sb.append("\"line\":").append(e.getLocation().getLine()).append(',');
             sb.append("\"column\":").append(e.getLocation().getColumn()).append(',');
         }
@@ -257,8 +339,8 @@ public class ErrorReporter {
         if(e.getHint()!=null){ sb.append(',').append("\"hint\":\"").append(escape(e.getHint())).append('\"'); }
         // embed a short snippet (current line only)
         if(sourceCode!=null && e.getLocation()!=null){
-            String[] lines = sourceCode.split("\n"); int ln = e.getLocation().getLine();
-            if(ln>=1 && ln<=lines.length){ sb.append(',').append("\"sourceLine\":\"").append(escape(lines[ln-1])).append('\"'); }
+            int ln = e.getLocation().getLine();
+            if(ln>=1 && ln<=lineCount()){ sb.append(',').append("\"sourceLine\":\"").append(escape(sourceLine(ln))).append('\"'); }
         }
         sb.append('}');
         return sb.toString();
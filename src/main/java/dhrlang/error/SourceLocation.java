@@ -1,6 +1,9 @@
 package dhrlang.error;
 
 public class SourceLocation {
+    /** Packed form of "no location"; see {@link #pack(int, int)}. */
+    public static final long NONE = 0L;
+
     private final String filename;
     private final int line;
     private final int column;
@@ -50,4 +53,23 @@ public class SourceLocation {
     public String toShortString() {
         return line + ":" + column;
     }
+
+    /**
+     * Packs a line and column into one {@code long} (a presence bit, 31 bits of line, 32 of column) so AST nodes
+     * hold a primitive instead of a location object. Packed locations carry no filename or offsets: the
+     * {@link ErrorReporter} printing a diagnostic supplies the file and finds the line through its line index.
+     */
+    public static long pack(int line, int column) {
+        return Long.MIN_VALUE | ((long) (line & 0x7FFFFFFF) << 32) | (column & 0xFFFFFFFFL);
+    }
+
+    public static long pack(SourceLocation location) {
+        return location == null ? NONE : pack(location.line, location.column);
+    }
+
+    /** A location for a packed value, or null for {@link #NONE}. */
+    public static SourceLocation unpack(long packed) {
+        if (packed == NONE) return null;
+        return new SourceLocation(null, (int) (packed >>> 32) & 0x7FFFFFFF, (int) packed);
+    }
 }
@@ -37,7 +37,7 @@ public class Evaluator implements ASTVisitor<Object> {
             expr.accept(this);
         }
         return null; }
-    @Override public Object visitPrintStmt(PrintStmt printStmt) { Object value = printStmt.getExpression().accept(this); System.out.println(value); return null; }
+    @Override public Object visitPrintStmt(PrintStmt printStmt) { Object value = printStmt.getExpression().accept(this); interpreter.getOutput().println(String.valueOf(value)); return null; }
     @Override public Object visitVarDecl(VarDecl varDecl) {
         Object value = null; if(varDecl.getInitializer()!=null){ value = varDecl.getInitializer().accept(this); }
         // If we're directly inside a desugared for-loop synthetic block, its env == parent env (handled in visitBlock)
@@ -58,8 +58,11 @@ public class Evaluator implements ASTVisitor<Object> {
     @Override public Object visitWhileStmt(WhileStmt whileStmt) {
         boolean prev = interpreter.isInLoop();
         interpreter.setInLoop(true);
+        // Budget is charged once per iteration with the body's statement count, plus one for the condition
+        int iterationSteps = (whileStmt.getBody() instanceof Block b ? b.getStatements().size() : 1) + 1;
         try {
             while(isTruthy(whileStmt.getCondition().accept(this))){
+                interpreter.chargeSteps(iterationSteps);
                 try { whileStmt.getBody().accept(this); }
                 catch (BreakException b){ break; }
                 catch (ContinueException c){
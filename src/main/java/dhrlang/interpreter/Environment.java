@@ -8,13 +8,21 @@ public class Environment {
 
     private final Map<String, Object> values = new HashMap<>();
     private final Environment parent;
+    // Read-only names behind a root environment's own values, such as the shared natives
+    private final Map<String, ?> builtins;
 
     public Environment() {
+        this(Map.of());
+    }
+
+    public Environment(Map<String, ?> builtins) {
         this.parent = null;
+        this.builtins = builtins;
     }
 
     public Environment(Environment parent) {
         this.parent = parent;
+        this.builtins = Map.of();
     }
 
     public void define(String name, Object value) {
@@ -26,6 +34,8 @@ public class Environment {
             return values.get(name);
         } else if (parent != null) {
             return parent.get(name);
+        } else if (builtins.containsKey(name)) {
+            return builtins.get(name);
         } else {
             // Check if this looks like a generic type reference or provide suggestion
             String suggestion = suggest(name);
@@ -47,6 +57,8 @@ public class Environment {
             values.put(name, value);
         } else if (parent != null) {
             parent.assign(name, value);
+        } else if (builtins.containsKey(name)) {
+            values.put(name, value);
         } else {
             // Check if this looks like a generic type reference or provide suggestion
             String suggestion = suggest(name);
@@ -64,18 +76,27 @@ public class Environment {
     }
 
     public boolean exists(String name) {
-        return values.containsKey(name) || (parent != null && parent.exists(name));
+        return values.containsKey(name) || (parent != null ? parent.exists(name) : builtins.containsKey(name));
     }
 
+    // Closest name within edit distance 2; ties go to the name first in alphabetical order, so the hint does
+    // not depend on hash iteration order
     private String suggest(String miss){
         int best = Integer.MAX_VALUE; String bestName = null;
         for(String k: values.keySet()){
             int d = levenshtein(miss, k);
-            if(d<best){ best=d; bestName=k; }
+            if(closer(d, k, best, bestName)){ best=d; bestName=k; }
         }
-        if(parent!=null){ String enc = parent.suggest(miss); if(enc!=null){ int d=levenshtein(miss, enc); if(d<best){ best=d; bestName=enc; } } }
+        for(String k: builtins.keySet()){
+            int d = levenshtein(miss, k);
+            if(closer(d, k, best, bestName)){ best=d; bestName=k; }
+        }
+        if(parent!=null){ String enc = parent.suggest(miss); if(enc!=null){ int d=levenshtein(miss, enc); if(closer(d, enc, best, bestName)){ best=d; bestName=enc; } } }
         return best <= 2 ? bestName : null;
     }
+    private static boolean closer(int d, String name, int best, String bestName){
+        return d < best || (d == best && name.compareTo(bestName) < 0);
+    }
     private int levenshtein(String a,String b){
         int[][] dp = new int[a.length()+1][b.length()+1];
         for(int i=0;i<=a.length();i++) dp[i][0]=i;
@@ -1,42 +1,80 @@
 package dhrlang.interpreter;
 
 import dhrlang.error.SourceLocation;
+import dhrlang.runtime.SamplingProfiler;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
- * Manages the execution stack for better error reporting
+ * Manages the execution stack for better error reporting. Frames are immutable and linked to their
+ * caller behind a volatile top, so a {@link SamplingProfiler} can read the stack from another thread.
  */
-public class ExecutionStack {
-    private final List<StackFrame> frames = new ArrayList<>();
-    
+public class ExecutionStack implements SamplingProfiler.Source {
+    private static final class Node {
+        final StackFrame frame;
+        final Node caller;
+        final int depth;
+        Node(StackFrame frame, Node caller) {
+            this.frame = frame;
+            this.caller = caller;
+            this.depth = caller == null ? 1 : caller.depth + 1;
+        }
+    }
+
+    private volatile Node top;
+
     public void push(String functionName, String className, SourceLocation location) {
-        frames.add(new StackFrame(functionName, className, location));
+        top = new Node(new StackFrame(functionName, className, location), top);
     }
-    
+
     public void pop() {
-        if (!frames.isEmpty()) {
-            frames.remove(frames.size() - 1);
+        Node t = top;
+        if (t != null) {
+            top = t.caller;
         }
     }
-    
+
+    /** Frames outermost first. */
     public List<StackFrame> getFrames() {
-        return new ArrayList<>(frames);
+        List<StackFrame> frames = new ArrayList<>();
+        for (Node n = top; n != null; n = n.caller) {
+            frames.add(n.frame);
+        }
+        Collections.reverse(frames);
+        return frames;
     }
-    
+
     public String getStackTrace() {
-        if (frames.isEmpty()) {
+        Node t = top;
+        if (t == null) {
             return "  (no stack trace available)";
         }
-        
+
         StringBuilder sb = new StringBuilder();
-        for (int i = frames.size() - 1; i >= 0; i--) {
-            sb.append("  at ").append(frames.get(i)).append("\n");
+        for (Node n = t; n != null; n = n.caller) {
+            sb.append("  at ").append(n.frame).append("\n");
         }
         return sb.toString();
     }
-    
+
     public StackFrame getCurrentFrame() {
-        return frames.isEmpty() ? null : frames.get(frames.size() - 1);
+        Node t = top;
+        return t == null ? null : t.frame;
+    }
+
+    @Override
+    public String collapsedStack() {
+        Node t = top;
+        if (t == null) {
+            return null;
+        }
+        String[] names = new String[t.depth];
+        for (Node n = t; n != null; n = n.caller) {
+            StackFrame f = n.frame;
+            String fn = f.getFunctionName() != null ? f.getFunctionName() : "<unknown>";
+            names[n.depth - 1] = f.getClassName() != null ? f.getClassName() + "." + fn : fn;
+        }
+        return String.join(";", names);
     }
 }
@@ -48,6 +48,7 @@ public class Function implements Callable {
         }
         
         Environment environment = new Environment(this.closure);
+        interpreter.chargeSteps(declaration.getBody() != null ? declaration.getBody().getStatements().size() + 1 : 1);
         
         // Increment call depth
         interpreter.incrementCallDepth();
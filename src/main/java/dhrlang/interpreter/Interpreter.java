@@ -2,7 +2,10 @@ package dhrlang.interpreter;
 import dhrlang.ast.*;
 import dhrlang.error.ErrorFactory;
 import dhrlang.error.SourceLocation;
+import dhrlang.runtime.CancellationToken;
+import dhrlang.runtime.ExecutionBudget;
 import dhrlang.runtime.NativeRegistrar;
+import dhrlang.runtime.OutputSink;
 import dhrlang.runtime.ProgramLoader;
 
 public class Interpreter {
@@ -12,16 +15,30 @@ public class Interpreter {
     private int currentCallDepth = 0;
     private final dhrlang.eval.Evaluator evaluator = new dhrlang.eval.Evaluator(this);
     private boolean inLoop = false;
-    private final Environment globals = new Environment();
+    private final Environment globals = new Environment(NativeRegistrar.natives());
+    // Unlimited unless dhrlang.backend.maxSteps is set; counts loop iterations and calls weighted by statement count
+    private ExecutionBudget budget = ExecutionBudget.fromProperties(Long.MAX_VALUE, null);
+    private OutputSink output; // created over System.out on first use unless set
+    private java.io.BufferedReader input; // readLine reads standard input unless set
 
-    public Interpreter(){ NativeRegistrar.registerAll(this, globals); }
+    public Interpreter(){}
 
-    public void execute(Program program){ ProgramLoader.loadAndRun(program, this, globals); }
+    public void execute(Program program){ OutputSink out = getOutput(); try { ProgramLoader.loadAndRun(program, this, globals); } finally { out.flush(); } }
+    /** Token polled at loop back-edges and calls, letting the host stop a running program. */
+    public void setCancellationToken(CancellationToken token){ budget = ExecutionBudget.fromProperties(Long.MAX_VALUE, token); }
+    /** Budget charged instead of the default one; it must not be shared with another run. */
+    public void setBudget(ExecutionBudget budget){ this.budget = budget; }
+    public void chargeSteps(int steps){ budget.charge(steps); }
     public void execute(Statement stmt, Environment env){ evaluator.execute(stmt, env); }
     public void executeBlock(java.util.List<Statement> statements, Environment environment){ evaluator.executeBlock(statements, environment); }
     public Object evaluate(Expression expr, Environment env){ if(currentCallDepth >= MAX_CALL_DEPTH) throw ErrorFactory.runtimeError("Stack overflow: Maximum recursion depth ("+MAX_CALL_DEPTH+") exceeded.", (SourceLocation)null); currentCallDepth++; try { return evaluator.evaluate(expr, env); } finally { currentCallDepth--; } }
 
     // Accessors for evaluator & runtime
+    public void setOutput(OutputSink output){ this.output = output; }
+    public OutputSink getOutput(){ if(output == null) output = OutputSink.stdout(); return output; }
+    /** Where {@code readLine} reads from; null (the default) means standard input. */
+    public void setInput(java.io.BufferedReader input){ this.input = input; }
+    public java.io.BufferedReader getInput(){ return input; }
     public Environment getGlobals(){ return globals; }
     public boolean isInLoop(){ return inLoop; }
     public void setInLoop(boolean value){ inLoop = value; }
@@ -53,9 +53,47 @@ public class AstToIrLowerer {
                 }
             }
         }
+        IrFunction init = lowerStaticInitializers(program, ir);
+        if(init != null) ir.functions.add(init);
         return ir;
     }
 
+    // Mirrors ProgramLoader: every static starts at its type default, then initializers run in declaration order.
+    private IrFunction lowerStaticInitializers(Program program, IrProgram ir){
+        IrFunction irf = new IrFunction(IrProgram.STATIC_INIT);
+        LoweringContext ctx = new LoweringContext();
+        // One scratch slot for every default and per-initializer temps released after each store, so the
+        // frame stays as small as the largest initializer however many statics the program has
+        int t = ctx.newTemp();
+        for(ClassDecl cd: program.getClasses()){
+            for(VarDecl field: cd.getVariables()){
+                if(!field.hasModifier(dhrlang.ast.Modifier.STATIC)) continue;
+                ir.staticTypes.put(cd.getName() + "." + field.getName(), field.getType());
+                irf.instructions.add(new IrConst(t, dhrlang.runtime.RuntimeDefaults.getDefaultValue(field.getType())));
+                irf.instructions.add(new IrSetStatic(cd.getName(), field.getName(), t));
+            }
+        }
+        if(irf.instructions.isEmpty()) return null;
+        for(ClassDecl cd: program.getClasses()){
+            ctx.clearStaticScope();
+            for(VarDecl field: cd.getVariables()){
+                if(!field.hasModifier(dhrlang.ast.Modifier.STATIC)) continue;
+                // Initializers see their own class's statics unqualified
+                ctx.addStaticScope(field.getName());
+            }
+            for(VarDecl field: cd.getVariables()){
+                if(!field.hasModifier(dhrlang.ast.Modifier.STATIC) || field.getInitializer()==null) continue;
+                irf.markLine(ErrorFactory.getLocation(field));
+                int mark = ctx.mark();
+                int v = lowerExpr(field.getInitializer(), irf, ctx, cd.getName());
+                irf.instructions.add(new IrSetStatic(cd.getName(), field.getName(), v));
+                ctx.release(mark);
+            }
+        }
+        irf.instructions.add(new IrReturn(null));
+        return irf;
+    }
+
     private IrFunction lowerFunction(FunctionDecl f, String currentClass){
         IrFunction irf = new IrFunction(currentClass + "." + f.getName());
         LoweringContext ctx = new LoweringContext();
@@ -75,6 +113,7 @@ public class AstToIrLowerer {
     }
 
     private void lowerStmt(Statement s, IrFunction out, LoweringContext ctx, String currentClass){
+        out.markLine(ErrorFactory.getLocation(s));
         if(s instanceof VarDecl vd){
             int slot = ctx.allocSlot(vd.getName());
             if(vd.getInitializer()!=null){
@@ -113,6 +152,7 @@ public class AstToIrLowerer {
             lowerStmt(ws.getBody(), out, ctx, currentClass);
             // Pop after body lowering
             ctx.popLoop();
+            out.markLine(ErrorFactory.getLocation(s)); // the back-edge belongs to the loop header
             out.instructions.add(new IrJump(loopL));
             out.instructions.add(new IrLabel(endL));
         } else if(s instanceof Block blk){
@@ -447,6 +487,7 @@ public class AstToIrLowerer {
             int slot = ctx.getSlot(name);
             int t = ctx.newTemp();
             if(slot>=0) out.instructions.add(new IrLoadLocal(slot, t));
+            else if(ctx.isStaticScoped(name)) out.instructions.add(new IrGetStatic(currentClass, name, t));
             else out.instructions.add(new IrConst(t, null));
             return t;
         }
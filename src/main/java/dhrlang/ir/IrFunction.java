@@ -1,11 +1,51 @@
 package dhrlang.ir;
 
+import dhrlang.error.SourceLocation;
+
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /** Minimal function shell for IR backend scaffolding. */
 public class IrFunction {
     public final String name;
     public final List<IrInstruction> instructions = new ArrayList<>();
+    /** Source file the function was lowered from, or null when it carries no line table. */
+    public String sourceFile;
+    // Line table: instructions from lineStart[k] up to the next entry come from source line lineNumber[k]
+    private int[] lineStart = new int[0], lineNumber = new int[0];
+    private int lineCount;
+
     public IrFunction(String name){ this.name = name; }
+
+    /** Attributes the instructions added from now on to the line of {@code location}; ignored when unknown. */
+    public void markLine(SourceLocation location){
+        if(location == null || location.getLine() <= 0) return;
+        if(sourceFile == null) sourceFile = location.getFilename();
+        int pc = instructions.size(), line = location.getLine();
+        if(lineCount > 0 && lineNumber[lineCount-1] == line) return;
+        if(lineCount > 0 && lineStart[lineCount-1] == pc){ lineNumber[lineCount-1] = line; return; }
+        if(lineCount == lineStart.length){
+            lineStart = Arrays.copyOf(lineStart, Math.max(8, lineCount * 2));
+            lineNumber = Arrays.copyOf(lineNumber, lineStart.length);
+        }
+        lineStart[lineCount] = pc;
+        lineNumber[lineCount++] = line;
+    }
+
+    /** Source line of instruction {@code index}, or -1 when not known. */
+    public int lineAt(int index){
+        int line = -1;
+        for(int k=0; k<lineCount && lineStart[k] <= index; k++) line = lineNumber[k];
+        return line;
+    }
+
+    /** Number of line table entries. */
+    public int lineEntries(){ return lineCount; }
+
+    /** First instruction index of line table entry {@code k}. */
+    public int lineEntryStart(int k){ return lineStart[k]; }
+
+    /** Source line of line table entry {@code k}. */
+    public int lineEntryLine(int k){ return lineNumber[k]; }
 }
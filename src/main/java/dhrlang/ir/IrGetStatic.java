@@ -5,8 +5,11 @@ public class IrGetStatic implements IrInstruction {
     public final String className;
     public final String fieldName;
     public final int targetSlot;
-    public IrGetStatic(String className, String fieldName, int targetSlot){
-        this.className = className; this.fieldName = fieldName; this.targetSlot = targetSlot;
+    /** Dense storage index assigned by {@link StaticLayout#link}; -1 until linked. */
+    public final int index;
+    public IrGetStatic(String className, String fieldName, int targetSlot){ this(className, fieldName, targetSlot, -1); }
+    public IrGetStatic(String className, String fieldName, int targetSlot, int index){
+        this.className = className; this.fieldName = fieldName; this.targetSlot = targetSlot; this.index = index;
     }
     @Override public String toString(){ return "GET_STATIC " + className + "." + fieldName + " -> s"+targetSlot; }
 }
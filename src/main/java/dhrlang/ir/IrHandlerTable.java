@@ -0,0 +1,58 @@
+package dhrlang.ir;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exception ranges of one function, compiled from its lexically nested {@link IrTryPush}/{@link IrTryPop}
+ * pairs: instructions {@code [start, end)} are covered by the catch clause at instruction {@code handler}.
+ * Entries are ordered innermost first (and in clause order within one try), so the first covering entry
+ * whose type matches wins. Entering a try executes nothing; the table is only read when a value is thrown.
+ */
+public final class IrHandlerTable {
+    public final int[] start;
+    public final int[] end;
+    public final int[] handler;
+    public final String[] type;
+
+    private IrHandlerTable(int[] start, int[] end, int[] handler, String[] type){
+        this.start = start; this.end = end; this.handler = handler; this.type = type;
+    }
+
+    public int size(){ return start.length; }
+
+    /** Builds the table over instruction indices of {@code fn}; a push never popped covers the rest of the function. */
+    public static IrHandlerTable build(IrFunction fn){
+        List<IrInstruction> ins = fn.instructions;
+        Map<String,Integer> labels = new HashMap<>();
+        for(int i=0;i<ins.size();i++){
+            if(ins.get(i) instanceof IrLabel lab) labels.put(lab.name, i);
+        }
+        List<int[]> ranges = new ArrayList<>();
+        List<String> types = new ArrayList<>();
+        Deque<Integer> open = new ArrayDeque<>();
+        for(int i=0;i<ins.size();i++){
+            if(ins.get(i) instanceof IrTryPush) open.push(i);
+            else if(ins.get(i) instanceof IrTryPop && !open.isEmpty()) close(ins, labels, open.pop(), i, ranges, types);
+        }
+        while(!open.isEmpty()) close(ins, labels, open.pop(), ins.size(), ranges, types);
+
+        int n = ranges.size();
+        int[] start = new int[n], end = new int[n], handler = new int[n];
+        for(int k=0;k<n;k++){ start[k] = ranges.get(k)[0]; end[k] = ranges.get(k)[1]; handler[k] = ranges.get(k)[2]; }
+        return new IrHandlerTable(start, end, handler, types.toArray(new String[0]));
+    }
+
+    private static void close(List<IrInstruction> ins, Map<String,Integer> labels, int push, int pop,
+                              List<int[]> ranges, List<String> types){
+        IrTryPush tp = (IrTryPush) ins.get(push);
+        Integer target = labels.get(tp.catchLabel);
+        if(target == null || push + 1 >= pop) return;
+        ranges.add(new int[]{ push + 1, pop, target });
+        types.add(tp.catchType);
+    }
+}
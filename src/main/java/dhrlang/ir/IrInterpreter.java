@@ -1,91 +1,146 @@
 package dhrlang.ir;
 
 import dhrlang.error.ErrorFactory;
+import dhrlang.runtime.CancellationToken;
+import dhrlang.runtime.ExecutionBudget;
+import dhrlang.runtime.LogicalStack;
+import dhrlang.runtime.OutputSink;
+import dhrlang.runtime.Profiler;
+import dhrlang.runtime.SamplingProfiler;
 
 import java.util.HashMap;
 import java.util.Map;
 
 /** Executes the IR including arrays and basic function calls. */
 public class IrInterpreter {
-    // Exception handler descriptor (pc within frame and optional catch type)
-    private static class Handler {
-        final int pc; final String type;
-        Handler(int pc, String type){ this.pc = pc; this.type = type; }
+    // Per-function data computed once: label positions and the exception handler table
+    private static final class FunctionInfo {
+        final Map<String,Integer> labelPc = new HashMap<>();
+        final IrHandlerTable handlers;
+        Profiler.Function profiled;
+        FunctionInfo(IrFunction fn){
+            for(int i=0;i<fn.instructions.size();i++){
+                if(fn.instructions.get(i) instanceof IrLabel lab){ labelPc.put(lab.name, i); }
+            }
+            this.handlers = IrHandlerTable.build(fn);
+        }
     }
     private static class Frame {
         final IrFunction fn;
         final Object[] slots = new Object[256];
-        final Map<String,Integer> labelPc;
+        final FunctionInfo info;
         int pc = 0;
+        int segStart; // first pc of the straight-line run in progress, when profiling
         Integer retDestSlot; // slot in caller to receive return value; null means ignore; -1 treated as ignore
-        // Exception handling: stack of catch PCs (within this frame)
-        final java.util.Deque<Handler> handlerStack = new java.util.ArrayDeque<>();
         Object pendingException; // exception value to bind at catch
-        Frame(IrFunction fn){
+        Frame(IrFunction fn, FunctionInfo info){
             this.fn = fn;
-            this.labelPc = new HashMap<>();
-            for(int i=0;i<fn.instructions.size();i++){
-                if(fn.instructions.get(i) instanceof IrLabel lab){ labelPc.put(lab.name, i); }
-            }
+            this.info = info;
         }
     }
 
+    // Per-function counters used to decide promotion to the optimized tier
+    private static final class TierCounters {
+        int invocations;
+        int backEdges;
+        boolean promoted;
+        boolean rejected;
+    }
+
+    // Static storage indexed by the dense numbering from StaticLayout.link
+    private Object[] statics;
+    private final IrTier tier;
+    private Map<String, IrFunction> fnTable;
+    private final ExecutionBudget hostBudget;
+    private CancellationToken cancellationToken;
+    private ExecutionBudget budget;
+    private OutputSink output;
+    private Profiler profiler;
+    private SamplingProfiler sampler;
+    private LogicalStack calls; // published call stack while a sampler is attached
+    private final Map<IrFunction, TierCounters> tierCounters = new HashMap<>();
+    private final Map<IrFunction, FunctionInfo> functionInfo = new HashMap<>();
+    private final int callThreshold = Integer.getInteger("dhrlang.tiered.callThreshold", 1_000);
+    private final int backEdgeThreshold = Integer.getInteger("dhrlang.tiered.backEdgeThreshold", 10_000);
+
+    public IrInterpreter(){ this(null, null, null); }
+
+    /**
+     * Interpreter acting as the baseline tier: hot functions are handed to {@code tier}, sharing {@code statics},
+     * the storage of a program already linked with {@link StaticLayout#link}, and {@code budget}.
+     */
+    public IrInterpreter(Object[] statics, IrTier tier, ExecutionBudget budget){
+        this.statics = statics;
+        this.tier = tier;
+        this.hostBudget = budget;
+    }
+
+    /** Token polled at loop back-edges and calls; ignored when a budget was supplied at construction. */
+    public void setCancellationToken(CancellationToken token){ this.cancellationToken = token; }
+
+    /** Where the program prints; a sink over {@code System.out} is created by {@link #execute} when none is set. */
+    public void setOutput(OutputSink output){ this.output = output; }
+
+    /** Profiler recording calls, time and instruction counts; null (the default) turns profiling off. */
+    public void setProfiler(Profiler profiler){ this.profiler = profiler; }
+
+    /** Sampler that reads this interpreter's call stack while it executes; null (the default) turns sampling off. */
+    public void setSampler(SamplingProfiler sampler){
+        this.sampler = sampler;
+        this.calls = sampler == null ? null : new LogicalStack();
+    }
+
     public void execute(IrProgram program){
         if(program.functions.isEmpty()) return;
+        if(statics == null) statics = StaticLayout.link(program).newStorage();
         // Build function table by name
-        Map<String, IrFunction> fnTable = new HashMap<>();
+        fnTable = new HashMap<>();
         for(IrFunction f: program.functions){ fnTable.put(f.name, f); }
-        // Very simple static storage: className -> (fieldName -> value)
-        Map<String, java.util.Map<String,Object>> statics = new HashMap<>();
 
-        int safetyCounter = 0;
-        int maxSteps = Integer.getInteger("dhrlang.backend.maxSteps", 50_000_000);
+        budget = hostBudget != null ? hostBudget : ExecutionBudget.fromProperties(50_000_000, cancellationToken);
 
-        // Start at entrypoint (prefer Main.main, otherwise first *.main)
-        IrFunction entry = findEntryFunction(program);
+        // Static initializers first, then the entrypoint (prefer Main.main, otherwise first *.main)
+        IrFunction init = fnTable.get(IrProgram.STATIC_INIT);
+        if(output == null) output = OutputSink.stdout();
+        if(sampler != null) sampler.attach(calls);
+        try {
+            if(init != null && !run(init)) return;
+            run(program.entryFunction());
+        } finally {
+            output.flush();
+            if(sampler != null) sampler.detach(calls);
+        }
+    }
+
+    // Runs entry to completion; false when an uncaught exception ended execution.
+    private boolean run(IrFunction entry){
+        if(profiler == null && calls == null) return interpret(entry);
+        int depth = profiler == null ? 0 : profiler.depth();
+        try { return interpret(entry); }
+        finally {
+            // frames an error unwound
+            if(profiler != null) profiler.unwindTo(depth);
+            if(calls != null) calls.unwindTo(0);
+        }
+    }
+
+    private boolean interpret(IrFunction entry){
         java.util.Deque<Frame> callStack = new java.util.ArrayDeque<>();
-        callStack.push(new Frame(entry));
+        callStack.push(newFrame(entry));
+        if(profiler != null) profiler.enter(profiled(callStack.peek().info, entry));
+        if(calls != null) calls.push(entry.name);
+        budget.charge(entry.instructions.size());
 
-        Object bubblingException = null; // cross-frame exception being unwound
+        try {
         while(!callStack.isEmpty()){
             Frame frame = callStack.peek();
             if(frame.pc < 0 || frame.pc >= frame.fn.instructions.size()){
                 // Implicit return
-                callStack.pop();
-                // If returning while an exception is bubbling, continue unwinding
+                if(!returnToCaller(callStack, null)) return true;
                 continue;
             }
-            if(++safetyCounter > maxSteps){
-                throw ErrorFactory.runtimeError("Execution aborted: exceeded max instruction steps ("+maxSteps+") - possible infinite loop.", (dhrlang.error.SourceLocation) null);
-            }
             IrInstruction ins = frame.fn.instructions.get(frame.pc);
             boolean advance = true;
-            // If an exception is bubbling, attempt to transfer to handler in this frame
-            if(bubblingException != null){
-                if(!frame.handlerStack.isEmpty()){
-                    // Match by type filter if any
-                    Handler target = null;
-                    java.util.Iterator<Handler> it = frame.handlerStack.iterator();
-                    while(it.hasNext()){
-                        Handler h = it.next();
-                        if(matchesCatch(h.type, bubblingException)) { target = h; it.remove(); break; }
-                    }
-                    if(target!=null){
-                        frame.pendingException = bubblingException;
-                        bubblingException = null;
-                        frame.pc = target.pc;
-                        advance = false;
-                    } else {
-                        // no matching handler in this frame
-                        callStack.pop();
-                        continue;
-                    }
-                } else {
-                    // No handler here, pop frame and continue unwinding
-                    callStack.pop();
-                    continue;
-                }
-            } else
             if(ins instanceof IrConst c){
                 frame.slots[c.targetSlot] = c.value;
             } else if(ins instanceof IrLoadLocal ll){
@@ -149,14 +204,34 @@ public class IrInterpreter {
                 }
                 frame.slots[cmp.targetSlot] = bool;
             } else if(ins instanceof IrJump j){
-                Integer dest = frame.labelPc.get(j.label);
+                Integer dest = frame.info.labelPc.get(j.label);
+                chargeIfBackEdge(frame, dest);
+                if(tier != null && dest != null && dest <= frame.pc && onBackEdge(frame)){
+                    // On-stack replacement: the optimized tier finishes this activation
+                    Object retVal;
+                    try {
+                        retVal = tier.resume(frame.fn, frame.slots, dest);
+                    } catch(IrUncaughtThrow t){
+                        // The replaced activation is gone; the exception continues from its caller
+                        callStack.pop();
+                        if(profiler != null) profiler.exit();
+                        if(calls != null) calls.pop();
+                        if(!dispatch(callStack, t.value)) return false;
+                        continue;
+                    }
+                    if(!returnToCaller(callStack, retVal)) return true;
+                    continue;
+                }
+                if(profiler != null) endBlock(frame, dest);
                 frame.pc = dest==null? frame.pc : dest;
                 advance = false;
             } else if(ins instanceof IrJumpIfFalse jf){
                 Object v = frame.slots[jf.condSlot];
                 boolean isFalse = (v==null) || (v instanceof Boolean b && !b);
                 if(isFalse){
-                    Integer dest = frame.labelPc.get(jf.label);
+                    Integer dest = frame.info.labelPc.get(jf.label);
+                    chargeIfBackEdge(frame, dest);
+                    if(profiler != null) endBlock(frame, dest);
                     frame.pc = dest==null? frame.pc : dest;
                     advance = false;
                 }
@@ -164,7 +239,7 @@ public class IrInterpreter {
                 // no-op
             } else if(ins instanceof IrPrint p){
                 Object v = frame.slots[p.slot];
-                if(p.newline) System.out.println(String.valueOf(v)); else System.out.print(String.valueOf(v));
+                if(p.newline) output.println(String.valueOf(v)); else output.print(String.valueOf(v));
             } else if(ins instanceof IrUnaryOp u){
                 Object v = frame.slots[u.sourceSlot];
                 Object result;
@@ -187,6 +262,7 @@ public class IrInterpreter {
                 int n = ((Number)sz).intValue();
                 if(n < 0) throw ErrorFactory.validationError("Array size cannot be negative.", (dhrlang.error.SourceLocation) null);
                 if(n > 1_000_000) throw ErrorFactory.validationError("Array size too large (max: 1,000,000).", (dhrlang.error.SourceLocation) null);
+                budget.allocate(n);
                 Object[] arr = new Object[n];
                 Object def = dhrlang.runtime.RuntimeDefaults.getDefaultValue(na.elementType);
                 if(def != null) java.util.Arrays.fill(arr, def);
@@ -212,11 +288,9 @@ public class IrInterpreter {
                 if(!(arrObj instanceof Object[] a)) throw ErrorFactory.typeError("Can only call arrayLength on arrays.", (dhrlang.error.SourceLocation) null);
                 frame.slots[al.targetSlot] = (long) a.length;
             } else if(ins instanceof IrGetStatic gsf){
-                java.util.Map<String,Object> map = statics.computeIfAbsent(gsf.className, k-> new HashMap<>());
-                frame.slots[gsf.targetSlot] = map.get(gsf.fieldName);
+                frame.slots[gsf.targetSlot] = statics[gsf.index];
             } else if(ins instanceof IrSetStatic ssf){
-                java.util.Map<String,Object> map = statics.computeIfAbsent(ssf.className, k-> new HashMap<>());
-                map.put(ssf.fieldName, frame.slots[ssf.valueSlot]);
+                statics[ssf.index] = frame.slots[ssf.valueSlot];
             } else if(ins instanceof IrGetField gf){
                 Object obj = frame.slots[gf.objectSlot];
                 Object val = null;
@@ -229,85 +303,168 @@ public class IrInterpreter {
                     java.util.Map<Object,Object> m = (java.util.Map<Object,Object>) obj;
                     m.put(sf.fieldName, frame.slots[sf.valueSlot]);
                 }
-            } else if(ins instanceof IrTryPush tp){
-                Integer dest = frame.labelPc.get(tp.catchLabel);
-                if(dest!=null) frame.handlerStack.push(new Handler(dest, tp.catchType));
-            } else if(ins instanceof IrTryPop){
-                if(!frame.handlerStack.isEmpty()) frame.handlerStack.pop();
+            } else if(ins instanceof IrTryPush || ins instanceof IrTryPop){
+                // Region markers only: covered ranges live in the function's handler table
             } else if(ins instanceof IrCatchBind cb){
                 frame.slots[cb.targetSlot] = frame.pendingException;
                 frame.pendingException = null;
             } else if(ins instanceof IrThrow thr){
-                Object ex = frame.slots[thr.valueSlot];
-                // Begin unwinding: find nearest handler in current or outer frames
-                // Try to match in current frame stack first
-                if(!frame.handlerStack.isEmpty()){
-                    Handler target = null;
-                    java.util.Iterator<Handler> it = frame.handlerStack.iterator();
-                    while(it.hasNext()){
-                        Handler h = it.next();
-                        if(matchesCatch(h.type, ex)) { target = h; it.remove(); break; }
-                    }
-                    if(target!=null){
-                        frame.pendingException = ex;
-                        frame.pc = target.pc;
-                        advance = false;
-                    } else {
-                        bubblingException = ex;
-                        callStack.pop();
-                        continue;
-                    }
-                } else {
-                    // bubble to caller frames
-                    bubblingException = ex;
-                    callStack.pop();
-                    continue;
-                }
+                if(profiler != null) endBlock(frame, null);
+                if(!dispatch(callStack, frame.slots[thr.valueSlot])) return false;
+                continue;
             } else if(ins instanceof IrCall call){
                 IrFunction callee = fnTable.get(call.functionName);
                 if(callee==null){
                     // Unknown function: set null return (if any) and advance
                     if(call.destSlot>=0) frame.slots[call.destSlot] = null;
+                } else if(tier != null && onInvoke(callee)){
+                    Object[] args = new Object[call.argSlots.length];
+                    for(int i=0;i<args.length;i++){
+                        int src = call.argSlots[i];
+                        args[i] = (src>=0 && src<frame.slots.length) ? frame.slots[src] : null;
+                    }
+                    try {
+                        Object retVal = tier.invoke(callee, args);
+                        if(call.destSlot>=0) frame.slots[call.destSlot] = retVal;
+                    } catch(IrUncaughtThrow t){
+                        // Unwind from the call site, exactly as if an interpreted callee had thrown
+                        if(!dispatch(callStack, t.value)) return false;
+                        continue;
+                    }
                 } else {
-                    Frame newFrame = new Frame(callee);
+                    Frame newFrame = newFrame(callee);
+                    budget.charge(callee.instructions.size());
                     // Pass args into slots 0..k-1
                     for(int i=0;i<call.argSlots.length && i< newFrame.slots.length;i++){
                         int src = call.argSlots[i];
                         newFrame.slots[i] = (src>=0 && src<frame.slots.length) ? frame.slots[src] : null;
                     }
                     newFrame.retDestSlot = call.destSlot;
+                    if(profiler != null){ endBlock(frame, null); profiler.enter(profiled(newFrame.info, callee)); }
+                    if(calls != null) calls.push(callee.name);
                     callStack.push(newFrame);
                     advance = false; // don't advance caller PC now; resume after return
                 }
             } else if(ins instanceof IrReturn r){
-                // Pop current frame and write return into caller dest if requested
                 Object retVal = (r.slot==null)? null : frame.slots[r.slot];
-                callStack.pop();
-                if(!callStack.isEmpty()){
-                    Frame caller = callStack.peek();
-                    if(frame.retDestSlot!=null && frame.retDestSlot>=0){
-                        caller.slots[frame.retDestSlot] = retVal;
-                    }
-                    // After returning, advance caller PC
-                    caller.pc++;
-                    continue;
-                } else {
-                    // Returned from entry function -> stop execution
-                    return;
-                }
+                // Returned from entry function -> stop execution
+                if(!returnToCaller(callStack, retVal)) return true;
+                continue;
             }
             if(advance){ frame.pc++; }
         }
+        } catch(dhrlang.interpreter.DhrRuntimeException e){
+            throw withLine(e, callStack.peek());
+        }
+        return true;
+    }
+
+    // Attributes an error raised without a location to the source line of the instruction that raised it
+    private static dhrlang.interpreter.DhrRuntimeException withLine(dhrlang.interpreter.DhrRuntimeException e, Frame frame){
+        if(e.getLocation() != null || frame == null) return e;
+        int line = frame.fn.lineAt(frame.pc);
+        if(line < 0) return e;
+        return new dhrlang.interpreter.DhrRuntimeException(e.getValue(), new dhrlang.error.SourceLocation(frame.fn.sourceFile, line, 0), e.getCategory());
+    }
+
+    // Step accounting happens only here and at call entry: a loop iteration costs the length of its body
+    private void chargeIfBackEdge(Frame frame, Integer dest){
+        int target = dest==null? frame.pc : dest; // an unresolved label spins in place
+        if(target <= frame.pc) budget.charge(frame.pc - target + 1);
     }
 
-    private IrFunction findEntryFunction(IrProgram program){
-        for(IrFunction f : program.functions){
-            if("Main.main".equals(f.name)) return f;
+    private Frame newFrame(IrFunction fn){
+        return new Frame(fn, functionInfo.computeIfAbsent(fn, FunctionInfo::new));
+    }
+
+    private Profiler.Function profiled(FunctionInfo info, IrFunction fn){
+        if(info.profiled == null){
+            String[] ops = new String[fn.instructions.size()];
+            for(int i=0;i<ops.length;i++) ops[i] = fn.instructions.get(i).getClass().getSimpleName();
+            int[] lines = new int[ops.length];
+            java.util.Arrays.fill(lines, -1);
+            for(int k=0; k<fn.lineEntries(); k++){
+                int end = k+1 < fn.lineEntries() ? fn.lineEntryStart(k+1) : ops.length;
+                java.util.Arrays.fill(lines, Math.min(fn.lineEntryStart(k), ops.length), Math.min(end, ops.length), fn.lineEntryLine(k));
+            }
+            info.profiled = profiler.function(fn.name, ops).withLines(fn.sourceFile, lines);
         }
-        for(IrFunction f : program.functions){
-            if(f.name != null && f.name.endsWith(".main")) return f;
+        return info.profiled;
+    }
+
+    // Records the straight-line run ending at the current instruction; the next one starts at dest
+    private void endBlock(Frame frame, Integer dest){
+        frame.info.profiled.block(frame.segStart, frame.pc);
+        frame.segStart = dest==null? frame.pc : dest;
+    }
+
+    /**
+     * Transfers {@code ex} to the innermost matching handler, consulting each frame's handler table at the
+     * pc it is suspended on (the throw or the pending call) and popping frames that have none. False when
+     * the exception escaped the outermost frame.
+     */
+    private boolean dispatch(java.util.Deque<Frame> callStack, Object ex){
+        while(!callStack.isEmpty()){
+            Frame frame = callStack.peek();
+            IrHandlerTable t = frame.info.handlers;
+            for(int k=0;k<t.size();k++){
+                if(t.start[k] <= frame.pc && frame.pc < t.end[k] && matchesCatch(t.type[k], ex)){
+                    frame.pendingException = ex;
+                    frame.pc = frame.segStart = t.handler[k];
+                    return true;
+                }
+            }
+            callStack.pop();
+            if(profiler != null) profiler.exit();
+            if(calls != null) calls.pop();
         }
-        return program.functions.get(0);
+        return false;
+    }
+
+    // Pop current frame and write return into caller dest if requested; false when the entry frame returned.
+    private boolean returnToCaller(java.util.Deque<Frame> callStack, Object retVal){
+        Frame frame = callStack.pop();
+        if(profiler != null){ endBlock(frame, null); profiler.exit(); }
+        if(calls != null) calls.pop();
+        if(callStack.isEmpty()) return false;
+        Frame caller = callStack.peek();
+        if(frame.retDestSlot!=null && frame.retDestSlot>=0){
+            caller.slots[frame.retDestSlot] = retVal;
+        }
+        // After returning, advance caller PC
+        caller.pc++;
+        caller.segStart = caller.pc;
+        return true;
+    }
+
+    private TierCounters countersFor(IrFunction fn){
+        return tierCounters.computeIfAbsent(fn, k -> new TierCounters());
+    }
+
+    // Counts an invocation; true when the call should run in the optimized tier.
+    private boolean onInvoke(IrFunction fn){
+        TierCounters c = countersFor(fn);
+        if(c.promoted) return true;
+        if(c.rejected) return false;
+        if(++c.invocations >= callThreshold) tryPromote(fn, c);
+        return c.promoted;
+    }
+
+    // Counts a loop back-edge; true when the current activation should be replaced on-stack.
+    private boolean onBackEdge(Frame frame){
+        TierCounters c = countersFor(frame.fn);
+        if(c.rejected) return false;
+        if(!c.promoted){
+            if(++c.backEdges < backEdgeThreshold) return false;
+            tryPromote(frame.fn, c);
+            if(!c.promoted) return false;
+        }
+        // Handler tables are static, so an activation inside a try can move tiers like any other
+        return true;
+    }
+
+    private void tryPromote(IrFunction fn, TierCounters c){
+        if(tier.promote(fn)) c.promoted = true; else c.rejected = true;
     }
 
     private void requireNumbers(Object left, Object right, String op){
@@ -1,12 +1,31 @@
 package dhrlang.ir;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Placeholder IR program container (Phase 0).
  * Will be populated by lowering pipeline in later phases.
  */
 public class IrProgram {
+    /** Synthetic function holding lowered static field initializers; engines run it once before the entry. */
+    public static final String STATIC_INIT = "<clinit>";
+
     public final List<IrFunction> functions = new ArrayList<>();
+
+    /** Declared type of each static field, keyed {@code Class.field}; lets a host check values it stores there. */
+    public final Map<String,String> staticTypes = new HashMap<>();
+
+    /** Entrypoint: {@code Main.main}, otherwise the first {@code *.main}, otherwise the first function (null if empty). */
+    public IrFunction entryFunction(){
+        for(IrFunction f : functions){
+            if("Main.main".equals(f.name)) return f;
+        }
+        for(IrFunction f : functions){
+            if(f.name != null && f.name.endsWith(".main")) return f;
+        }
+        return functions.isEmpty() ? null : functions.get(0);
+    }
 }
@@ -5,8 +5,11 @@ public class IrSetStatic implements IrInstruction {
     public final String className;
     public final String fieldName;
     public final int valueSlot;
-    public IrSetStatic(String className, String fieldName, int valueSlot){
-        this.className = className; this.fieldName = fieldName; this.valueSlot = valueSlot;
+    /** Dense storage index assigned by {@link StaticLayout#link}; -1 until linked. */
+    public final int index;
+    public IrSetStatic(String className, String fieldName, int valueSlot){ this(className, fieldName, valueSlot, -1); }
+    public IrSetStatic(String className, String fieldName, int valueSlot, int index){
+        this.className = className; this.fieldName = fieldName; this.valueSlot = valueSlot; this.index = index;
     }
     @Override public String toString(){ return "SET_STATIC " + className + "." + fieldName + " = s"+valueSlot; }
 }
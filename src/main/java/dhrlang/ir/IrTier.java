@@ -0,0 +1,20 @@
+package dhrlang.ir;
+
+/**
+ * Optimized execution tier that {@link IrInterpreter} can hand hot functions to (tiered execution).
+ * Implementations share static storage with the interpreter and report uncaught DhrLang throws
+ * by raising {@link IrUncaughtThrow}.
+ */
+public interface IrTier {
+    /** Prepares fn for the optimized tier; returning false keeps it interpreted for the rest of the run. */
+    boolean promote(IrFunction fn);
+
+    /** Runs fn from its first instruction with the given arguments and returns its result. */
+    Object invoke(IrFunction fn, Object[] args);
+
+    /**
+     * On-stack replacement: continues an interpreted activation of fn at IR instruction index
+     * {@code resumeIndex} using its live slot array, and returns the function's result.
+     */
+    Object resume(IrFunction fn, Object[] slots, int resumeIndex);
+}
@@ -0,0 +1,10 @@
+package dhrlang.ir;
+
+/** Carries a DhrLang exception value that escaped an optimized-tier activation back to the interpreter. */
+public class IrUncaughtThrow extends RuntimeException {
+    public final transient Object value;
+    public IrUncaughtThrow(Object value){
+        super("Uncaught DhrLang exception: " + value, null, false, false);
+        this.value = value;
+    }
+}
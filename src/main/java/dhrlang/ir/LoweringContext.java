@@ -5,7 +5,9 @@ import dhrlang.ast.Statement;
 import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 /** Tracks locals -> slot mapping and loop labels while lowering a single function. */
 class LoweringContext {
@@ -33,9 +35,19 @@ class LoweringContext {
     private int catchBodyDepth = 0;
     private int nestedTryWithinCatchDepth = 0;
 
+    // Unqualified names resolving to statics of the class whose initializers are being lowered
+    private final Set<String> staticScope = new HashSet<>();
+
+    void addStaticScope(String name){ staticScope.add(name); }
+    void clearStaticScope(){ staticScope.clear(); }
+    boolean isStaticScoped(String name){ return staticScope.contains(name); }
+
     int allocSlot(String name){ return localSlots.computeIfAbsent(name, k-> nextSlot++); }
     int getSlot(String name){ return localSlots.getOrDefault(name,-1); }
     int newTemp(){ return nextSlot++; }
+    // Temps allocated after mark() are dead once the value they computed has been stored
+    int mark(){ return nextSlot; }
+    void release(int mark){ nextSlot = mark; }
 
     void pushFinally(Statement finallyBlock, boolean applyOnThrow, boolean fromCatchBody){
         if(finallyBlock != null) finallyScopes.push(new FinallyScope(finallyBlock, applyOnThrow, fromCatchBody));
@@ -0,0 +1,77 @@
+package dhrlang.ir;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dense numbering of static fields: every (class, field) pair gets an index into a flat {@code Object[]},
+ * so a linked static access is a single array load instead of two map lookups.
+ */
+public final class StaticLayout {
+    private final Map<String, Map<String,Integer>> index = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private final List<String> types = new ArrayList<>();
+
+    /** Index of {@code className.fieldName}, assigning the next free one on first use. */
+    public int indexOf(String className, String fieldName){
+        Map<String,Integer> fields = index.computeIfAbsent(className, k -> new HashMap<>());
+        Integer idx = fields.get(fieldName);
+        if(idx == null){
+            idx = names.size();
+            fields.put(fieldName, idx);
+            names.add(className + "." + fieldName);
+            types.add(null);
+        }
+        return idx;
+    }
+
+    /** Records the declared type of static {@code idx}; null leaves it unknown (hand-built IR, files before DHBC v6). */
+    public void declare(int idx, String type){
+        if(type != null && !type.isEmpty()) types.set(idx, type);
+    }
+
+    /** Index of {@code className.fieldName}, or -1 when it has none; never assigns, so a shared layout may be queried. */
+    public int find(String className, String fieldName){
+        Map<String,Integer> fields = index.get(className);
+        Integer idx = fields == null ? null : fields.get(fieldName);
+        return idx == null ? -1 : idx;
+    }
+
+    public int size(){ return names.size(); }
+
+    /** Qualified {@code Class.field} name of static {@code idx}. */
+    public String nameAt(int idx){ return names.get(idx); }
+
+    /** Declared type of static {@code idx}, e.g. {@code num} or {@code sab[]}, or null when unknown. */
+    public String typeAt(int idx){ return types.get(idx); }
+
+    /** Fresh storage for one execution; unset statics read as null. */
+    public Object[] newStorage(){ return new Object[names.size()]; }
+
+    /**
+     * Link phase: numbers the statics of {@code program} in order of first appearance and rewrites every
+     * {@link IrGetStatic}/{@link IrSetStatic} to carry its index, and records their declared types.
+     * Deterministic, so relinking is harmless.
+     */
+    public static StaticLayout link(IrProgram program){
+        StaticLayout layout = new StaticLayout();
+        for(IrFunction f : program.functions){
+            List<IrInstruction> ins = f.instructions;
+            for(int i=0;i<ins.size();i++){
+                if(ins.get(i) instanceof IrGetStatic gs){
+                    ins.set(i, new IrGetStatic(gs.className, gs.fieldName, gs.targetSlot, layout.indexOf(gs.className, gs.fieldName)));
+                } else if(ins.get(i) instanceof IrSetStatic ss){
+                    ins.set(i, new IrSetStatic(ss.className, ss.fieldName, ss.valueSlot, layout.indexOf(ss.className, ss.fieldName)));
+                }
+            }
+        }
+        for(Map.Entry<String,String> e : program.staticTypes.entrySet()){
+            int dot = e.getKey().lastIndexOf('.');
+            int idx = layout.find(e.getKey().substring(0, dot), e.getKey().substring(dot + 1));
+            if(idx >= 0) layout.declare(idx, e.getValue());
+        }
+        return layout;
+    }
+}
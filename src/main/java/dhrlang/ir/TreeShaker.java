@@ -0,0 +1,49 @@
+package dhrlang.ir;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Whole-program reachability over {@link IrCall} edges. The entry function and {@code <clinit>} are the
+ * roots; functions no root can call are dropped before code generation. Surviving functions keep their
+ * relative order, so the entry resolved on the result is the same function.
+ */
+public final class TreeShaker {
+    private TreeShaker(){}
+
+    /** {@code program} without unreachable functions; returns {@code program} itself when nothing is dropped. */
+    public static IrProgram shake(IrProgram program){
+        IrFunction entry = program.entryFunction();
+        if(entry == null) return program;
+        // Same resolution as code generation: with duplicate names the last definition wins
+        Map<String,IrFunction> byName = new HashMap<>();
+        for(IrFunction f : program.functions) byName.put(f.name, f);
+
+        Set<IrFunction> reached = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<IrFunction> work = new ArrayDeque<>();
+        reached.add(entry); work.add(entry);
+        IrFunction init = byName.get(IrProgram.STATIC_INIT);
+        if(init != null && reached.add(init)) work.add(init);
+        while(!work.isEmpty()){
+            for(IrInstruction ins : work.poll().instructions){
+                if(ins instanceof IrCall call){
+                    IrFunction callee = byName.get(call.functionName);
+                    if(callee != null && reached.add(callee)) work.add(callee);
+                }
+            }
+        }
+        if(reached.size() == program.functions.size()) return program;
+
+        IrProgram shaken = new IrProgram();
+        for(IrFunction f : program.functions){
+            if(reached.contains(f)) shaken.functions.add(f);
+        }
+        shaken.staticTypes.putAll(program.staticTypes);
+        return shaken;
+    }
+}
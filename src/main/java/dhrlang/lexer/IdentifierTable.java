@@ -0,0 +1,36 @@
+package dhrlang.lexer;
+
+// Open-addressing intern table for identifier lexemes, probed with the source characters before any substring;
+// synchronized because parallel parsers materialize tokens of one buffer concurrently
+final class IdentifierTable {
+    private String[] table = new String[64];
+    private int count;
+
+    synchronized String intern(String source, int s, int e) {
+        int h = 0;
+        for (int k = s; k < e; k++) h = 31 * h + source.charAt(k);
+        int mask = table.length - 1;
+        int slot = (h ^ (h >>> 16)) & mask;
+        int len = e - s;
+        for (String cand; (cand = table[slot]) != null; slot = (slot + 1) & mask) {
+            if (cand.length() == len && source.regionMatches(s, cand, 0, len)) return cand;
+        }
+        String value = source.substring(s, e);
+        table[slot] = value;
+        if (++count * 2 > table.length) rehash();
+        return value;
+    }
+
+    private void rehash() {
+        String[] old = table;
+        table = new String[old.length * 2];
+        int mask = table.length - 1;
+        for (String v : old) {
+            if (v == null) continue;
+            int h = v.hashCode();
+            int slot = (h ^ (h >>> 16)) & mask;
+            while (table[slot] != null) slot = (slot + 1) & mask;
+            table[slot] = v;
+        }
+    }
+}
@@ -3,15 +3,20 @@ package dhrlang.lexer;
 import dhrlang.error.ErrorReporter;
 import dhrlang.error.SourceLocation;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 public class Lexer {
     private final String source;
-    private final List<Token> tokens = new ArrayList<>();
+    // Filled by scan(); null while streaming, where each token is handed out through nextToken()
+    private TokenBuffer tokens;
+    private IdentifierTable identifiers;
+    private Token pending;
+    private boolean eofEmitted;
     private ErrorReporter errorReporter;
+    private final int end;
 
     private int start = 0;
     private int current = 0;
@@ -60,13 +65,76 @@ public class Lexer {
         keywords.put("final", TokenType.FINAL);
     }
 
+    // Perfect hash over the keyword spellings (plus "@Override"): identifiers are classified straight from the
+    // source characters without cutting a substring first. The seed is searched once at class load.
+    private static final int KEYWORD_SLOTS = 256;
+    private static final String[] KEYWORD_NAMES = new String[KEYWORD_SLOTS];
+    private static final TokenType[] KEYWORD_TYPES = new TokenType[KEYWORD_SLOTS];
+    private static final int KEYWORD_SEED;
+
+    static {
+        Map<String, TokenType> all = new HashMap<>(keywords);
+        all.put("@Override", TokenType.OVERRIDE);
+        int seed = 0;
+        search:
+        while (true) {
+            seed++;
+            Arrays.fill(KEYWORD_NAMES, null);
+            for (var e : all.entrySet()) {
+                String k = e.getKey();
+                int slot = keywordSlot(seed, k, 0, k.length());
+                if (KEYWORD_NAMES[slot] != null) continue search;
+                KEYWORD_NAMES[slot] = k;
+                KEYWORD_TYPES[slot] = e.getValue();
+            }
+            break;
+        }
+        KEYWORD_SEED = seed;
+    }
+
+    private static int keywordSlot(int seed, CharSequence text, int from, int to) {
+        int h = seed * (to - from);
+        for (int i = from; i < to; i++) h = h * 31 + text.charAt(i);
+        h *= 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (KEYWORD_SLOTS - 1);
+    }
+
+    private static int keywordIndex(String source, int from, int to) {
+        int slot = keywordSlot(KEYWORD_SEED, source, from, to);
+        String k = KEYWORD_NAMES[slot];
+        int len = to - from;
+        return k != null && k.length() == len && source.regionMatches(from, k, 0, len) ? slot : -1;
+    }
+
+    /** The shared keyword string spelled by {@code source[from, to)}, or null if it is not a keyword. */
+    static String keywordSpelling(String source, int from, int to) {
+        int slot = keywordIndex(source, from, to);
+        return slot < 0 ? null : KEYWORD_NAMES[slot];
+    }
+
     public Lexer(String source) {
-        this.source = source;
+        this(source, null);
     }
 
     public Lexer(String source, ErrorReporter errorReporter) {
         this.source = source;
         this.errorReporter = errorReporter;
+        this.end = source.length();
+    }
+
+    /**
+     * Lexes only {@code source[from, to)}, with {@code line} and {@code column} the position of {@code from}, so
+     * tokens get the offsets and locations a lex of the whole source would give them. Used to re-lex one edited
+     * declaration.
+     */
+    public Lexer(String source, int from, int to, int line, int column, ErrorReporter errorReporter) {
+        this.source = source;
+        this.errorReporter = errorReporter;
+        this.end = to;
+        this.start = this.current = from;
+        this.line = line;
+        this.column = column;
+        this.lineStart = from - (column - 1);
     }
 
     // Removed unused setErrorReporter to reduce surface area.
@@ -76,15 +144,49 @@ public class Lexer {
     }
 
     public List<Token> scanTokens() {
+        return scan().asList();
+    }
+
+    /** Scans the whole source into a compact {@link TokenBuffer}; {@link #scanTokens()} is a list view of it. */
+    public TokenBuffer scan() {
+        if (tokens != null) return tokens;
+        if (identifiers != null) throw new IllegalStateException("Lexer is already streaming");
+        tokens = new TokenBuffer(source, end - current);
         while (!isAtEnd()) {
             start = current;
             scanToken();
         }
 
-        tokens.add(new Token(TokenType.EOF, "", line, column, current, current));
+        tokens.add(TokenType.EOF, current, current, line, column);
         return tokens;
     }
 
+    /**
+     * Lexes on demand as the parser asks for tokens instead of scanning the whole source first, so only the
+     * parser's lookahead window is held in memory. Use either this or {@link #scan()} on one lexer.
+     */
+    public TokenSource stream() {
+        if (tokens != null) throw new IllegalStateException("Lexer has already scanned");
+        identifiers = new IdentifierTable();
+        return new TokenStream(this, errorReporter);
+    }
+
+    // Next streamed token, the EOF token once, then null
+    Token nextToken() {
+        while (pending == null) {
+            if (isAtEnd()) {
+                if (eofEmitted) return null;
+                eofEmitted = true;
+                return new Token(TokenType.EOF, "", line, column, current, current);
+            }
+            start = current;
+            scanToken();
+        }
+        Token t = pending;
+        pending = null;
+        return t;
+    }
+
     private void scanToken() {
         char c = advance();
 
@@ -201,14 +303,8 @@ public class Lexer {
     private void identifier() {
         while (isAlphaNumeric(peek())) advance();
 
-        String text = source.substring(start, current);
-        
-        if (text.equals("@Override")) {
-            addToken(TokenType.OVERRIDE, text);
-        } else {
-            TokenType type = keywords.getOrDefault(text, TokenType.IDENTIFIER);
-            addToken(type, text);
-        }
+        int slot = keywordIndex(source, start, current);
+        addToken(slot < 0 ? TokenType.IDENTIFIER : KEYWORD_TYPES[slot]);
     }
     private void number() {
         while (isDigit(peek())) advance();
@@ -216,10 +312,10 @@ public class Lexer {
             advance();
             while (isDigit(peek())) advance();
         }
-        addToken(TokenType.NUMBER, source.substring(start, current));
+        addToken(TokenType.NUMBER);
     }
     private char peekNext() {
-        if (current + 1 >= source.length()) return '\0';
+        if (current + 1 >= end) return '\0';
         return source.charAt(current + 1);
     }
     private void string() {
@@ -243,8 +339,7 @@ public class Lexer {
 
         advance();
 
-        String value = source.substring(start + 1, current - 1);
-        addToken(TokenType.STRING, value);
+        addToken(TokenType.STRING);
     }
 
     private void character() {
@@ -266,8 +361,7 @@ public class Lexer {
         }
         advance(); // closing '
 
-        String value = source.substring(start + 1, current - 1);
-        addToken(TokenType.CHAR, value);
+        addToken(TokenType.CHAR);
     }
 
     private boolean match(char expected) {
@@ -296,16 +390,16 @@ public class Lexer {
     }
 
     private void addToken(TokenType type) {
-        addToken(type, source.substring(start, current));
-    }
-
-    private void addToken(TokenType type, String value) {
         int startColumn = start - lineStart + 1;
-        tokens.add(new Token(type, value, line, startColumn, start, current));
+        if (tokens != null) {
+            tokens.add(type, start, current, line, startColumn);
+        } else {
+            pending = new Token(type, TokenBuffer.lexeme(type, source, start, current, identifiers), line, startColumn, start, current);
+        }
     }
 
     private boolean isAtEnd() {
-        return current >= source.length();
+        return current >= end;
     }
 
     private boolean isDigit(char c) {
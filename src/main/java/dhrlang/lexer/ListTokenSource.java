@@ -0,0 +1,29 @@
+package dhrlang.lexer;
+
+import java.util.List;
+
+// Token list adapter; reads types from the TokenBuffer behind Lexer.scanTokens() lists without building Tokens
+final class ListTokenSource implements TokenSource {
+    private final List<Token> tokens;
+    private final TokenBuffer buffer;
+
+    ListTokenSource(List<Token> tokens) {
+        this.tokens = tokens;
+        this.buffer = TokenBuffer.backing(tokens);
+    }
+
+    @Override
+    public boolean has(int index) {
+        return index < tokens.size();
+    }
+
+    @Override
+    public TokenType type(int index) {
+        return buffer != null ? buffer.type(index) : tokens.get(index).getType();
+    }
+
+    @Override
+    public Token get(int index) {
+        return tokens.get(index);
+    }
+}
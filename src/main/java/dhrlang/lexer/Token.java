@@ -53,6 +53,11 @@ public final class Token {
         return new SourceLocation(null, line, column, startOffset, endOffset);
     }
 
+    /** {@link SourceLocation#pack Packed} line and column, for AST nodes; allocates nothing. */
+    public long getPackedLocation() {
+        return SourceLocation.pack(line, column);
+    }
+
     @Override
     public String toString() {
         return String.format("Token(%s, \"%s\", %d:%d)", type, lexeme, line, column);
@@ -0,0 +1,124 @@
+package dhrlang.lexer;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Tokens of one source as parallel {@code int} arrays (type, start/end offset, line, column) over the source
+ * string. Lexemes are only cut out of the source when asked for: keywords and punctuation reuse one shared
+ * string, identifiers are interned per buffer, and {@link #asList()} adapts the buffer for {@code List<Token>}
+ * callers, building each {@link Token} on first access. A filled buffer and its list view may be read from
+ * several threads.
+ */
+public final class TokenBuffer {
+    private static final TokenType[] TYPES = TokenType.values();
+    // Fixed spelling of punctuation and operator types, filled on first use (racy but idempotent)
+    private static final String[] SPELLINGS = new String[TYPES.length];
+
+    private final String source;
+    private int size;
+    private int[] types;
+    private int[] starts;
+    private int[] ends;
+    private int[] lines;
+    private int[] columns;
+
+    private final IdentifierTable identifiers = new IdentifierTable();
+
+    private TokenList list;
+
+    TokenBuffer(String source, int chars) {
+        this.source = source;
+        // Roughly one token per six characters of typical source
+        int capacity = Math.max(16, chars / 6);
+        this.types = new int[capacity];
+        this.starts = new int[capacity];
+        this.ends = new int[capacity];
+        this.lines = new int[capacity];
+        this.columns = new int[capacity];
+    }
+
+    void add(TokenType type, int start, int end, int line, int column) {
+        if (size == types.length) {
+            int capacity = size + (size >> 1) + 16;
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            columns = Arrays.copyOf(columns, capacity);
+        }
+        types[size] = type.ordinal();
+        starts[size] = start;
+        ends[size] = end;
+        lines[size] = line;
+        columns[size] = column;
+        size++;
+    }
+
+    public String source() { return source; }
+    public int size() { return size; }
+    public TokenType type(int i) { return TYPES[types[Objects.checkIndex(i, size)]]; }
+    public int startOffset(int i) { return starts[Objects.checkIndex(i, size)]; }
+    public int endOffset(int i) { return ends[Objects.checkIndex(i, size)]; }
+    public int line(int i) { return lines[Objects.checkIndex(i, size)]; }
+    public int column(int i) { return columns[Objects.checkIndex(i, size)]; }
+
+    /** The lexeme of token {@code i}; string and char literals without their quotes, as {@link Token} has them. */
+    public String lexeme(int i) {
+        return lexeme(type(i), source, starts[i], ends[i], identifiers);
+    }
+
+    static String lexeme(TokenType type, String source, int s, int e, IdentifierTable identifiers) {
+        switch (type) {
+            case EOF: return "";
+            case STRING:
+            case CHAR: return source.substring(s + 1, e - 1);
+            case NUMBER: return source.substring(s, e);
+            case IDENTIFIER: return identifiers.intern(source, s, e);
+            default:
+                String keyword = Lexer.keywordSpelling(source, s, e);
+                if (keyword != null) return keyword;
+                String spelling = SPELLINGS[type.ordinal()];
+                if (spelling == null) SPELLINGS[type.ordinal()] = spelling = source.substring(s, e);
+                return spelling;
+        }
+    }
+
+    public Token token(int i) {
+        return new Token(type(i), lexeme(i), lines[i], columns[i], starts[i], ends[i]);
+    }
+
+    /** Read-only {@code List<Token>} view for existing callers; tokens are built once, on first {@code get}. */
+    public List<Token> asList() {
+        if (list == null || list.cache.length != size) list = new TokenList();
+        return list;
+    }
+
+    /** The buffer behind a list returned by {@link #asList()}, or null for any other token list. */
+    public static TokenBuffer backing(List<Token> tokens) {
+        return tokens instanceof TokenList l ? l.buffer() : null;
+    }
+
+    private final class TokenList extends AbstractList<Token> implements RandomAccess {
+        private final Token[] cache = new Token[size];
+
+        @Override
+        public Token get(int index) {
+            Token t = cache[Objects.checkIndex(index, cache.length)];
+            if (t == null) cache[index] = t = token(index);
+            return t;
+        }
+
+        @Override
+        public int size() {
+            return cache.length;
+        }
+
+        TokenBuffer buffer() {
+            return TokenBuffer.this;
+        }
+    }
+}
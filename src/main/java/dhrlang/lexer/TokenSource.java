@@ -0,0 +1,32 @@
+package dhrlang.lexer;
+
+import java.util.List;
+
+/**
+ * Forward-only token access for the parser by absolute index. A source produced by {@link Lexer#stream()} lexes on
+ * demand and only keeps the window between the oldest unreleased token and the furthest lookahead.
+ */
+public interface TokenSource {
+    /** Whether a token exists at {@code index}; the EOF token is the last one. */
+    boolean has(int index);
+
+    TokenType type(int index);
+
+    Token get(int index);
+
+    /** Tokens before {@code index} will not be asked for again. */
+    default void release(int index) {}
+
+    /**
+     * Whether the lexer reported errors anywhere in the input. A streaming source lexes the rest of the input first,
+     * so the answer (and the reported diagnostics) match scanning everything up front.
+     */
+    default boolean lexicalErrors() { return false; }
+
+    /** Time spent lexing for this source so far, in nanoseconds; 0 for a source over a ready token list. */
+    default long lexNanos() { return 0; }
+
+    static TokenSource of(List<Token> tokens) {
+        return new ListTokenSource(tokens);
+    }
+}
@@ -0,0 +1,88 @@
+package dhrlang.lexer;
+
+import dhrlang.error.ErrorReporter;
+
+// Pulls tokens from a Lexer into a ring that grows only when lookahead outruns it
+final class TokenStream implements TokenSource {
+    private final Lexer lexer;
+    private final ErrorReporter errorReporter;
+    private final int errorsBefore;
+    private Token[] ring = new Token[16];
+    private int base;  // absolute index of the oldest retained token
+    private int count;
+    private boolean ended;
+    private long lexNanos;
+
+    TokenStream(Lexer lexer, ErrorReporter errorReporter) {
+        this.lexer = lexer;
+        this.errorReporter = errorReporter;
+        this.errorsBefore = errorReporter == null ? 0 : errorReporter.getErrorCount();
+    }
+
+    @Override
+    public boolean has(int index) {
+        return fill(index);
+    }
+
+    @Override
+    public TokenType type(int index) {
+        return get(index).getType();
+    }
+
+    @Override
+    public Token get(int index) {
+        if (index < base) throw new IllegalStateException("Token " + index + " was already released");
+        if (!fill(index)) throw new IndexOutOfBoundsException("Token " + index + " is past EOF");
+        return ring[index & (ring.length - 1)];
+    }
+
+    @Override
+    public void release(int index) {
+        while (base < index && count > 0) {
+            ring[base & (ring.length - 1)] = null;
+            base++;
+            count--;
+        }
+    }
+
+    @Override
+    public boolean lexicalErrors() {
+        if (errorReporter == null) return false;
+        long start = System.nanoTime();
+        while (!ended) {
+            if (lexer.nextToken() == null) ended = true;
+        }
+        lexNanos += System.nanoTime() - start;
+        return errorReporter.getErrorCount() > errorsBefore;
+    }
+
+    @Override
+    public long lexNanos() {
+        return lexNanos;
+    }
+
+    // Lexes into every free slot of the ring, not just up to index, so the clock is read once per batch of tokens
+    private boolean fill(int index) {
+        if (index < base + count) return true;
+        if (ended) return false;
+        long start = System.nanoTime();
+        while (index >= base + count || count < ring.length) {
+            Token t = lexer.nextToken();
+            if (t == null) {
+                ended = true;
+                break;
+            }
+            if (count == ring.length) grow();
+            ring[(base + count) & (ring.length - 1)] = t;
+            count++;
+        }
+        lexNanos += System.nanoTime() - start;
+        return index < base + count;
+    }
+
+    private void grow() {
+        Token[] bigger = new Token[ring.length * 2];
+        for (int i = base; i < base + count; i++) bigger[i & (bigger.length - 1)] = ring[i & (ring.length - 1)];
+        ring = bigger;
+    }
+}
@@ -0,0 +1,150 @@
+package dhrlang.parser;
+
+import dhrlang.ast.ClassDecl;
+import dhrlang.ast.InterfaceDecl;
+import dhrlang.ast.Program;
+import dhrlang.error.ErrorReporter;
+import dhrlang.lexer.Lexer;
+import dhrlang.lexer.Token;
+import dhrlang.lexer.TokenSource;
+import dhrlang.lexer.TokenType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.LongConsumer;
+
+/**
+ * Parses the top-level declarations of a program on separate workers. A pre-scan splits the token list at the
+ * closing brace of each top-level declaration. Every range is parsed by its own {@link Parser} with a forked
+ * {@link ErrorReporter}, and the results are merged in source order up to the first failed declaration, so
+ * diagnostics match a serial parse. Programs that do not split cleanly are parsed serially.
+ * {@code dhrlang.parse.threads} caps the workers (1 parses serially).
+ */
+public final class ParallelParser {
+    // Below this size the streaming parser is faster and keeps no token list
+    private static final int PARALLEL_MIN_CHARS = 64 * 1024;
+    private static final int PARALLEL_MIN_DECLARATIONS = 8;
+
+    private ParallelParser() {}
+
+    /** Lexes and parses {@code source}, in parallel when it is large; throws {@link ParseException} like {@link Parser#parse}. */
+    public static Program parse(String source, ErrorReporter errorReporter) {
+        return parse(source, errorReporter, nanos -> {});
+    }
+
+    /** Like {@link #parse(String, ErrorReporter)}, handing the nanoseconds spent lexing to {@code lexNanos} however parsing ends. */
+    public static Program parse(String source, ErrorReporter errorReporter, LongConsumer lexNanos) {
+        if (source.length() < PARALLEL_MIN_CHARS || threads() <= 1) {
+            TokenSource tokens = new Lexer(source, errorReporter).stream();
+            try {
+                return new Parser(tokens, errorReporter).parse();
+            } finally {
+                lexNanos.accept(tokens.lexNanos());
+            }
+        }
+        int errorsBefore = errorReporter == null ? 0 : errorReporter.getErrorCount();
+        long start = System.nanoTime();
+        List<Token> tokens = new Lexer(source, errorReporter).scanTokens();
+        lexNanos.accept(System.nanoTime() - start);
+        if (errorReporter != null && errorReporter.getErrorCount() > errorsBefore) {
+            throw new ParseException("Lexical errors", 0);
+        }
+        return parse(tokens, errorReporter);
+    }
+
+    public static Program parse(List<Token> tokens, ErrorReporter errorReporter) {
+        TokenSource source = TokenSource.of(tokens);
+        int threads = threads();
+        List<int[]> ranges = threads <= 1 || errorReporter == null ? null : split(source);
+        if (ranges == null || ranges.size() < PARALLEL_MIN_DECLARATIONS) {
+            return new Parser(source, errorReporter).parse();
+        }
+
+        ForkJoinPool pool = System.getProperty("dhrlang.parse.threads") == null ? ForkJoinPool.commonPool() : new ForkJoinPool(threads);
+        List<Worker> workers = new ArrayList<>(ranges.size());
+        try {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(ranges.size());
+            for (int[] range : ranges) {
+                Worker w = new Worker(source, errorReporter.fork(), range[0], range[1]);
+                workers.add(w);
+                tasks.add(pool.submit(w::run));
+            }
+            for (ForkJoinTask<?> task : tasks) task.join();
+        } finally {
+            if (pool != ForkJoinPool.commonPool()) pool.shutdown();
+        }
+
+        // A declaration that parsed but ended off its pre-scanned boundary means the split was wrong
+        for (Worker w : workers) {
+            if (w.failure != null) break;
+            if (w.end != w.expectedEnd) return new Parser(source, errorReporter).parse();
+        }
+
+        List<ClassDecl> classes = new ArrayList<>();
+        List<InterfaceDecl> interfaces = new ArrayList<>();
+        for (Worker w : workers) {
+            errorReporter.merge(w.errors);
+            if (w.failure != null) throw w.failure;
+            if (w.decl instanceof InterfaceDecl interfaceDecl) {
+                interfaces.add(interfaceDecl);
+            } else {
+                classes.add((ClassDecl) w.decl);
+            }
+        }
+        return new Program(classes, interfaces);
+    }
+
+    /** The [start, end) token ranges of the top-level declarations, or null when braces do not balance. */
+    public static List<int[]> split(TokenSource tokens) {
+        List<int[]> ranges = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        int i = 0;
+        for (TokenType type; (type = tokens.type(i)) != TokenType.EOF; i++) {
+            if (type == TokenType.LBRACE) {
+                depth++;
+            } else if (type == TokenType.RBRACE) {
+                if (--depth < 0) return null;
+                if (depth == 0) {
+                    ranges.add(new int[]{start, i + 1});
+                    start = i + 1;
+                }
+            }
+        }
+        return depth == 0 && start == i ? ranges : null;
+    }
+
+    private static int threads() {
+        return Integer.getInteger("dhrlang.parse.threads", Runtime.getRuntime().availableProcessors());
+    }
+
+    private static final class Worker {
+        private final TokenSource tokens;
+        private final ErrorReporter errors;
+        private final int start;
+        private final int expectedEnd;
+        private Object decl;
+        private int end;
+        private RuntimeException failure;
+
+        Worker(TokenSource tokens, ErrorReporter errors, int start, int expectedEnd) {
+            this.tokens = tokens;
+            this.errors = errors;
+            this.start = start;
+            this.expectedEnd = expectedEnd;
+        }
+
+        void run() {
+            Parser parser = new Parser(tokens, errors);
+            parser.seek(start);
+            try {
+                decl = parser.parseTopLevel();
+                end = parser.position();
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+    }
+}
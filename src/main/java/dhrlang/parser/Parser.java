@@ -3,6 +3,7 @@ package dhrlang.parser;
 import dhrlang.ast.*;
 import dhrlang.error.ErrorReporter;
 import dhrlang.lexer.Token;
+import dhrlang.lexer.TokenSource;
 import dhrlang.lexer.TokenType;
 
 import java.util.ArrayList;
@@ -12,7 +13,7 @@ import java.util.HashSet;
 
 public class Parser {
 
-    private final List<Token> tokens;
+    private final TokenSource tokens;
     private int current = 0;
     private ErrorReporter errorReporter;
 
@@ -21,6 +22,11 @@ public class Parser {
     }
     
     public Parser(List<Token> tokens, ErrorReporter errorReporter) {
+        this(TokenSource.of(tokens), errorReporter);
+    }
+
+    /** Parses from any token source, e.g. {@link dhrlang.lexer.Lexer#stream()} to lex and parse in one pass. */
+    public Parser(TokenSource tokens, ErrorReporter errorReporter) {
         this.tokens = tokens;
         this.errorReporter = errorReporter;
     }
@@ -31,10 +37,11 @@ public class Parser {
 
         try {
             while (!isAtEnd()) {
-                if (check(TokenType.INTERFACE)) {
-                    interfaces.add(parseInterfaceDecl());
+                Object decl = parseTopLevel();
+                if (decl instanceof InterfaceDecl interfaceDecl) {
+                    interfaces.add(interfaceDecl);
                 } else {
-                    classes.add(parseClassDecl());
+                    classes.add((ClassDecl) decl);
                 }
             }
             return new Program(classes, interfaces);
@@ -43,6 +50,28 @@ public class Parser {
         }
     }
 
+    /**
+     * Parses the tokens as exactly one top-level class or interface declaration, for re-parsing a single edited
+     * declaration. Returns null, without reporting anything, when tokens are left after it.
+     */
+    public Object parseDeclaration() {
+        Object decl = parseTopLevel();
+        return isAtEnd() ? decl : null;
+    }
+
+    // One top-level class or interface declaration starting at the current token
+    Object parseTopLevel() {
+        return check(TokenType.INTERFACE) ? parseInterfaceDecl() : parseClassDecl();
+    }
+
+    void seek(int index) {
+        current = index;
+    }
+
+    int position() {
+        return current;
+    }
+
     private ClassDecl parseClassDecl() {
         Set<Modifier> classModifiers = parseModifiers();
         
@@ -147,7 +176,7 @@ public class Parser {
             classDecl = new ClassDecl(name.getLexeme(), superclass, interfaces, functions, variables, classModifiers);
         }
         
-        classDecl.setSourceLocation(name.getLocation());
+        classDecl.setSourceLocation(name.getPackedLocation());
         return classDecl;
     }
     
@@ -194,7 +223,7 @@ public class Parser {
                 consume(TokenType.SEMICOLON, "Expected ';' after interface method declaration.");
 
                 FunctionDecl method = new FunctionDecl(typeToken.getLexeme(), nameToken.getLexeme(), parameters, null, methodModifiers);
-                method.setSourceLocation(nameToken.getLocation());
+                method.setSourceLocation(nameToken.getPackedLocation());
                 methods.add(method);
             } else {
                 throw error(peek(), "Expected method declaration in interface.");
@@ -210,7 +239,7 @@ public class Parser {
             interfaceDecl = new InterfaceDecl(name.getLexeme(), parentInterfaces, methods, interfaceModifiers);
         }
         
-        interfaceDecl.setSourceLocation(name.getLocation());
+        interfaceDecl.setSourceLocation(name.getPackedLocation());
         return interfaceDecl;
     }
 
@@ -224,11 +253,11 @@ public class Parser {
                 
                 if (expr instanceof VariableExpr && isClassName(((VariableExpr) expr).getName().getLexeme())) {
                     StaticAccessExpr staticExpr = new StaticAccessExpr((VariableExpr) expr, name);
-                    staticExpr.setSourceLocation(name.getLocation());
+                    staticExpr.setSourceLocation(name.getPackedLocation());
                     expr = staticExpr;
                 } else {
                     GetExpr getExpr = new GetExpr(expr, name);
-                    getExpr.setSourceLocation(name.getLocation());
+                    getExpr.setSourceLocation(name.getPackedLocation());
                     expr = getExpr;
                 }
             }
@@ -237,7 +266,7 @@ public class Parser {
                 Expression index = parseExpression();
                 consume(TokenType.RBRACKET, "Expected ']' after array index.");
                 IndexExpr indexExpr = new IndexExpr(expr, index);
-                indexExpr.setSourceLocation(lBracket.getLocation());
+                indexExpr.setSourceLocation(lBracket.getPackedLocation());
                 expr = indexExpr;
             }
             else {
@@ -271,7 +300,7 @@ public class Parser {
         }
         
         FunctionDecl functionDecl = new FunctionDecl(returnType.getLexeme(), name.getLexeme(), parameters, body, modifiers);
-        functionDecl.setSourceLocation(returnType.getLocation());
+        functionDecl.setSourceLocation(returnType.getPackedLocation());
         return functionDecl;
     }
 
@@ -279,7 +308,7 @@ public class Parser {
         Token type = consumeType("Expected type in parameter declaration.");
         Token name = consume(TokenType.IDENTIFIER, "Expected parameter name.");
         VarDecl varDecl = new VarDecl(type.getLexeme(), name.getLexeme(), null);
-        varDecl.setSourceLocation(type.getLocation());
+        varDecl.setSourceLocation(type.getPackedLocation());
         return varDecl;
     }
 
@@ -290,7 +319,7 @@ public class Parser {
         }
         consume(TokenType.SEMICOLON, "Expected ';' after variable declaration.");
         VarDecl varDecl = new VarDecl(type.getLexeme(), name.getLexeme(), initializer);
-        varDecl.setSourceLocation(name.getLocation());
+        varDecl.setSourceLocation(name.getPackedLocation());
         return varDecl;
     }
     
@@ -301,7 +330,7 @@ public class Parser {
         }
         consume(TokenType.SEMICOLON, "Expected ';' after variable declaration.");
         VarDecl varDecl = new VarDecl(type.getLexeme(), name.getLexeme(), initializer, modifiers);
-        varDecl.setSourceLocation(name.getLocation());
+        varDecl.setSourceLocation(name.getPackedLocation());
         return varDecl;
     }
 
@@ -313,7 +342,7 @@ public class Parser {
         }
         consume(TokenType.RBRACE, "Expected '}' after block.");
         Block block = new Block(statements);
-        block.setSourceLocation(lbrace.getLocation());
+        block.setSourceLocation(lbrace.getPackedLocation());
         return block;
     }
 
@@ -327,7 +356,7 @@ public class Parser {
         }
         consume(TokenType.RPAREN, "Expect ')' after arguments.");
         CallExpr callExpr = new CallExpr(callee, arguments);
-        callExpr.setSourceLocation(lParen.getLocation());
+        callExpr.setSourceLocation(lParen.getPackedLocation());
         return callExpr;
     }
 
@@ -336,14 +365,14 @@ public class Parser {
             Token breakToken = previous();
             consume(TokenType.SEMICOLON, "Expected ';' after 'break'.");
             BreakStmt breakStmt = new BreakStmt();
-            breakStmt.setSourceLocation(breakToken.getLocation());
+            breakStmt.setSourceLocation(breakToken.getPackedLocation());
             return breakStmt;
         }
         if (match(TokenType.CONTINUE)) {
             Token continueToken = previous();
             consume(TokenType.SEMICOLON, "Expected ';' after 'continue'.");
             ContinueStmt continueStmt = new ContinueStmt();
-            continueStmt.setSourceLocation(continueToken.getLocation());
+            continueStmt.setSourceLocation(continueToken.getPackedLocation());
             return continueStmt;
         }
         if (match(TokenType.RETURN)) {
@@ -378,7 +407,7 @@ public class Parser {
     }
 
     private boolean isVariableDeclaration() {
-        if (tokens.size() <= current + 1) {
+        if (!tokens.has(current + 1)) {
             return false;
         }
 
@@ -388,18 +417,18 @@ public class Parser {
         int lookAhead = current + 1;
         
         // Handle array types: Type[] and multi-dimensional Type[][]...
-        while (lookAhead + 1 < tokens.size()
-                && tokens.get(lookAhead).getType() == TokenType.LBRACKET
-                && tokens.get(lookAhead + 1).getType() == TokenType.RBRACKET) {
+        while (tokens.has(lookAhead + 1)
+                && typeAt(lookAhead) == TokenType.LBRACKET
+                && typeAt(lookAhead + 1) == TokenType.RBRACKET) {
             lookAhead += 2;
         }
         
         // Handle generic types: Type<T, U>
-        if (lookAhead < tokens.size() && tokens.get(lookAhead).getType() == TokenType.LESS) {
+        if (tokens.has(lookAhead) && typeAt(lookAhead) == TokenType.LESS) {
             int depth = 1;
             lookAhead++;
-            while (lookAhead < tokens.size() && depth > 0) {
-                TokenType type = tokens.get(lookAhead).getType();
+            while (tokens.has(lookAhead) && depth > 0) {
+                TokenType type = typeAt(lookAhead);
                 if (type == TokenType.LESS) {
                     depth++;
                 } else if (type == TokenType.GREATER) {
@@ -410,7 +439,7 @@ public class Parser {
             if (depth != 0) return false;
         }
 
-        if (lookAhead < tokens.size() && tokens.get(lookAhead).getType() == TokenType.IDENTIFIER) {
+        if (tokens.has(lookAhead) && typeAt(lookAhead) == TokenType.IDENTIFIER) {
             return true;
         }
 
@@ -425,7 +454,7 @@ public class Parser {
         }
         consume(TokenType.SEMICOLON, "Expected ';' after return statement.");
         ReturnStmt returnStmt = new ReturnStmt(value);
-        returnStmt.setSourceLocation(returnToken.getLocation());
+        returnStmt.setSourceLocation(returnToken.getPackedLocation());
         return returnStmt;
     }
 
@@ -478,7 +507,7 @@ public class Parser {
             Token operator = previous();
             Expression right = parseLogicalAnd();
             BinaryExpr binaryExpr = new BinaryExpr(expr, operator, right);
-            binaryExpr.setSourceLocation(operator.getLocation());
+            binaryExpr.setSourceLocation(operator.getPackedLocation());
             expr = binaryExpr;
         }
         return expr;
@@ -490,7 +519,7 @@ public class Parser {
             Token operator = previous();
             Expression right = parseEquality();
             BinaryExpr binaryExpr = new BinaryExpr(expr, operator, right);
-            binaryExpr.setSourceLocation(operator.getLocation());
+            binaryExpr.setSourceLocation(operator.getPackedLocation());
             expr = binaryExpr;
         }
         return expr;
@@ -502,7 +531,7 @@ public class Parser {
             Token operator = previous();
             Expression right = parseComparison();
             BinaryExpr binaryExpr = new BinaryExpr(expr, operator, right);
-            binaryExpr.setSourceLocation(operator.getLocation());
+            binaryExpr.setSourceLocation(operator.getPackedLocation());
             expr = binaryExpr;
         }
         return expr;
@@ -514,7 +543,7 @@ public class Parser {
             Token operator = previous();
             Expression right = parseTerm();
             BinaryExpr binaryExpr = new BinaryExpr(expr, operator, right);
-            binaryExpr.setSourceLocation(operator.getLocation());
+            binaryExpr.setSourceLocation(operator.getPackedLocation());
             expr = binaryExpr;
         }
         return expr;
@@ -526,7 +555,7 @@ public class Parser {
             Token operator = previous();
             Expression right = parseFactor();
             BinaryExpr binaryExpr = new BinaryExpr(expr, operator, right);
-            binaryExpr.setSourceLocation(operator.getLocation());
+            binaryExpr.setSourceLocation(operator.getPackedLocation());
             expr = binaryExpr;
         }
         return expr;
@@ -538,7 +567,7 @@ public class Parser {
             Token operator = previous();
             Expression right = parseUnary();
             BinaryExpr binaryExpr = new BinaryExpr(expr, operator, right);
-            binaryExpr.setSourceLocation(operator.getLocation());
+            binaryExpr.setSourceLocation(operator.getPackedLocation());
             expr = binaryExpr;
         }
         return expr;
@@ -554,7 +583,7 @@ public class Parser {
             }
 
             PrefixIncrementExpr prefixExpr = new PrefixIncrementExpr(operator, target);
-            prefixExpr.setSourceLocation(operator.getLocation());
+            prefixExpr.setSourceLocation(operator.getPackedLocation());
             return prefixExpr;
         }
 
@@ -562,7 +591,7 @@ public class Parser {
             Token operator = previous();
             Expression right = parseUnary();
             UnaryExpr unaryExpr = new UnaryExpr(operator, right);
-            unaryExpr.setSourceLocation(operator.getLocation());
+            unaryExpr.setSourceLocation(operator.getPackedLocation());
             return unaryExpr;
         }
 
@@ -581,7 +610,7 @@ public class Parser {
             }
 
             PostfixIncrementExpr postfixExpr = new PostfixIncrementExpr(expr, operator);
-            postfixExpr.setSourceLocation(operator.getLocation());
+            postfixExpr.setSourceLocation(operator.getPackedLocation());
             return postfixExpr;
         }
 
@@ -600,7 +629,7 @@ public class Parser {
 
         consume(TokenType.RBRACKET, "Expected ']' after array elements.");
         ArrayExpr arrayExpr = new ArrayExpr(elements);
-        arrayExpr.setSourceLocation(lBracket.getLocation());
+        arrayExpr.setSourceLocation(lBracket.getPackedLocation());
         return arrayExpr;
     }
 
@@ -614,22 +643,22 @@ public class Parser {
             } else {
                 expr = new LiteralExpr(Long.parseLong(numberString));
             }
-            expr.setSourceLocation(previous().getLocation());
+            expr.setSourceLocation(previous().getPackedLocation());
             return expr;
         }
         if (match(TokenType.STRING)) {
             LiteralExpr expr = new LiteralExpr(previous().getLexeme());
-            expr.setSourceLocation(previous().getLocation());
+            expr.setSourceLocation(previous().getPackedLocation());
             return expr;
         }
         if (match(TokenType.CHAR)) {
             LiteralExpr expr = new LiteralExpr(previous().getLexeme().charAt(0));
-            expr.setSourceLocation(previous().getLocation());
+            expr.setSourceLocation(previous().getPackedLocation());
             return expr;
         }
         if (match(TokenType.BOOLEAN)) {
             LiteralExpr expr = new LiteralExpr(Boolean.parseBoolean(previous().getLexeme()));
-            expr.setSourceLocation(previous().getLocation());
+            expr.setSourceLocation(previous().getPackedLocation());
             return expr;
         }
         if (match(TokenType.LBRACKET)) {
@@ -650,7 +679,7 @@ public class Parser {
                     sizes.add(size);
                 } while (check(TokenType.LBRACKET));
                 NewArrayExpr expr = new NewArrayExpr(typeToken.getLexeme(), sizes);
-                expr.setSourceLocation(newToken.getLocation());
+                expr.setSourceLocation(newToken.getPackedLocation());
                 return expr;
             } else {
                 Token classNameToken = consume(TokenType.IDENTIFIER, "Expect class name after 'new'.");
@@ -688,14 +717,14 @@ public class Parser {
                 }
                 consume(TokenType.RPAREN, "Expect ')' after arguments.");
                 NewExpr expr = new NewExpr(className, arguments);
-                expr.setSourceLocation(newToken.getLocation());
+                expr.setSourceLocation(newToken.getPackedLocation());
                 return expr;
             }
         }
         if (match(TokenType.IDENTIFIER)) {
             Token identifierToken = previous();
             VariableExpr expr = new VariableExpr(identifierToken);
-            expr.setSourceLocation(identifierToken.getLocation());
+            expr.setSourceLocation(identifierToken.getPackedLocation());
             return expr;
         }
         if (match(TokenType.SUPER)) {
@@ -703,13 +732,13 @@ public class Parser {
             consume(TokenType.DOT, "Expect '.' after 'super'.");
             Token method = consume(TokenType.IDENTIFIER, "Expect superclass method name.");
             SuperExpr superExpr = new SuperExpr(keyword, method);
-            superExpr.setSourceLocation(keyword.getLocation());
+            superExpr.setSourceLocation(keyword.getPackedLocation());
             return superExpr;
         }
         if (match(TokenType.THIS)) {
             Token thisToken = previous();
             ThisExpr thisExpr = new ThisExpr(thisToken);
-            thisExpr.setSourceLocation(thisToken.getLocation());
+            thisExpr.setSourceLocation(thisToken.getPackedLocation());
             return thisExpr;
         }
         if (match(TokenType.LPAREN)) {
@@ -736,7 +765,7 @@ public class Parser {
             }
         }
         IfStmt ifStmt = new IfStmt(condition, thenBranch, elseBranch);
-        ifStmt.setSourceLocation(ifToken.getLocation());
+        ifStmt.setSourceLocation(ifToken.getPackedLocation());
         return ifStmt;
     }
 
@@ -747,7 +776,7 @@ public class Parser {
         consume(TokenType.RPAREN, "Expect ')' after while condition.");
         Statement body = parseStatement();
         WhileStmt whileStmt = new WhileStmt(condition, body);
-        whileStmt.setSourceLocation(whileToken.getLocation());
+        whileStmt.setSourceLocation(whileToken.getPackedLocation());
         return whileStmt;
     }
 
@@ -779,7 +808,7 @@ public class Parser {
         Statement body = parseStatement();
         if (condition == null) {
             condition = new LiteralExpr(true);
-            condition.setSourceLocation(forToken.getLocation());
+            condition.setSourceLocation(forToken.getPackedLocation());
         }
         
         if (increment != null) {
@@ -793,19 +822,19 @@ public class Parser {
                 loopBlock.markAsDesugaredForLoopBody();
             
             Statement whileStmt = new WhileStmt(condition, loopBlock);
-            whileStmt.setSourceLocation(forToken.getLocation());
+            whileStmt.setSourceLocation(forToken.getPackedLocation());
             if (initializer != null) {
                 Block outerBlock = new Block(List.of(initializer, whileStmt));
-                outerBlock.setSourceLocation(forToken.getLocation());
+                outerBlock.setSourceLocation(forToken.getPackedLocation());
                 return outerBlock;
             }
             return whileStmt;
         } else {
             Statement whileStmt = new WhileStmt(condition, body);
-            whileStmt.setSourceLocation(forToken.getLocation());
+            whileStmt.setSourceLocation(forToken.getPackedLocation());
             if (initializer != null) {
                 Block outerBlock = new Block(List.of(initializer, whileStmt));
-                outerBlock.setSourceLocation(forToken.getLocation());
+                outerBlock.setSourceLocation(forToken.getPackedLocation());
                 return outerBlock;
             }
             return whileStmt;
@@ -853,7 +882,7 @@ public class Parser {
             consume(TokenType.RPAREN, "Expected ')' after catch parameter.");
             Block catchBody = parseBlock();
             CatchClause clause = new CatchClause(exceptionType, parameterName.getLexeme(), catchBody);
-            clause.setSourceLocation(catchToken.getLocation());
+            clause.setSourceLocation(catchToken.getPackedLocation());
             catchClauses.add(clause);
         }
         
@@ -867,7 +896,7 @@ public class Parser {
         }
         
         TryStmt tryStmt = new TryStmt(tryBlock, catchClauses, finallyBlock);
-        tryStmt.setSourceLocation(tryToken.getLocation());
+        tryStmt.setSourceLocation(tryToken.getPackedLocation());
         return tryStmt;
     }
     
@@ -886,15 +915,15 @@ public class Parser {
         if (!isBaseType) return false;
         
         int lookahead = current + 1;
-        if (lookahead < tokens.size() && tokens.get(lookahead).getType() == TokenType.LBRACKET) {
-            return lookahead + 1 < tokens.size() && tokens.get(lookahead + 1).getType() == TokenType.RBRACKET;
+        if (tokens.has(lookahead) && typeAt(lookahead) == TokenType.LBRACKET) {
+            return tokens.has(lookahead + 1) && typeAt(lookahead + 1) == TokenType.RBRACKET;
         }
         
-        if (lookahead < tokens.size() && tokens.get(lookahead).getType() == TokenType.LESS) {
+        if (tokens.has(lookahead) && typeAt(lookahead) == TokenType.LESS) {
             int depth = 1;
             lookahead++;
-            while (lookahead < tokens.size() && depth > 0) {
-                TokenType type = tokens.get(lookahead).getType();
+            while (tokens.has(lookahead) && depth > 0) {
+                TokenType type = typeAt(lookahead);
                 if (type == TokenType.LESS) {
                     depth++;
                 } else if (type == TokenType.GREATER) {
@@ -957,6 +986,7 @@ public class Parser {
 
     private Token advance() {
         if (!isAtEnd()) current++;
+        tokens.release(current - 1);
         return previous();
     }
 
@@ -972,7 +1002,7 @@ public class Parser {
 
     private boolean check(TokenType type) {
         if (isAtEnd()) return false;
-        return peek().getType() == type;
+        return typeAt(current) == type;
     }
 
     private Token consume(TokenType type, String message) {
@@ -989,7 +1019,11 @@ public class Parser {
     }
 
     private boolean isAtEnd() {
-        return peek().getType() == TokenType.EOF;
+        return typeAt(current) == TokenType.EOF;
+    }
+
+    private TokenType typeAt(int index) {
+        return tokens.type(index);
     }
     
     private Set<Modifier> parseModifiers() {
@@ -1074,7 +1108,8 @@ public class Parser {
     }
 
     private ParseException error(Token token, String message) {
-        if (errorReporter != null) {
+        // A parse error after a lexical error is a symptom of it; report only the lexer's diagnostics
+        if (errorReporter != null && !tokens.lexicalErrors()) {
             String hint = dhrlang.error.ErrorMessages.getParseErrorHint(message, token);
             if (hint != null) {
                 errorReporter.error(token.getLocation(), message, hint);
@@ -0,0 +1,33 @@
+package dhrlang.runtime;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Host-side handle for stopping a running script, either explicitly via {@link #cancel()} (from any thread)
+ * or by a wall-clock deadline. Backends poll it cooperatively wherever they charge their {@link ExecutionBudget}.
+ */
+public final class CancellationToken {
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private final long deadlineNanos;
+    private final boolean hasDeadline;
+
+    public CancellationToken(){ this(0L, false); }
+
+    private CancellationToken(long deadlineNanos, boolean hasDeadline){
+        this.deadlineNanos = deadlineNanos;
+        this.hasDeadline = hasDeadline;
+    }
+
+    /** Token that also trips once {@code timeout} has elapsed from now. */
+    public static CancellationToken withTimeout(Duration timeout){
+        if(timeout == null || timeout.isNegative()) throw new IllegalArgumentException("Timeout must be non-negative: " + timeout);
+        return new CancellationToken(System.nanoTime() + timeout.toNanos(), true);
+    }
+
+    public void cancel(){ cancelled.set(true); }
+
+    public boolean isCancelled(){ return cancelled.get(); }
+
+    public boolean isDeadlineReached(){ return hasDeadline && System.nanoTime() - deadlineNanos >= 0; }
+}
@@ -0,0 +1,77 @@
+package dhrlang.runtime;
+
+import dhrlang.error.ErrorFactory;
+import dhrlang.error.SourceLocation;
+
+import java.time.Duration;
+
+/**
+ * Step budget, array allocation budget and cooperative cancellation for one execution. Backends charge steps
+ * only at loop back-edges (with the length of the block that just ran) and at call entries (with the callee's
+ * length), so straight-line code pays nothing per instruction. Array elements are charged when an array is
+ * created.
+ */
+public final class ExecutionBudget {
+    // The clock is read only every this many charges; the cancel flag is checked on every one
+    private static final int DEADLINE_POLL_INTERVAL = 256;
+
+    private final long maxSteps;
+    private final long maxCells;
+    private final CancellationToken token;
+    private long steps, cells;
+    private int untilDeadlinePoll = DEADLINE_POLL_INTERVAL;
+
+    public ExecutionBudget(long maxSteps, CancellationToken token){
+        this(maxSteps, Long.MAX_VALUE, token);
+    }
+
+    /** Budget that also caps the total number of array elements allocated at {@code maxCells}. */
+    public ExecutionBudget(long maxSteps, long maxCells, CancellationToken token){
+        this.maxSteps = maxSteps;
+        this.maxCells = maxCells;
+        this.token = token;
+    }
+
+    /**
+     * Budget capped by {@code dhrlang.backend.maxSteps} (else {@code defaultMaxSteps}) and, when set, by
+     * {@code dhrlang.backend.maxArrayCells} allocated array elements. Without a host {@code token}, a deadline
+     * is taken from {@code dhrlang.backend.timeoutMs} when set.
+     */
+    public static ExecutionBudget fromProperties(long defaultMaxSteps, CancellationToken token){
+        long max = Long.getLong("dhrlang.backend.maxSteps", defaultMaxSteps);
+        long maxCells = Long.getLong("dhrlang.backend.maxArrayCells", Long.MAX_VALUE);
+        if(token == null){
+            long timeoutMs = Long.getLong("dhrlang.backend.timeoutMs", 0L);
+            if(timeoutMs > 0) token = CancellationToken.withTimeout(Duration.ofMillis(timeoutMs));
+        }
+        return new ExecutionBudget(max, maxCells, token);
+    }
+
+    public void charge(int n){
+        steps += n;
+        if(steps > maxSteps){
+            throw ErrorFactory.runtimeError("Execution aborted: exceeded max instruction steps ("+maxSteps+") - possible infinite loop.", (SourceLocation) null);
+        }
+        if(token == null) return;
+        if(token.isCancelled()){
+            throw ErrorFactory.runtimeError("Execution aborted: cancelled by host.", (SourceLocation) null);
+        }
+        if(--untilDeadlinePoll <= 0){
+            untilDeadlinePoll = DEADLINE_POLL_INTERVAL;
+            if(token.isDeadlineReached()) throw ErrorFactory.runtimeError("Execution aborted: time limit exceeded.", (SourceLocation) null);
+        }
+    }
+
+    /** Charges the allocation of an array of {@code n} elements. */
+    public void allocate(int n){
+        cells += n;
+        if(cells > maxCells){
+            throw ErrorFactory.runtimeError("Execution aborted: exceeded max allocated array elements ("+maxCells+").", (SourceLocation) null);
+        }
+    }
+
+    public long getSteps(){ return steps; }
+
+    /** Array elements allocated so far. */
+    public long getAllocatedCells(){ return cells; }
+}
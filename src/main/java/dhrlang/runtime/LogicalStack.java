@@ -0,0 +1,49 @@
+package dhrlang.runtime;
+
+/**
+ * Function names of the activations an IR or bytecode execution has open, kept only while a
+ * {@link SamplingProfiler} is attached. Frames are immutable and linked to their caller, and the owning thread
+ * replaces the volatile top on every push and pop, so the sampler can walk a consistent stack without locking.
+ */
+public final class LogicalStack implements SamplingProfiler.Source {
+    private static final class Frame {
+        final String name;
+        final Frame caller;
+        final int depth;
+        Frame(String name, Frame caller){
+            this.name = name;
+            this.caller = caller;
+            this.depth = caller == null ? 1 : caller.depth + 1;
+        }
+    }
+
+    private volatile Frame top;
+
+    public void push(String name){ top = new Frame(name, top); }
+
+    public void pop(){
+        Frame t = top;
+        if(t != null) top = t.caller;
+    }
+
+    public int depth(){
+        Frame t = top;
+        return t == null ? 0 : t.depth;
+    }
+
+    /** Pops until {@code depth} frames remain, e.g. after an error unwound the backend's own stack. */
+    public void unwindTo(int depth){
+        Frame t = top;
+        while(t != null && t.depth > depth) t = t.caller;
+        top = t;
+    }
+
+    @Override
+    public String collapsedStack(){
+        Frame t = top;
+        if(t == null) return null;
+        String[] names = new String[t.depth];
+        for(Frame f = t; f != null; f = f.caller) names[f.depth - 1] = f.name;
+        return String.join(";", names);
+    }
+}
@@ -1,123 +1,167 @@
 package dhrlang.runtime;
 
-import dhrlang.interpreter.Environment;
 import dhrlang.interpreter.Interpreter;
 import dhrlang.interpreter.NativeFunction;
 import dhrlang.stdlib.*;
 
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
- * Central place for installing native/global functions into the root environment.
- * Pure extraction from the previous Interpreter.initGlobals() for modularity.
+ * Central place for the native/global functions of the root environment.
+ * <p>
+ * The natives form one static, immutable table shared by every interpreter. Each function is created on its first
+ * lookup and reused afterwards (natives are stateless), so starting an interpreter costs nothing and a script only
+ * loads the natives it calls.
  */
 public final class NativeRegistrar {
     private NativeRegistrar() {}
 
-    public static void registerAll(Interpreter interpreter, Environment globals) {
-        java.util.Set<String> installedNatives = new java.util.HashSet<>();
+    // Declaration order, so iterating the table is the same in every JVM (Set.of order is salted per run)
+    private static final Set<String> NAMES = Collections.unmodifiableSet(new LinkedHashSet<>(List.of(
+            "clock", "printLine", "print",
+            // Math
+            "abs", "sqrt", "pow", "min", "max", "floor", "ceil", "round", "random", "sin", "cos", "tan", "log",
+            "log10", "exp", "randomRange", "clamp",
+            // Strings
+            "length", "substring", "charAt", "toUpperCase", "toLowerCase", "indexOf", "replace", "startsWith",
+            "endsWith", "trim", "split", "join", "repeat", "reverse", "padLeft", "padRight",
+            // IO & conversion
+            "readLine", "readLineWithPrompt", "toNum", "toDuo", "toString",
+            // Array functions
+            "arrayLength", "arrayContains", "arrayIndexOf", "arrayCopy", "arrayReverse", "arraySlice", "arraySort",
+            "arrayConcat", "arrayFill", "arraySum", "arrayAverage", "arrayPush", "arrayPop", "arrayInsert",
+            // Utilities
+            "isNum", "isDuo", "isSab", "isKya", "isArray", "typeOf", "range", "sleep",
+            // Exception constructors ('Error' handled specially in Evaluator.newExpr; no synthetic class needed)
+            "DhrException", "ArithmeticException", "IndexOutOfBoundsException", "TypeException", "NullPointerException")));
 
-        globals.define("clock", new NativeFunction() {
-            @Override public int arity() { return 0; }
-            @Override public Object call(Interpreter i, java.util.List<Object> args) { return (double) System.currentTimeMillis(); }
-            @Override public String toString() { return "<native fn clock>"; }
-        });
+    private static final Map<String, NativeFunction> RESOLVED = new ConcurrentHashMap<>();
 
-        globals.define("printLine", new NativeFunction() {
-            @Override public int arity() { return 1; }
-            @Override public Object call(Interpreter i, java.util.List<Object> a) { System.out.println(RuntimeFormatting.formatForPrint(a.get(0))); return null; }
-            @Override public String toString() { return "<native fn printLine>"; }
-        });
-        globals.define("print", new NativeFunction() {
-            @Override public int arity() { return 1; }
-            @Override public Object call(Interpreter i, java.util.List<Object> a) { System.out.print(RuntimeFormatting.formatForPrint(a.get(0))); return null; }
-            @Override public String toString() { return "<native fn print>"; }
-        });
+    private static final Map<String, NativeFunction> NATIVES = new AbstractMap<>() {
+        @Override public NativeFunction get(Object name) { return name instanceof String s ? lookup(s) : null; }
+        @Override public boolean containsKey(Object name) { return NAMES.contains(name); }
+        @Override public Set<String> keySet() { return NAMES; }
+        @Override public int size() { return NAMES.size(); }
+        @Override public Set<Entry<String, NativeFunction>> entrySet() {
+            Set<Entry<String, NativeFunction>> entries = new LinkedHashSet<>();
+            for (String name : NAMES) entries.add(Map.entry(name, lookup(name)));
+            return Collections.unmodifiableSet(entries);
+        }
+    };
 
-        // Math
-        globals.define("abs", MathFunctions.abs());
-        globals.define("sqrt", MathFunctions.sqrt());
-        globals.define("pow", MathFunctions.pow());
-        globals.define("min", MathFunctions.min());
-        globals.define("max", MathFunctions.max());
-        globals.define("floor", MathFunctions.floor());
-        globals.define("ceil", MathFunctions.ceil());
-        globals.define("round", MathFunctions.round());
-        globals.define("random", MathFunctions.random());
-        globals.define("sin", MathFunctions.sin());
-        globals.define("cos", MathFunctions.cos());
-        globals.define("tan", MathFunctions.tan());
-        globals.define("log", MathFunctions.log());
-        globals.define("log10", MathFunctions.log10());
-        globals.define("exp", MathFunctions.exp());
-        globals.define("randomRange", MathFunctions.randomRange());
-        globals.define("clamp", MathFunctions.clamp());
+    /** Unmodifiable table of every native by name; a function is created when first looked up. */
+    public static Map<String, NativeFunction> natives() {
+        return NATIVES;
+    }
 
-        // Strings
-        globals.define("length", StringFunctions.length());
-        globals.define("substring", StringFunctions.substring());
-        globals.define("charAt", StringFunctions.charAt());
-        globals.define("toUpperCase", StringFunctions.toUpperCase());
-        globals.define("toLowerCase", StringFunctions.toLowerCase());
-        globals.define("indexOf", StringFunctions.indexOf());
-        globals.define("replace", StringFunctions.replace());
-        globals.define("startsWith", StringFunctions.startsWith());
-        globals.define("endsWith", StringFunctions.endsWith());
-        globals.define("trim", StringFunctions.trim());
-        globals.define("split", StringFunctions.split());
-        globals.define("join", StringFunctions.join());
-        globals.define("repeat", StringFunctions.repeat());
-        globals.define("reverse", StringFunctions.reverse());
-        globals.define("padLeft", StringFunctions.padLeft());
-        globals.define("padRight", StringFunctions.padRight());
+    /** The native called {@code name}, or null when there is none. */
+    public static NativeFunction lookup(String name) {
+        NativeFunction fn = RESOLVED.get(name);
+        if (fn != null || !NAMES.contains(name)) return fn;
+        return RESOLVED.computeIfAbsent(name, NativeRegistrar::create);
+    }
 
-        // IO & conversion
-        globals.define("readLine", IOFunctions.readLine());
-        globals.define("readLineWithPrompt", IOFunctions.readLineWithPrompt());
-        globals.define("toNum", IOFunctions.toNum());
-        globals.define("toDuo", IOFunctions.toDuo());
-        globals.define("toString", IOFunctions.toStringFunc());
+    private static NativeFunction create(String name) {
+        switch (name) {
+            case "clock": return new NativeFunction() {
+                @Override public int arity() { return 0; }
+                @Override public Object call(Interpreter i, java.util.List<Object> args) { return (double) System.currentTimeMillis(); }
+                @Override public String toString() { return "<native fn clock>"; }
+            };
+            case "printLine": return new NativeFunction() {
+                @Override public int arity() { return 1; }
+                @Override public Object call(Interpreter i, java.util.List<Object> a) { i.getOutput().println(RuntimeFormatting.formatForPrint(a.get(0))); return null; }
+                @Override public String toString() { return "<native fn printLine>"; }
+            };
+            case "print": return new NativeFunction() {
+                @Override public int arity() { return 1; }
+                @Override public Object call(Interpreter i, java.util.List<Object> a) { i.getOutput().print(RuntimeFormatting.formatForPrint(a.get(0))); return null; }
+                @Override public String toString() { return "<native fn print>"; }
+            };
 
-        // Array functions
-        globals.define("arrayLength", ArrayFunctions.arrayLength());
-        globals.define("arrayContains", ArrayFunctions.arrayContains());
-        globals.define("arrayIndexOf", ArrayFunctions.arrayIndexOf());
-        globals.define("arrayCopy", ArrayFunctions.arrayCopy());
-        globals.define("arrayReverse", ArrayFunctions.arrayReverse());
-        globals.define("arraySlice", ArrayFunctions.arraySlice());
-        globals.define("arraySort", ArrayFunctions.arraySort());
-        globals.define("arrayConcat", ArrayFunctions.arrayConcat());
-        globals.define("arrayFill", ArrayFunctions.arrayFill());
-        globals.define("arraySum", ArrayFunctions.arraySum());
-        globals.define("arrayAverage", ArrayFunctions.arrayAverage());
-        globals.define("arrayPush", ArrayFunctions.arrayPush());
-        globals.define("arrayPop", ArrayFunctions.arrayPop());
-        globals.define("arrayInsert", ArrayFunctions.arrayInsert());
+            // Math
+            case "abs": return MathFunctions.abs();
+            case "sqrt": return MathFunctions.sqrt();
+            case "pow": return MathFunctions.pow();
+            case "min": return MathFunctions.min();
+            case "max": return MathFunctions.max();
+            case "floor": return MathFunctions.floor();
+            case "ceil": return MathFunctions.ceil();
+            case "round": return MathFunctions.round();
+            case "random": return MathFunctions.random();
+            case "sin": return MathFunctions.sin();
+            case "cos": return MathFunctions.cos();
+            case "tan": return MathFunctions.tan();
+            case "log": return MathFunctions.log();
+            case "log10": return MathFunctions.log10();
+            case "exp": return MathFunctions.exp();
+            case "randomRange": return MathFunctions.randomRange();
+            case "clamp": return MathFunctions.clamp();
 
-        // Utilities
-        globals.define("isNum", UtilityFunctions.isNum());
-        globals.define("isDuo", UtilityFunctions.isDuo());
-        globals.define("isSab", UtilityFunctions.isSab());
-        globals.define("isKya", UtilityFunctions.isKya());
-        globals.define("isArray", UtilityFunctions.isArray());
-        globals.define("typeOf", UtilityFunctions.typeOf());
-        globals.define("range", UtilityFunctions.range());
-        globals.define("sleep", UtilityFunctions.sleep());
+            // Strings
+            case "length": return StringFunctions.length();
+            case "substring": return StringFunctions.substring();
+            case "charAt": return StringFunctions.charAt();
+            case "toUpperCase": return StringFunctions.toUpperCase();
+            case "toLowerCase": return StringFunctions.toLowerCase();
+            case "indexOf": return StringFunctions.indexOf();
+            case "replace": return StringFunctions.replace();
+            case "startsWith": return StringFunctions.startsWith();
+            case "endsWith": return StringFunctions.endsWith();
+            case "trim": return StringFunctions.trim();
+            case "split": return StringFunctions.split();
+            case "join": return StringFunctions.join();
+            case "repeat": return StringFunctions.repeat();
+            case "reverse": return StringFunctions.reverse();
+            case "padLeft": return StringFunctions.padLeft();
+            case "padRight": return StringFunctions.padRight();
 
-        // Exception constructors
-        globals.define("DhrException", NativeExceptions.dhrException());
-    // 'Error' handled specially in Evaluator.newExpr; no synthetic class needed.
-        globals.define("ArithmeticException", NativeExceptions.arithmetic());
-        globals.define("IndexOutOfBoundsException", NativeExceptions.index());
-        globals.define("TypeException", NativeExceptions.type());
-        globals.define("NullPointerException", NativeExceptions.nullPtr());
+            // IO & conversion
+            case "readLine": return IOFunctions.readLine();
+            case "readLineWithPrompt": return IOFunctions.readLineWithPrompt();
+            case "toNum": return IOFunctions.toNum();
+            case "toDuo": return IOFunctions.toDuo();
+            case "toString": return IOFunctions.toStringFunc();
 
-        // Record installed names, warn for any missing expected signatures
-        for (String name : dhrlang.stdlib.NativeSignatures.all()) {
-            try { globals.get(name); installedNatives.add(name);} catch (Exception ignored) {}
-        }
-        for (String required : dhrlang.stdlib.NativeSignatures.all()) {
-            if (!installedNatives.contains(required)) {
-                System.err.println("[WARN] Native not installed yet: " + required);
-            }
+            // Array functions
+            case "arrayLength": return ArrayFunctions.arrayLength();
+            case "arrayContains": return ArrayFunctions.arrayContains();
+            case "arrayIndexOf": return ArrayFunctions.arrayIndexOf();
+            case "arrayCopy": return ArrayFunctions.arrayCopy();
+            case "arrayReverse": return ArrayFunctions.arrayReverse();
+            case "arraySlice": return ArrayFunctions.arraySlice();
+            case "arraySort": return ArrayFunctions.arraySort();
+            case "arrayConcat": return ArrayFunctions.arrayConcat();
+            case "arrayFill": return ArrayFunctions.arrayFill();
+            case "arraySum": return ArrayFunctions.arraySum();
+            case "arrayAverage": return ArrayFunctions.arrayAverage();
+            case "arrayPush": return ArrayFunctions.arrayPush();
+            case "arrayPop": return ArrayFunctions.arrayPop();
+            case "arrayInsert": return ArrayFunctions.arrayInsert();
+
+            // Utilities
+            case "isNum": return UtilityFunctions.isNum();
+            case "isDuo": return UtilityFunctions.isDuo();
+            case "isSab": return UtilityFunctions.isSab();
+            case "isKya": return UtilityFunctions.isKya();
+            case "isArray": return UtilityFunctions.isArray();
+            case "typeOf": return UtilityFunctions.typeOf();
+            case "range": return UtilityFunctions.range();
+            case "sleep": return UtilityFunctions.sleep();
+
+            // Exception constructors
+            case "DhrException": return NativeExceptions.dhrException();
+            case "ArithmeticException": return NativeExceptions.arithmetic();
+            case "IndexOutOfBoundsException": return NativeExceptions.index();
+            case "TypeException": return NativeExceptions.type();
+            case "NullPointerException": return NativeExceptions.nullPtr();
+            default: throw new IllegalStateException("Native listed without an implementation: " + name);
         }
     }
 }
@@ -0,0 +1,95 @@
+package dhrlang.runtime;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Program output of one execution, encoded into a large buffer: as UTF-8 when captured, and like the stream
+ * itself over {@code System.out} and {@code System.err}. The buffer is written out when it
+ * fills, every {@code flushLines} lines when that is positive, and on {@link #flush()}, which backends call
+ * when an execution ends, normally or with an error, and before reading input. Not thread-safe: each
+ * execution owns its sink, so concurrent executions never contend for {@code System.out}. Like
+ * {@link java.io.PrintStream}, write failures are recorded rather than thrown; see {@link #checkError()}.
+ */
+public final class OutputSink {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String NEWLINE = System.lineSeparator();
+
+    private final Writer out;
+    private final int flushLines;
+    private int pendingLines;
+    private boolean error;
+
+    /** UTF-8 sink writing to {@code out}, flushed every {@code flushLines} lines (0 for only when the buffer is full). */
+    public OutputSink(OutputStream out, int flushLines){
+        this(out, StandardCharsets.UTF_8, flushLines);
+    }
+
+    /** Sink encoding as {@code charset} into {@code out}, flushed every {@code flushLines} lines (0 for only when the buffer is full). */
+    public OutputSink(OutputStream out, Charset charset, int flushLines){
+        if(flushLines < 0) throw new IllegalArgumentException("Flush line threshold must not be negative: "+flushLines);
+        this.out = new BufferedWriter(new OutputStreamWriter(out, charset), BUFFER_SIZE);
+        this.flushLines = flushLines;
+    }
+
+    /**
+     * Sink over the current {@code System.out}, in its encoding. The threshold comes from {@code dhrlang.output.flushLines};
+     * by default output is flushed per line on an interactive terminal and only when the buffer fills otherwise.
+     */
+    public static OutputSink stdout(){
+        return new OutputSink(System.out, consoleCharset("stdout"), Integer.getInteger("dhrlang.output.flushLines", System.console() != null ? 1 : 0));
+    }
+
+    /** Sink over the current {@code System.err}, in its encoding, flushed only when the buffer fills or on {@link #flush()}. */
+    public static OutputSink stderr(){
+        return new OutputSink(System.err, consoleCharset("stderr"), 0);
+    }
+
+    /**
+     * Encoding of {@code System.out} or {@code System.err} ({@code stream} is "stdout" or "stderr"), so buffered
+     * text interleaves with what the JDK prints there. {@code dhrlang.output.encoding} (e.g. UTF-8) overrides it;
+     * otherwise the JDK's own choice applies: {@code stdout.encoding}/{@code sun.stdout.encoding}, then
+     * {@code file.encoding}, then {@code native.encoding}.
+     */
+    static Charset consoleCharset(String stream){
+        String[] properties = { "dhrlang.output.encoding", stream + ".encoding", "sun." + stream + ".encoding", "file.encoding", "native.encoding" };
+        for(String property : properties){
+            String name = System.getProperty(property);
+            try {
+                if(name != null && Charset.isSupported(name)) return Charset.forName(name);
+            } catch(IllegalArgumentException ignored) {} // e.g. file.encoding=COMPAT
+        }
+        return Charset.defaultCharset();
+    }
+
+    public void print(String s){
+        try { out.write(s); }
+        catch(IOException e){ error = true; }
+    }
+
+    public void println(String s){
+        try {
+            out.write(s);
+            out.write(NEWLINE);
+        } catch(IOException e){ error = true; }
+        if(flushLines > 0 && ++pendingLines >= flushLines) flush();
+    }
+
+    /** Writes out everything buffered so far. */
+    public void flush(){
+        pendingLines = 0;
+        try { out.flush(); }
+        catch(IOException e){ error = true; }
+    }
+
+    /** Flushes, and reports whether any write to the underlying stream has failed. */
+    public boolean checkError(){
+        flush();
+        return error;
+    }
+}
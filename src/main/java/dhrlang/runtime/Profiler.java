@@ -0,0 +1,198 @@
+package dhrlang.runtime;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Execution profile for one run of the IR or bytecode backend: call counts, inclusive and exclusive time per
+ * function, and instruction counts per opcode. Backends report only at control transfers: each straight-line
+ * range of instructions is recorded once with {@link Function#block} when a jump, call, return or throw ends
+ * it, and time is read from {@link System#nanoTime} at call entry and exit. The dispatch loop itself never
+ * touches the profiler, and a backend without one pays only a null check at those transfers. Instruction
+ * counts are attributed to source lines only when the report is built, from each function's line table.
+ */
+public final class Profiler {
+
+    /** Counters for one function. */
+    public static final class Function {
+        final String name;
+        final String[] ops;
+        final long[] pcCounts;
+        String file;
+        int[] lines; // source line per pc, -1 where unknown; null when the function has no line table
+        long calls, inclusiveNanos, exclusiveNanos;
+        int active; // activations on the stack; inclusive time is counted for the outermost only
+
+        Function(String name, String[] ops){
+            this.name = name;
+            this.ops = ops;
+            this.pcCounts = new long[ops.length];
+        }
+
+        /** Records one execution of each instruction in {@code [from, to]}. */
+        public void block(int from, int to){
+            if(to >= pcCounts.length) to = pcCounts.length - 1;
+            for(int pc = Math.max(from, 0); pc <= to; pc++) pcCounts[pc]++;
+        }
+
+        /** Attributes the instruction at each pc to source line {@code lines[pc]} of {@code file} (null when unnamed). */
+        public Function withLines(String file, int[] lines){
+            this.file = file;
+            this.lines = lines;
+            return this;
+        }
+    }
+
+    private static final int HOT_LINES = 10;
+
+    private final String backend;
+    private final Map<String,Function> functions = new LinkedHashMap<>();
+    private Function[] stack = new Function[64];
+    private long[] start = new long[64], childNanos = new long[64];
+    private int depth;
+
+    public Profiler(String backend){ this.backend = backend; }
+
+    /** Counters for {@code name}, whose instruction at each pc has the opcode name {@code ops[pc]}. */
+    public Function function(String name, String[] ops){
+        return functions.computeIfAbsent(name, n -> new Function(n, ops));
+    }
+
+    public void enter(Function f){
+        if(depth == stack.length){
+            stack = java.util.Arrays.copyOf(stack, depth * 2);
+            start = java.util.Arrays.copyOf(start, depth * 2);
+            childNanos = java.util.Arrays.copyOf(childNanos, depth * 2);
+        }
+        f.calls++;
+        f.active++;
+        stack[depth] = f;
+        childNanos[depth] = 0;
+        start[depth++] = System.nanoTime();
+    }
+
+    /** Ends the innermost activation. */
+    public void exit(){
+        long now = System.nanoTime();
+        Function f = stack[--depth];
+        stack[depth] = null;
+        long inclusive = now - start[depth];
+        f.exclusiveNanos += inclusive - childNanos[depth];
+        if(--f.active == 0) f.inclusiveNanos += inclusive;
+        if(depth > 0) childNanos[depth-1] += inclusive;
+    }
+
+    /** Activations currently open. */
+    public int depth(){ return depth; }
+
+    /** Ends activations until {@code depth} remain, e.g. after an error unwound the backend's own stack. */
+    public void unwindTo(int depth){
+        while(this.depth > depth) exit();
+    }
+
+    /** Functions by exclusive time, most expensive first. */
+    private List<Function> byExclusiveTime(){
+        List<Function> list = new ArrayList<>(functions.values());
+        list.removeIf(f -> f.calls == 0);
+        list.sort(Comparator.comparingLong((Function f) -> f.exclusiveNanos).reversed().thenComparing(f -> f.name));
+        return list;
+    }
+
+    /** Executed instructions per opcode, most frequent first. */
+    private List<Map.Entry<String,Long>> opcodeCounts(){
+        Map<String,Long> counts = new LinkedHashMap<>();
+        for(Function f : functions.values()){
+            for(int pc=0; pc<f.ops.length; pc++){
+                if(f.pcCounts[pc] != 0) counts.merge(f.ops[pc], f.pcCounts[pc], Long::sum);
+            }
+        }
+        List<Map.Entry<String,Long>> list = new ArrayList<>(counts.entrySet());
+        list.sort(Map.Entry.<String,Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+        return list;
+    }
+
+    /** Executed instructions per source line ({@code file:line}, or {@code line N} without a file), most first. */
+    private List<Map.Entry<String,Long>> lineCounts(){
+        Map<String,Long> counts = new LinkedHashMap<>();
+        for(Function f : functions.values()){
+            if(f.lines == null) continue;
+            for(int pc=0; pc<f.ops.length && pc<f.lines.length; pc++){
+                if(f.pcCounts[pc] != 0 && f.lines[pc] > 0) counts.merge(lineKey(f.file, f.lines[pc]), f.pcCounts[pc], Long::sum);
+            }
+        }
+        List<Map.Entry<String,Long>> list = new ArrayList<>(counts.entrySet());
+        list.sort(Map.Entry.<String,Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+        return list;
+    }
+
+    private static String lineKey(String file, int line){ return file == null ? "line " + line : file + ":" + line; }
+
+    /** Human-readable report: functions by exclusive time, opcodes by count, then the hottest source lines. */
+    public String report(){
+        StringBuilder sb = new StringBuilder();
+        sb.append("Profile (").append(backend).append(" backend)\n");
+        sb.append(String.format("  %10s %12s %12s  %s%n", "calls", "incl ms", "excl ms", "function"));
+        for(Function f : byExclusiveTime()){
+            sb.append(String.format("  %10d %12.3f %12.3f  %s%n", f.calls, f.inclusiveNanos / 1e6, f.exclusiveNanos / 1e6, f.name));
+        }
+        List<Map.Entry<String,Long>> ops = opcodeCounts();
+        long total = 0;
+        for(Map.Entry<String,Long> e : ops) total += e.getValue();
+        sb.append(String.format("  %10s %7s  %s%n", "count", "%", "opcode"));
+        for(Map.Entry<String,Long> e : ops){
+            sb.append(String.format("  %10d %6.2f%%  %s%n", e.getValue(), 100.0 * e.getValue() / total, e.getKey()));
+        }
+        sb.append(String.format("  %10d %7s  total instructions%n", total, ""));
+        List<Map.Entry<String,Long>> lines = lineCounts();
+        if(!lines.isEmpty()){
+            sb.append(String.format("  %10s %7s  %s%n", "count", "%", "source line"));
+            for(Map.Entry<String,Long> e : lines.subList(0, Math.min(HOT_LINES, lines.size()))){
+                sb.append(String.format("  %10d %6.2f%%  %s%n", e.getValue(), 100.0 * e.getValue() / total, e.getKey()));
+            }
+        }
+        return sb.toString();
+    }
+
+    /** The profile as a JSON object, in the same order as {@link #report()}. */
+    public String toJson(){
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"backend\":\"").append(backend).append("\",\"functions\":[");
+        boolean first = true;
+        for(Function f : byExclusiveTime()){
+            if(!first) sb.append(',');
+            first = false;
+            sb.append("{\"name\":\"").append(escape(f.name)).append("\",\"calls\":").append(f.calls)
+              .append(",\"inclusiveNs\":").append(f.inclusiveNanos).append(",\"exclusiveNs\":").append(f.exclusiveNanos).append('}');
+        }
+        sb.append("],\"opcodes\":[");
+        first = true;
+        for(Map.Entry<String,Long> e : opcodeCounts()){
+            if(!first) sb.append(',');
+            first = false;
+            sb.append("{\"name\":\"").append(escape(e.getKey())).append("\",\"count\":").append(e.getValue()).append('}');
+        }
+        sb.append("],\"lines\":[");
+        first = true;
+        for(Map.Entry<String,Long> e : lineCounts()){
+            if(!first) sb.append(',');
+            first = false;
+            sb.append("{\"source\":\"").append(escape(e.getKey())).append("\",\"count\":").append(e.getValue()).append('}');
+        }
+        return sb.append("]}").toString();
+    }
+
+    private static String escape(String s){
+        StringBuilder sb = new StringBuilder(s.length());
+        for(char c : s.toCharArray()){
+            switch(c){
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                default -> { if(c < 0x20) sb.append(String.format("\\u%04x", (int) c)); else sb.append(c); }
+            }
+        }
+        return sb.toString();
+    }
+}
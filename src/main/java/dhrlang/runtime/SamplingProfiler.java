@@ -0,0 +1,84 @@
+package dhrlang.runtime;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Samples the DhrLang call stacks of running programs from a background thread and aggregates them in the
+ * collapsed format flame-graph tools read ({@code Main.main;Main.fib;Main.fib 123}). Interpreters publish
+ * their logical stack as immutable frames behind one volatile reference ({@link Source}); the sampler only
+ * reads, so an interpreter thread pays a single volatile write per call and return.
+ */
+public final class SamplingProfiler implements AutoCloseable {
+
+    /** A logical call stack published by one interpreter thread. */
+    public interface Source {
+        /** Frames outermost first, separated by {@code ;}, or null when nothing is running. */
+        String collapsedStack();
+    }
+
+    private final long intervalNanos;
+    private final List<Source> sources = new CopyOnWriteArrayList<>();
+    private final Map<String,Long> counts = new HashMap<>(); // touched only by the sampling thread until close()
+    private final Thread thread;
+    private volatile boolean stopped;
+    private long samples;
+
+    /** Starts sampling {@code hz} times per second; sources are added with {@link #attach}. */
+    public SamplingProfiler(int hz){
+        if(hz <= 0) throw new IllegalArgumentException("Sample rate must be positive: "+hz);
+        this.intervalNanos = TimeUnit.SECONDS.toNanos(1) / hz;
+        this.thread = new Thread(this::loop, "dhrlang-sampler");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public SamplingProfiler attach(Source source){ sources.add(source); return this; }
+
+    public void detach(Source source){ sources.remove(source); }
+
+    private void loop(){
+        long next = System.nanoTime() + intervalNanos;
+        while(!stopped){
+            long wait = next - System.nanoTime();
+            if(wait > 0){ LockSupport.parkNanos(this, wait); continue; }
+            next += intervalNanos;
+            sampleOnce();
+        }
+    }
+
+    private void sampleOnce(){
+        for(Source s : sources){
+            String stack = s.collapsedStack();
+            if(stack != null){ counts.merge(stack, 1L, Long::sum); samples++; }
+        }
+    }
+
+    /** Stops the sampling thread; the collected samples stay available. */
+    @Override
+    public void close(){
+        if(stopped) return;
+        stopped = true;
+        LockSupport.unpark(thread);
+        try { thread.join(); }
+        catch(InterruptedException e){ Thread.currentThread().interrupt(); }
+    }
+
+    /** Number of samples taken; call after {@link #close()}. */
+    public long getSampleCount(){ return samples; }
+
+    /** Writes one {@code stack count} line per distinct stack, most sampled first; call after {@link #close()}. */
+    public void writeCollapsed(Writer out) throws IOException {
+        List<Map.Entry<String,Long>> lines = new ArrayList<>(counts.entrySet());
+        lines.sort(Map.Entry.<String,Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+        for(Map.Entry<String,Long> e : lines) out.write(e.getKey() + " " + e.getValue() + "\n");
+        out.flush();
+    }
+}
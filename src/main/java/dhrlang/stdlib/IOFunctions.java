@@ -13,6 +13,12 @@ public class IOFunctions {
 
     private static final BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
 
+    // The interpreter's own input when the host set one, standard input otherwise
+    private static BufferedReader input(Interpreter interpreter) {
+        BufferedReader in = interpreter.getInput();
+        return in != null ? in : reader;
+    }
+
     public static NativeFunction readLine() {
         return new NativeFunction() {
             @Override
@@ -22,8 +28,9 @@ public class IOFunctions {
 
             @Override
             public Object call(Interpreter interpreter, List<Object> arguments) {
+                interpreter.getOutput().flush();
                 try {
-                    String line = reader.readLine();
+                    String line = input(interpreter).readLine();
                     return line != null ? line : "";
                 } catch (IOException e) {
                     throw ErrorFactory.runtimeError(
@@ -57,9 +64,10 @@ public class IOFunctions {
                     );
                 }
                 
-                System.out.print(prompt);
+                interpreter.getOutput().print((String) prompt);
+                interpreter.getOutput().flush();
                 try {
-                    String line = reader.readLine();
+                    String line = input(interpreter).readLine();
                     return line != null ? line : "";
                 } catch (IOException e) {
                     throw ErrorFactory.runtimeError(
@@ -4,7 +4,12 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import dhrlang.util.MiniRunner;
 
@@ -46,7 +51,19 @@ public final class SampleSuite {
         "test_static_forward_ref.dhr"          // static forward reference limitation
     );
 
+    /**
+     * Runs the samples on the AST interpreter one after another. With {@code --parallel[=N]}, every sample
+     * runs on every backend across a fork-join pool of N workers (default: available processors), and the
+     * summary adds per-backend timings.
+     */
     public static void main(String[] args) throws Exception {
+        for (String a : args) {
+            if (a.equals("--parallel") || a.startsWith("--parallel=")) {
+                int workers = a.equals("--parallel") ? Runtime.getRuntime().availableProcessors() : Integer.parseInt(a.substring("--parallel=".length()));
+                runParallel(workers);
+                return;
+            }
+        }
         List<Result> positiveResults = new ArrayList<>();
         List<Result> negativeResults = new ArrayList<>();
 
@@ -67,12 +84,67 @@ public final class SampleSuite {
     }
 
     private static Result runOne(String fileName, boolean expectedPass) {
+        return runOne(fileName, expectedPass, MiniRunner.Backend.AST);
+    }
+
+    private static Result runOne(String fileName, boolean expectedPass, MiniRunner.Backend backend) {
         String path = INPUT_DIR + "/" + fileName;
         String source;
         try { source = Files.readString(Path.of(path)); }
-        catch (IOException e) { return new Result(fileName, expectedPass, true, false, "IO Error: " + e.getMessage(), ""); }
-    MiniRunner.Result capturing = MiniRunner.run(source);
-    return new Result(fileName, expectedPass, capturing.hadCompileErrors, capturing.hadRuntimeError, capturing.stderr, capturing.stdout);
+        catch (IOException e) { return new Result(fileName, expectedPass, true, false, "IO Error: " + e.getMessage(), "", backend, 0); }
+    long start = System.nanoTime();
+    MiniRunner.Result capturing = MiniRunner.run(source, backend);
+    return new Result(fileName, expectedPass, capturing.hadCompileErrors, capturing.hadRuntimeError, capturing.stderr, capturing.stdout, backend, System.nanoTime() - start);
+    }
+
+    private static void runParallel(int workers) throws Exception {
+        List<Callable<Result>> jobs = new ArrayList<>();
+        for (MiniRunner.Backend b : MiniRunner.Backend.values()) {
+            for (String f : POSITIVE) jobs.add(() -> runOne(f, true, b));
+            for (String f : NEGATIVE) jobs.add(() -> runOne(f, false, b));
+        }
+        ForkJoinPool pool = new ForkJoinPool(workers);
+        long start = System.nanoTime();
+        List<Result> results = new ArrayList<>();
+        try {
+            for (Future<Result> r : pool.invokeAll(jobs)) results.add(r.get());
+        } finally {
+            pool.shutdown();
+        }
+        long wallNanos = System.nanoTime() - start;
+
+        // The AST results keep the meaning of the serial summary; the other backends are reported alongside
+        List<Result> astPositive = new ArrayList<>(), astNegative = new ArrayList<>();
+        for (Result r : results) {
+            if (r.backend != MiniRunner.Backend.AST) continue;
+            (r.expectedPass ? astPositive : astNegative).add(r);
+        }
+        printSummary(astPositive, astNegative);
+        printBackendTimings(results, workers, wallNanos);
+
+        boolean positiveFailure = astPositive.stream().anyMatch(r -> r.hadCompileErrors || r.hadRuntimeError);
+        if (positiveFailure) {
+            System.exit(1);
+        }
+    }
+
+    private static void printBackendTimings(List<Result> results, int workers, long wallNanos) {
+        Map<MiniRunner.Backend, long[]> perBackend = new EnumMap<>(MiniRunner.Backend.class); // runs, ok, positive failures, nanos
+        for (Result r : results) {
+            long[] t = perBackend.computeIfAbsent(r.backend, k -> new long[4]);
+            boolean ok = !r.hadCompileErrors && !r.hadRuntimeError;
+            t[0]++;
+            if (ok) t[1]++;
+            if (r.expectedPass && !ok) t[2]++;
+            t[3] += r.nanos;
+        }
+        System.out.println();
+        System.out.println("==== Backends (" + workers + " workers, wall " + String.format("%.1f", wallNanos / 1e6) + " ms) ====");
+        System.out.println(String.format("  %-9s %5s %5s %10s %12s", "backend", "runs", "ok", "pos fail", "total ms"));
+        for (Map.Entry<MiniRunner.Backend, long[]> e : perBackend.entrySet()) {
+            long[] t = e.getValue();
+            System.out.println(String.format("  %-9s %5d %5d %10d %12.1f", e.getKey().name().toLowerCase(), t[0], t[1], t[2], t[3] / 1e6));
+        }
     }
 
     private static void printSummary(List<Result> pos, List<Result> neg) {
@@ -91,5 +163,6 @@ public final class SampleSuite {
         System.out.println("Unexpected positive failures: " + unexpected);
     }
 
-    private record Result(String file, boolean expectedPass, boolean hadCompileErrors, boolean hadRuntimeError, String stderr, String stdout) {}
+    private record Result(String file, boolean expectedPass, boolean hadCompileErrors, boolean hadRuntimeError, String stderr, String stdout,
+                          MiniRunner.Backend backend, long nanos) {}
 }
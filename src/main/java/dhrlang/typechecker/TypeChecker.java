@@ -16,15 +16,27 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Collections;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+/**
+ * Checks a program in two phases: declarations (registries and class/interface environments) are resolved
+ * serially, then class bodies are checked independently, in parallel on a {@link ForkJoinPool} for large programs.
+ * Each body worker is a {@code TypeChecker} sharing the resolved, frozen environments and owning its per-body
+ * state and a forked {@link ErrorReporter}; the forks are merged in declaration order, so diagnostics match a
+ * serial run. {@code dhrlang.typecheck.threads} caps the workers (1 checks serially).
+ */
 public class TypeChecker {
-    private final Map<String, ClassDecl> classRegistry = new HashMap<>();
-    private final Map<String, InterfaceDecl> interfaceRegistry = new HashMap<>();
-    private final Map<String, TypeEnvironment> classEnvironments = new HashMap<>();
-    private final Map<String, TypeEnvironment> interfaceEnvironments = new HashMap<>();
-    private final TypeEnvironment globals = new TypeEnvironment();
-    private final GenericTypeManager genericTypeManager = new GenericTypeManager();
+    private static final int PARALLEL_MIN_FUNCTIONS = 32;
+
+    private final Map<String, ClassDecl> classRegistry;
+    private final Map<String, InterfaceDecl> interfaceRegistry;
+    private final Map<String, TypeEnvironment> classEnvironments;
+    private final Map<String, TypeEnvironment> interfaceEnvironments;
+    private final TypeEnvironment globals;
+    private final GenericTypeManager genericTypeManager;
     private ClassDecl currentClass = null;
     private InterfaceDecl currentInterface = null;
     private String currentFunctionReturnType = null;
@@ -36,14 +48,72 @@ public class TypeChecker {
     private final Map<String, Map<String,String>> genericInstanceBindings = new HashMap<>();
 
     public TypeChecker() {
-        this.errorReporter = null;
+        this(null);
     }
     
     public TypeChecker(ErrorReporter errorReporter) {
         this.errorReporter = errorReporter;
+        this.classRegistry = new HashMap<>();
+        this.interfaceRegistry = new HashMap<>();
+        this.classEnvironments = new HashMap<>();
+        this.interfaceEnvironments = new HashMap<>();
+        this.globals = new TypeEnvironment();
+        this.genericTypeManager = new GenericTypeManager();
+    }
+
+    // Body worker: resolved declarations are shared read-only, everything mutable is its own. With references,
+    // every class or interface name the body looks up is added to it.
+    private TypeChecker(TypeChecker resolved, ErrorReporter errorReporter, Set<String> references) {
+        this.errorReporter = errorReporter;
+        this.classRegistry = references == null ? resolved.classRegistry : new RecordingMap<>(resolved.classRegistry, references);
+        this.interfaceRegistry = references == null ? resolved.interfaceRegistry : new RecordingMap<>(resolved.interfaceRegistry, references);
+        this.classEnvironments = references == null ? resolved.classEnvironments : new RecordingMap<>(resolved.classEnvironments, references);
+        this.interfaceEnvironments = references == null ? resolved.interfaceEnvironments : new RecordingMap<>(resolved.interfaceEnvironments, references);
+        this.globals = resolved.globals;
+        this.genericTypeManager = resolved.genericTypeManager;
+    }
+
+    // Read-only view of a name-keyed table that records the names looked up; iterating records every name
+    private static final class RecordingMap<V> extends java.util.AbstractMap<String, V> {
+        private final Map<String, V> delegate;
+        private final Set<String> seen;
+
+        RecordingMap(Map<String, V> delegate, Set<String> seen) {
+            this.delegate = delegate;
+            this.seen = seen;
+        }
+
+        @Override public V get(Object key) {
+            if (key instanceof String name) seen.add(name);
+            return delegate.get(key);
+        }
+
+        @Override public boolean containsKey(Object key) {
+            if (key instanceof String name) seen.add(name);
+            return delegate.containsKey(key);
+        }
+
+        @Override public Set<Entry<String, V>> entrySet() {
+            seen.addAll(delegate.keySet());
+            return java.util.Collections.unmodifiableMap(delegate).entrySet();
+        }
     }
 
     public void check(Program program) {
+        check(program, null, null, null);
+    }
+
+    /**
+     * {@link #check(Program)} for incremental callers: every declaration is resolved, but the body of a class or
+     * interface is checked only when {@code bodyReporter} returns a reporter for it, and its diagnostics go there;
+     * null skips a body whose earlier diagnostics still hold. {@code afterBodies} runs where the body diagnostics
+     * of a full check would appear, between the resolution diagnostics and the whole-program ones, all of which
+     * go to this checker's reporter. When {@code bodyReferences} gives a set for a checked body, every class and
+     * interface name the body looked up (found or not) is added to it, so callers know which bodies to check
+     * again when a declaration changes.
+     */
+    public void check(Program program, Function<ASTNode, ErrorReporter> bodyReporter,
+                      Function<ASTNode, Set<String>> bodyReferences, Runnable afterBodies) {
     // Instrumentation reset
     exprTypeCache.clear();
     exprCacheMissCount = 0L;
@@ -78,13 +148,31 @@ public class TypeChecker {
             resolveClass(classDecl);
         }
 
-        for (InterfaceDecl interfaceDecl : program.getInterfaces()) {
-            checkInterfaceBody(interfaceDecl);
-        }
+        globals.freeze();
+        classEnvironments.values().forEach(TypeEnvironment::freeze);
+        interfaceEnvironments.values().forEach(TypeEnvironment::freeze);
 
-        for (ClassDecl classDecl : program.getClasses()) {
-            checkClassBody(classDecl);
+        if (bodyReporter == null) {
+            for (InterfaceDecl interfaceDecl : program.getInterfaces()) {
+                checkInterfaceBody(interfaceDecl);
+            }
+            checkClassBodies(program.getClasses(), null);
+        } else {
+            for (InterfaceDecl interfaceDecl : program.getInterfaces()) {
+                ErrorReporter target = bodyReporter.apply(interfaceDecl);
+                if (target != null) new TypeChecker(this, target, references(bodyReferences, interfaceDecl)).checkInterfaceBody(interfaceDecl);
+            }
+            List<ClassDecl> classes = new ArrayList<>();
+            List<TypeChecker> workers = new ArrayList<>();
+            for (ClassDecl classDecl : program.getClasses()) {
+                ErrorReporter target = bodyReporter.apply(classDecl);
+                if (target == null) continue;
+                classes.add(classDecl);
+                workers.add(new TypeChecker(this, target, references(bodyReferences, classDecl)));
+            }
+            checkClassBodies(classes, workers);
         }
+        if (afterBodies != null) afterBodies.run();
 
         // Future generic validation hook: invoke validation routines for generic declarations (no-op for non-generic)
         for (ClassDecl classDecl : program.getClasses()) {
@@ -135,7 +223,7 @@ public class TypeChecker {
     }
 
     // Cache computed descriptor types for expressions within a single type-check pass.
-    // This avoids repeated string->TypeDesc parsing and repeated dispatch for identical subtrees.
+    // This avoids repeated dispatch for identical subtrees.
     private final Map<Expression, TypeDesc> exprTypeCache = new IdentityHashMap<>();
     // Instrumentation counters (reset per check(Program))
     private long checkStartNanos = 0L;
@@ -145,8 +233,7 @@ public class TypeChecker {
     private TypeDesc checkExprDesc(Expression expr, TypeEnvironment env) {
         TypeDesc cached = exprTypeCache.get(expr);
         if (cached != null) return cached;
-        String raw = checkExpr(expr, env); // delegate to existing logic returning string form
-        TypeDesc desc = TypeDesc.parse(raw);
+        TypeDesc desc = typeOf(expr, env);
         exprTypeCache.put(expr, desc);
         exprCacheMissCount++;
         return desc;
@@ -184,7 +271,7 @@ public class TypeChecker {
         TypeEnvironment classEnv = new TypeEnvironment(parentEnv);
         
     for (VarDecl field : klass.getVariables()) {
-            if (classEnv.getLocalFields().containsKey(field.getName())) {
+            if (classEnv.hasLocal(field.getName())) {
                 errorWithHint("Field '" + field.getName() + "' is already defined in class '" + klass.getName() + "'.", field.getSourceLocation(),
                              "Rename the field or remove the duplicate - each field name must be unique within a class", ErrorCode.REDECLARATION);
             }
@@ -363,6 +450,41 @@ public class TypeChecker {
         this.currentClass = null;
     }
 
+    private static Set<String> references(Function<ASTNode, Set<String>> bodyReferences, ASTNode body) {
+        return bodyReferences == null ? null : bodyReferences.apply(body);
+    }
+
+    // Checks each body with workers[i], or into this checker's reporter when workers is null
+    private void checkClassBodies(List<ClassDecl> classes, List<TypeChecker> workers) {
+        int threads = Integer.getInteger("dhrlang.typecheck.threads", Runtime.getRuntime().availableProcessors());
+        int functions = 0;
+        for (ClassDecl klass : classes) functions += klass.getFunctions().size();
+        // Without a reporter the first error throws, which only a serial walk reports faithfully
+        if (errorReporter == null || threads <= 1 || classes.size() < 2 || functions < PARALLEL_MIN_FUNCTIONS) {
+            for (int i = 0; i < classes.size(); i++) {
+                if (workers == null) checkClassBody(classes.get(i));
+                else workers.get(i).checkClassBody(classes.get(i));
+            }
+            return;
+        }
+        ForkJoinPool pool = System.getProperty("dhrlang.typecheck.threads") == null ? ForkJoinPool.commonPool() : new ForkJoinPool(threads);
+        try {
+            List<ForkJoinTask<TypeChecker>> tasks = new ArrayList<>(classes.size());
+            for (int i = 0; i < classes.size(); i++) {
+                ClassDecl klass = classes.get(i);
+                TypeChecker worker = workers == null ? new TypeChecker(this, errorReporter.fork(), null) : workers.get(i);
+                tasks.add(pool.submit(() -> { worker.checkClassBody(klass); return worker; }));
+            }
+            for (ForkJoinTask<TypeChecker> task : tasks) {
+                TypeChecker worker = task.join();
+                if (workers == null) errorReporter.merge(worker.errorReporter);
+                exprCacheMissCount += worker.exprCacheMissCount;
+            }
+        } finally {
+            if (pool != ForkJoinPool.commonPool()) pool.shutdown();
+        }
+    }
+
     // DFS helper to report a single cycle per back-edge discovered
     private void detectStaticCycleDFS(int u,
                                       List<VarDecl> staticFields,
@@ -543,7 +665,7 @@ public class TypeChecker {
         
         for (VarDecl param : function.getParameters()) {
             validateTypeReference(param.getType(), param.getSourceLocation());
-            if (local.getLocalFields().containsKey(param.getName())) {
+            if (local.hasLocal(param.getName())) {
                 errorWithHint("Parameter '" + param.getName() + "' is already defined in function '" + function.getName() + "'.", param.getSourceLocation(),
                                  "Rename the parameter - each parameter name must be unique within a function", ErrorCode.REDECLARATION);
             }
@@ -646,7 +768,7 @@ public class TypeChecker {
     }
 
     private void checkVarDecl(VarDecl stmt, TypeEnvironment env) {
-        if (env.getLocalFields().containsKey(stmt.getName())) {
+        if (env.hasLocal(stmt.getName())) {
             errorWithHint("Variable '" + stmt.getName() + "' is already defined in this scope.", stmt.getSourceLocation(),
                              "Rename the variable or remove the duplicate - each variable name must be unique within a scope", ErrorCode.REDECLARATION);
         } else if (env.exists(stmt.getName())) {
@@ -848,34 +970,39 @@ public class TypeChecker {
     }
 
     private String checkExpr(Expression expr, TypeEnvironment env) {
+        return typeOf(expr, env).toString();
+    }
+
+    // Checkers that still build type strings go through the interned TypeDesc.parse table
+    private TypeDesc typeOf(Expression expr, TypeEnvironment env) {
         if (expr instanceof LiteralExpr) return checkLiteral((LiteralExpr) expr);
         if (expr instanceof VariableExpr) return checkVariable((VariableExpr) expr, env);
         if (expr instanceof UnaryExpr) return checkUnary((UnaryExpr) expr, env);
         if (expr instanceof BinaryExpr) return checkBinary((BinaryExpr) expr, env);
         if (expr instanceof AssignmentExpr) return checkAssign((AssignmentExpr) expr, env);
-        if (expr instanceof NewExpr) return checkNew((NewExpr) expr, env);
-        if (expr instanceof NewArrayExpr) return checkNewArray((NewArrayExpr) expr, env);
-        if (expr instanceof GetExpr) return checkGet((GetExpr) expr, env);
-        if (expr instanceof SetExpr) return checkSet((SetExpr) expr, env);
-        if (expr instanceof ThisExpr) return checkThis((ThisExpr) expr);
-        if (expr instanceof SuperExpr) return checkSuper((SuperExpr) expr, env);
-        if (expr instanceof CallExpr) return checkCall((CallExpr) expr, env);
+        if (expr instanceof NewExpr) return TypeDesc.parse(checkNew((NewExpr) expr, env));
+        if (expr instanceof NewArrayExpr) return TypeDesc.parse(checkNewArray((NewArrayExpr) expr, env));
+        if (expr instanceof GetExpr) return TypeDesc.parse(checkGet((GetExpr) expr, env));
+        if (expr instanceof SetExpr) return TypeDesc.parse(checkSet((SetExpr) expr, env));
+        if (expr instanceof ThisExpr) return TypeDesc.parse(checkThis((ThisExpr) expr));
+        if (expr instanceof SuperExpr) return TypeDesc.parse(checkSuper((SuperExpr) expr, env));
+        if (expr instanceof CallExpr) return TypeDesc.parse(checkCall((CallExpr) expr, env));
         if (expr instanceof ArrayExpr) return checkArray((ArrayExpr) expr, env);
         if (expr instanceof IndexExpr) return checkIndex((IndexExpr) expr, env);
         if (expr instanceof IndexAssignExpr) return checkIndexAssign((IndexAssignExpr) expr, env);
-        if (expr instanceof PostfixIncrementExpr) return checkPostfixIncrement((PostfixIncrementExpr) expr, env);
-        if (expr instanceof PrefixIncrementExpr) return checkPrefixIncrement((PrefixIncrementExpr) expr, env);
-        if (expr instanceof StaticAccessExpr) return checkStaticAccess((StaticAccessExpr) expr, env);
-        if (expr instanceof StaticAssignExpr) return checkStaticAssign((StaticAssignExpr) expr, env);
+        if (expr instanceof PostfixIncrementExpr) return checkIncrementTarget(((PostfixIncrementExpr) expr).getTarget(), env, "postfix increment/decrement");
+        if (expr instanceof PrefixIncrementExpr) return checkIncrementTarget(((PrefixIncrementExpr) expr).getTarget(), env, "prefix increment/decrement");
+        if (expr instanceof StaticAccessExpr) return TypeDesc.parse(checkStaticAccess((StaticAccessExpr) expr, env));
+        if (expr instanceof StaticAssignExpr) return TypeDesc.parse(checkStaticAssign((StaticAssignExpr) expr, env));
 
         errorWithHint("Unsupported expression type: " + expr.getClass().getSimpleName(), expr.getSourceLocation(),
                      "This expression type is not yet supported in DhrLang");
-        return "unknown"; // Return fallback type to continue checking
+        return TypeDesc.unknown(); // Return fallback type to continue checking
     }
 
-    private String checkArray(ArrayExpr expr, TypeEnvironment env) {
+    private TypeDesc checkArray(ArrayExpr expr, TypeEnvironment env) {
         if (expr.getElements().isEmpty()) {
-            return "unknown[]"; 
+            return TypeDesc.array(TypeDesc.unknown());
         }
 
         TypeDesc elementDesc = checkExprDesc(expr.getElements().get(0), env);
@@ -889,10 +1016,10 @@ public class TypeChecker {
             }
         }
 
-        return elementDesc + "[]";
+        return TypeDesc.array(elementDesc);
     }
 
-    private String checkIndex(IndexExpr expr, TypeEnvironment env) {
+    private TypeDesc checkIndex(IndexExpr expr, TypeEnvironment env) {
         TypeDesc objectDesc = checkExprDesc(expr.getObject(), env);
         TypeDesc indexDesc = checkExprDesc(expr.getIndex(), env);
         String objectType = objectDesc.toString();
@@ -903,7 +1030,7 @@ public class TypeChecker {
                          "Array indexing syntax: myArray[0] - ensure the variable is an array type like num[] or sab[]");
         }
 
-        if (!indexDesc.equals(TypeDesc.num())) {
+        if (indexDesc != TypeDesc.num()) {
             errorWithHint("Array index must be a number, got '" + indexType + "'.", expr.getSourceLocation(),
                          "Array indices must be integers: array[0], array[i], or array[count-1]");
         }
@@ -929,22 +1056,22 @@ public class TypeChecker {
                 }
             }
         }
-    if(!objectDesc.isArray()) return "unknown"; // keep pipeline alive if already reported
-    return objectDesc.element.toString();
+    if(!objectDesc.isArray()) return TypeDesc.unknown(); // keep pipeline alive if already reported
+    return objectDesc.element;
     }
 
-    private String checkIndexAssign(IndexAssignExpr expr, TypeEnvironment env) {
+    private TypeDesc checkIndexAssign(IndexAssignExpr expr, TypeEnvironment env) {
         TypeDesc objectDesc = checkExprDesc(expr.getObject(), env);
         TypeDesc indexDesc = checkExprDesc(expr.getIndex(), env);
         TypeDesc valueDesc = checkExprDesc(expr.getValue(), env);
         String objectType = objectDesc.toString();
 
-        if (!objectType.endsWith("[]")) {
+        if (!objectDesc.isArray()) {
             errorWithHint("Can only assign to array elements, got type '" + objectType + "'.", expr.getSourceLocation(),
                          "Array assignment syntax: myArray[index] = value - ensure the target is an array");
         }
 
-        if (!indexDesc.equals(TypeDesc.num())) {
+        if (indexDesc != TypeDesc.num()) {
             errorWithHint("Array index must be a number, got '" + indexDesc + "'.", expr.getSourceLocation(),
                          "Array indices must be integers: array[0] = value or array[i] = value");
         }
@@ -971,82 +1098,70 @@ public class TypeChecker {
             }
         }
 
-        String elementType = objectType.substring(0, objectType.length() - 2);
-        TypeDesc elementDesc = TypeDesc.parse(elementType);
-        if (!isAssignable(valueDesc, elementDesc)) {
-            errorWithHint("Cannot assign '" + valueDesc + "' to array of '" + elementType + "'.", expr.getSourceLocation(),
-                         buildTypeMismatchHint(valueDesc, elementDesc, "array element assignment"), ErrorCode.TYPE_MISMATCH);
+        if (objectDesc.isArray() && !isAssignable(valueDesc, objectDesc.element)) {
+            errorWithHint("Cannot assign '" + valueDesc + "' to array of '" + objectDesc.element + "'.", expr.getSourceLocation(),
+                         buildTypeMismatchHint(valueDesc, objectDesc.element, "array element assignment"), ErrorCode.TYPE_MISMATCH);
         }
 
-        return valueDesc.toString();
-    }
-
-    private String checkPostfixIncrement(PostfixIncrementExpr expr, TypeEnvironment env) {
-        return checkIncrementTarget(expr.getTarget(), env, "postfix increment/decrement");
-    }
-
-    private String checkPrefixIncrement(PrefixIncrementExpr expr, TypeEnvironment env) {
-        return checkIncrementTarget(expr.getTarget(), env, "prefix increment/decrement");
+        return valueDesc;
     }
 
-    private String checkIncrementTarget(Expression target, TypeEnvironment env, String operation) {
+    private TypeDesc checkIncrementTarget(Expression target, TypeEnvironment env, String operation) {
         TypeDesc targetDesc;
-        String targetType;
         if (target instanceof VariableExpr varExpr) {
-            targetType = checkVariable(varExpr, env);
-            targetDesc = TypeDesc.parse(targetType);
+            targetDesc = checkVariable(varExpr, env);
         } else if (target instanceof GetExpr getExpr) {
-            targetType = checkGet(getExpr, env);
-            targetDesc = TypeDesc.parse(targetType);
+            targetDesc = TypeDesc.parse(checkGet(getExpr, env));
         } else if (target instanceof IndexExpr indexExpr) {
-            targetType = checkIndex(indexExpr, env);
-            targetDesc = TypeDesc.parse(targetType);
+            targetDesc = checkIndex(indexExpr, env);
         } else {
             errorWithHint("Invalid " + operation + " target. Must be a variable, property, or array element.", target.getSourceLocation(),
                     "Use " + operation + " on variables, object properties, or array elements: x++, obj.count++, arr[i]++");
-            return "unknown";
+            return TypeDesc.unknown();
         }
         if (!targetDesc.isNumeric()) {
             errorWithHint("Can only apply " + operation + " to numeric values, got '" + targetDesc + "'.", target.getSourceLocation(),
                     "Increment/decrement operations work only on numbers: count++, value--, index++");
         }
-        return targetType;
+        return targetDesc;
     }
 
-    private String checkLiteral(LiteralExpr expr) {
-        if (expr.getValue() instanceof Long) return "num";
-        if (expr.getValue() instanceof Double) return "duo";
-        if (expr.getValue() instanceof Boolean) return "kya";
-        if (expr.getValue() instanceof Character) return "ek";
-        if (expr.getValue() instanceof String) return "sab";
-        return "unknown";
+    private static final TypeDesc EK = TypeDesc.parse("ek");
+
+    private TypeDesc checkLiteral(LiteralExpr expr) {
+        if (expr.getValue() instanceof Long) return TypeDesc.num();
+        if (expr.getValue() instanceof Double) return TypeDesc.duo();
+        if (expr.getValue() instanceof Boolean) return TypeDesc.kya();
+        if (expr.getValue() instanceof Character) return EK;
+        if (expr.getValue() instanceof String) return TypeDesc.sab();
+        return TypeDesc.unknown();
     }
 
-    private String checkVariable(VariableExpr expr, TypeEnvironment env) {
+    private TypeDesc checkVariable(VariableExpr expr, TypeEnvironment env) {
         String name = expr.getName().getLexeme();
-        try {
-            return env.get(name);
-        } catch (TypeException e) {
+        TypeDesc type = env.lookupDesc(name);
+        if (type != null) return type;
+        {
             // If inside a non-static class method, allow implicit access to fields via 'this'
             if (currentClass != null && !currentFunctionIsStatic) {
                 // Look up field on current class
                 String baseType = currentClass.getName();
                 TypeEnvironment classEnv = classEnvironments.get(baseType);
-                if (classEnv != null && classEnv.getLocalFields().containsKey(name)) {
+                if (classEnv != null && classEnv.hasLocal(name)) {
                     // Enforce access modifier
                     VarDecl fieldDecl = currentClass.getVariables().stream().filter(v -> v.getName().equals(name)).findFirst().orElse(null);
                     if (fieldDecl != null && !isAccessible(currentClass, currentClass, fieldDecl.getModifiers())) {
                         errorWithHint("Cannot access field '" + name + "' due to access modifier.", expr.getSourceLocation(),
                                      "Use a public/protected field or access within allowed scope", ErrorCode.ACCESS_MODIFIER);
-                        return "unknown";
+                        return TypeDesc.unknown();
                     }
-                    String fieldType = classEnv.getLocalFields().get(name);
+                    TypeDesc fieldType = classEnv.getLocalDesc(name);
                     // If 'this' is a generic instantiation, substitute type parameters in field type
                     // Our type for 'this' in env is the class name; reconstruct potential instantiation from locals if available
                     try {
-                        String thisType = env.get("this");
-                        if (thisType != null && thisType.contains("<")) {
-                            fieldType = substituteTypeParameters(fieldType, thisType);
+                        TypeDesc thisType = env.lookupDesc("this");
+                        if (thisType != null && !thisType.typeArgs.isEmpty()) {
+                            fieldType = TypeDesc.parse(substituteTypeParameters(fieldType.toString(), thisType.toString()));
                         }
                     } catch (Exception ignored) { }
                     return fieldType;
@@ -1054,11 +1169,11 @@ public class TypeChecker {
             }
             errorWithHint("Undefined variable '" + name + "'.", expr.getSourceLocation(),
                          "Make sure the variable is declared before use: num x = 42; or check for typos in variable name", ErrorCode.UNDECLARED_IDENTIFIER);
-            return "unknown";
+            return TypeDesc.unknown();
         }
     }
 
-    private String checkUnary(UnaryExpr expr, TypeEnvironment env) {
+    private TypeDesc checkUnary(UnaryExpr expr, TypeEnvironment env) {
         TypeDesc rightDesc = checkExprDesc(expr.getRight(), env);
         String rightType = rightDesc.toString();
         TokenType op = expr.getOperator().getType();
@@ -1069,26 +1184,26 @@ public class TypeChecker {
                              expr.getSourceLocation(),
                              "Use numeric values like 42 or 3.14 with unary minus operator");
             }
-            return rightType;
+            return rightDesc;
         } else if (op == TokenType.NOT) {
-            if (!rightType.equals("kya")) {
+            if (rightDesc != TypeDesc.kya()) {
                 errorWithHint("Operand for '!' must be a boolean, got '" + rightType + "'.", 
                              expr.getSourceLocation(),
                              "Use boolean values (true/false) with the '!' operator");
             }
-            return "kya";
+            return TypeDesc.kya();
         }
         
         errorWithHint("Unsupported unary operator: " + op, expr.getSourceLocation(),
                      "Use supported unary operators: - (minus) or ! (not)");
-        return "unknown";
+        return TypeDesc.unknown();
     }
 
-    private String checkBinary(BinaryExpr expr, TypeEnvironment env) {
+    private TypeDesc checkBinary(BinaryExpr expr, TypeEnvironment env) {
         // Special short-circuit handling for logical AND to propagate non-null facts from left into right
         if(expr.getOperator().getType()==TokenType.AND){
-            String leftTypePre = checkExpr(expr.getLeft(), env);
-            if(!leftTypePre.equals("kya")){
+            TypeDesc leftTypePre = typeOf(expr.getLeft(), env);
+            if(leftTypePre != TypeDesc.kya()){
                 errorWithHint("Left operand of logical operator must be boolean, got '" + leftTypePre + "'.", expr.getSourceLocation(),
                                  "Logical operators (&&, ||) require boolean values: true && false");
             }
@@ -1102,16 +1217,16 @@ public class TypeChecker {
                     }
                 }
             }
-            String rightTypeAfter = checkExpr(expr.getRight(), env);
-            if(!rightTypeAfter.equals("kya")){
+            TypeDesc rightTypeAfter = typeOf(expr.getRight(), env);
+            if(rightTypeAfter != TypeDesc.kya()){
                 errorWithHint("Right operand of logical operator must be boolean, got '" + rightTypeAfter + "'.", expr.getSourceLocation(),
                                  "Logical operators (&&, ||) require boolean values: true && false");
             }
-            return "kya";
+            return TypeDesc.kya();
         }
         if(expr.getOperator().getType()==TokenType.OR){
-            String leftTypePre = checkExpr(expr.getLeft(), env);
-            if(!leftTypePre.equals("kya")){
+            TypeDesc leftTypePre = typeOf(expr.getLeft(), env);
+            if(leftTypePre != TypeDesc.kya()){
                 errorWithHint("Left operand of logical operator must be boolean, got '" + leftTypePre + "'.", expr.getSourceLocation(),
                                  "Logical operators (&&, ||) require boolean values: true && false");
             }
@@ -1129,13 +1244,13 @@ public class TypeChecker {
                     }
                 }
             }
-            String rightTypeAfter = checkExpr(expr.getRight(), env);
-            if(!rightTypeAfter.equals("kya")){
+            TypeDesc rightTypeAfter = typeOf(expr.getRight(), env);
+            if(rightTypeAfter != TypeDesc.kya()){
                 errorWithHint("Right operand of logical operator must be boolean, got '" + rightTypeAfter + "'.", expr.getSourceLocation(),
                                  "Logical operators (&&, ||) require boolean values: true && false");
             }
             if(refined) nonNullVars = saved; 
-            return "kya";
+            return TypeDesc.kya();
         }
     TypeDesc leftDesc = checkExprDesc(expr.getLeft(), env);
     TypeDesc rightDesc = checkExprDesc(expr.getRight(), env);
@@ -1145,8 +1260,8 @@ public class TypeChecker {
         
         switch (op) {
             case PLUS:
-                if (leftType.equals("sab") || rightType.equals("sab")) {
-                    return "sab"; 
+                if (leftDesc == TypeDesc.sab() || rightDesc == TypeDesc.sab()) {
+                    return TypeDesc.sab();
                 }
             case MINUS:
             case STAR:
@@ -1157,14 +1272,14 @@ public class TypeChecker {
                           leftType + "' and '" + rightType + "'.", expr.getSourceLocation(),
                           "Use numeric values for arithmetic operations, or strings for concatenation with '+'");
                 }
-                return (leftDesc.kind==TypeKind.DUO || rightDesc.kind==TypeKind.DUO) ? "duo" : "num";
+                return (leftDesc.kind==TypeKind.DUO || rightDesc.kind==TypeKind.DUO) ? TypeDesc.duo() : TypeDesc.num();
                 
             case SLASH:
                 if (!leftDesc.isNumeric() || !rightDesc.isNumeric()) {
                     errorWithHint("Operands for division must be numbers, got '" + leftType + "' and '" + rightType + "'.", expr.getSourceLocation(),
                                  "Division requires numeric operands like: 10 / 2 or 5.0 / 2.5");
                 }
-                return "duo"; 
+                return TypeDesc.duo();
                 
             case GREATER:
             case GEQ:
@@ -1174,7 +1289,7 @@ public class TypeChecker {
                     errorWithHint("Operands for comparison must be numbers, got '" + leftType + "' and '" + rightType + "'.", expr.getSourceLocation(),
                                  "Comparison operators (<, >, <=, >=) work with numbers: x > 5 or price <= 100.0");
                 }
-                return "kya";
+                return TypeDesc.kya();
                 
             case EQUALITY:
             case NEQ:
@@ -1192,55 +1307,52 @@ public class TypeChecker {
                         }
                     }
                 }
-                return "kya";
+                return TypeDesc.kya();
                 
             case AND:
             case OR:
-                if (!leftType.equals("kya")) {
+                if (leftDesc != TypeDesc.kya()) {
                     errorWithHint("Left operand of logical operator must be boolean, got '" + leftType + "'.", expr.getSourceLocation(),
                                  "Logical operators (&&, ||) require boolean values: true && false");
                 }
-                if (!rightType.equals("kya")) {
+                if (rightDesc != TypeDesc.kya()) {
                     errorWithHint("Right operand of logical operator must be boolean, got '" + rightType + "'.", expr.getSourceLocation(),
                                  "Logical operators (&&, ||) require boolean values: true && false");
                 }
-                return "kya";
+                return TypeDesc.kya();
                 
             default:
                 errorWithHint("Unsupported binary operator: " + op, expr.getSourceLocation(),
                              "Use supported operators: +, -, *, /, %, ==, !=, <, >, <=, >=, &&, ||");
-                return "unknown";
+                return TypeDesc.unknown();
         }
     }
 
-    private String checkAssign(AssignmentExpr expr, TypeEnvironment env) {
+    private TypeDesc checkAssign(AssignmentExpr expr, TypeEnvironment env) {
         String varName = expr.getName().getLexeme();
-        String varType;
-        try {
-            varType = env.get(varName);
-        } catch (TypeException e) {
+        TypeDesc varType = env.lookupDesc(varName);
+        if (varType == null) {
             // If in non-static instance context, allow implicit 'this.field = ...'
             if (currentClass != null && !currentFunctionIsStatic) {
                 String baseType = currentClass.getName();
                 TypeEnvironment classEnv = classEnvironments.get(baseType);
-                if (classEnv != null && classEnv.getLocalFields().containsKey(varName)) {
-                    String fieldType = classEnv.getLocalFields().get(varName);
+                if (classEnv != null && classEnv.hasLocal(varName)) {
+                    TypeDesc targetDesc = classEnv.getLocalDesc(varName);
                     try {
-                        String thisType = env.get("this");
-                        if (thisType != null && thisType.contains("<")) fieldType = substituteTypeParameters(fieldType, thisType);
+                        TypeDesc thisType = env.lookupDesc("this");
+                        if (thisType != null && !thisType.typeArgs.isEmpty()) targetDesc = TypeDesc.parse(substituteTypeParameters(targetDesc.toString(), thisType.toString()));
                     } catch (Exception ignored) { }
                     TypeDesc valueDesc = checkExprDesc(expr.getValue(), env);
-                    TypeDesc targetDesc = TypeDesc.parse(fieldType);
                     if (!isAssignable(valueDesc, targetDesc)) {
-                        errorWithHint("Cannot assign type '" + valueDesc + "' to field '" + varName + "' of type '" + fieldType + "'.",
+                        errorWithHint("Cannot assign type '" + valueDesc + "' to field '" + varName + "' of type '" + targetDesc + "'.",
                                      expr.getSourceLocation(), buildTypeMismatchHint(valueDesc, targetDesc, "field assignment"), ErrorCode.TYPE_MISMATCH);
                     }
-                    return valueDesc.toString();
+                    return valueDesc;
                 }
             }
             errorWithHint("Cannot assign to undefined variable '" + varName + "'.", expr.getSourceLocation(),
                          "Declare the variable first: num " + varName + " = 0; then assign: " + varName + " = value;", ErrorCode.UNDECLARED_IDENTIFIER);
-            return "unknown"; 
+            return TypeDesc.unknown();
         }
         // Dead store: previous value overwritten without read
         if(env.hadUnreadWrite(varName) && errorReporter!=null){
@@ -1250,12 +1362,11 @@ public class TypeChecker {
         }
         env.recordWrite(varName, expr.getSourceLocation());
         TypeDesc valueDesc = checkExprDesc(expr.getValue(), env);
-        TypeDesc targetDesc = TypeDesc.parse(varType);
-        if (!isAssignable(valueDesc, targetDesc)) {
+        if (!isAssignable(valueDesc, varType)) {
             errorWithHint("Cannot assign type '" + valueDesc + "' to variable '" + varName + "' of type '" + varType + "'.",
-                         expr.getSourceLocation(), buildTypeMismatchHint(valueDesc, targetDesc, "assignment"), ErrorCode.TYPE_MISMATCH);
+                         expr.getSourceLocation(), buildTypeMismatchHint(valueDesc, varType, "assignment"), ErrorCode.TYPE_MISMATCH);
         }
-        return valueDesc.toString();
+        return valueDesc;
     }
 
     private String checkNew(NewExpr expr, TypeEnvironment env) {
@@ -1,52 +1,156 @@
 package dhrlang.typechecker;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+/**
+ * Canonical type descriptors. Every instance is interned: primitives are singletons and array, class and generic
+ * types are hash-consed on their structure, so two descriptors of the same type are the same object and equality
+ * is an identity check. The tables are shared and thread-safe, and hold descriptors weakly, so a long-lived
+ * process such as the daemon keeps only the types some compilation still uses.
+ */
 public final class TypeDesc {
     public final TypeKind kind;
     public final String name;
     public final TypeDesc element;
     // For generic/class types with type arguments: base name in name, args stored separately
     public final List<TypeDesc> typeArgs;
-    private TypeDesc(TypeKind k,String n,TypeDesc e){this(k,n,e,Collections.emptyList());}
-    private TypeDesc(TypeKind k,String n,TypeDesc e,List<TypeDesc> args){this.kind=k;this.name=n;this.element=e;this.typeArgs=args;}
-    public static TypeDesc num(){return new TypeDesc(TypeKind.NUM,"num",null);}    
-    public static TypeDesc duo(){return new TypeDesc(TypeKind.DUO,"duo",null);}    
-    public static TypeDesc sab(){return new TypeDesc(TypeKind.SAB,"sab",null);}    
-    public static TypeDesc kya(){return new TypeDesc(TypeKind.KYA,"kya",null);}    
-    public static TypeDesc kaam(){return new TypeDesc(TypeKind.KAAM,"kaam",null);}    
-    public static TypeDesc any(){return new TypeDesc(TypeKind.ANY,"any",null);}    
-    public static TypeDesc nul(){return new TypeDesc(TypeKind.NULL,"null",null);}    
-    public static TypeDesc cls(String n){return new TypeDesc(TypeKind.CLASS,n,null);}    
-    public static TypeDesc cls(String n,List<TypeDesc> args){return new TypeDesc(TypeKind.CLASS,n,null,args);}    
-    public static TypeDesc generic(String n){return new TypeDesc(TypeKind.GENERIC,n,null);}    
-    public static TypeDesc array(TypeDesc el){return new TypeDesc(TypeKind.ARRAY,el.name+"[]",el);}    
-    public static TypeDesc unknown(){return new TypeDesc(TypeKind.UNKNOWN,"unknown",null);}    
+    // Source spelling; differs from name only for unknown types (e.g. "ek")
+    private final String display;
+
+    // Array type of this element, created on first use
+    private volatile TypeDesc arrayOf;
+
+    private record Key(TypeKind kind, String name, List<TypeDesc> args) {}
+    private static final WeakTable<Key> INTERNED = new WeakTable<>();
+    private static final WeakTable<String> PARSED = new WeakTable<>();
+
+    // Map with weakly held values. An entry is replaced only once its descriptor is unreachable, so no two live
+    // descriptors of one type can exist and identity equality still holds.
+    private static final class WeakTable<K> {
+        private static final class Ref<K> extends WeakReference<TypeDesc> {
+            final K key;
+            Ref(TypeDesc t, K key, ReferenceQueue<TypeDesc> queue){ super(t, queue); this.key = key; }
+        }
+        private final ConcurrentHashMap<K,Ref<K>> map = new ConcurrentHashMap<>();
+        private final ReferenceQueue<TypeDesc> queue = new ReferenceQueue<>();
+
+        TypeDesc get(K key){
+            Ref<K> r = map.get(key);
+            return r == null ? null : r.get();
+        }
+
+        // Not ConcurrentHashMap.computeIfAbsent: create may intern nested types into this same table
+        TypeDesc computeIfAbsent(K key, Supplier<TypeDesc> create){
+            for(Reference<? extends TypeDesc> r; (r = queue.poll()) != null; ) map.remove(((Ref<?>) r).key, r);
+            while(true){
+                Ref<K> r = map.get(key);
+                TypeDesc t = r == null ? null : r.get();
+                if(t != null) return t;
+                TypeDesc created = create.get();
+                Ref<K> fresh = new Ref<>(created, key, queue);
+                if(r == null ? map.putIfAbsent(key, fresh) == null : map.replace(key, r, fresh)) return created;
+            }
+        }
+    }
+
+    private TypeDesc(TypeKind k,String n,TypeDesc e,List<TypeDesc> args,String display){this.kind=k;this.name=n;this.element=e;this.typeArgs=args;this.display=display;}
+
+    private static TypeDesc intern(TypeKind k,String n,List<TypeDesc> args,String display){
+        Key key=new Key(k,n,args);
+        TypeDesc t=INTERNED.get(key);
+        if(t!=null) return t;
+        return INTERNED.computeIfAbsent(key,()->new TypeDesc(k,n,null,args,display));
+    }
+    private static final TypeDesc NUM=intern(TypeKind.NUM,"num",List.of(),"num");
+    private static final TypeDesc DUO=intern(TypeKind.DUO,"duo",List.of(),"duo");
+    private static final TypeDesc SAB=intern(TypeKind.SAB,"sab",List.of(),"sab");
+    private static final TypeDesc KYA=intern(TypeKind.KYA,"kya",List.of(),"kya");
+    private static final TypeDesc KAAM=intern(TypeKind.KAAM,"kaam",List.of(),"kaam");
+    private static final TypeDesc ANY=intern(TypeKind.ANY,"any",List.of(),"any");
+    private static final TypeDesc NULL=intern(TypeKind.NULL,"null",List.of(),"null");
+    private static final TypeDesc WILDCARD=intern(TypeKind.WILDCARD,"_",List.of(),"_");
+    private static final TypeDesc UNKNOWN=new TypeDesc(TypeKind.UNKNOWN,"unknown",null,List.of(),"unknown");
+
+    public static TypeDesc num(){return NUM;}
+    public static TypeDesc duo(){return DUO;}
+    public static TypeDesc sab(){return SAB;}
+    public static TypeDesc kya(){return KYA;}
+    public static TypeDesc kaam(){return KAAM;}
+    public static TypeDesc any(){return ANY;}
+    public static TypeDesc nul(){return NULL;}
+    public static TypeDesc unknown(){return UNKNOWN;}
+    public static TypeDesc cls(String n){return intern(TypeKind.CLASS,n,List.of(),n);}
+    public static TypeDesc cls(String n,List<TypeDesc> args){
+        if(args.isEmpty()) return cls(n);
+        args=List.copyOf(args);
+        Key key=new Key(TypeKind.CLASS,n,args);
+        TypeDesc t=INTERNED.get(key);
+        if(t!=null) return t;
+        StringBuilder sb=new StringBuilder(n).append('<');
+        for(int i=0;i<args.size();i++){ if(i>0) sb.append(", "); sb.append(args.get(i).display); }
+        return intern(TypeKind.CLASS,n,args,sb.append('>').toString());
+    }
+    public static TypeDesc generic(String n){return intern(TypeKind.GENERIC,n,List.of(),n);}
+    public static TypeDesc array(TypeDesc el){
+        TypeDesc t=el.arrayOf;
+        if(t!=null) return t;
+        synchronized(el){
+            if(el.arrayOf==null) el.arrayOf=new TypeDesc(TypeKind.ARRAY,el.name+"[]",el,List.of(),el.display+"[]");
+            return el.arrayOf;
+        }
+    }
+    // An unrecognized spelling such as "ek": unknown to the checker, but reported as written
+    private static TypeDesc unknown(String spelling){
+        if(spelling.equals("unknown")) return UNKNOWN;
+        return INTERNED.computeIfAbsent(new Key(TypeKind.UNKNOWN,spelling,List.of()),()->new TypeDesc(TypeKind.UNKNOWN,"unknown",null,List.of(),spelling));
+    }
+
+    /** Canonical descriptor for a type string; results are memoized, so repeated spellings cost one map lookup. */
     public static TypeDesc parse(String raw){
-        if(raw==null) return unknown();
-        raw = raw.trim();
-    if(raw.equals("_")) return new TypeDesc(TypeKind.WILDCARD,"_",null);
+        if(raw==null) return UNKNOWN;
+        TypeDesc t=PARSED.get(raw);
+        if(t!=null) return t;
+        return PARSED.computeIfAbsent(raw,()->parseUncached(raw.trim()));
+    }
+    private static TypeDesc parseUncached(String raw){
+        if(raw.equals("_")) return WILDCARD;
         if(raw.endsWith("[]")) return array(parse(raw.substring(0,raw.length()-2)));
         int lt = raw.indexOf('<');
         if(lt>0 && raw.endsWith(">")){
             String base = raw.substring(0,lt);
-            String inner = raw.substring(lt+1, raw.length()-1).trim();
-            List<TypeDesc> args = new ArrayList<>();
-            if(!inner.isEmpty()){
-                int depth=0; StringBuilder current=new StringBuilder();
-                for(char c: inner.toCharArray()){
-                    if(c=='<' ) { depth++; current.append(c); }
-                    else if(c=='>' ){ depth--; current.append(c); }
-                    else if(c==',' && depth==0){ args.add(parse(current.toString().trim())); current.setLength(0); }
-                    else current.append(c);
+            if(isClassName(base)){
+                List<TypeDesc> args = new ArrayList<>();
+                int depth=0, start=lt+1, end=raw.length()-1;
+                for(int i=start;i<end;i++){
+                    char c=raw.charAt(i);
+                    if(c=='<') depth++;
+                    else if(c=='>') depth--;
+                    else if(c==',' && depth==0){ args.add(parse(raw.substring(start,i).trim())); start=i+1; }
                 }
-                if(current.length()>0) args.add(parse(current.toString().trim()));
+                String last=raw.substring(start,end).trim();
+                if(!last.isEmpty()) args.add(parse(last));
+                return cls(base,args);
             }
-            if(base.matches("[A-Z][A-Za-z0-9_]*")) return cls(base,args);
         }
         return switch(raw){
-            case "num"->num(); case "duo"->duo(); case "sab"->sab(); case "kya"->kya(); case "kaam"->kaam(); case "any"->any(); case "null"->nul();
-            default -> { if(raw.matches("[A-Z][A-Za-z0-9_]*")) yield cls(raw); if(raw.matches("[A-Z]")) yield generic(raw); yield unknown(); }
+            case "num"->NUM; case "duo"->DUO; case "sab"->SAB; case "kya"->KYA; case "kaam"->KAAM; case "any"->ANY; case "null"->NULL;
+            default -> isClassName(raw) ? cls(raw) : unknown(raw);
         };
     }
+    // [A-Z][A-Za-z0-9_]*
+    private static boolean isClassName(String s){
+        if(s.isEmpty()) return false;
+        char c=s.charAt(0);
+        if(c<'A'||c>'Z') return false;
+        for(int i=1;i<s.length();i++){
+            c=s.charAt(i);
+            if(!((c>='A'&&c<='Z')||(c>='a'&&c<='z')||(c>='0'&&c<='9')||c=='_')) return false;
+        }
+        return true;
+    }
     public boolean isNumeric(){ return kind==TypeKind.NUM || kind==TypeKind.DUO; }
     public boolean isArray(){ return kind==TypeKind.ARRAY; }
     public static boolean assignable(TypeDesc from, TypeDesc to){
@@ -62,7 +166,7 @@ public final class TypeDesc {
             for(int i=0;i<from.typeArgs.size();i++){
                 TypeDesc fa=from.typeArgs.get(i); TypeDesc ta=to.typeArgs.get(i);
                 if(ta.kind==TypeKind.WILDCARD || fa.kind==TypeKind.WILDCARD) continue; // wildcard matches anything at this position
-                if(!fa.equals(ta)) return false; 
+                if(!fa.equals(ta)) return false;
             }
             return true;
         }
@@ -73,23 +177,9 @@ public final class TypeDesc {
         if(to.kind==TypeKind.WILDCARD || from.kind==TypeKind.WILDCARD) return true;
         return false;
     }
-    @Override public String toString(){
-        // Reconstruct full type name including generics and arrays
-        if(kind==TypeKind.ARRAY){
-            return (element!=null? element.toString(): "unknown") + "[]";
-        }
-        if(kind==TypeKind.CLASS && typeArgs!=null && !typeArgs.isEmpty()){
-            StringBuilder sb = new StringBuilder(name);
-            sb.append("<");
-            for(int i=0;i<typeArgs.size();i++){
-                if(i>0) sb.append(", ");
-                sb.append(typeArgs.get(i).toString());
-            }
-            sb.append(">");
-            return sb.toString();
-        }
-        return name;
-    }
-    @Override public boolean equals(Object o){ if(this==o)return true; if(!(o instanceof TypeDesc t))return false; return kind==t.kind && Objects.equals(name,t.name) && Objects.equals(element,t.element) && Objects.equals(typeArgs,t.typeArgs);} 
-    @Override public int hashCode(){return Objects.hash(kind,name,element,typeArgs);} 
+    /** Full type name including generics and arrays, as written in source. */
+    @Override public String toString(){ return display; }
+    // Interned, so identity; all unknown spellings stay equal to each other as before interning
+    @Override public boolean equals(Object o){ return this==o || (kind==TypeKind.UNKNOWN && o instanceof TypeDesc t && t.kind==TypeKind.UNKNOWN); }
+    @Override public int hashCode(){ return kind==TypeKind.UNKNOWN ? TypeKind.UNKNOWN.hashCode() : System.identityHashCode(this); }
 }
@@ -14,6 +14,9 @@ public class TypeEnvironment {
     private final Map<String, Boolean> readSinceLastWrite = new HashMap<>();
     private final Map<String, SourceLocation> lastWriteLocation = new HashMap<>();
     private final TypeEnvironment parent;
+    // Set once declarations are resolved: shared scopes then stop tracking reads and writes, so body checks
+    // on several threads only read them
+    private boolean frozen;
 
     public TypeEnvironment() {
         this.parent = null;
@@ -30,16 +33,20 @@ public class TypeEnvironment {
         readSinceLastWrite.put(name, false);
     }
     public void defineTyped(String name, TypeDesc type) {
-        variables.put(name, type);
+        variables.put(name, type == null ? TypeDesc.unknown() : type);
         variableUsed.put(name, false);
         readSinceLastWrite.put(name, false);
     }
     public void recordLocation(String name, dhrlang.error.SourceLocation loc){
         if(loc!=null) variableLocations.put(name, loc);
     }
+    /** Makes this scope read-only for the body-checking phase; see {@link TypeChecker}. */
+    public void freeze(){
+        frozen = true;
+    }
     public void recordWrite(String name, SourceLocation loc){
         TypeEnvironment owner = findEnvironment(name);
-        if(owner!=null && owner.variables.containsKey(name)){
+        if(owner!=null && !owner.frozen && owner.variables.containsKey(name)){
             owner.readSinceLastWrite.put(name, false);
             if(loc!=null) owner.lastWriteLocation.put(name, loc);
         }
@@ -51,7 +58,7 @@ public class TypeEnvironment {
     }
     public boolean hadUnreadWrite(String name){
         TypeEnvironment owner = findEnvironment(name);
-        if(owner==null) return false;
+        if(owner==null || owner.frozen) return false;
         Boolean b = owner.readSinceLastWrite.get(name);
         return b!=null && !b;
     }
@@ -84,23 +91,27 @@ public class TypeEnvironment {
     }
 
     public String get(String name) {
-        if (variables.containsKey(name)) {
-            variableUsed.put(name, true);
-            readSinceLastWrite.put(name, true);
-            return variables.get(name).toString();
-        }
-        if (parent != null) return parent.get(name);
-        throw new TypeException("Undefined variable '" + name + "'");
+        return getDesc(name).toString();
     }
     public TypeDesc getDesc(String name) {
-        if (variables.containsKey(name)) {
-            variableUsed.put(name, true);
-            readSinceLastWrite.put(name, true);
-            return variables.get(name);
-        }
-        if (parent != null) return parent.getDesc(name);
+        TypeDesc type = lookupDesc(name);
+        if (type != null) return type;
         throw new TypeException("Undefined variable '" + name + "'");
     }
+    /** Like {@link #getDesc} but returns null instead of throwing for an undefined name. */
+    public TypeDesc lookupDesc(String name) {
+        for (TypeEnvironment e = this; e != null; e = e.parent) {
+            TypeDesc type = e.variables.get(name);
+            if (type != null) {
+                if (!e.frozen) {
+                    e.variableUsed.put(name, true);
+                    e.readSinceLastWrite.put(name, true);
+                }
+                return type;
+            }
+        }
+        return null;
+    }
 
     public FunctionSignature getFunction(String name) {
         if (functions.containsKey(name)) return functions.get(name);
@@ -118,6 +129,13 @@ public class TypeEnvironment {
 
         return false;
     }
+    public boolean hasLocal(String name) {
+        return variables.containsKey(name);
+    }
+    /** Type of a variable declared in this scope (not parents), or null; does not mark it as used. */
+    public TypeDesc getLocalDesc(String name) {
+        return variables.get(name);
+    }
     public Map<String, String> getLocalFields() {
         Map<String,String> m=new HashMap<>();
         for(var e: variables.entrySet()) m.put(e.getKey(), e.getValue().toString());
@@ -0,0 +1,90 @@
+package dhrlang.util;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.CodeSource;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+/**
+ * Short id of the compiler build. A jar built by Gradle carries it as the {@code Build-Id} manifest attribute, a
+ * hash of its classes and dependencies taken at build time. A development build in a class directory, or a jar
+ * without the attribute, gets a key over the names, sizes and modification times of its files. Two builds with the
+ * same version string still differ here, so compile caches and daemons keyed on it notice a rebuilt compiler.
+ */
+public final class BuildFingerprint {
+    private BuildFingerprint() {}
+
+    static final String BUILD_ID = "Build-Id";
+
+    private static volatile String current;
+
+    /** Fingerprint of the running compiler, computed on first use; "unknown" when its code cannot be read. */
+    public static String current(){
+        String f = current;
+        if(f == null){
+            CodeSource source = BuildFingerprint.class.getProtectionDomain().getCodeSource();
+            try {
+                f = source == null ? "unknown" : of(Path.of(source.getLocation().toURI()));
+            } catch(URISyntaxException | RuntimeException e){
+                f = "unknown";
+            }
+            current = f;
+        }
+        return f;
+    }
+
+    /** Fingerprint of the jar file or class directory at {@code location}. */
+    static String of(Path location){
+        try {
+            boolean directory = Files.isDirectory(location);
+            if(!directory){
+                String id = buildId(location);
+                if(id != null) return id;
+            }
+            // Metadata only, and no digest provider to load: reading every byte cost hundreds of milliseconds
+            // on each start. Per-file hashes are summed, so the walk order does not matter.
+            long[] sum = { 0 };
+            Files.walkFileTree(location, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs){
+                    String name = (directory ? location.relativize(file) : file.getFileName()).toString().replace('\\', '/');
+                    long h = 0xcbf29ce484222325L;
+                    for(int i = 0; i < name.length(); i++) h = (h ^ name.charAt(i)) * 0x100000001b3L;
+                    h = mix(h ^ attrs.size());
+                    h = mix(h ^ attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS));
+                    sum[0] += h;
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            String hex = Long.toHexString(mix(sum[0]));
+            return "0".repeat(16 - hex.length()).concat(hex).substring(0, 12);
+        } catch(IOException | RuntimeException e){
+            return "unknown";
+        }
+    }
+
+    // The Build-Id stamped into the jar's manifest, or null when it has none or is not a jar
+    private static String buildId(Path jar){
+        try(JarFile file = new JarFile(jar.toFile(), false)){
+            Manifest manifest = file.getManifest();
+            String id = manifest == null ? null : manifest.getMainAttributes().getValue(BUILD_ID);
+            return id == null || id.isBlank() ? null : id.trim();
+        } catch(IOException e){
+            return null;
+        }
+    }
+
+    // splitmix64 finalizer
+    private static long mix(long z){
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,349 @@
+package dhrlang.util;
+
+import dhrlang.ast.ASTNode;
+import dhrlang.ast.ClassDecl;
+import dhrlang.ast.InterfaceDecl;
+import dhrlang.ast.Program;
+import dhrlang.error.ErrorReporter;
+import dhrlang.lexer.Lexer;
+import dhrlang.lexer.TokenBuffer;
+import dhrlang.lexer.TokenSource;
+import dhrlang.lexer.TokenType;
+import dhrlang.parser.ParallelParser;
+import dhrlang.parser.ParseException;
+import dhrlang.parser.Parser;
+import dhrlang.typechecker.TypeChecker;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * One source file kept compiled across edits, for on-type diagnostics. The session remembers the tokens, AST and
+ * body diagnostics of every top-level declaration. An edit inside a declaration re-lexes and re-parses just that
+ * declaration and re-checks just its body. If its signature (header, fields and method headers) changed, the
+ * bodies of the declarations that name it, or that resolved it when last checked (say through another class's
+ * return type), are re-checked too, and so on through their subclasses and implementations. Declarations are always resolved again, which is cheap next to body checking.
+ *
+ * <p>An edit that adds or removes lines moves the declarations below it and their kept diagnostics. Their ASTs still
+ * hold the old lines, so a moved declaration is re-parsed (not re-checked) only once its body must be checked again
+ * or the program has diagnostics outside bodies, whose locations could point into it. Any other edit, such as one
+ * between declarations or one that moves a declaration's closing brace, re-parses the whole file. It still reuses
+ * the diagnostics of declarations whose text did not change. The diagnostics after every update equal those of a
+ * full {@link MiniRunner#compile}.
+ */
+public final class CompilationSession {
+    private final String name;
+    private String source;
+    // Declarations in source order; stale while the source does not split into declarations (broken)
+    private List<Decl> decls = new ArrayList<>();
+    private boolean broken;
+    // Names of checked declarations removed since the last type check
+    private final Set<String> removed = new HashSet<>();
+    private ErrorReporter diagnostics;
+    private int reparsed;
+    private int rechecked;
+
+    public CompilationSession(String name, String source) {
+        this.name = name;
+        replace(source);
+    }
+
+    /** Diagnostics of the current source, as a full compile of it would report them. */
+    public synchronized ErrorReporter diagnostics() { return diagnostics; }
+    public synchronized String source() { return source; }
+    /** Declarations re-parsed by the last update. */
+    public synchronized int reparsed() { return reparsed; }
+    /** Declaration bodies re-checked by the last update. */
+    public synchronized int rechecked() { return rechecked; }
+
+    /** Replaces the whole text, reusing what it can from declarations whose text is unchanged. */
+    public synchronized ErrorReporter replace(String text) {
+        source = text;
+        rebuild();
+        return recheck();
+    }
+
+    /** Replaces {@code length} characters at {@code offset} with {@code text} and returns the new diagnostics. */
+    public synchronized ErrorReporter edit(int offset, int length, String text) {
+        if (offset < 0 || length < 0 || offset + length > source.length()) {
+            throw new IllegalArgumentException("Edit [" + offset + ", " + (offset + length) + ") is outside the source (length " + source.length() + ")");
+        }
+        String old = source;
+        source = old.substring(0, offset) + text + old.substring(offset + length);
+        reparsed = 0;
+        if (broken || !reparse(offset, length, text, old)) rebuild();
+        return recheck();
+    }
+
+    // Re-parses the declaration containing the edit, and those below it when lines moved; false to rebuild instead
+    private boolean reparse(int offset, int length, String text, String old) {
+        int index = -1;
+        for (int i = 0; i < decls.size(); i++) {
+            Decl d = decls.get(i);
+            if (d.start <= offset && offset < d.end && offset + length <= d.end) { index = i; break; }
+        }
+        if (index < 0) return false;
+        Decl d = decls.get(index);
+        // A following declaration on the same line would change columns
+        if (index + 1 < decls.size() && decls.get(index + 1).line == d.endLine) return false;
+
+        int delta = text.length() - length;
+        int lines = newlines(text, 0, text.length()) - newlines(old, offset, offset + length);
+        Decl edited = parse(d.start, d.end + delta, d.line, d.column);
+        if (edited == null) return false;
+        edited.keepChecked(d, false);
+        decls.set(index, edited);
+        reparsed++;
+        for (Decl below : decls.subList(index + 1, decls.size())) {
+            below.start += delta;
+            below.end += delta;
+            below.line += lines;
+            below.endLine += lines;
+        }
+        return true;
+    }
+
+    // Re-parses a moved declaration so its AST has its current lines
+    private Decl refresh(int index) {
+        Decl d = decls.get(index);
+        Decl fresh = parse(d.start, d.end, d.line, d.column);
+        if (fresh == null) throw new IllegalStateException("Unchanged declaration no longer parses at " + d.line + ":" + d.column);
+        fresh.keepChecked(d, true);
+        decls.set(index, fresh);
+        reparsed++;
+        return fresh;
+    }
+
+    // Lexes the whole source to find the declarations and parses each; falls back to a plain compile when it cannot
+    private void rebuild() {
+        ErrorReporter lexErrors = container();
+        TokenBuffer tokens = new Lexer(source, lexErrors).scan();
+        List<int[]> ranges = lexErrors.hasErrors() ? null : ParallelParser.split(TokenSource.of(tokens.asList()));
+        List<Decl> next = ranges == null ? null : new ArrayList<>(ranges.size());
+        for (int r = 0; next != null && r < ranges.size(); r++) {
+            int first = ranges.get(r)[0], last = ranges.get(r)[1] - 1;
+            Decl d = parse(tokens.startOffset(first), tokens.endOffset(last), tokens.line(first), tokens.column(first));
+            if (d == null) next = null;
+            else next.add(d);
+        }
+        reparsed = next == null ? 0 : next.size();
+        if (next == null) {
+            broken = true;
+            return;
+        }
+
+        // Unchanged declarations keep their checked state; the names of vanished ones invalidate their users
+        Map<String, ArrayDeque<Decl>> unchanged = new HashMap<>();
+        for (Decl d : decls) unchanged.computeIfAbsent(d.text + '@' + d.column, k -> new ArrayDeque<>()).add(d);
+        for (Decl d : next) {
+            ArrayDeque<Decl> same = unchanged.get(d.text + '@' + d.column);
+            if (same != null && !same.isEmpty()) d.keepChecked(same.poll(), true);
+        }
+        for (ArrayDeque<Decl> gone : unchanged.values()) {
+            for (Decl d : gone) if (d.checkedName != null) removed.add(d.checkedName);
+        }
+        decls = next;
+        broken = false;
+    }
+
+    // Lexes and parses source[start, end) as one declaration; null when it is not exactly one declaration
+    private Decl parse(int start, int end, int line, int column) {
+        ErrorReporter errors = container();
+        TokenBuffer tokens = new Lexer(source, start, end, line, column, errors).scan();
+        if (errors.hasErrors()) return null;
+        TokenSource tokenSource = TokenSource.of(tokens.asList());
+        List<int[]> ranges = ParallelParser.split(tokenSource);
+        if (ranges == null || ranges.size() != 1 || ranges.get(0)[1] != tokens.size() - 1) return null;
+
+        ASTNode ast;
+        try {
+            ast = (ASTNode) new Parser(tokenSource, errors).parseDeclaration();
+            if (ast == null) return null;
+        } catch (ParseException e) {
+            // Failing at the region's end means the parser wanted tokens past it
+            if (e.getToken() == null || e.getToken().getType() == TokenType.EOF) return null;
+            ast = null;
+        }
+        return new Decl(source.substring(start, end), start, end, line, column, tokens, ast, errors);
+    }
+
+    private ErrorReporter recheck() {
+        if (broken) {
+            // Lexical errors or unbalanced braces: nothing to reuse, report exactly what a compile reports
+            rechecked = 0;
+            diagnostics = new ErrorReporter(name, source);
+            MiniRunner.compile(source, diagnostics);
+            return diagnostics;
+        }
+        diagnostics = new ErrorReporter(name, source);
+        for (int i = 0; i < decls.size(); i++) {
+            // A full parse stops at the first declaration that fails to parse
+            Decl d = decls.get(i);
+            if (d.ast == null && d.moved()) d = refresh(i);
+            if (d.ast == null) {
+                rechecked = 0;
+                diagnostics.merge(d.parseErrors);
+                return diagnostics;
+            }
+        }
+
+        Set<String> changed = new HashSet<>(removed);
+        Set<Decl> dirty = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Decl d : decls) {
+            boolean signatureChanged = !Objects.equals(d.signature, d.checkedSignature) || !Objects.equals(d.name, d.checkedName);
+            if (signatureChanged) {
+                changed.add(d.name);
+                if (d.checkedName != null) changed.add(d.checkedName);
+            }
+            if (signatureChanged || d.body == null) dirty.add(d);
+        }
+        // Users of a changed name, by text or by resolution, are re-checked; a subtype of one changes with it
+        for (boolean grew = !changed.isEmpty(); grew; ) {
+            grew = false;
+            for (Decl d : decls) {
+                if (!dirty.contains(d) && (!Collections.disjoint(d.identifiers, changed)
+                        || (d.references != null && !Collections.disjoint(d.references, changed)))) dirty.add(d);
+                if (dirty.contains(d) && !changed.contains(d.name) && !Collections.disjoint(d.header, changed)) {
+                    changed.add(d.name);
+                    grew = true;
+                }
+            }
+        }
+
+        Map<ASTNode, Decl> byAst = new IdentityHashMap<>();
+        List<ClassDecl> classes = new ArrayList<>();
+        List<InterfaceDecl> interfaces = new ArrayList<>();
+        boolean moved = false;
+        for (int k = 0; k < decls.size(); k++) {
+            Decl d = decls.get(k);
+            if (d.moved() && dirty.remove(d)) dirty.add(d = refresh(k));
+            moved |= d.moved();
+            byAst.put(d.ast, d);
+            if (d.ast instanceof InterfaceDecl i) interfaces.add(i);
+            else classes.add((ClassDecl) d.ast);
+        }
+        Program program = new Program(classes, interfaces);
+        rechecked = dirty.size();
+        int[] outsideBodies = new int[1];
+        new TypeChecker(diagnostics).check(program, ast -> {
+            Decl d = byAst.get(ast);
+            if (!dirty.contains(d)) return null;
+            d.body = container();
+            d.bodyLine = d.line;
+            return d.body;
+        }, ast -> byAst.get(ast).references = new HashSet<>(), () -> {
+            outsideBodies[0] = count(diagnostics);
+            for (InterfaceDecl i : interfaces) diagnostics.merge(byAst.get(i).body, byAst.get(i).line - byAst.get(i).bodyLine);
+            for (ClassDecl c : classes) diagnostics.merge(byAst.get(c).body, byAst.get(c).line - byAst.get(c).bodyLine);
+            outsideBodies[0] -= count(diagnostics);
+        });
+        outsideBodies[0] += count(diagnostics);
+        for (Decl d : decls) {
+            d.checkedName = d.name;
+            d.checkedSignature = d.signature;
+        }
+        removed.clear();
+        if (moved && outsideBodies[0] > 0) {
+            // Resolution or entry-point diagnostics may be located in a moved declaration's stale AST
+            int rechecks = rechecked;
+            for (int i = 0; i < decls.size(); i++) if (decls.get(i).moved()) refresh(i);
+            recheck();
+            rechecked = rechecks;
+        }
+        return diagnostics;
+    }
+
+    private static int count(ErrorReporter er) {
+        return er.getErrorCount() + er.getWarningCount();
+    }
+
+    // Holds diagnostics for merging into the real reporter, which applies the source's suppressions
+    private ErrorReporter container() {
+        return new ErrorReporter(name, "");
+    }
+
+    private static int newlines(String s, int from, int to) {
+        int n = 0;
+        for (int i = from; i < to; i++) if (s.charAt(i) == '\n') n++;
+        return n;
+    }
+
+    private static final class Decl {
+        final String text;
+        int start;
+        int end;
+        int line;
+        final int column;
+        int endLine;
+        final int astLine; // line the AST was parsed at
+        final ASTNode ast; // null when it failed to parse
+        final ErrorReporter parseErrors;
+        final String name;
+        // Header, fields and method headers: the tokens outside method bodies
+        final String signature;
+        final Set<String> identifiers = new HashSet<>();
+        // Identifiers before the body, i.e. the supertypes and type bounds
+        final Set<String> header = new HashSet<>();
+
+        // From the last type check that included this declaration's text (body) or name (the rest)
+        ErrorReporter body;
+        int bodyLine;
+        Set<String> references; // class and interface names the body check looked up
+        String checkedName;
+        String checkedSignature;
+
+        Decl(String text, int start, int end, int line, int column, TokenBuffer tokens, ASTNode ast, ErrorReporter parseErrors) {
+            this.text = text;
+            this.start = start;
+            this.end = end;
+            this.line = line;
+            this.astLine = line;
+            this.column = column;
+            this.endLine = tokens.line(tokens.size() - 2);
+            this.ast = ast;
+            this.parseErrors = parseErrors;
+            this.name = ast instanceof ClassDecl c ? c.getName() : ast instanceof InterfaceDecl i ? i.getName() : null;
+            StringBuilder sig = new StringBuilder();
+            int depth = 0;
+            boolean inHeader = true;
+            for (int t = 0; t < tokens.size() - 1; t++) {
+                TokenType type = tokens.type(t);
+                if (type == TokenType.RBRACE) depth--;
+                if (type == TokenType.IDENTIFIER) {
+                    identifiers.add(tokens.lexeme(t));
+                    if (inHeader) header.add(tokens.lexeme(t));
+                }
+                if (depth <= 1) sig.append(tokens.lexeme(t)).append(' ');
+                if (type == TokenType.LBRACE) {
+                    depth++;
+                    inHeader = false;
+                }
+            }
+            this.signature = sig.toString();
+            if (name != null) header.remove(name);
+        }
+
+        boolean moved() {
+            return line != astLine;
+        }
+
+        // Takes over what the last check recorded for `from`; its body diagnostics only if the text is the same
+        void keepChecked(Decl from, boolean sameText) {
+            checkedName = from.checkedName;
+            checkedSignature = from.checkedSignature;
+            if (sameText) {
+                body = from.body;
+                bodyLine = from.bodyLine;
+                references = from.references;
+            }
+        }
+    }
+}
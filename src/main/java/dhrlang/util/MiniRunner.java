@@ -1,54 +1,113 @@
 package dhrlang.util;
 
 import dhrlang.ast.Program;
+import dhrlang.bytecode.BytecodeVM;
+import dhrlang.bytecode.BytecodeWriter;
 import dhrlang.error.ErrorReporter;
 import dhrlang.interpreter.Interpreter;
+import dhrlang.ir.AstToIrLowerer;
+import dhrlang.ir.IrInterpreter;
+import dhrlang.ir.IrProgram;
 import dhrlang.lexer.Lexer;
-import dhrlang.lexer.Token;
 import dhrlang.parser.ParseException;
 import dhrlang.parser.Parser;
+import dhrlang.runtime.ExecutionBudget;
+import dhrlang.runtime.OutputSink;
 import dhrlang.typechecker.TypeChecker;
 
+import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
-import java.io.PrintStream;
+import java.io.StringReader;
 import java.nio.charset.StandardCharsets;
-import java.util.List;
 
+/**
+ * In-process compile-and-run of one source string. Every run gets its own output sinks and error reporter
+ * and touches no global streams, so any number of runs may proceed concurrently in one JVM.
+ */
 public final class MiniRunner {
     private MiniRunner() {}
 
+    public enum Backend { AST, IR, BYTECODE }
+
+    /** How a run ended. An internal error is a failure of the toolchain itself rather than of the program. */
+    public enum Status { OK, COMPILE_ERROR, RUNTIME_ERROR, INTERNAL_ERROR }
+
     public static class Result {
         public final String stdout, stderr; public final boolean hadCompileErrors, hadRuntimeError; public Result(String o,String e,boolean c,boolean r){stdout=o;stderr=e;hadCompileErrors=c;hadRuntimeError=r;}
     }
 
-    public static Result run(String source){
-        ErrorReporter er = new ErrorReporter();
+    /** Runs {@code source} on the AST interpreter, capturing its output. */
+    public static Result run(String source){ return run(source, Backend.AST); }
+
+    /** Runs {@code source} on {@code backend}, capturing program output and diagnostics as strings. */
+    public static Result run(String source, Backend backend){
         ByteArrayOutputStream outBuf = new ByteArrayOutputStream();
         ByteArrayOutputStream errBuf = new ByteArrayOutputStream();
-        PrintStream oOut = System.out, oErr = System.err;
-        System.setOut(new PrintStream(outBuf, true, StandardCharsets.UTF_8));
-        System.setErr(new PrintStream(errBuf, true, StandardCharsets.UTF_8));
-        boolean compileErr=false;
+        ErrorReporter er = new ErrorReporter("unknown", source);
+        er.setColorEnabled(false);
+        Status status = run(source, backend, new OutputSink(outBuf, 0), new OutputSink(errBuf, 0), er);
+        return new Result(outBuf.toString(StandardCharsets.UTF_8), errBuf.toString(StandardCharsets.UTF_8),
+                status == Status.COMPILE_ERROR || status == Status.INTERNAL_ERROR,
+                status == Status.RUNTIME_ERROR || status == Status.INTERNAL_ERROR);
+    }
+
+    /**
+     * Compiles {@code source} and runs it on {@code backend}. The program prints to {@code out}. Compile
+     * diagnostics collected in {@code er} and any runtime error are written to {@code err}. Both sinks are
+     * flushed before this returns.
+     */
+    public static Status run(String source, Backend backend, OutputSink out, OutputSink err, ErrorReporter er){
+        return run(source, backend, out, err, er, null);
+    }
+
+    /**
+     * Like {@link #run(String, Backend, OutputSink, OutputSink, ErrorReporter)} for hosts running programs nobody
+     * is attending to. A non-null {@code budget} replaces the backend's default limits, and {@code readLine} then
+     * sees an empty standard input instead of blocking on the host's.
+     */
+    public static Status run(String source, Backend backend, OutputSink out, OutputSink err, ErrorReporter er, ExecutionBudget budget){
         try {
-            Lexer lexer = new Lexer(source, er);
-            List<Token> tokens = lexer.scanTokens();
-            if(er.hasErrors()) return new Result(outBuf.toString(), errBuf.toString(), true,false);
-            Parser parser = new Parser(tokens, er); Program program=null; try { program = parser.parse(); } catch(ParseException e){ compileErr=true; }
-            if(er.hasErrors() || program==null) return new Result(outBuf.toString(), errBuf.toString(), true,false);
-            TypeChecker tc = new TypeChecker(er); tc.check(program); if(er.hasErrors()) return new Result(outBuf.toString(), errBuf.toString(), true,false);
+            Program program = compile(source, er);
+            IrProgram ir = program == null || er.hasErrors() || backend == Backend.AST ? null : new AstToIrLowerer(er).lower(program);
+            if(program == null || er.hasErrors()){
+                er.printAllErrors(err);
+                return Status.COMPILE_ERROR;
+            }
             try {
-                new Interpreter().execute(program);
-            } catch (dhrlang.interpreter.DhrRuntimeException e){
-                if(errBuf.size()==0){
-                    String msg = String.valueOf(e.getMessage());
-                    errBuf.write(msg.getBytes(StandardCharsets.UTF_8));
+                switch(backend){
+                    case AST -> {
+                        Interpreter interpreter = new Interpreter();
+                        interpreter.setOutput(out);
+                        if(budget != null){ interpreter.setBudget(budget); interpreter.setInput(new BufferedReader(new StringReader(""))); }
+                        interpreter.execute(program);
+                    }
+                    case IR -> { IrInterpreter interpreter = new IrInterpreter(null, null, budget); interpreter.setOutput(out); interpreter.execute(ir); }
+                    case BYTECODE -> {
+                        byte[] code = new BytecodeWriter().write(ir);
+                        if(budget != null) BytecodeVM.load(code).newExecution(out, budget).run();
+                        else { BytecodeVM vm = new BytecodeVM(); vm.setOutput(out); vm.execute(code); }
+                    }
                 }
-                return new Result(outBuf.toString(StandardCharsets.UTF_8), errBuf.toString(StandardCharsets.UTF_8), compileErr, true);
+            } catch (dhrlang.interpreter.DhrRuntimeException | dhrlang.interpreter.RuntimeError e){
+                err.println(String.valueOf(e.getMessage()));
+                return Status.RUNTIME_ERROR;
             }
-            return new Result(outBuf.toString(), errBuf.toString(), compileErr,false);
+            return Status.OK;
         } catch(Exception ex){
             String exMsg = ex.getMessage() == null ? ex.getClass().getName() : ex.getMessage();
-            return new Result(outBuf.toString(StandardCharsets.UTF_8), errBuf.toString(StandardCharsets.UTF_8)+"\nEX:"+exMsg, true,true);
+            err.println("EX:"+exMsg);
+            return Status.INTERNAL_ERROR;
+        } finally {
+            out.flush();
+            err.flush();
         }
-        finally { System.setOut(oOut); System.setErr(oErr);} }
-}
\ No newline at end of file
+    }
+
+    /** Lexes, parses and type-checks {@code source} into {@code er}; null when parsing gave up. */
+    public static Program compile(String source, ErrorReporter er){
+        Parser parser = new Parser(new Lexer(source, er).stream(), er); Program program=null; try { program = parser.parse(); } catch(ParseException e){ return null; }
+        if(er.hasErrors() || program==null) return null;
+        TypeChecker tc = new TypeChecker(er); tc.check(program);
+        return program;
+    }
+}
@@ -54,6 +54,22 @@ public class CliSmokeTest {
         "JSON output should contain 'errors' and 'warnings'. Got: " + result);
     }
 
+    @Test
+    void checkDoesNotRunACachedProgram() throws Exception {
+        File tmp = File.createTempFile("dhr-check-cache-", ".dhr");
+        try (FileWriter fw = new FileWriter(tmp)) {
+            fw.write("class Main { static kaam main() { printLine(\"ran\"); } }");
+        }
+        File cacheDir = java.nio.file.Files.createTempDirectory("dhr-check-cache").toFile();
+        String cache = "--cache-dir=" + cacheDir.getAbsolutePath();
+        String run = runWithJarOrClasspath("--backend=bytecode", cache, tmp.getAbsolutePath());
+        assertTrue(run.startsWith("0\n") && run.contains("ran"), "First run fills the cache. Got: " + run);
+        for (int i = 0; i < 2; i++) {
+            String check = runWithJarOrClasspath("--check", "--backend=bytecode", cache, tmp.getAbsolutePath());
+            assertTrue(check.startsWith("0\n") && !check.contains("ran"), "--check must not execute. Got: " + check);
+        }
+    }
+
     private String runWithJarOrClasspath(String... toolArgs) throws IOException, InterruptedException {
         // Prefer running the assembled jar if present, but fall back to classpath execution to keep tests
         // robust when run without a prior `gradle build`.
@@ -75,4 +75,21 @@ public class DiagnosticsSchemaValidationTest {
         Set<ValidationMessage> msgs = schema.validate(node);
         assertTrue(msgs.isEmpty(), () -> "Schema violations: " + msgs);
     }
+
+    @Test
+    void directoryCheckEmitsOneSchemaDocumentPerFile() throws Exception {
+        java.nio.file.Path dir = java.nio.file.Files.createTempDirectory("dhr-schema-dir-");
+        java.nio.file.Files.writeString(dir.resolve("ok.dhr"), "class Main { static kaam main() { num unused = 1; } }");
+        java.nio.file.Files.writeString(dir.resolve("bad.dhr"), "class Main { static kaam main() { num x = ; } }");
+        dhrlang.batch.DirectoryCompiler.Report report = new dhrlang.batch.DirectoryCompiler(2, false)
+                .compile(dhrlang.batch.DirectoryCompiler.discover(dir));
+        JsonSchema schema = JsonSchemaFactory.getInstance(SpecVersion.VersionFlag.V7)
+                .getSchema(MAPPER.readTree(new File("diagnostics.schema.json")));
+        String[] lines = dhrlang.batch.DirectoryCompiler.toJsonLines(report).split("\n");
+        assertEquals(2, lines.length);
+        for (String line : lines) {
+            Set<ValidationMessage> msgs = schema.validate(MAPPER.readTree(line));
+            assertTrue(msgs.isEmpty(), () -> "Schema violations: " + msgs + " in " + line);
+        }
+    }
 }
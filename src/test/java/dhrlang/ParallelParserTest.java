@@ -0,0 +1,83 @@
+package dhrlang;
+
+import dhrlang.ast.ClassDecl;
+import dhrlang.ast.Program;
+import dhrlang.error.DhrError;
+import dhrlang.error.ErrorReporter;
+import dhrlang.lexer.Lexer;
+import dhrlang.parser.ParallelParser;
+import dhrlang.parser.ParseException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelParserTest {
+
+    private static String program(int classes, int... broken) {
+        StringBuilder sb = new StringBuilder();
+        for (int c = 0; c < classes; c++) {
+            if (c % 5 == 0) sb.append("interface I").append(c).append(" { kaam run(); }\n");
+            boolean bad = false;
+            for (int b : broken) bad |= b == c;
+            sb.append("class C").append(c).append(" {\n");
+            sb.append("  num[] values = new num[").append(c + 1).append("];\n");
+            sb.append("  kaam f(num x) { if (x > 0) { printLine(x); } ").append(bad ? "num = ;" : "").append("}\n");
+            sb.append("  static num g() { Box<num> b = new Box<num>(); return 1; }\n");
+            sb.append("}\n");
+        }
+        return sb.toString();
+    }
+
+    private static Object parseWith(String threads, String code, ErrorReporter er) {
+        String prev = System.getProperty("dhrlang.parse.threads");
+        System.setProperty("dhrlang.parse.threads", threads);
+        try {
+            return ParallelParser.parse(new Lexer(code, er).scanTokens(), er);
+        } catch (ParseException e) {
+            return e;
+        } finally {
+            if (prev == null) System.clearProperty("dhrlang.parse.threads");
+            else System.setProperty("dhrlang.parse.threads", prev);
+        }
+    }
+
+    private static List<String> shape(Program p) {
+        List<String> out = new ArrayList<>();
+        for (ClassDecl c : p.getClasses()) out.add(c.getName() + "/" + c.getFunctions().size() + "/" + c.getVariables().size());
+        p.getInterfaces().forEach(i -> out.add(i.getName()));
+        return out;
+    }
+
+    @Test
+    void parallelParseBuildsSameProgram() {
+        String code = program(40);
+        Program serial = (Program) parseWith("1", code, new ErrorReporter("p.dhr", code));
+        Program parallel = (Program) parseWith("4", code, new ErrorReporter("p.dhr", code));
+        assertEquals(40, serial.getClasses().size());
+        assertEquals(shape(serial), shape(parallel));
+    }
+
+    @Test
+    void parallelParseReportsOnlyFirstErrorLikeSerial() {
+        String code = program(40, 12, 30);
+        ErrorReporter serialEr = new ErrorReporter("p.dhr", code);
+        ErrorReporter parallelEr = new ErrorReporter("p.dhr", code);
+        assertInstanceOf(ParseException.class, parseWith("1", code, serialEr));
+        assertInstanceOf(ParseException.class, parseWith("4", code, parallelEr));
+        List<String> serial = serialEr.getErrors().stream().map(e -> e.getLocation().getLine() + ":" + e.getMessage()).toList();
+        assertEquals(1, serial.size(), serial::toString);
+        assertEquals(serial, parallelEr.getErrors().stream().map(e -> e.getLocation().getLine() + ":" + e.getMessage()).toList());
+    }
+
+    @Test
+    void unbalancedBracesFallBackToSerialParse() {
+        String code = program(20) + "}";
+        ErrorReporter er = new ErrorReporter("p.dhr", code);
+        assertInstanceOf(ParseException.class, parseWith("4", code, er));
+        assertEquals(1, er.getErrorCount());
+        for (DhrError e : er.getErrors()) assertEquals(code.split("\n", -1).length, e.getLocation().getLine());
+    }
+}
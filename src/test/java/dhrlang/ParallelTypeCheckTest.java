@@ -0,0 +1,56 @@
+package dhrlang;
+
+import dhrlang.ast.Program;
+import dhrlang.error.DhrError;
+import dhrlang.error.ErrorReporter;
+import dhrlang.lexer.Lexer;
+import dhrlang.parser.Parser;
+import dhrlang.typechecker.TypeChecker;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelTypeCheckTest {
+
+    private static String program() {
+        StringBuilder sb = new StringBuilder();
+        for (int c = 0; c < 24; c++) {
+            sb.append("class C").append(c).append(" {\n");
+            sb.append("  static num base = ").append(c).append(";\n");
+            sb.append("  static num ok() { num a = base + 1; return a; }\n");
+            sb.append("  static kaam bad() { num x = \"s").append(c).append("\"; num unused = 2; }\n");
+            sb.append("}\n");
+        }
+        sb.append("class Main { static kaam main() { printLine(C3.ok()); } }\n");
+        return sb.toString();
+    }
+
+    private static List<String> diagnostics(String threads) {
+        String prev = System.getProperty("dhrlang.typecheck.threads");
+        System.setProperty("dhrlang.typecheck.threads", threads);
+        try {
+            String code = program();
+            ErrorReporter er = new ErrorReporter("par.dhr", code);
+            Program prog = new Parser(new Lexer(code, er).scanTokens(), er).parse();
+            new TypeChecker(er).check(prog);
+            List<String> out = new ArrayList<>();
+            for (DhrError e : er.getErrors()) out.add("E " + e.getLocation().getLine() + " " + e.getMessage());
+            for (DhrError w : er.getWarnings()) out.add("W " + w.getLocation().getLine() + " " + w.getMessage());
+            return out;
+        } finally {
+            if (prev == null) System.clearProperty("dhrlang.typecheck.threads");
+            else System.setProperty("dhrlang.typecheck.threads", prev);
+        }
+    }
+
+    @Test
+    void parallelBodiesReportSameDiagnosticsInSameOrder() {
+        List<String> serial = diagnostics("1");
+        assertTrue(serial.stream().filter(s -> s.startsWith("E ")).count() >= 24, "Expected one mismatch per class: " + serial);
+        assertEquals(serial, diagnostics("4"));
+        assertEquals(serial, diagnostics("4"));
+    }
+}
@@ -0,0 +1,55 @@
+package dhrlang;
+
+import dhrlang.ast.Program;
+import dhrlang.error.ErrorReporter;
+import dhrlang.error.SourceLocation;
+import dhrlang.lexer.Lexer;
+import dhrlang.parser.Parser;
+import dhrlang.runtime.OutputSink;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SourceLocationPackingTest {
+
+    @Test
+    void packRoundTripsLineAndColumn() {
+        for (int[] lc : new int[][]{{0, 0}, {1, 1}, {42, 7}, {Integer.MAX_VALUE, Integer.MAX_VALUE}}) {
+            SourceLocation loc = SourceLocation.unpack(SourceLocation.pack(lc[0], lc[1]));
+            assertEquals(lc[0], loc.getLine());
+            assertEquals(lc[1], loc.getColumn());
+        }
+        assertNull(SourceLocation.unpack(SourceLocation.NONE));
+        assertEquals(SourceLocation.NONE, SourceLocation.pack(null));
+    }
+
+    @Test
+    void astNodesKeepTokenPositions() {
+        String code = "class Main {\n  static kaam main() {\n    num x = 1 +\n        2;\n  }\n}\n";
+        Program p = new Parser(new Lexer(code).scanTokens()).parse();
+        SourceLocation cls = p.getClasses().get(0).getSourceLocation();
+        assertEquals(1, cls.getLine());
+        SourceLocation main = p.getClasses().get(0).getFunctions().get(0).getSourceLocation();
+        assertEquals(2, main.getLine());
+    }
+
+    @Test
+    void sourceContextUsesLineIndex() {
+        String code = "class Main {\n  static kaam main() {\n    num x = \"s\";\n  }\n}\n\n\n";
+        ErrorReporter er = new ErrorReporter("ctx.dhr", code);
+        er.setColorEnabled(false);
+        er.error(SourceLocation.unpack(SourceLocation.pack(3, 5)), "bad");
+        er.error(SourceLocation.unpack(SourceLocation.pack(99, 1)), "past end");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OutputSink out = new OutputSink(bytes, 0);
+        er.printAllErrors(out);
+        out.flush();
+        String text = bytes.toString(StandardCharsets.UTF_8);
+        assertTrue(text.contains("→ 3 │     num x = \"s\";"), text);
+        assertTrue(text.contains("  1 │ class Main {"), text);
+        assertTrue(text.contains("→ 5 │ }"), "Past-the-end errors point at the last non-empty line: " + text);
+    }
+}
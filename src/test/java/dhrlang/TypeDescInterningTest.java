@@ -0,0 +1,57 @@
+package dhrlang;
+
+import dhrlang.typechecker.TypeDesc;
+import dhrlang.typechecker.TypeKind;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TypeDescInterningTest {
+    @Test
+    void sameTypeIsSameInstance() {
+        assertSame(TypeDesc.num(), TypeDesc.parse("num"));
+        assertSame(TypeDesc.parse("num[][]"), TypeDesc.array(TypeDesc.array(TypeDesc.num())));
+        assertSame(TypeDesc.parse("Map<num,sab>"), TypeDesc.parse(" Map<num, sab> "));
+        assertSame(TypeDesc.parse("Box<List<num>>[]"), TypeDesc.array(TypeDesc.cls("Box", List.of(TypeDesc.parse("List<num>")))));
+        assertNotSame(TypeDesc.parse("List<num>"), TypeDesc.parse("List<duo>"));
+    }
+
+    @Test
+    void unusedDescriptorsCanBeCollected() throws Exception {
+        java.lang.ref.WeakReference<TypeDesc> ref = new java.lang.ref.WeakReference<>(TypeDesc.parse("Transient<Gone>[]").element);
+        for (int i = 0; i < 50 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(ref.get(), "the intern and parse tables must not keep a type alive");
+        TypeDesc again = TypeDesc.parse("Transient<Gone>");
+        assertSame(again, TypeDesc.cls("Transient", List.of(TypeDesc.cls("Gone"))));
+    }
+
+    @Test
+    void spellingSurvivesRoundTrip() {
+        for (String s : new String[]{"num", "Map<sab, List<num>>", "duo[][]", "ek", "ek[]", "List<_>", "Node"}) {
+            assertEquals(s, TypeDesc.parse(s).toString());
+        }
+    }
+
+    @Test
+    void unknownSpellingsStayInterchangeable() {
+        TypeDesc ek = TypeDesc.parse("ek");
+        assertEquals(TypeKind.UNKNOWN, ek.kind);
+        assertEquals(TypeDesc.unknown(), ek);
+        assertTrue(TypeDesc.assignable(TypeDesc.unknown(), ek));
+        assertEquals(TypeKind.UNKNOWN, TypeDesc.parse("List<num").kind);
+    }
+
+    @Test
+    void classNamesAreCheckedWithoutRegex() {
+        assertEquals(TypeKind.CLASS, TypeDesc.parse("T").kind);
+        assertEquals(TypeKind.CLASS, TypeDesc.parse("My_Type2").kind);
+        assertEquals(TypeKind.UNKNOWN, TypeDesc.parse("lower").kind);
+        assertEquals(TypeKind.UNKNOWN, TypeDesc.parse("Bad-Name").kind);
+        assertNotSame(TypeDesc.generic("T"), TypeDesc.cls("T"));
+    }
+}
@@ -0,0 +1,126 @@
+package dhrlang.batch;
+
+import dhrlang.bytecode.BytecodeVM;
+import dhrlang.bytecode.BytecodeWriter;
+import dhrlang.bytecode.LoadedProgram;
+import dhrlang.ir.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchExecutorTests {
+
+    // <clinit>: Main.n = 1;  Main.main: arr = new num[Main.n]; Main.n = Main.n * 2; print Main.n
+    private static LoadedProgram doublingProgram() {
+        IrProgram p = new IrProgram();
+        IrFunction main = new IrFunction("Main.main");
+        main.instructions.add(new IrGetStatic("Main", "n", 0));
+        main.instructions.add(new IrNewArray(0, 3, "num"));
+        main.instructions.add(new IrConst(1, 2L));
+        main.instructions.add(new IrBinOp(IrBinOp.Op.MUL, 0, 1, 2));
+        main.instructions.add(new IrSetStatic("Main", "n", 2));
+        main.instructions.add(new IrPrint(2, true));
+        main.instructions.add(new IrReturn(null));
+        p.functions.add(main);
+        IrFunction init = new IrFunction(IrProgram.STATIC_INIT);
+        init.instructions.add(new IrConst(0, 1L));
+        init.instructions.add(new IrSetStatic("Main", "n", 0));
+        init.instructions.add(new IrReturn(null));
+        p.functions.add(init);
+        return BytecodeVM.load(new BytecodeWriter().write(p));
+    }
+
+    @Test
+    void everyJobGetsItsOwnStaticsAndOutput() throws Exception {
+        List<BatchExecutor.Job> jobs = new ArrayList<>();
+        for (long i = 1; i <= 200; i++) jobs.add(new BatchExecutor.Job("j" + i, Map.of("Main.n", i), 0, 0, 0));
+        BatchExecutor.Report report = new BatchExecutor(doublingProgram(), 4).run(jobs);
+        assertEquals(200, report.results.size());
+        assertEquals(0, report.failures());
+        for (int i = 0; i < 200; i++) {
+            BatchExecutor.Result r = report.results.get(i);
+            assertEquals("j" + (i + 1), r.id);
+            assertEquals((2 * (i + 1)) + System.lineSeparator(), r.output);
+        }
+    }
+
+    @Test
+    void jobsWithoutStaticsSeeInitializedValues() throws Exception {
+        BatchExecutor.Result r = new BatchExecutor(doublingProgram(), 0).runOne(BatchExecutor.parseJob("{}", "1"));
+        assertTrue(r.ok(), r.error);
+        assertEquals("2" + System.lineSeparator(), r.output);
+    }
+
+    @Test
+    void allocationBudgetIsPerJob() {
+        BatchExecutor executor = new BatchExecutor(doublingProgram(), 1);
+        BatchExecutor.Result over = executor.runOne(BatchExecutor.parseJob("{\"statics\":{\"Main.n\":50},\"maxArrayCells\":10}", "1"));
+        assertFalse(over.ok());
+        assertTrue(over.error.contains("allocated array elements"), over.error);
+        BatchExecutor.Result under = executor.runOne(BatchExecutor.parseJob("{\"statics\":{\"Main.n\":5},\"maxArrayCells\":10}", "2"));
+        assertTrue(under.ok(), under.error);
+    }
+
+    @Test
+    void unknownStaticsAndKeysAreRejected() {
+        BatchExecutor.Result r = new BatchExecutor(doublingProgram(), 1).runOne(BatchExecutor.parseJob("{\"statics\":{\"Main.m\":1}}", "1"));
+        assertFalse(r.ok());
+        assertTrue(r.error.contains("Main.m"), r.error);
+        assertThrows(IllegalArgumentException.class, () -> BatchExecutor.parseJob("{\"input\":1}", "1"));
+        assertThrows(IllegalArgumentException.class, () -> BatchExecutor.parseJob("{\"maxSteps\":-5}", "1"));
+        assertThrows(IllegalArgumentException.class, () -> BatchExecutor.parseJob("[1,2]", "1"));
+    }
+
+    // Declared types travel from the source through DHBC into the loaded program's static layout
+    private static LoadedProgram typedProgram() {
+        String src = String.join("\n",
+                "class Main {",
+                "  static num n = 1; static duo d; static sab s = \"-\"; static kya k; static num[] xs;",
+                "  static kaam main(){ printLine(Main.n + 1); printLine(Main.d * 2); printLine(Main.s); printLine(Main.k); }",
+                "}");
+        dhrlang.error.ErrorReporter reporter = new dhrlang.error.ErrorReporter();
+        dhrlang.ast.Program program = new dhrlang.parser.Parser(new dhrlang.lexer.Lexer(src, reporter).scanTokens(), reporter).parse();
+        IrProgram ir = new AstToIrLowerer(reporter).lower(program);
+        assertFalse(reporter.hasErrors());
+        return BytecodeVM.load(new BytecodeWriter().write(ir));
+    }
+
+    @Test
+    void staticsAreCheckedAgainstTheirDeclaredTypes() {
+        BatchExecutor executor = new BatchExecutor(typedProgram(), 1);
+        BatchExecutor.Result ok = executor.runOne(BatchExecutor.parseJob("{\"statics\":{\"Main.n\":2,\"Main.d\":3,\"Main.s\":\"x\",\"Main.k\":true,\"Main.xs\":null}}", "1"));
+        assertTrue(ok.ok(), ok.error);
+        String nl = System.lineSeparator();
+        assertEquals("3" + nl + "6.0" + nl + "x" + nl + "true" + nl, ok.output, "a num widens into a duo static");
+
+        for (String bad : List.of("{\"Main.n\":\"x\"}", "{\"Main.n\":2.5}", "{\"Main.d\":\"1\"}", "{\"Main.s\":1}",
+                "{\"Main.k\":0}", "{\"Main.n\":null}", "{\"Main.xs\":[1,2]}", "{\"Main.n\":{}}")) {
+            BatchExecutor.Result r = executor.runOne(BatchExecutor.parseJob("{\"statics\":" + bad + "}", "2"));
+            assertFalse(r.ok(), bad);
+            assertTrue(r.error.startsWith("Static Main."), r.error);
+            assertEquals("", r.output, "a rejected job must not run: " + bad);
+        }
+    }
+
+    @Test
+    void percentilesUseNearestRank() throws Exception {
+        List<BatchExecutor.Result> results = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) results.add(new BatchExecutor.Result("r" + i, "", null, 0, i * 100L));
+        BatchExecutor.Report report = new BatchExecutor.Report(results, 1_000, "test");
+        assertEquals(500L, report.percentileNanos(50));
+        assertEquals(900L, report.percentileNanos(90));
+        assertEquals(1000L, report.percentileNanos(99));
+        assertEquals(100L, report.percentileNanos(0));
+    }
+
+    @Test
+    void miniJsonRoundTripsJobValues() {
+        Object v = MiniJson.parse("{\"a\":[1,2.5,\"x\\n\\u0041\",true,null],\"b\":{}}");
+        assertEquals("{\"a\":[1,2.5,\"x\\nA\",true,null],\"b\":{}}", MiniJson.write(v));
+        assertThrows(IllegalArgumentException.class, () -> MiniJson.parse("{\"a\":1"));
+    }
+}
@@ -0,0 +1,61 @@
+package dhrlang.batch;
+
+import dhrlang.bytecode.BytecodeVM;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DirectoryCompilerTests {
+
+    private static Path tree() throws Exception {
+        Path dir = Files.createTempDirectory("dhrdir");
+        Files.createDirectories(dir.resolve("sub"));
+        Files.writeString(dir.resolve("a.dhr"), "class Main { static kaam main() { printLine(1); } }");
+        Files.writeString(dir.resolve("sub/b.dhr"), "class Main { static kaam main() { num x = \"s\"; } }");
+        Files.writeString(dir.resolve("sub/c.dhr"), "class Main { static kaam main() { num = ; } }");
+        Files.writeString(dir.resolve("notes.txt"), "not a source");
+        return dir;
+    }
+
+    @Test
+    void checksEveryFileWithItsOwnDiagnostics() throws Exception {
+        Path dir = tree();
+        List<Path> files = DirectoryCompiler.discover(dir);
+        assertEquals(List.of(dir.resolve("a.dhr"), dir.resolve("sub/b.dhr"), dir.resolve("sub/c.dhr")), files);
+
+        DirectoryCompiler.Report report = new DirectoryCompiler(3, false).compile(files);
+        assertEquals(3, report.files.size());
+        assertTrue(report.files.get(0).ok());
+        assertFalse(report.files.get(1).ok());
+        assertFalse(report.files.get(2).ok());
+        assertEquals(2, report.failures());
+        assertNull(report.files.get(0).bytecode, "Check only");
+        assertTrue(report.summary().startsWith("[check] 3 files (1 ok, 2 failed"), report.summary());
+
+        String[] lines = DirectoryCompiler.toJsonLines(report).split("\n");
+        assertEquals(3, lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            Map<?, ?> doc = (Map<?, ?>) MiniJson.parse(lines[i]);
+            assertEquals(1L, doc.get("schemaVersion"));
+            assertTrue(((Map<?, ?>) doc.get("timings")).containsKey("totalMs"));
+            for (Object e : (List<?>) doc.get("errors")) {
+                assertEquals(files.get(i).toString(), ((Map<?, ?>) e).get("file"), lines[i]);
+            }
+        }
+    }
+
+    @Test
+    void compileEmitsBytecodeForFilesThatCheck() throws Exception {
+        Path dir = tree();
+        DirectoryCompiler.Report report = new DirectoryCompiler(0, true).compile(DirectoryCompiler.discover(dir));
+        assertNotNull(report.files.get(0).bytecode);
+        assertNotNull(BytecodeVM.load(report.files.get(0).bytecode));
+        assertNull(report.files.get(1).bytecode);
+        assertEquals(report.failures(), new DirectoryCompiler(1, true).compile(DirectoryCompiler.discover(dir)).failures());
+    }
+}
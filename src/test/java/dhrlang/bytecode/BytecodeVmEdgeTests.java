@@ -470,4 +470,250 @@ public class BytecodeVmEdgeTests {
 
         assertThrows(IllegalArgumentException.class, () -> runVm(p));
     }
+
+    private static String runIr(IrProgram program) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        PrintStream prev = System.out;
+        System.setOut(new PrintStream(baos));
+        try {
+            new IrInterpreter().execute(program);
+        } finally {
+            System.setOut(prev);
+        }
+        return baos.toString().replace("\r\n", "\n").trim();
+    }
+
+    @Test
+    void returnInsideTryIsAcceptedAndLeavesNoHandlerBehind() {
+        IrProgram p = new IrProgram();
+        IrFunction f = new IrFunction("Foo.early");
+        f.instructions.add(new IrTryPush("catch", "any"));
+        f.instructions.add(new IrConst(0, "early"));
+        f.instructions.add(new IrReturn(0));
+        f.instructions.add(new IrTryPop());
+        f.instructions.add(new IrLabel("catch"));
+        f.instructions.add(new IrCatchBind(1));
+        f.instructions.add(new IrReturn(null));
+        p.functions.add(f);
+
+        IrFunction main = new IrFunction("Main.main");
+        main.instructions.add(new IrCall("Foo.early", new int[]{}, 0));
+        main.instructions.add(new IrPrint(0, true));
+        main.instructions.add(new IrConst(1, "after"));
+        main.instructions.add(new IrThrow(1));
+        main.instructions.add(new IrConst(2, "NO"));
+        main.instructions.add(new IrPrint(2, true));
+        main.instructions.add(new IrReturn(null));
+        p.functions.add(main);
+
+        assertEquals("early", runVm(p));
+        assertEquals("early", runIr(p));
+    }
+
+    @Test
+    void throwFromCatchBodyIsNotCaughtBySiblingClause() {
+        // try { throw "a" } catch(first) { print; throw "b" } catch(any) { print "NO" }
+        IrProgram p = new IrProgram();
+        IrFunction main = new IrFunction("Main.main");
+        main.instructions.add(new IrTryPush("c1", "any"));
+        main.instructions.add(new IrTryPush("c0", "any"));
+        main.instructions.add(new IrConst(0, "a"));
+        main.instructions.add(new IrThrow(0));
+        main.instructions.add(new IrTryPop());
+        main.instructions.add(new IrTryPop());
+        main.instructions.add(new IrJump("end"));
+        main.instructions.add(new IrLabel("c0"));
+        main.instructions.add(new IrCatchBind(1));
+        main.instructions.add(new IrPrint(1, true));
+        main.instructions.add(new IrConst(2, "b"));
+        main.instructions.add(new IrThrow(2));
+        main.instructions.add(new IrJump("end"));
+        main.instructions.add(new IrLabel("c1"));
+        main.instructions.add(new IrCatchBind(3));
+        main.instructions.add(new IrConst(4, "NO"));
+        main.instructions.add(new IrPrint(4, true));
+        main.instructions.add(new IrLabel("end"));
+        main.instructions.add(new IrReturn(null));
+        p.functions.add(main);
+
+        assertEquals("a", runVm(p));
+        assertEquals("a", runIr(p));
+    }
+
+    @Test
+    void legacyVersion2TryOpsStillRun() throws Exception {
+        byte[] bytes;
+        try (var baos = new ByteArrayOutputStream(); var out = new DataOutputStream(baos)) {
+            out.writeInt(0x44484243);
+            out.writeInt(2);
+            out.writeInt(2); // cp
+            out.writeByte(3); out.writeUTF("any");
+            out.writeByte(3); out.writeUTF("legacy");
+            out.writeInt(1); // fn
+            out.writeUTF("Main.main");
+            out.writeInt(8);
+            out.writeInt(BytecodeOpcode.TRY_PUSH.code); out.writeInt(5); out.writeInt(0); // 0
+            out.writeInt(BytecodeOpcode.CONST.code); out.writeInt(0); out.writeInt(1);     // 1
+            out.writeInt(BytecodeOpcode.THROW.code); out.writeInt(0);                      // 2
+            out.writeInt(BytecodeOpcode.TRY_POP.code);                                     // 3
+            out.writeInt(BytecodeOpcode.JUMP.code); out.writeInt(7);                       // 4
+            out.writeInt(BytecodeOpcode.CATCH_BIND.code); out.writeInt(1);                 // 5
+            out.writeInt(BytecodeOpcode.PRINT.code); out.writeInt(1); out.writeBoolean(true); // 6
+            out.writeInt(BytecodeOpcode.RETURN.code); out.writeInt(-1);                    // 7
+            out.flush();
+            bytes = baos.toByteArray();
+        }
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        PrintStream prev = System.out;
+        System.setOut(new PrintStream(captured));
+        try {
+            new BytecodeVM().execute(bytes);
+        } finally {
+            System.setOut(prev);
+        }
+        assertEquals("legacy", captured.toString().trim());
+    }
+
+    @Test
+    void rejectsTryOpcodesInCurrentVersion() throws Exception {
+        byte[] bytes;
+        try (var baos = new ByteArrayOutputStream(); var out = new DataOutputStream(baos)) {
+            out.writeInt(0x44484243);
+            out.writeInt(3);
+            out.writeInt(0); // cp
+            out.writeInt(1); // fn
+            out.writeUTF("Main.main");
+            out.writeInt(1);
+            out.writeInt(BytecodeOpcode.TRY_POP.code);
+            out.writeInt(0); // handlers
+            out.flush();
+            bytes = baos.toByteArray();
+        }
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> new BytecodeVM().execute(bytes));
+        assertTrue(ex.getMessage().toLowerCase().contains("try_pop"));
+    }
+
+    @Test
+    void rejectsHandlerRangeOutOfBounds() throws Exception {
+        byte[] bytes;
+        try (var baos = new ByteArrayOutputStream(); var out = new DataOutputStream(baos)) {
+            out.writeInt(0x44484243);
+            out.writeInt(3);
+            out.writeInt(1); // cp
+            out.writeByte(3); out.writeUTF("any");
+            out.writeInt(1); // fn
+            out.writeUTF("Main.main");
+            out.writeInt(1);
+            out.writeInt(BytecodeOpcode.RETURN.code); out.writeInt(-1);
+            out.writeInt(1); // handlers
+            out.writeInt(0); out.writeInt(9); out.writeInt(0); out.writeInt(0);
+            out.flush();
+            bytes = baos.toByteArray();
+        }
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> new BytecodeVM().execute(bytes));
+        assertTrue(ex.getMessage().toLowerCase().contains("handler range"));
+    }
+
+    @Test
+    void leb128RoundTripsBoundaryValues() throws Exception {
+        long[] signed = {0, 1, -1, 63, 64, -64, -65, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE};
+        int[] unsigned = {0, 1, 127, 128, 16_383, 16_384, Integer.MAX_VALUE};
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        for (long v : signed) Leb128.writeSigned(baos, v);
+        for (int v : unsigned) Leb128.writeUnsigned(baos, v);
+        java.nio.ByteBuffer in = java.nio.ByteBuffer.wrap(baos.toByteArray());
+        for (long v : signed) assertEquals(v, Leb128.readSigned(in));
+        for (int v : unsigned) assertEquals(v, Leb128.readUnsigned(in));
+        assertFalse(in.hasRemaining());
+        assertThrows(IllegalArgumentException.class, () -> Leb128.readUnsigned(java.nio.ByteBuffer.wrap(new byte[]{(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F})));
+    }
+
+    @Test
+    void compactEncodingHasNoStringLengthLimit() {
+        String big = "x".repeat(70_000); // beyond the 64 KB writeUTF limit of older versions
+        IrProgram p = new IrProgram();
+        IrFunction main = new IrFunction("Main.main");
+        main.instructions.add(new IrConst(0, big));
+        main.instructions.add(new IrConst(1, Long.MIN_VALUE));
+        main.instructions.add(new IrConst(2, -1L));
+        main.instructions.add(new IrPrint(1, true));
+        main.instructions.add(new IrPrint(2, true));
+        main.instructions.add(new IrPrint(0, true));
+        main.instructions.add(new IrReturn(null));
+        p.functions.add(main);
+
+        assertEquals(Long.MIN_VALUE + "\n-1\n" + big, runVm(p));
+    }
+
+    // Main.main calls Foo.broken, whose CALL names a function that does not exist, only when callIt is set
+    private static IrProgram programWithBrokenFunction(boolean callIt) {
+        IrProgram p = new IrProgram();
+        IrFunction main = new IrFunction("Main.main");
+        main.instructions.add(new IrConst(0, "ran"));
+        main.instructions.add(new IrPrint(0, true));
+        main.instructions.add(new IrConst(1, callIt));
+        main.instructions.add(new IrJumpIfFalse(1, "skip"));
+        main.instructions.add(new IrCall("Foo.broken", new int[]{}, -1));
+        main.instructions.add(new IrLabel("skip"));
+        main.instructions.add(new IrReturn(null));
+        p.functions.add(main);
+        IrFunction broken = new IrFunction("Foo.broken");
+        broken.instructions.add(new IrCall("Missing.fn", new int[]{}, -1));
+        broken.instructions.add(new IrReturn(null));
+        p.functions.add(broken);
+        return p;
+    }
+
+    @Test
+    void functionsAreVerifiedOnFirstCall() {
+        assertEquals("ran", runVm(programWithBrokenFunction(false)));
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> runVm(programWithBrokenFunction(true)));
+        assertTrue(ex.getMessage().contains("Foo.broken"), ex.getMessage());
+        assertTrue(ex.getMessage().contains("invalid callee"), ex.getMessage());
+    }
+
+    @Test
+    void eagerDecodeRejectsUnreachableBrokenFunctionAtLoad() {
+        String prev = System.getProperty("dhrlang.bytecode.lazyDecode");
+        System.setProperty("dhrlang.bytecode.lazyDecode", "false");
+        try {
+            byte[] bc = new BytecodeWriter().write(programWithBrokenFunction(false));
+            IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> BytecodeVM.decode(bc));
+            assertTrue(ex.getMessage().contains("invalid callee"), ex.getMessage());
+        } finally {
+            if (prev == null) System.clearProperty("dhrlang.bytecode.lazyDecode");
+            else System.setProperty("dhrlang.bytecode.lazyDecode", prev);
+        }
+    }
+
+    @Test
+    void rejectsTruncatedFunctionBody() {
+        byte[] bc = new BytecodeWriter().write(programWithBrokenFunction(false));
+        byte[] truncated = java.util.Arrays.copyOf(bc, bc.length - 1);
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> BytecodeVM.decode(truncated));
+        assertTrue(ex.getMessage().contains("out of range"), ex.getMessage());
+    }
+
+    @Test
+    void rejectsSlotBeyondDeclaredMaxSlots() throws Exception {
+        byte[] bytes;
+        try (var baos = new ByteArrayOutputStream(); var out = new DataOutputStream(baos)) {
+            out.writeInt(0x44484243);
+            out.writeInt(4);
+            out.write(new byte[]{
+                    1, 9, 'M', 'a', 'i', 'n', '.', 'm', 'a', 'i', 'n', // strings
+                    1, 0,        // constants: null
+                    0,           // statics
+                    1, 0, 0, 8,  // functions: name, offset, length
+                    1, 0, 2,     // maxSlots=1, handlers=0, insCount=2
+                    (byte) BytecodeOpcode.CONST.code, 1, 0, // CONST slot 1 (out of range), cp 0
+                    (byte) BytecodeOpcode.RETURN.code, 0x7F // RETURN -1
+            });
+            out.flush();
+            bytes = baos.toByteArray();
+        }
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> new BytecodeVM().execute(bytes));
+        assertTrue(ex.getMessage().contains("maxSlots=1"), ex.getMessage());
+    }
 }
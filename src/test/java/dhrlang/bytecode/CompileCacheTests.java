@@ -0,0 +1,114 @@
+package dhrlang.bytecode;
+
+import dhrlang.error.DhrError;
+import dhrlang.error.ErrorCode;
+import dhrlang.error.ErrorType;
+import dhrlang.error.SourceLocation;
+import dhrlang.ir.*;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompileCacheTests {
+
+    private static byte[] helloBytecode(String text) {
+        IrProgram p = new IrProgram();
+        IrFunction main = new IrFunction("Main.main");
+        main.instructions.add(new IrConst(0, text));
+        main.instructions.add(new IrPrint(0, true));
+        main.instructions.add(new IrReturn(null));
+        p.functions.add(main);
+        return new BytecodeWriter().write(p);
+    }
+
+    @Test
+    void keyDependsOnSourceVersionAndFlags() {
+        String base = CompileCache.key("src", "1.0", "backend=bytecode");
+        assertEquals(base, CompileCache.key("src", "1.0", "backend=bytecode"));
+        assertNotEquals(base, CompileCache.key("src2", "1.0", "backend=bytecode"));
+        assertNotEquals(base, CompileCache.key("src", "1.1", "backend=bytecode"));
+        assertNotEquals(base, CompileCache.key("src", "1.0", "backend=ir"));
+        assertNotEquals(CompileCache.key("ab", "1.0", "c"), CompileCache.key("a", "1.0", "bc"));
+        assertEquals(64, base.length());
+    }
+
+    @Test
+    void storedEntryRoundTripsBytecodeAndWarnings() throws Exception {
+        Path dir = Files.createTempDirectory("dhrcache");
+        CompileCache cache = new CompileCache(dir);
+        String key = CompileCache.key("class Main {}", "test");
+        assertNull(cache.get(key));
+
+        byte[] bc = helloBytecode("hi");
+        DhrError w = new DhrError(ErrorType.WARNING, new SourceLocation("Main.dhr", 3, 13, 40, 46),
+                "Variable 'x' declared but never used.", null, ErrorCode.UNUSED_VARIABLE);
+        cache.put(key, bc, List.of(w));
+
+        CompileCache.Entry hit = cache.get(key);
+        assertNotNull(hit);
+        assertArrayEquals(bc, hit.bytecode);
+        assertEquals(1, hit.warnings.size());
+        DhrError back = hit.warnings.get(0);
+        assertEquals(w.getMessage(), back.getMessage());
+        assertEquals(ErrorCode.UNUSED_VARIABLE, back.getCode());
+        assertNull(back.getHint());
+        assertEquals(3, back.getLocation().getLine());
+        assertEquals(13, back.getLocation().getColumn());
+        assertEquals("Main.dhr", back.getLocation().getFilename());
+        try (var files = Files.list(dir)) {
+            assertEquals(1, files.count(), "no temporary files are left behind");
+        }
+    }
+
+    @Test
+    void corruptEntryIsAMiss() throws Exception {
+        Path dir = Files.createTempDirectory("dhrcache");
+        CompileCache cache = new CompileCache(dir);
+        String key = CompileCache.key("x", "test");
+        cache.put(key, helloBytecode("hi"), List.of());
+        Path file = dir.resolve(key + ".dhcc");
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, java.util.Arrays.copyOf(bytes, bytes.length - 3));
+        assertNull(cache.get(key));
+    }
+
+    @Test
+    void unverifiableBytecodeIsNotStored() throws Exception {
+        IrProgram p = new IrProgram();
+        IrFunction main = new IrFunction("Main.main");
+        main.instructions.add(new IrCall("Missing.fn", new int[]{}, -1));
+        main.instructions.add(new IrReturn(null));
+        p.functions.add(main);
+        Path dir = Files.createTempDirectory("dhrcache");
+        CompileCache cache = new CompileCache(dir);
+        String key = CompileCache.key("bad", "test");
+        assertThrows(IllegalArgumentException.class, () -> cache.put(key, new BytecodeWriter().write(p), List.of()));
+        assertNull(cache.get(key));
+    }
+
+    @Test
+    void concurrentWritersLeaveACompleteEntry() throws Exception {
+        Path dir = Files.createTempDirectory("dhrcache");
+        String key = CompileCache.key("same source", "test");
+        byte[] bc = helloBytecode("x".repeat(10_000));
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> writes = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                writes.add(pool.submit(() -> { new CompileCache(dir).put(key, bc, List.of()); return null; }));
+            }
+            for (Future<?> f : writes) f.get(30, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+        CompileCache.Entry hit = new CompileCache(dir).get(key);
+        assertNotNull(hit);
+        assertArrayEquals(bc, hit.bytecode);
+    }
+}
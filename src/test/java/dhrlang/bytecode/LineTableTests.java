@@ -0,0 +1,83 @@
+package dhrlang.bytecode;
+
+import dhrlang.error.SourceLocation;
+import dhrlang.interpreter.DhrRuntimeException;
+import dhrlang.ir.*;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LineTableTests {
+
+    private static SourceLocation at(int line) {
+        return new SourceLocation("t.dhr", line, 1);
+    }
+
+    // line 2: a = 6; b = 0   line 3: loop label, then c = a / b   line 4: return
+    private static IrProgram divideProgram() {
+        IrProgram p = new IrProgram();
+        IrFunction main = new IrFunction("Main.main");
+        main.markLine(at(2));
+        main.instructions.add(new IrConst(0, 6L));
+        main.instructions.add(new IrConst(1, 0L));
+        main.markLine(at(3));
+        main.instructions.add(new IrLabel("here"));
+        main.instructions.add(new IrBinOp(IrBinOp.Op.DIV, 0, 1, 2));
+        main.markLine(at(4));
+        main.instructions.add(new IrReturn(null));
+        p.functions.add(main);
+        return p;
+    }
+
+    @Test
+    void irFunctionRecordsOneEntryPerLineChange() {
+        IrFunction f = new IrFunction("f");
+        f.markLine(at(5));
+        f.markLine(at(7)); // nothing emitted for line 5: the entry is replaced
+        f.instructions.add(new IrConst(0, 1L));
+        f.markLine(at(7));
+        f.instructions.add(new IrConst(1, 2L));
+        f.markLine(null);
+        f.markLine(at(9));
+        f.instructions.add(new IrReturn(null));
+        assertEquals(2, f.lineEntries());
+        assertEquals("t.dhr", f.sourceFile);
+        assertEquals(7, f.lineAt(0));
+        assertEquals(7, f.lineAt(1));
+        assertEquals(9, f.lineAt(2));
+    }
+
+    @Test
+    void lineTableSurvivesEncodingWithLabelsCollapsed() {
+        LoadedProgram program = BytecodeVM.load(new BytecodeWriter().write(divideProgram()));
+        // CONST, CONST, DIV, RETURN: the label occupies no pc
+        assertArrayEquals(new int[]{2, 2, 3, 4}, BytecodeVM.linesOf(program.image, 0));
+    }
+
+    @Test
+    void bytecodeRuntimeErrorsCarryTheSourceLine() {
+        DhrRuntimeException e = assertThrows(DhrRuntimeException.class,
+                () -> new BytecodeVM().execute(new BytecodeWriter().write(divideProgram())));
+        assertNotNull(e.getLocation());
+        assertEquals(3, e.getLocation().getLine());
+        assertEquals("t.dhr", e.getLocation().getFilename());
+    }
+
+    @Test
+    void irRuntimeErrorsCarryTheSourceLine() {
+        DhrRuntimeException e = assertThrows(DhrRuntimeException.class,
+                () -> new IrInterpreter().execute(divideProgram()));
+        assertNotNull(e.getLocation());
+        assertEquals(3, e.getLocation().getLine());
+    }
+
+    @Test
+    void functionsWithoutLinesLoadWithoutATable() {
+        IrProgram p = new IrProgram();
+        IrFunction main = new IrFunction("Main.main");
+        main.instructions.add(new IrReturn(null));
+        p.functions.add(main);
+        LoadedProgram program = BytecodeVM.load(new BytecodeWriter().write(p));
+        assertArrayEquals(new int[]{-1}, BytecodeVM.linesOf(program.image, 0));
+    }
+}
@@ -0,0 +1,133 @@
+package dhrlang.bytecode;
+
+import dhrlang.ir.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoadedProgramTests {
+
+    // Main.main: repeat 10 times { Counter.bump() }; print Counter.count
+    private static byte[] counterProgram() {
+        IrProgram p = new IrProgram();
+        IrFunction main = new IrFunction("Main.main");
+        main.instructions.add(new IrConst(1, 0L));
+        main.instructions.add(new IrConst(2, 10L));
+        main.instructions.add(new IrConst(3, 1L));
+        main.instructions.add(new IrLabel("loop"));
+        main.instructions.add(new IrCompare(IrCompare.Op.LT, 1, 2, 4));
+        main.instructions.add(new IrJumpIfFalse(4, "end"));
+        main.instructions.add(new IrCall("Counter.bump", new int[]{}, -1));
+        main.instructions.add(new IrBinOp(IrBinOp.Op.ADD, 1, 3, 1));
+        main.instructions.add(new IrJump("loop"));
+        main.instructions.add(new IrLabel("end"));
+        main.instructions.add(new IrGetStatic("Counter", "count", 5));
+        main.instructions.add(new IrPrint(5, true));
+        main.instructions.add(new IrReturn(null));
+        p.functions.add(main);
+
+        IrFunction bump = new IrFunction("Counter.bump");
+        bump.instructions.add(new IrGetStatic("Counter", "count", 0));
+        bump.instructions.add(new IrConst(1, 1L));
+        bump.instructions.add(new IrBinOp(IrBinOp.Op.ADD, 0, 1, 2));
+        bump.instructions.add(new IrSetStatic("Counter", "count", 2));
+        bump.instructions.add(new IrReturn(null));
+        p.functions.add(bump);
+
+        IrFunction init = new IrFunction(IrProgram.STATIC_INIT);
+        init.instructions.add(new IrConst(0, 0L));
+        init.instructions.add(new IrSetStatic("Counter", "count", 0));
+        init.instructions.add(new IrReturn(null));
+        p.functions.add(init);
+        return new BytecodeWriter().write(p);
+    }
+
+    private static String runOnce(LoadedProgram program) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        program.newExecution(new PrintStream(baos, true), null).run();
+        return baos.toString().trim();
+    }
+
+    @Test
+    void repeatedExecutionsStartFromFreshStatics() {
+        LoadedProgram program = BytecodeVM.load(counterProgram());
+        for (int i = 0; i < 3; i++) {
+            assertEquals("10", runOnce(program));
+        }
+    }
+
+    @Test
+    void executionsRunConcurrentlyOnOneLoadedProgram() throws Exception {
+        LoadedProgram program = BytecodeVM.load(counterProgram());
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                results.add(pool.submit(() -> { start.await(); return runOnce(program); }));
+            }
+            start.countDown();
+            for (Future<String> r : results) {
+                assertEquals("10", r.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void anExecutionRunsOnlyOnce() {
+        LoadedProgram.Execution exec = BytecodeVM.load(counterProgram())
+                .newExecution(new PrintStream(new ByteArrayOutputStream()), null);
+        exec.run();
+        assertTrue(exec.getSteps() > 0);
+        assertThrows(IllegalStateException.class, exec::run);
+    }
+
+    @Test
+    void invalidBytecodeIsRejectedAtLoad() {
+        assertThrows(IllegalArgumentException.class, () -> BytecodeVM.load(new byte[]{0, 0, 0, 0, 0, 0, 0, 4}));
+    }
+
+    @Test
+    void loadsFromMappedFile() throws Exception {
+        Path file = Files.createTempFile("counter", ".dbc");
+        file.toFile().deleteOnExit(); // a live mapping keeps the file locked on some platforms
+        Files.write(file, counterProgram());
+        LoadedProgram program = BytecodeVM.load(file);
+        assertEquals("10", runOnce(program));
+        assertEquals("10", runOnce(program));
+    }
+
+    @Test
+    void loadsFromBufferPosition() {
+        byte[] bc = counterProgram();
+        ByteBuffer buf = ByteBuffer.allocate(bc.length + 5);
+        buf.put(new byte[]{9, 9, 9, 9, 9}).put(bc).flip().position(5);
+        assertEquals("10", runOnce(BytecodeVM.load(buf)));
+        assertEquals(5, buf.position(), "loading must not move the caller's buffer");
+    }
+
+    @Test
+    void runBcExecutesBytecodeFile() throws Exception {
+        Path file = Files.createTempFile("counter", ".dbc");
+        try {
+            Files.write(file, counterProgram());
+            Process p = new ProcessBuilder("java", "-cp", System.getProperty("java.class.path"), "dhrlang.Main", "--run-bc", file.toString())
+                    .redirectErrorStream(true).start();
+            String out = new String(p.getInputStream().readAllBytes()).trim();
+            assertEquals(0, p.waitFor(), out);
+            assertEquals("10", out);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
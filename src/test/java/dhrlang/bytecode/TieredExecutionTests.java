@@ -0,0 +1,223 @@
+package dhrlang.bytecode;
+
+import dhrlang.ir.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TieredExecutionTests {
+    private String prevCall, prevBackEdge;
+
+    @BeforeEach
+    void lowerThresholds(){
+        prevCall = System.getProperty("dhrlang.tiered.callThreshold");
+        prevBackEdge = System.getProperty("dhrlang.tiered.backEdgeThreshold");
+        System.setProperty("dhrlang.tiered.callThreshold", "3");
+        System.setProperty("dhrlang.tiered.backEdgeThreshold", "5");
+    }
+
+    @AfterEach
+    void restoreThresholds(){
+        if (prevCall == null) System.clearProperty("dhrlang.tiered.callThreshold");
+        else System.setProperty("dhrlang.tiered.callThreshold", prevCall);
+        if (prevBackEdge == null) System.clearProperty("dhrlang.tiered.backEdgeThreshold");
+        else System.setProperty("dhrlang.tiered.backEdgeThreshold", prevBackEdge);
+    }
+
+    private static String run(TieredExecutor tiered, IrProgram program) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        PrintStream prev = System.out;
+        System.setOut(new PrintStream(baos));
+        try {
+            tiered.execute(program);
+        } finally {
+            System.setOut(prev);
+        }
+        return baos.toString().replace("\r\n", "\n").trim();
+    }
+
+    // Main.main: i = 0; while(i < limit) { acc = Foo.inc(acc); i = i + 1 } print acc
+    private static IrProgram countingLoop(long limit) {
+        IrProgram p = new IrProgram();
+        IrFunction main = new IrFunction("Main.main");
+        main.instructions.add(new IrConst(0, 0L));          // i
+        main.instructions.add(new IrConst(1, 0L));          // acc
+        main.instructions.add(new IrConst(2, limit));
+        main.instructions.add(new IrConst(3, 1L));
+        main.instructions.add(new IrLabel("loop"));
+        main.instructions.add(new IrCompare(IrCompare.Op.LT, 0, 2, 4));
+        main.instructions.add(new IrJumpIfFalse(4, "end"));
+        main.instructions.add(new IrCall("Foo.inc", new int[]{1}, 1));
+        main.instructions.add(new IrBinOp(IrBinOp.Op.ADD, 0, 3, 0));
+        main.instructions.add(new IrJump("loop"));
+        main.instructions.add(new IrLabel("end"));
+        main.instructions.add(new IrPrint(1, true));
+        main.instructions.add(new IrReturn(null));
+        p.functions.add(main);
+
+        IrFunction inc = new IrFunction("Foo.inc");
+        inc.instructions.add(new IrConst(1, 1L));
+        inc.instructions.add(new IrBinOp(IrBinOp.Op.ADD, 0, 1, 2));
+        inc.instructions.add(new IrReturn(2));
+        p.functions.add(inc);
+        return p;
+    }
+
+    @Test
+    void shortRunStaysInterpreted() {
+        TieredExecutor tiered = new TieredExecutor();
+        assertEquals("2", run(tiered, countingLoop(2)));
+        assertTrue(tiered.getPromotedFunctions().isEmpty());
+        assertEquals(0, tiered.getOsrTransitions());
+    }
+
+    @Test
+    void hotCalleeAndLoopArePromotedWithSameResult() {
+        TieredExecutor tiered = new TieredExecutor();
+        assertEquals("1000", run(tiered, countingLoop(1000)));
+        assertTrue(tiered.getPromotedFunctions().contains("Foo.inc"));
+        assertTrue(tiered.getPromotedFunctions().contains("Main.main"));
+        assertEquals(1, tiered.getOsrTransitions(), "main's loop should be replaced on-stack exactly once");
+    }
+
+    @Test
+    void exceptionFromPromotedCalleeIsCaughtByInterpretedCaller() {
+        IrProgram p = new IrProgram();
+        IrFunction main = new IrFunction("Main.main");
+        main.instructions.add(new IrConst(0, 0L));
+        main.instructions.add(new IrConst(1, 5L));
+        main.instructions.add(new IrConst(2, 1L));
+        main.instructions.add(new IrLabel("loop"));
+        main.instructions.add(new IrCompare(IrCompare.Op.LT, 0, 1, 3));
+        main.instructions.add(new IrJumpIfFalse(3, "end"));
+        main.instructions.add(new IrTryPush("catch", "any"));
+        main.instructions.add(new IrCall("Foo.boom", new int[]{}, -1));
+        main.instructions.add(new IrTryPop());
+        main.instructions.add(new IrJump("next"));
+        main.instructions.add(new IrLabel("catch"));
+        main.instructions.add(new IrCatchBind(4));
+        main.instructions.add(new IrPrint(4, true));
+        main.instructions.add(new IrLabel("next"));
+        main.instructions.add(new IrBinOp(IrBinOp.Op.ADD, 0, 2, 0));
+        main.instructions.add(new IrJump("loop"));
+        main.instructions.add(new IrLabel("end"));
+        main.instructions.add(new IrReturn(null));
+        p.functions.add(main);
+
+        IrFunction boom = new IrFunction("Foo.boom");
+        boom.instructions.add(new IrConst(0, "boom"));
+        boom.instructions.add(new IrThrow(0));
+        boom.instructions.add(new IrReturn(null));
+        p.functions.add(boom);
+
+        TieredExecutor tiered = new TieredExecutor();
+        assertEquals("boom\nboom\nboom\nboom\nboom", run(tiered, p));
+        assertTrue(tiered.getPromotedFunctions().contains("Foo.boom"));
+    }
+
+    @Test
+    void loopInsideTryIsReplacedOnStack() {
+        // try { loop 20 times } catch(any) {}; then print the counter
+        IrProgram p = new IrProgram();
+        IrFunction main = new IrFunction("Main.main");
+        main.instructions.add(new IrConst(0, 0L));
+        main.instructions.add(new IrConst(1, 20L));
+        main.instructions.add(new IrConst(2, 1L));
+        main.instructions.add(new IrTryPush("catch", "any"));
+        main.instructions.add(new IrLabel("loop"));
+        main.instructions.add(new IrCompare(IrCompare.Op.LT, 0, 1, 3));
+        main.instructions.add(new IrJumpIfFalse(3, "done"));
+        main.instructions.add(new IrBinOp(IrBinOp.Op.ADD, 0, 2, 0));
+        main.instructions.add(new IrJump("loop"));
+        main.instructions.add(new IrLabel("done"));
+        main.instructions.add(new IrConst(4, "thrown"));
+        main.instructions.add(new IrThrow(4));
+        main.instructions.add(new IrTryPop());
+        main.instructions.add(new IrJump("end"));
+        main.instructions.add(new IrLabel("catch"));
+        main.instructions.add(new IrCatchBind(5));
+        main.instructions.add(new IrPrint(5, true));
+        main.instructions.add(new IrLabel("end"));
+        main.instructions.add(new IrPrint(0, true));
+        main.instructions.add(new IrReturn(null));
+        p.functions.add(main);
+
+        TieredExecutor tiered = new TieredExecutor();
+        assertEquals("thrown\n20", run(tiered, p));
+        assertEquals(1, tiered.getOsrTransitions(), "handler tables let an activation inside a try move tiers");
+    }
+
+    @Test
+    void staticsAreSharedAcrossTiers() {
+        IrProgram p = new IrProgram();
+        IrFunction main = new IrFunction("Main.main");
+        main.instructions.add(new IrConst(0, 0L));
+        main.instructions.add(new IrSetStatic("Main", "count", 0));
+        main.instructions.add(new IrConst(1, 0L));
+        main.instructions.add(new IrConst(2, 10L));
+        main.instructions.add(new IrConst(3, 1L));
+        main.instructions.add(new IrLabel("loop"));
+        main.instructions.add(new IrCompare(IrCompare.Op.LT, 1, 2, 4));
+        main.instructions.add(new IrJumpIfFalse(4, "end"));
+        main.instructions.add(new IrCall("Main.bump", new int[]{}, -1));
+        main.instructions.add(new IrBinOp(IrBinOp.Op.ADD, 1, 3, 1));
+        main.instructions.add(new IrJump("loop"));
+        main.instructions.add(new IrLabel("end"));
+        main.instructions.add(new IrGetStatic("Main", "count", 5));
+        main.instructions.add(new IrPrint(5, true));
+        main.instructions.add(new IrReturn(null));
+        p.functions.add(main);
+
+        IrFunction bump = new IrFunction("Main.bump");
+        bump.instructions.add(new IrGetStatic("Main", "count", 0));
+        bump.instructions.add(new IrConst(1, 1L));
+        bump.instructions.add(new IrBinOp(IrBinOp.Op.ADD, 0, 1, 2));
+        bump.instructions.add(new IrSetStatic("Main", "count", 2));
+        bump.instructions.add(new IrReturn(null));
+        p.functions.add(bump);
+
+        assertEquals("10", run(new TieredExecutor(), p));
+    }
+
+    @Test
+    void autoBackendMatchesAstOutput() throws Exception {
+        String cp = System.getProperty("java.class.path");
+        for (String file : new String[]{"input/sample.dhr", "bench/oop_alloc.dhr"}) {
+            String astOut = runProcess("java", "-cp", cp, "dhrlang.Main", file);
+            String autoOut = runProcess("java", "-Ddhrlang.tiered.callThreshold=2", "-Ddhrlang.tiered.backEdgeThreshold=2",
+                    "-cp", cp, "dhrlang.Main", "--backend=auto", file);
+            assertEquals(astOut, autoOut, "AST vs auto output diverged for " + file);
+        }
+    }
+
+    private static String runProcess(String... args) throws Exception {
+        Process p = new ProcessBuilder(args).redirectErrorStream(true).start();
+        String out = new String(p.getInputStream().readAllBytes());
+        assertEquals(0, p.waitFor(), "Non-zero exit: " + out);
+        return out.replaceAll("\r\n", "\n").trim();
+    }
+
+    @Test
+    void programThatFailsVerificationStaysInterpreted() {
+        IrProgram p = countingLoop(50);
+        // An unresolvable callee is tolerated by the interpreter but rejected by the bytecode verifier.
+        // Foo.unused is reachable (so it is compiled) but never actually called.
+        IrFunction main = p.functions.get(0);
+        main.instructions.add(0, new IrConst(6, false));
+        main.instructions.add(1, new IrJumpIfFalse(6, "skipUnused"));
+        main.instructions.add(2, new IrCall("Foo.unused", new int[]{}, -1));
+        main.instructions.add(3, new IrLabel("skipUnused"));
+        IrFunction extra = new IrFunction("Foo.unused");
+        extra.instructions.add(new IrCall("Missing.fn", new int[]{}, -1));
+        extra.instructions.add(new IrReturn(null));
+        p.functions.add(extra);
+
+        TieredExecutor tiered = new TieredExecutor();
+        assertEquals("50", run(tiered, p));
+        assertTrue(tiered.getPromotedFunctions().isEmpty());
+    }
+}
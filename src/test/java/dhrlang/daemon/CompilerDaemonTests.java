@@ -0,0 +1,147 @@
+package dhrlang.daemon;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompilerDaemonTests {
+
+    private static final String HELLO = "class Main { static kaam main() { printLine(\"hi\"); } }";
+
+    private static Map<String, Object> request(String op, String source, String backend) {
+        return backend == null ? Map.of("op", op, "source", source, "name", "t.dhr")
+                : Map.of("op", op, "source", source, "name", "t.dhr", "backend", backend);
+    }
+
+    @Test
+    void servesChecksAndRunsOverOneConnection() throws Exception {
+        Path info = Files.createTempDirectory("dhrdaemon").resolve("daemon.json");
+        CompilerDaemon daemon = new CompilerDaemon(0, "test");
+        daemon.publish(info);
+        Thread server = new Thread(() -> {
+            try { daemon.serve(0); } catch (Exception ignored) {}
+        });
+        server.setDaemon(true);
+        server.start();
+        try (DaemonClient client = DaemonClient.connect(info)) {
+            assertEquals("OK", client.request(Map.of("op", "ping")).get("status"));
+
+            for (String backend : List.of("ast", "ir", "bytecode", "bytecode")) {
+                Map<String, Object> run = client.request(request("run", HELLO, backend));
+                assertEquals("OK", run.get("status"), backend + ": " + run);
+                assertEquals(0L, run.get("exitCode"));
+                assertEquals("hi" + System.lineSeparator(), run.get("stdout"));
+            }
+
+            Map<String, Object> check = client.request(request("check", "class Main { static kaam main() { num x = \"s\"; } }", null));
+            assertEquals("COMPILE_ERROR", check.get("status"));
+            assertEquals(1L, check.get("exitCode"));
+            List<?> errors = (List<?>) ((Map<?, ?>) check.get("diagnostics")).get("errors");
+            assertFalse(errors.isEmpty());
+            assertEquals("ERROR", ((Map<?, ?>) errors.get(0)).get("type"), errors.toString());
+
+            assertEquals("BAD_REQUEST", client.request(Map.of("op", "compile")).get("status"));
+            assertEquals("OK", client.request(Map.of("op", "shutdown")).get("status"));
+        }
+        server.join(5000);
+        assertFalse(server.isAlive());
+        assertFalse(Files.exists(info), "Info file should be removed on shutdown");
+    }
+
+    @Test
+    void clientsStopADaemonOfAnotherVersion() throws Exception {
+        Path info = Files.createTempDirectory("dhrdaemon").resolve("daemon.json");
+        CompilerDaemon daemon = new CompilerDaemon(0, "1.0+old");
+        daemon.publish(info);
+        Thread server = new Thread(() -> {
+            try { daemon.serve(0); } catch (Exception ignored) {}
+        });
+        server.setDaemon(true);
+        server.start();
+        java.io.IOException e = assertThrows(java.io.IOException.class, () -> DaemonClient.connect(info, "1.0+new"));
+        assertTrue(e.getMessage().contains("1.0+old"), e.getMessage());
+        server.join(5000);
+        assertFalse(server.isAlive(), "the stale daemon should shut down");
+        assertFalse(Files.exists(info));
+    }
+
+    @Test
+    void shutdownKeepsAReplacementDaemonsInfoFile() throws Exception {
+        Path info = Files.createTempDirectory("dhrdaemon").resolve("daemon.json");
+        try (CompilerDaemon replacement = new CompilerDaemon(0, "new")) {
+            try (CompilerDaemon old = new CompilerDaemon(0, "old")) {
+                old.publish(info);
+                replacement.publish(info);
+            }
+            assertTrue(Files.readString(info).contains(replacement.token()), "the old daemon must not delete its replacement's info file");
+        }
+    }
+
+    @Test
+    void sessionsApplyEditsInOrder() throws Exception {
+        try (CompilerDaemon daemon = new CompilerDaemon(0, "test")) {
+            String t = "\"token\":\"" + daemon.token() + "\"";
+            String open = daemon.handle("{" + t + ",\"op\":\"open\",\"name\":\"a.dhr\",\"source\":\"class Main { static kaam main() { num x = 1; } }\"}");
+            assertTrue(open.contains("\"status\":\"OK\""), open);
+            // num x = 1 -> num x = "s", one replacement then one insertion
+            int at = "class Main { static kaam main() { num x = ".length();
+            String edit = daemon.handle("{" + t + ",\"op\":\"edit\",\"name\":\"a.dhr\",\"edits\":["
+                    + "{\"offset\":" + at + ",\"length\":1,\"text\":\"\\\"s\"},"
+                    + "{\"offset\":" + (at + 2) + ",\"length\":0,\"text\":\"\\\"\"}]}");
+            assertTrue(edit.contains("\"status\":\"COMPILE_ERROR\""), edit);
+            assertTrue(daemon.handle("{" + t + ",\"op\":\"close\",\"name\":\"a.dhr\"}").contains("\"OK\""));
+            assertTrue(daemon.handle("{" + t + ",\"op\":\"edit\",\"name\":\"a.dhr\",\"edits\":[]}").contains("BAD_REQUEST"));
+        }
+    }
+
+    @Test
+    void rejectsRequestsWithoutToken() throws Exception {
+        try (CompilerDaemon daemon = new CompilerDaemon(0, "test")) {
+            String reply = daemon.handle("{\"op\":\"shutdown\"}");
+            assertTrue(reply.contains("\"DENIED\""), reply);
+            assertTrue(daemon.handle("{\"op\":\"ping\",\"token\":\"" + daemon.token() + "\"}").contains("\"OK\""));
+        }
+    }
+
+    @Test
+    void runsStopAtTheTimeLimitAndSeeEmptyInput() throws Exception {
+        System.setProperty("dhrlang.daemon.runTimeoutMs", "200");
+        try (CompilerDaemon daemon = new CompilerDaemon(0, "test")) {
+            String t = "\"token\":\"" + daemon.token() + "\"";
+            for (String backend : List.of("ast", "ir", "bytecode")) {
+                String reply = daemon.handle("{" + t + ",\"op\":\"run\",\"backend\":\"" + backend + "\","
+                        + "\"source\":\"class Main { static kaam main() { num i = 0; while(true) { i = i + 1; } } }\"}");
+                assertTrue(reply.contains("\"RUNTIME_ERROR\"") && reply.contains("time limit"), backend + ": " + reply);
+            }
+            String read = daemon.handle("{" + t + ",\"op\":\"run\","
+                    + "\"source\":\"class Main { static kaam main() { sab s = readLine(); printLine(\\\"[\\\" + s + \\\"]\\\"); } }\"}");
+            assertTrue(read.contains("\"OK\"") && read.contains("[]"), read);
+        } finally {
+            System.clearProperty("dhrlang.daemon.runTimeoutMs");
+        }
+    }
+
+    @Test
+    void aClientHangingUpCancelsItsRun() throws Exception {
+        CompilerDaemon daemon = new CompilerDaemon(0, "test");
+        Thread server = new Thread(() -> {
+            try { daemon.serve(200); } catch (Exception ignored) {}
+        });
+        server.setDaemon(true);
+        server.start();
+        try (java.net.Socket socket = new java.net.Socket(java.net.InetAddress.getLoopbackAddress(), daemon.port())) {
+            socket.getOutputStream().write(("{\"token\":\"" + daemon.token() + "\",\"op\":\"run\","
+                    + "\"source\":\"class Main { static kaam main() { while(true) { } } }\"}\n").getBytes(java.nio.charset.StandardCharsets.UTF_8));
+            socket.getOutputStream().flush();
+            Thread.sleep(300);
+        }
+        // The daemon only idles out once no request is in flight, which the 30 s run would otherwise prevent
+        server.join(10_000);
+        assertFalse(server.isAlive(), "the abandoned run should have been cancelled");
+    }
+}
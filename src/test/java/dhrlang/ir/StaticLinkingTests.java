@@ -0,0 +1,114 @@
+package dhrlang.ir;
+
+import dhrlang.ast.Program;
+import dhrlang.bytecode.BytecodeVM;
+import dhrlang.bytecode.BytecodeWriter;
+import dhrlang.error.ErrorReporter;
+import dhrlang.lexer.Lexer;
+import dhrlang.parser.Parser;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StaticLinkingTests {
+    private static final String SRC = String.join("\n",
+            "class Config { static num base = 40; static num next = base + 2; static sab label = \"n=\"; static num unset; static kya flag; }",
+            "class Main {",
+            "  static kaam main(){",
+            "    printLine(Config.label + Config.next);",
+            "    printLine(Config.unset);",
+            "    printLine(Config.flag);",
+            "    Config.unset = Config.base + 1;",
+            "    printLine(Config.unset);",
+            "  }",
+            "}");
+    private static final String EXPECTED = "n=42\n0\nfalse\n41";
+
+    private static IrProgram lower(String src) {
+        ErrorReporter reporter = new ErrorReporter();
+        Program program = new Parser(new Lexer(src, reporter).scanTokens(), reporter).parse();
+        IrProgram ir = new AstToIrLowerer(reporter).lower(program);
+        assertFalse(reporter.hasErrors(), "lowering reported errors");
+        return ir;
+    }
+
+    private static String capture(Runnable r) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        PrintStream prev = System.out;
+        System.setOut(new PrintStream(baos));
+        try {
+            r.run();
+        } finally {
+            System.setOut(prev);
+        }
+        return baos.toString().replace("\r\n", "\n").trim();
+    }
+
+    @Test
+    void staticInitializersAreLoweredIntoSyntheticFunction() {
+        IrProgram ir = lower(SRC);
+        IrFunction init = ir.functions.get(ir.functions.size() - 1);
+        assertEquals(IrProgram.STATIC_INIT, init.name);
+        assertEquals("Main.main", ir.functions.get(0).name, "entry stays first");
+    }
+
+    @Test
+    void linkAssignsDenseIndicesPerClassFieldPair() {
+        IrProgram ir = lower(SRC);
+        StaticLayout layout = StaticLayout.link(ir);
+        assertEquals(5, layout.size());
+        for (IrFunction f : ir.functions) {
+            for (IrInstruction ins : f.instructions) {
+                if (ins instanceof IrGetStatic gs) assertEquals(gs.className + "." + gs.fieldName, layout.nameAt(gs.index));
+                if (ins instanceof IrSetStatic ss) assertEquals(ss.className + "." + ss.fieldName, layout.nameAt(ss.index));
+            }
+        }
+        StaticLayout again = StaticLayout.link(ir);
+        assertEquals(layout.indexOf("Config", "next"), again.indexOf("Config", "next"), "relinking is deterministic");
+    }
+
+    @Test
+    void irInterpreterStartsStaticsAtDeclaredValues() {
+        IrProgram ir = lower(SRC);
+        assertEquals(EXPECTED, capture(() -> new IrInterpreter().execute(ir)));
+    }
+
+    @Test
+    void bytecodeVmStartsStaticsAtDeclaredValues() {
+        byte[] code = new BytecodeWriter().write(lower(SRC));
+        assertEquals(EXPECTED, capture(() -> new BytecodeVM().execute(code)));
+    }
+
+    @Test
+    void uncaughtThrowInInitializerSkipsEntry() {
+        IrProgram p = new IrProgram();
+        IrFunction main = new IrFunction("Main.main");
+        main.instructions.add(new IrConst(0, "main ran"));
+        main.instructions.add(new IrPrint(0, true));
+        main.instructions.add(new IrReturn(null));
+        p.functions.add(main);
+        IrFunction init = new IrFunction(IrProgram.STATIC_INIT);
+        init.instructions.add(new IrConst(0, "boom"));
+        init.instructions.add(new IrThrow(0));
+        init.instructions.add(new IrReturn(null));
+        p.functions.add(init);
+
+        assertEquals("", capture(() -> new IrInterpreter().execute(p)));
+        byte[] code = new BytecodeWriter().write(p);
+        assertEquals("", capture(() -> new BytecodeVM().execute(code)));
+    }
+
+    @Test
+    void hundredsOfStaticsFitInOneInitializerFrame() {
+        StringBuilder src = new StringBuilder("class Many {");
+        for (int i = 0; i < 300; i++) src.append(" static num f").append(i).append(" = ").append(i).append(" + 1;");
+        src.append(" }\nclass Main { static kaam main(){ printLine(Many.f0 + Many.f299); } }");
+        IrProgram ir = lower(src.toString());
+        assertEquals("301", capture(() -> new IrInterpreter().execute(ir)));
+        assertEquals("301", capture(() -> new dhrlang.bytecode.TieredExecutor().execute(lower(src.toString()))));
+        byte[] code = new BytecodeWriter().write(lower(src.toString()));
+        assertEquals("301", capture(() -> new BytecodeVM().execute(code)));
+    }
+}
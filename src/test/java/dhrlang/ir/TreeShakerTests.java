@@ -0,0 +1,80 @@
+package dhrlang.ir;
+
+import dhrlang.bytecode.BytecodeWriter;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TreeShakerTests {
+
+    private static IrFunction fn(String name, String... callees) {
+        IrFunction f = new IrFunction(name);
+        f.instructions.add(new IrConst(0, "const of " + name));
+        for (String c : callees) f.instructions.add(new IrCall(c, new int[]{}, -1));
+        f.instructions.add(new IrReturn(null));
+        return f;
+    }
+
+    private static List<String> names(IrProgram p) {
+        return p.functions.stream().map(f -> f.name).collect(Collectors.toList());
+    }
+
+    private static IrProgram sample() {
+        IrProgram p = new IrProgram();
+        p.functions.add(fn("Util.unused", "Util.onlyFromUnused"));
+        p.functions.add(fn("Main.main", "Util.a"));
+        p.functions.add(fn("Util.a", "Util.b", "Util.a"));
+        p.functions.add(fn("Util.b"));
+        p.functions.add(fn("Util.onlyFromUnused"));
+        p.functions.add(fn("Util.fromInit"));
+        p.functions.add(fn(IrProgram.STATIC_INIT, "Util.fromInit"));
+        return p;
+    }
+
+    @Test
+    void keepsOnlyFunctionsReachableFromEntryAndStaticInit() {
+        IrProgram shaken = TreeShaker.shake(sample());
+        assertEquals(List.of("Main.main", "Util.a", "Util.b", "Util.fromInit", IrProgram.STATIC_INIT), names(shaken));
+    }
+
+    @Test
+    void fullyReachableProgramIsReturnedAsIs() {
+        IrProgram p = new IrProgram();
+        p.functions.add(fn("Main.main", "Util.a"));
+        p.functions.add(fn("Util.a"));
+        assertSame(p, TreeShaker.shake(p));
+    }
+
+    @Test
+    void withoutMainTheFirstFunctionIsTheRoot() {
+        IrProgram p = new IrProgram();
+        p.functions.add(fn("Tool.run", "Tool.helper"));
+        p.functions.add(fn("Tool.helper"));
+        p.functions.add(fn("Tool.dead"));
+        assertEquals(List.of("Tool.run", "Tool.helper"), names(TreeShaker.shake(p)));
+    }
+
+    @Test
+    void writerDropsUnreachableFunctionsAndTheirConstants() {
+        byte[] shaken = new BytecodeWriter().write(sample());
+        String text = new String(shaken, StandardCharsets.ISO_8859_1);
+        assertFalse(text.contains("Util.unused"));
+        assertFalse(text.contains("const of Util.onlyFromUnused"));
+        assertTrue(text.contains("const of Util.b"));
+
+        String prev = System.getProperty("dhrlang.bytecode.treeShake");
+        System.setProperty("dhrlang.bytecode.treeShake", "false");
+        try {
+            byte[] full = new BytecodeWriter().write(sample());
+            assertTrue(new String(full, StandardCharsets.ISO_8859_1).contains("const of Util.onlyFromUnused"));
+            assertTrue(shaken.length < full.length);
+        } finally {
+            if (prev == null) System.clearProperty("dhrlang.bytecode.treeShake");
+            else System.setProperty("dhrlang.bytecode.treeShake", prev);
+        }
+    }
+}
@@ -57,4 +57,28 @@ class LexerTest {
         assertEquals(TokenType.BOOLEAN, tokens.get(5).getType(), "Sixth token should be 'true'");
         assertEquals(TokenType.EOF, tokens.get(6).getType(), "Last token should be EOF");
     }
+
+    @Test
+    void testTokenBufferKeywordsAndLexemes() {
+        String code = "@Override koshish pakdo count sab \"hi\" count 'x' 3.5 Overridex";
+        TokenBuffer buffer = new Lexer(code).scan();
+        List<Token> tokens = buffer.asList();
+
+        assertEquals(TokenType.OVERRIDE, buffer.type(0));
+        assertEquals("@Override", buffer.lexeme(0));
+        assertEquals(TokenType.TRY, buffer.type(1));
+        assertEquals(TokenType.CATCH, buffer.type(2));
+        assertEquals(TokenType.IDENTIFIER, buffer.type(3));
+        assertEquals(TokenType.SAB, buffer.type(4));
+        assertEquals("hi", tokens.get(5).getLexeme(), "String lexeme excludes quotes");
+        assertSame(buffer.lexeme(3), buffer.lexeme(6), "Identifiers should be interned");
+        assertEquals("x", tokens.get(7).getLexeme());
+        assertEquals("3.5", tokens.get(8).getLexeme());
+        assertEquals(TokenType.IDENTIFIER, buffer.type(9));
+        assertEquals(TokenType.EOF, buffer.type(10));
+        assertEquals(11, tokens.size());
+        assertSame(tokens.get(3), tokens.get(3));
+        assertEquals(code.indexOf("count"), tokens.get(3).getStartOffset());
+        assertEquals(buffer.column(3), tokens.get(3).getColumn());
+    }
 }
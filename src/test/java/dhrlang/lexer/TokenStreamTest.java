@@ -0,0 +1,69 @@
+package dhrlang.lexer;
+
+import dhrlang.ast.Program;
+import dhrlang.error.DhrError;
+import dhrlang.error.ErrorReporter;
+import dhrlang.parser.ParseException;
+import dhrlang.parser.Parser;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenStreamTest {
+
+    @Test
+    void streamYieldsSameTokensAsScan() throws Exception {
+        String code = Files.readString(Path.of("input/sample.dhr"));
+        List<Token> scanned = new Lexer(code).scanTokens();
+        TokenSource stream = new Lexer(code).stream();
+        for (int i = 0; i < scanned.size(); i++) {
+            assertTrue(stream.has(i));
+            assertEquals(scanned.get(i), stream.get(i), "token " + i);
+            assertEquals(scanned.get(i).getStartOffset(), stream.get(i).getStartOffset());
+            stream.release(i);
+        }
+        assertFalse(stream.has(scanned.size()));
+    }
+
+    @Test
+    void streamedParseMatchesListParse() throws Exception {
+        String code = Files.readString(Path.of("input/sample.dhr"));
+        Program fromList = new Parser(new Lexer(code).scanTokens()).parse();
+        Program fromStream = new Parser(new Lexer(code).stream(), null).parse();
+        assertEquals(fromList.getClasses().size(), fromStream.getClasses().size());
+        for (int i = 0; i < fromList.getClasses().size(); i++) {
+            assertEquals(fromList.getClasses().get(i).getName(), fromStream.getClasses().get(i).getName());
+            assertEquals(fromList.getClasses().get(i).getFunctions().size(), fromStream.getClasses().get(i).getFunctions().size());
+        }
+    }
+
+    @Test
+    void streamTimesItsLexingAndParallelParserReportsIt() throws Exception {
+        String code = Files.readString(Path.of("input/sample.dhr"));
+        TokenSource stream = new Lexer(code).stream();
+        assertEquals(0, stream.lexNanos());
+        assertTrue(stream.has(0));
+        long afterFirst = stream.lexNanos();
+        assertTrue(afterFirst > 0);
+        assertTrue(stream.has(1));
+        assertEquals(afterFirst, stream.lexNanos(), "lookahead within the batch already lexed costs no lexing");
+        long[] reported = { -1 };
+        dhrlang.parser.ParallelParser.parse(code, new ErrorReporter(), n -> reported[0] = n);
+        assertTrue(reported[0] > 0, "lex time is handed over: " + reported[0]);
+    }
+
+    @Test
+    void lexicalErrorsHideFollowOnParseErrors() {
+        String code = "class Main { static kaam main() { num x = 1 & 2; }\n}\nclass B { | }";
+        ErrorReporter er = new ErrorReporter("lex.dhr", code);
+        assertThrows(ParseException.class, () -> new Parser(new Lexer(code, er).stream(), er).parse());
+        List<String> messages = er.getErrors().stream().map(DhrError::getMessage).toList();
+        assertEquals(2, messages.size(), messages::toString);
+        assertTrue(messages.get(0).contains("'&'"));
+        assertTrue(messages.get(1).contains("'|'"), "Lexing continues past the parse failure");
+    }
+}
@@ -0,0 +1,110 @@
+package dhrlang.runtime;
+
+import dhrlang.ast.Program;
+import dhrlang.bytecode.BytecodeVM;
+import dhrlang.bytecode.BytecodeWriter;
+import dhrlang.error.ErrorReporter;
+import dhrlang.interpreter.DhrRuntimeException;
+import dhrlang.interpreter.Interpreter;
+import dhrlang.ir.*;
+import dhrlang.lexer.Lexer;
+import dhrlang.parser.Parser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExecutionBudgetTests {
+    private String prevMaxSteps;
+
+    @BeforeEach
+    void saveProps(){ prevMaxSteps = System.getProperty("dhrlang.backend.maxSteps"); }
+
+    @AfterEach
+    void restoreProps(){
+        if (prevMaxSteps == null) System.clearProperty("dhrlang.backend.maxSteps");
+        else System.setProperty("dhrlang.backend.maxSteps", prevMaxSteps);
+    }
+
+    private static IrProgram spinForever() {
+        IrProgram p = new IrProgram();
+        IrFunction main = new IrFunction("Main.main");
+        main.instructions.add(new IrConst(0, 1L));
+        main.instructions.add(new IrLabel("L0"));
+        main.instructions.add(new IrBinOp(IrBinOp.Op.ADD, 0, 0, 1));
+        main.instructions.add(new IrJump("L0"));
+        p.functions.add(main);
+        return p;
+    }
+
+    private static Program parse(String src) {
+        ErrorReporter reporter = new ErrorReporter();
+        return new Parser(new Lexer(src, reporter).scanTokens(), reporter).parse();
+    }
+
+    @Test
+    void astBackendHonoursExplicitStepLimit() {
+        System.setProperty("dhrlang.backend.maxSteps", "500");
+        Program program = parse("class Main { static kaam main(){ num i = 0; while(true){ i = i + 1; } } }");
+        DhrRuntimeException ex = assertThrows(DhrRuntimeException.class, () -> new Interpreter().execute(program));
+        assertTrue(ex.getMessage().contains("exceeded max instruction steps (500)"));
+    }
+
+    @Test
+    void astBackendIsUnlimitedByDefault() {
+        System.clearProperty("dhrlang.backend.maxSteps");
+        Program program = parse("class Main { static kaam main(){ num i = 0; while(i < 100000){ i = i + 1; } } }");
+        assertDoesNotThrow(() -> new Interpreter().execute(program));
+    }
+
+    @Test
+    void cancelledTokenStopsEveryBackendAtFirstBackEdge() {
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+
+        Interpreter ast = new Interpreter();
+        ast.setCancellationToken(token);
+        Program program = parse("class Main { static kaam main(){ while(true){ } } }");
+        assertTrue(assertThrows(DhrRuntimeException.class, () -> ast.execute(program)).getMessage().contains("cancelled by host"));
+
+        IrInterpreter ir = new IrInterpreter();
+        ir.setCancellationToken(token);
+        assertTrue(assertThrows(DhrRuntimeException.class, () -> ir.execute(spinForever())).getMessage().contains("cancelled by host"));
+
+        BytecodeVM vm = new BytecodeVM();
+        vm.setCancellationToken(token);
+        byte[] code = new BytecodeWriter().write(spinForever());
+        assertTrue(assertThrows(DhrRuntimeException.class, () -> vm.execute(code)).getMessage().contains("cancelled by host"));
+    }
+
+    @Test
+    void deadlineStopsLongRunningBytecode() {
+        System.setProperty("dhrlang.backend.maxSteps", String.valueOf(Long.MAX_VALUE));
+        BytecodeVM vm = new BytecodeVM();
+        vm.setCancellationToken(CancellationToken.withTimeout(Duration.ofMillis(50)));
+        byte[] code = new BytecodeWriter().write(spinForever());
+        DhrRuntimeException ex = assertThrows(DhrRuntimeException.class, () -> vm.execute(code));
+        assertTrue(ex.getMessage().contains("time limit exceeded"));
+    }
+
+    @Test
+    void hostThreadCanCancelRunningInterpreter() throws Exception {
+        System.setProperty("dhrlang.backend.maxSteps", String.valueOf(Long.MAX_VALUE));
+        CancellationToken token = new CancellationToken();
+        IrInterpreter ir = new IrInterpreter();
+        ir.setCancellationToken(token);
+        Throwable[] failure = new Throwable[1];
+        Thread worker = new Thread(() -> {
+            try { ir.execute(spinForever()); } catch (Throwable t) { failure[0] = t; }
+        });
+        worker.start();
+        Thread.sleep(50);
+        token.cancel();
+        worker.join(10_000);
+        assertFalse(worker.isAlive(), "interpreter did not observe cancellation");
+        assertTrue(failure[0] instanceof DhrRuntimeException, "unexpected failure: " + failure[0]);
+    }
+}
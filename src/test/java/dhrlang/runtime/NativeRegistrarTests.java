@@ -0,0 +1,51 @@
+package dhrlang.runtime;
+
+import dhrlang.interpreter.Environment;
+import dhrlang.interpreter.Interpreter;
+import dhrlang.interpreter.NativeFunction;
+import dhrlang.stdlib.NativeSignatures;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NativeRegistrarTests {
+
+    @Test
+    void everyDeclaredSignatureHasANative() {
+        for (String name : NativeSignatures.all()) {
+            assertTrue(NativeRegistrar.natives().containsKey(name), name);
+        }
+        for (String name : NativeRegistrar.natives().keySet()) {
+            NativeFunction fn = NativeRegistrar.lookup(name);
+            assertNotNull(fn, name);
+            assertSame(fn, NativeRegistrar.lookup(name), "Resolved once and shared: " + name);
+        }
+        assertNull(NativeRegistrar.lookup("noSuchNative"));
+    }
+
+    @Test
+    void globalsResolveNativesAndLetScriptsShadowThem() {
+        Environment a = new Interpreter().getGlobals();
+        Environment b = new Interpreter().getGlobals();
+        assertTrue(a.exists("printLine"));
+        assertSame(a.get("printLine"), b.get("printLine"));
+
+        a.assign("abs", 1L);
+        assertEquals(1L, a.get("abs"));
+        assertSame(NativeRegistrar.lookup("abs"), b.get("abs"), "Shadowing stays local to one interpreter");
+        assertThrows(RuntimeException.class, () -> a.get("prntLine"));
+    }
+
+    @Test
+    void tiedSuggestionsPickTheFirstNameAlphabetically() {
+        // 'fib' is two edits from both 'min' and 'sin'; the hint must not depend on hash order
+        RuntimeException e = assertThrows(RuntimeException.class, () -> new Interpreter().getGlobals().get("fib"));
+        assertTrue(e.getMessage().contains("Did you mean 'min'?"), e.getMessage());
+
+        Environment scope = new Environment();
+        scope.define("by", 1L);
+        scope.define("ay", 2L);
+        RuntimeException local = assertThrows(RuntimeException.class, () -> scope.get("cy"));
+        assertTrue(local.getMessage().contains("Did you mean 'ay'?"), local.getMessage());
+    }
+}
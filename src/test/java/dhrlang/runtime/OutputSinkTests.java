@@ -0,0 +1,101 @@
+package dhrlang.runtime;
+
+import dhrlang.bytecode.BytecodeVM;
+import dhrlang.bytecode.BytecodeWriter;
+import dhrlang.ir.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OutputSinkTests {
+
+    private static final String NL = System.lineSeparator();
+
+    @Test
+    void holdsOutputUntilFlushed() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OutputSink sink = new OutputSink(bytes, 0);
+        sink.println("a");
+        sink.print("b");
+        assertEquals(0, bytes.size());
+        sink.flush();
+        assertEquals("a" + NL + "b", bytes.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void flushesEveryThresholdLines() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OutputSink sink = new OutputSink(bytes, 2);
+        sink.println("1");
+        assertEquals(0, bytes.size());
+        sink.println("2");
+        assertEquals("1" + NL + "2" + NL, bytes.toString(StandardCharsets.UTF_8));
+        sink.println("3");
+        assertEquals("1" + NL + "2" + NL, bytes.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void encodesUtf8() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OutputSink sink = new OutputSink(bytes, 0);
+        sink.print("नमस्ते ✓");
+        sink.flush();
+        assertArrayEquals("नमस्ते ✓".getBytes(StandardCharsets.UTF_8), bytes.toByteArray());
+    }
+
+    @Test
+    void consoleSinksFollowTheStreamEncodingUnlessOverridden() {
+        String prior = System.getProperty("sun.stdout.encoding");
+        try {
+            System.setProperty("sun.stdout.encoding", "ISO-8859-1");
+            assertEquals(StandardCharsets.ISO_8859_1, OutputSink.consoleCharset("stdout"));
+            System.setProperty("dhrlang.output.encoding", "UTF-8");
+            assertEquals(StandardCharsets.UTF_8, OutputSink.consoleCharset("stdout"));
+        } finally {
+            System.clearProperty("dhrlang.output.encoding");
+            if (prior == null) System.clearProperty("sun.stdout.encoding"); else System.setProperty("sun.stdout.encoding", prior);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OutputSink sink = new OutputSink(bytes, StandardCharsets.ISO_8859_1, 0);
+        sink.print("café");
+        sink.flush();
+        assertArrayEquals("café".getBytes(StandardCharsets.ISO_8859_1), bytes.toByteArray());
+    }
+
+    @Test
+    void rejectsNegativeThreshold() {
+        assertThrows(IllegalArgumentException.class, () -> new OutputSink(new ByteArrayOutputStream(), -1));
+    }
+
+    // prints "x", then divides by zero
+    private static IrProgram printThenFail() {
+        IrProgram p = new IrProgram();
+        IrFunction main = new IrFunction("Main.main");
+        main.instructions.add(new IrConst(0, "x"));
+        main.instructions.add(new IrPrint(0, true));
+        main.instructions.add(new IrConst(1, 1L));
+        main.instructions.add(new IrConst(2, 0L));
+        main.instructions.add(new IrBinOp(IrBinOp.Op.DIV, 1, 2, 3));
+        main.instructions.add(new IrReturn(null));
+        p.functions.add(main);
+        return p;
+    }
+
+    @Test
+    void backendsFlushTheirSinkWhenExecutionFails() {
+        ByteArrayOutputStream irBytes = new ByteArrayOutputStream();
+        IrInterpreter interpreter = new IrInterpreter();
+        interpreter.setOutput(new OutputSink(irBytes, 0));
+        assertThrows(RuntimeException.class, () -> interpreter.execute(printThenFail()));
+        assertEquals("x" + NL, irBytes.toString(StandardCharsets.UTF_8));
+
+        ByteArrayOutputStream vmBytes = new ByteArrayOutputStream();
+        byte[] code = new BytecodeWriter().write(printThenFail());
+        assertThrows(RuntimeException.class,
+                () -> BytecodeVM.load(code).newExecution(new OutputSink(vmBytes, 0), (CancellationToken) null).run());
+        assertEquals("x" + NL, vmBytes.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,141 @@
+package dhrlang.runtime;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dhrlang.bytecode.BytecodeVM;
+import dhrlang.bytecode.BytecodeWriter;
+import dhrlang.ir.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProfilerTests {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    // Main.main: i = 0; while(i < 5){ Util.step(); i = i + 1 }
+    // Util.step: try { throw "x" } catch(any) { Util.leaf() }
+    private static IrProgram loopWithCallsAndThrow() {
+        IrProgram p = new IrProgram();
+        IrFunction main = new IrFunction("Main.main");
+        main.instructions.add(new IrConst(0, 0L));
+        main.instructions.add(new IrConst(1, 5L));
+        main.instructions.add(new IrConst(2, 1L));
+        main.instructions.add(new IrLabel("loop"));
+        main.instructions.add(new IrCompare(IrCompare.Op.LT, 0, 1, 3));
+        main.instructions.add(new IrJumpIfFalse(3, "end"));
+        main.instructions.add(new IrCall("Util.step", new int[]{}, -1));
+        main.instructions.add(new IrBinOp(IrBinOp.Op.ADD, 0, 2, 0));
+        main.instructions.add(new IrJump("loop"));
+        main.instructions.add(new IrLabel("end"));
+        main.instructions.add(new IrReturn(null));
+        p.functions.add(main);
+
+        IrFunction step = new IrFunction("Util.step");
+        step.instructions.add(new IrTryPush("handler", "any"));
+        step.instructions.add(new IrConst(0, "x"));
+        step.instructions.add(new IrThrow(0));
+        step.instructions.add(new IrTryPop());
+        step.instructions.add(new IrJump("done"));
+        step.instructions.add(new IrLabel("handler"));
+        step.instructions.add(new IrCatchBind(1));
+        step.instructions.add(new IrCall("Util.leaf", new int[]{}, -1));
+        step.instructions.add(new IrLabel("done"));
+        step.instructions.add(new IrReturn(null));
+        p.functions.add(step);
+
+        IrFunction leaf = new IrFunction("Util.leaf");
+        leaf.instructions.add(new IrConst(0, 1L));
+        p.functions.add(leaf); // implicit return
+        return p;
+    }
+
+    private static Map<String,Long> counts(JsonNode array, String key) {
+        Map<String,Long> m = new HashMap<>();
+        for (JsonNode n : array) m.put(n.get("name").asText(), n.get(key).asLong());
+        return m;
+    }
+
+    @Test
+    void bytecodeProfileCountsCallsAndOpcodes() throws Exception {
+        Profiler profiler = new Profiler("bytecode");
+        BytecodeVM vm = new BytecodeVM();
+        vm.setProfiler(profiler);
+        vm.execute(new BytecodeWriter().write(loopWithCallsAndThrow()));
+        assertEquals(0, profiler.depth());
+
+        JsonNode json = MAPPER.readTree(profiler.toJson());
+        Map<String,Long> calls = counts(json.get("functions"), "calls");
+        assertEquals(Map.of("Main.main", 1L, "Util.step", 5L, "Util.leaf", 5L), calls);
+        Map<String,Long> ops = counts(json.get("opcodes"), "count");
+        assertEquals(6L, (long) ops.get("LT"));
+        assertEquals(5L, (long) ops.get("THROW"));
+        assertEquals(5L, (long) ops.get("CATCH_BIND"));
+        assertEquals(10L, (long) ops.get("CALL"));
+        assertEquals(6L, (long) ops.get("RETURN")); // five from Util.step, one from Main.main; Util.leaf returns implicitly
+        assertEquals(5L, (long) ops.get("JUMP")); // the loop's back-edge; the jump over the handler never runs
+    }
+
+    @Test
+    void irAndBytecodeProfilesAgreeOnCalls() throws Exception {
+        Profiler ir = new Profiler("ir");
+        IrInterpreter interpreter = new IrInterpreter();
+        interpreter.setProfiler(ir);
+        interpreter.execute(loopWithCallsAndThrow());
+        assertEquals(0, ir.depth());
+
+        Profiler bc = new Profiler("bytecode");
+        BytecodeVM vm = new BytecodeVM();
+        vm.setProfiler(bc);
+        vm.execute(new BytecodeWriter().write(loopWithCallsAndThrow()));
+
+        assertEquals(counts(MAPPER.readTree(bc.toJson()).get("functions"), "calls"),
+                counts(MAPPER.readTree(ir.toJson()).get("functions"), "calls"));
+        Map<String,Long> irOps = counts(MAPPER.readTree(ir.toJson()).get("opcodes"), "count");
+        assertEquals(5L, (long) irOps.get("IrThrow"));
+        assertEquals(10L, (long) irOps.get("IrCall"));
+    }
+
+    @Test
+    void recursionCountsInclusiveTimeOnce() {
+        Profiler p = new Profiler("test");
+        Profiler.Function outer = p.function("Main.main", new String[]{"CALL"});
+        Profiler.Function rec = p.function("Main.rec", new String[]{"CALL"});
+        p.enter(outer);
+        p.enter(rec);
+        p.enter(rec);
+        p.enter(rec);
+        p.unwindTo(1);
+        p.exit();
+        assertEquals(0, p.depth());
+        assertEquals(3, rec.calls);
+        assertTrue(rec.inclusiveNanos <= outer.inclusiveNanos, "recursive activations must not be summed");
+        assertEquals(rec.inclusiveNanos, rec.exclusiveNanos);
+        assertEquals(outer.inclusiveNanos, outer.exclusiveNanos + rec.inclusiveNanos);
+    }
+
+    @Test
+    void profileIsEmbeddedInJsonDiagnostics() throws Exception {
+        Path src = Files.createTempFile("profile", ".dhr");
+        try {
+            Files.writeString(src, "class Main { static kaam main() { printLine(1 + 2); } }");
+            String javaExe = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+            Process proc = new ProcessBuilder(javaExe, "-cp", System.getProperty("java.class.path"), "dhrlang.Main",
+                    "--backend=bytecode", "--json", "--profile", src.toString()).redirectErrorStream(true).start();
+            String out = new String(proc.getInputStream().readAllBytes()).trim();
+            assertEquals(0, proc.waitFor(), out);
+            JsonNode json = MAPPER.readTree(out.substring(out.indexOf('{')));
+            assertEquals("bytecode", json.get("profile").get("backend").asText());
+            assertEquals(1L, (long) counts(json.get("profile").get("functions"), "calls").get("Main.main"));
+            assertTrue(json.has("errors") && json.has("timings"));
+        } finally {
+            Files.deleteIfExists(src);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package dhrlang.runtime;
+
+import dhrlang.bytecode.BytecodeVM;
+import dhrlang.bytecode.BytecodeWriter;
+import dhrlang.interpreter.ExecutionStack;
+import dhrlang.ir.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SamplingProfilerTests {
+
+    @Test
+    void logicalStackCollapsesOutermostFirst() {
+        LogicalStack s = new LogicalStack();
+        assertNull(s.collapsedStack());
+        s.push("Main.main");
+        s.push("Main.fib");
+        s.push("Main.fib");
+        assertEquals("Main.main;Main.fib;Main.fib", s.collapsedStack());
+        s.pop();
+        assertEquals("Main.main;Main.fib", s.collapsedStack());
+        s.push("Util.x");
+        s.unwindTo(1);
+        assertEquals(1, s.depth());
+        assertEquals("Main.main", s.collapsedStack());
+        s.unwindTo(0);
+        assertNull(s.collapsedStack());
+    }
+
+    @Test
+    void executionStackNamesFramesByClass() {
+        ExecutionStack s = new ExecutionStack();
+        s.push("main", "Main", null);
+        s.push("helper", null, null);
+        assertEquals("Main.main;helper", s.collapsedStack());
+        assertEquals("helper", s.getCurrentFrame().getFunctionName());
+        assertEquals(2, s.getFrames().size());
+        assertEquals("main", s.getFrames().get(0).getFunctionName());
+    }
+
+    @Test
+    void samplerAggregatesIdenticalStacks() throws Exception {
+        SamplingProfiler sampler = new SamplingProfiler(1000);
+        LogicalStack s = new LogicalStack();
+        s.push("Main.main");
+        s.push("Main.work");
+        sampler.attach(s);
+        Thread.sleep(50);
+        sampler.detach(s);
+        sampler.close();
+        StringWriter out = new StringWriter();
+        sampler.writeCollapsed(out);
+        assertTrue(sampler.getSampleCount() > 0, "no samples taken");
+        assertEquals("Main.main;Main.work " + sampler.getSampleCount() + "\n", out.toString());
+    }
+
+    @Test
+    void rejectsNonPositiveRate() {
+        assertThrows(IllegalArgumentException.class, () -> new SamplingProfiler(0));
+    }
+
+    // Main.main calls Util.spin, which counts to 3,000,000
+    private static IrProgram spinProgram() {
+        IrProgram p = new IrProgram();
+        IrFunction main = new IrFunction("Main.main");
+        main.instructions.add(new IrCall("Util.spin", new int[]{}, -1));
+        main.instructions.add(new IrReturn(null));
+        p.functions.add(main);
+        IrFunction spin = new IrFunction("Util.spin");
+        spin.instructions.add(new IrConst(0, 0L));
+        spin.instructions.add(new IrConst(1, 3_000_000L));
+        spin.instructions.add(new IrConst(2, 1L));
+        spin.instructions.add(new IrLabel("loop"));
+        spin.instructions.add(new IrCompare(IrCompare.Op.LT, 0, 1, 3));
+        spin.instructions.add(new IrJumpIfFalse(3, "end"));
+        spin.instructions.add(new IrBinOp(IrBinOp.Op.ADD, 0, 2, 0));
+        spin.instructions.add(new IrJump("loop"));
+        spin.instructions.add(new IrLabel("end"));
+        spin.instructions.add(new IrReturn(null));
+        p.functions.add(spin);
+        return p;
+    }
+
+    @Test
+    void bytecodeStacksAreSampledWhileRunning() throws Exception {
+        SamplingProfiler sampler = new SamplingProfiler(2000);
+        BytecodeVM vm = new BytecodeVM();
+        vm.setSampler(sampler);
+        vm.execute(new BytecodeWriter().write(spinProgram()));
+        sampler.close();
+        StringWriter out = new StringWriter();
+        sampler.writeCollapsed(out);
+        assertTrue(sampler.getSampleCount() > 0, "no samples taken");
+        for (String line : out.toString().split("\n")) {
+            assertTrue(line.matches("Main\\.main(;Util\\.spin)? \\d+"), line);
+        }
+    }
+
+    @Test
+    void irStacksAreSampledWhileRunning() throws Exception {
+        SamplingProfiler sampler = new SamplingProfiler(2000);
+        IrInterpreter interpreter = new IrInterpreter();
+        interpreter.setSampler(sampler);
+        interpreter.execute(spinProgram());
+        sampler.close();
+        StringWriter out = new StringWriter();
+        sampler.writeCollapsed(out);
+        assertTrue(sampler.getSampleCount() > 0, "no samples taken");
+        assertTrue(out.toString().startsWith("Main.main;Util.spin "), out.toString());
+    }
+}
@@ -0,0 +1,51 @@
+package dhrlang.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BuildFingerprintTests {
+
+    @Test
+    void changesWithAnyFileOfTheBuild() throws Exception {
+        Path classes = Files.createTempDirectory("dhrbuild");
+        Files.createDirectories(classes.resolve("dhrlang"));
+        Files.write(classes.resolve("dhrlang/Main.class"), new byte[]{ 1, 2, 3 });
+        Files.write(classes.resolve("dhrlang/Lexer.class"), new byte[]{ 4, 5 });
+        String first = BuildFingerprint.of(classes);
+        assertEquals(12, first.length(), first);
+        assertEquals(first, BuildFingerprint.of(classes), "unchanged builds keep their fingerprint");
+
+        Files.write(classes.resolve("dhrlang/Lexer.class"), new byte[]{ 4, 5, 6 });
+        String rebuilt = BuildFingerprint.of(classes);
+        assertNotEquals(first, rebuilt);
+        Files.setLastModifiedTime(classes.resolve("dhrlang/Main.class"), FileTime.fromMillis(1_000_000L));
+        assertNotEquals(rebuilt, BuildFingerprint.of(classes), "a rewritten file of the same size still counts");
+
+        Path jar = classes.resolve("DhrLang.jar");
+        Files.write(jar, new byte[]{ 9, 9 });
+        Files.setLastModifiedTime(jar, FileTime.fromMillis(1_000_000L));
+        String jarPrint = BuildFingerprint.of(jar);
+        Files.setLastModifiedTime(jar, FileTime.fromMillis(2_000_000L));
+        assertNotEquals(jarPrint, BuildFingerprint.of(jar));
+        assertEquals("unknown", BuildFingerprint.of(classes.resolve("missing.jar")));
+        assertNotEquals("unknown", BuildFingerprint.current());
+    }
+
+    @Test
+    void jarsUseTheBuildIdFromTheirManifest() throws Exception {
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().putValue(BuildFingerprint.BUILD_ID, "0123456789ab");
+        Path jar = Files.createTempDirectory("dhrbuild").resolve("DhrLang.jar");
+        new JarOutputStream(Files.newOutputStream(jar), manifest).close();
+        assertEquals("0123456789ab", BuildFingerprint.of(jar));
+    }
+}
@@ -0,0 +1,154 @@
+package dhrlang.util;
+
+import dhrlang.error.ErrorReporter;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompilationSessionTests {
+
+    private static final String PROGRAM =
+            "interface Shape {\n" +
+            "  num area();\n" +
+            "}\n" +
+            "class Square implements Shape {\n" +
+            "  num side = 2;\n" +
+            "  num area() { return side * side; }\n" +
+            "}\n" +
+            "class Util {\n" +
+            "  static num twice(num x) { return x * 2; }\n" +
+            "  static kaam noisy() { num unused = 1; }\n" +
+            "}\n" +
+            "class Other {\n" +
+            "  static num calc() { num y = 3; return y; }\n" +
+            "}\n" +
+            "class Main {\n" +
+            "  static kaam main() {\n" +
+            "    num a = Util.twice(3);\n" +
+            "    printLine(a);\n" +
+            "  }\n" +
+            "}\n";
+
+    private static String full(String source) {
+        ErrorReporter er = new ErrorReporter("s.dhr", source);
+        MiniRunner.compile(source, er);
+        return er.toJson();
+    }
+
+    private static void assertMatchesFullCompile(CompilationSession session) {
+        assertEquals(full(session.source()), session.diagnostics().toJson(), session.source());
+    }
+
+    private static int offsetOf(CompilationSession session, String text) {
+        int at = session.source().indexOf(text);
+        assertTrue(at >= 0, text);
+        return at;
+    }
+
+    @Test
+    void bodyEditReparsesAndRechecksOneDeclaration() {
+        CompilationSession session = new CompilationSession("s.dhr", PROGRAM);
+        assertMatchesFullCompile(session);
+
+        ErrorReporter er = session.edit(offsetOf(session, "return y;"), "return y;".length(), "return \"y\";");
+        assertTrue(er.hasErrors());
+        assertEquals(1, session.reparsed());
+        assertEquals(1, session.rechecked());
+        assertMatchesFullCompile(session);
+
+        session.edit(offsetOf(session, "return \"y\";"), "return \"y\";".length(), "return y;");
+        assertFalse(session.diagnostics().hasErrors());
+        assertMatchesFullCompile(session);
+    }
+
+    @Test
+    void addedLinesMoveLaterDiagnosticsWithoutRechecking() {
+        CompilationSession session = new CompilationSession("s.dhr", PROGRAM);
+        session.edit(offsetOf(session, "  num area();"), 0, "\n\n");
+        assertEquals(1, session.reparsed(), "Declarations below only move");
+        assertEquals(1, session.rechecked());
+        assertMatchesFullCompile(session);
+        assertTrue(session.diagnostics().getWarnings().stream().anyMatch(w -> w.getLocation().getLine() == 12), session.diagnostics().toJson());
+    }
+
+    @Test
+    void movedDeclarationsAreReparsedForDiagnosticsOutsideBodies() {
+        CompilationSession session = new CompilationSession("s.dhr", PROGRAM.replace("class Other {", "class Other extends Missing {"));
+        assertTrue(session.diagnostics().hasErrors());
+        session.edit(0, 0, "\n");
+        assertMatchesFullCompile(session);
+        session.edit(offsetOf(session, "  static num twice"), 0, "\n");
+        assertMatchesFullCompile(session);
+    }
+
+    @Test
+    void signatureChangeRechecksUsers() {
+        CompilationSession session = new CompilationSession("s.dhr", PROGRAM);
+        session.edit(offsetOf(session, "twice(num x)"), "twice(num x)".length(), "twice(sab x)");
+        assertEquals(2, session.rechecked(), "Util and its user Main");
+        assertTrue(session.diagnostics().hasErrors());
+        assertMatchesFullCompile(session);
+
+        session.edit(offsetOf(session, "num area();"), "num area();".length(), "duo area();");
+        assertEquals(2, session.rechecked(), "Shape and Square, which implements it");
+        assertMatchesFullCompile(session);
+    }
+
+    @Test
+    void signatureChangeRechecksUsersThroughResolvedTypes() {
+        String source =
+                "class A {\n" +
+                "  num m() { return 1; }\n" +
+                "}\n" +
+                "class B {\n" +
+                "  A get() { return new A(); }\n" +
+                "}\n" +
+                "class Main {\n" +
+                "  static kaam main() {\n" +
+                "    B b = new B();\n" +
+                "    printLine(b.get().m());\n" +
+                "  }\n" +
+                "}\n";
+        CompilationSession session = new CompilationSession("s.dhr", source);
+        assertFalse(session.diagnostics().hasErrors(), session.diagnostics().toJson());
+        session.edit(offsetOf(session, "num m()") + 4, 1, "n");
+        assertTrue(session.diagnostics().hasErrors(), "Main calls m through B.get()'s return type");
+        assertEquals(3, session.rechecked(), "A, B and Main");
+        assertMatchesFullCompile(session);
+    }
+
+    @Test
+    void syntaxErrorsAndEditsBetweenDeclarations() {
+        CompilationSession session = new CompilationSession("s.dhr", PROGRAM);
+        session.edit(offsetOf(session, "num y = 3;"), 0, "num = ;");
+        assertMatchesFullCompile(session);
+        session.edit(offsetOf(session, "num = ;"), "num = ;".length(), "");
+        assertMatchesFullCompile(session);
+
+        session.edit(offsetOf(session, "class Main"), 0, "class Extra { }\n");
+        assertMatchesFullCompile(session);
+        session.edit(offsetOf(session, "class Other {"), "class Other {".length(), "class Other { \"");
+        assertMatchesFullCompile(session);
+        session.edit(offsetOf(session, "class Other { \""), "class Other { \"".length(), "class Other {");
+        assertMatchesFullCompile(session);
+        assertEquals(0, session.rechecked(), "Text of every declaration is unchanged");
+    }
+
+    @Test
+    void randomEditsMatchFullCompile() {
+        String[] snippets = {"", " ", "\n", "x", "num", ";", "}", "{", "\"", "(", ")", "1", "Util", "sab", " = ", "/*", "*/", "//"};
+        Random random = new Random(42);
+        CompilationSession session = new CompilationSession("s.dhr", PROGRAM);
+        for (int i = 0; i < 400; i++) {
+            String source = session.source();
+            int offset = random.nextInt(source.length() + 1);
+            int length = random.nextInt(4) == 0 ? Math.min(random.nextInt(4), source.length() - offset) : 0;
+            session.edit(offset, length, snippets[random.nextInt(snippets.length)]);
+            assertMatchesFullCompile(session);
+            // Drift back now and then so most edits land in a mostly valid program
+            if (i % 20 == 19) session.replace(PROGRAM);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package dhrlang.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MiniRunnerTests {
+
+    private static String program(int id) {
+        return "class Main {\n" +
+               "    static kaam main() {\n" +
+               "        for (num i = 0; i < 200; i = i + 1) {\n" +
+               "            printLine(\"run" + id + " \" + i);\n" +
+               "        }\n" +
+               "    }\n" +
+               "}\n";
+    }
+
+    private static String expected(int id) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 200; i++) sb.append("run").append(id).append(' ').append(i).append(System.lineSeparator());
+        return sb.toString();
+    }
+
+    @Test
+    void capturesOutputOnEveryBackend() {
+        for (MiniRunner.Backend b : MiniRunner.Backend.values()) {
+            MiniRunner.Result r = MiniRunner.run(program(7), b);
+            assertFalse(r.hadCompileErrors, b + ": " + r.stderr);
+            assertFalse(r.hadRuntimeError, b + ": " + r.stderr);
+            assertEquals(expected(7), r.stdout, b.name());
+        }
+    }
+
+    @Test
+    void concurrentRunsKeepTheirOutputApart() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<MiniRunner.Result>> results = new ArrayList<>();
+            for (int i = 0; i < 24; i++) {
+                int id = i;
+                MiniRunner.Backend b = MiniRunner.Backend.values()[i % 3];
+                results.add(pool.submit(() -> MiniRunner.run(program(id), b)));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(expected(i), results.get(i).get(30, TimeUnit.SECONDS).stdout);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void compileErrorsGoToTheRunsErrorSink() {
+        MiniRunner.Result r = MiniRunner.run("class Main { static kaam main() { num x = \"s\"; } }", MiniRunner.Backend.IR);
+        assertTrue(r.hadCompileErrors);
+        assertFalse(r.hadRuntimeError);
+        assertEquals("", r.stdout);
+        assertFalse(r.stderr.isEmpty());
+    }
+
+    @Test
+    void runtimeErrorsAreReportedAfterEarlierOutput() {
+        String src = "class Main { static kaam main() { printLine(\"before\"); num[] a = new num[1]; printLine(a[3]); } }";
+        for (MiniRunner.Backend b : MiniRunner.Backend.values()) {
+            MiniRunner.Result r = MiniRunner.run(src, b);
+            assertTrue(r.hadRuntimeError, b.name());
+            assertEquals("before" + System.lineSeparator(), r.stdout, b.name());
+            assertTrue(r.stderr.contains("out of bounds"), b + ": " + r.stderr);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+import * as fs from 'fs';
+import * as net from 'net';
+import * as os from 'os';
+import * as path from 'path';
+import { execFile, spawn } from 'child_process';
+
+// Talks to `java -jar DhrLang.jar --daemon` (dhrlang.daemon.CompilerDaemon): one JSON object per line each way,
+// replies in request order. The daemon publishes its port, token and compiler version in ~/.dhrlang/daemon.json.
+
+export interface DaemonReply {
+    status: string;
+    exitCode?: number;
+    stdout?: string;
+    stderr?: string;
+    error?: string;
+    diagnostics?: { errors: DaemonDiagnostic[]; warnings: DaemonDiagnostic[] };
+}
+
+export interface DaemonDiagnostic {
+    line?: number;
+    column?: number;
+    type: string;
+    code?: string;
+    message: string;
+    hint?: string;
+}
+
+const INFO_FILE = path.join(os.homedir(), '.dhrlang', 'daemon.json');
+const START_TIMEOUT_MS = 10000;
+
+let connection: DaemonConnection | undefined;
+// `--version` output per java + jar, so the jar is asked once per session
+const jarVersions = new Map<string, Promise<string>>();
+
+export class DaemonConnection {
+    // Documents with an open session on this connection's daemon
+    readonly sessions = new Set<string>();
+    private buffer = '';
+    private pending: Array<{ resolve: (r: DaemonReply) => void; reject: (e: Error) => void }> = [];
+
+    constructor(private readonly socket: net.Socket, private readonly token: string, readonly version: string) {
+        socket.setEncoding('utf8');
+        socket.on('data', chunk => {
+            this.buffer += chunk;
+            let nl: number;
+            while ((nl = this.buffer.indexOf('\n')) >= 0) {
+                const line = this.buffer.slice(0, nl);
+                this.buffer = this.buffer.slice(nl + 1);
+                this.pending.shift()?.resolve(JSON.parse(line));
+            }
+        });
+        const fail = (e: Error) => {
+            if (connection === this) connection = undefined;
+            for (const p of this.pending.splice(0)) p.reject(e);
+        };
+        socket.on('error', fail);
+        socket.on('close', () => fail(new Error('DhrLang daemon closed the connection')));
+    }
+
+    request(body: Record<string, unknown>): Promise<DaemonReply> {
+        return new Promise((resolve, reject) => {
+            this.pending.push({ resolve, reject });
+            this.socket.write(JSON.stringify({ ...body, token: this.token }) + '\n');
+        });
+    }
+
+    close() {
+        this.socket.end();
+    }
+}
+
+function jarVersion(javaPath: string, jar: string): Promise<string> {
+    const key = javaPath + '\0' + jar;
+    let version = jarVersions.get(key);
+    if (!version) {
+        version = new Promise((resolve, reject) => {
+            execFile(javaPath, ['-jar', jar, '--version'], { timeout: START_TIMEOUT_MS }, (err, stdout) => {
+                const match = /DhrLang version (.+)/.exec(stdout ?? '');
+                if (match) resolve(match[1].trim());
+                else reject(err ?? new Error('Unexpected --version output: ' + stdout));
+            });
+        });
+        version.catch(() => jarVersions.delete(key));
+        jarVersions.set(key, version);
+    }
+    return version;
+}
+
+// Connects to the published daemon if it runs `version`; a daemon of another build is asked to shut down
+function connectFromInfoFile(version: string): Promise<DaemonConnection> {
+    return new Promise((resolve, reject) => {
+        let info: { port: number; token: string; version?: string };
+        try {
+            info = JSON.parse(fs.readFileSync(INFO_FILE, 'utf8'));
+        } catch (e: any) {
+            reject(e);
+            return;
+        }
+        const socket = net.createConnection({ host: '127.0.0.1', port: info.port }, () => {
+            socket.removeListener('error', reject);
+            const daemon = new DaemonConnection(socket, info.token, info.version ?? '');
+            if (daemon.version === version) {
+                resolve(daemon);
+                return;
+            }
+            const stale = new Error(`DhrLang daemon runs version ${daemon.version}, not ${version}`);
+            const done = () => { daemon.close(); reject(stale); };
+            daemon.request({ op: 'shutdown' }).then(done, done);
+        });
+        socket.once('error', reject);
+    });
+}
+
+/** A connection to a running daemon of `jar`'s version, starting one from `jar` when none answers. */
+export async function getDaemon(javaPath: string, jar: string): Promise<DaemonConnection> {
+    const version = await jarVersion(javaPath, jar);
+    if (connection?.version === version) return connection;
+    disposeDaemon();
+    try {
+        connection = await connectFromInfoFile(version);
+        return connection;
+    } catch {
+        // Not running, a stale info file, or another version that is now shutting down: start one detached so it outlives this window
+    }
+    const child = spawn(javaPath, ['-jar', jar, '--daemon'], { detached: true, stdio: 'ignore' });
+    child.unref();
+    const deadline = Date.now() + START_TIMEOUT_MS;
+    while (Date.now() < deadline) {
+        await new Promise(r => setTimeout(r, 200));
+        try {
+            connection = await connectFromInfoFile(version);
+            return connection;
+        } catch { /* not up yet */ }
+    }
+    throw new Error('DhrLang daemon did not start within ' + START_TIMEOUT_MS / 1000 + 's');
+}
+
+export function disposeDaemon() {
+    connection?.close();
+    connection = undefined;
+}
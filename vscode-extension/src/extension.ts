@@ -2,10 +2,13 @@ import * as vscode from 'vscode';
 import * as path from 'path';
 import { exec } from 'child_process';
 import { promisify } from 'util';
+import { DaemonDiagnostic, DaemonReply, disposeDaemon, getDaemon } from './daemon';
 
 const execAsync = promisify(exec);
 
 let extensionContext: vscode.ExtensionContext;
+let diagnostics: vscode.DiagnosticCollection;
+let output: vscode.OutputChannel | undefined;
 
 export function activate(context: vscode.ExtensionContext) {
     extensionContext = context;
@@ -24,7 +27,9 @@ export function activate(context: vscode.ExtensionContext) {
         showDhrLangHelp();
     });
 
-    context.subscriptions.push(runCommand, compileCommand, helpCommand);
+    diagnostics = vscode.languages.createDiagnosticCollection('dhrlang');
+    context.subscriptions.push(runCommand, compileCommand, helpCommand, diagnostics, { dispose: disposeDaemon });
+    registerLiveDiagnostics(context);
 
     // Initialize status bar early
     ensureStatusBar();
@@ -115,6 +120,18 @@ async function runDhrLangFile() {
         vscode.window.showErrorMessage('Cannot locate DhrLang.jar. Set dhrlang.jarPath or enable autoDetectJar.');
         return;
     }
+    if (config.get<boolean>('useDaemon', true)) {
+        const reply = await daemonRequest(javaPath, jarResolved, { op: 'run', source: document.getText(), name: document.fileName });
+        if (reply) {
+            const out = outputChannel();
+            out.clear();
+            out.append(reply.stdout ?? '');
+            out.append(reply.stderr ?? '');
+            out.appendLine(`[exit ${reply.exitCode}]`);
+            out.show(true);
+            return;
+        }
+    }
     const javaCmd = javaPath.includes(' ') ? `"${javaPath}"` : javaPath;
     const cmd = `${javaCmd} -jar "${jarResolved}" "${document.fileName}"`;
     const terminal = vscode.window.createTerminal({ name: 'DhrLang Output', cwd: path.dirname(document.fileName) });
@@ -142,6 +159,18 @@ async function compileDhrLangFile() {
         vscode.window.showErrorMessage('Cannot locate DhrLang.jar. Set dhrlang.jarPath or enable autoDetectJar.');
         return;
     }
+    if (config.get<boolean>('useDaemon', true)) {
+        const reply = await daemonRequest(javaPath, jarResolved, { op: 'check', source: document.getText(), name: document.fileName });
+        if (reply) {
+            if (config.get<boolean>('enableErrorSquiggles', true)) showDiagnostics(document, reply);
+            if (reply.exitCode === 0) {
+                vscode.window.showInformationMessage('DhrLang file compiled successfully');
+            } else {
+                vscode.window.showErrorMessage(`Compilation Error: ${reply.diagnostics?.errors.map(e => e.message).join('; ')}`);
+            }
+            return;
+        }
+    }
     const javaCmd = javaPath.includes(' ') ? `"${javaPath}"` : javaPath;
     const cmd = `${javaCmd} -jar "${jarResolved}" --check "${document.fileName}"`;
     try {
@@ -162,6 +191,83 @@ async function compileDhrLangFile() {
     }
 }
 
+// Null when the daemon cannot be reached, so callers fall back to spawning the compiler
+async function daemonRequest(javaPath: string, jar: string, body: Record<string, unknown>): Promise<DaemonReply | null> {
+    try {
+        const reply = await (await getDaemon(javaPath, jar)).request(body);
+        if (reply.error) throw new Error(reply.error);
+        return reply;
+    } catch (e: any) {
+        outputChannel().appendLine(`DhrLang daemon unavailable (${e.message}); running the compiler directly`);
+        return null;
+    }
+}
+
+function showDiagnostics(document: vscode.TextDocument, reply: DaemonReply) {
+    const items: vscode.Diagnostic[] = [];
+    const add = (list: DaemonDiagnostic[], severity: vscode.DiagnosticSeverity) => {
+        for (const d of list) {
+            const line = Math.max(0, (d.line ?? 1) - 1);
+            const column = Math.max(0, (d.column ?? 1) - 1);
+            const range = document.getWordRangeAtPosition(new vscode.Position(line, column)) ?? new vscode.Range(line, column, line, column + 1);
+            const item = new vscode.Diagnostic(range, d.hint ? `${d.message}\n${d.hint}` : d.message, severity);
+            if (d.code) item.code = d.code;
+            item.source = 'dhrlang';
+            items.push(item);
+        }
+    };
+    add(reply.diagnostics?.errors ?? [], vscode.DiagnosticSeverity.Error);
+    add(reply.diagnostics?.warnings ?? [], vscode.DiagnosticSeverity.Warning);
+    diagnostics.set(document.uri, items);
+}
+
+// On-type diagnostics: each open document has a daemon session that is sent every change, in order
+function registerLiveDiagnostics(context: vscode.ExtensionContext) {
+    let queue: Promise<void> = Promise.resolve();
+    const enqueue = (task: () => Promise<void>) => { queue = queue.then(task).catch(() => { /* next change retries */ }); };
+
+    const sync = async (document: vscode.TextDocument, changes?: readonly vscode.TextDocumentContentChangeEvent[]) => {
+        const config = vscode.workspace.getConfiguration('dhrlang');
+        if (document.languageId !== 'dhrlang' || !config.get<boolean>('useDaemon', true) || !config.get<boolean>('enableErrorSquiggles', true)) return;
+        const jar = await resolveJarPath();
+        if (!jar) return;
+        const daemon = await getDaemon(config.get<string>('javaPath', 'java'), jar);
+        const name = document.fileName;
+        let reply: DaemonReply | undefined;
+        if (changes && daemon.sessions.has(name)) {
+            const edits = changes.map(c => ({ offset: c.rangeOffset, length: c.rangeLength, text: c.text }));
+            reply = await daemon.request({ op: 'edit', name, edits });
+        }
+        if (!reply || reply.error) {
+            // First sight of the document, or the daemon lost its session: send the whole text
+            daemon.sessions.add(name);
+            reply = await daemon.request({ op: 'open', name, source: document.getText() });
+        }
+        showDiagnostics(document, reply);
+    };
+
+    vscode.workspace.textDocuments.forEach(d => enqueue(() => sync(d)));
+    context.subscriptions.push(
+        vscode.workspace.onDidOpenTextDocument(d => enqueue(() => sync(d))),
+        vscode.workspace.onDidChangeTextDocument(e => enqueue(() => sync(e.document, e.contentChanges))),
+        vscode.workspace.onDidCloseTextDocument(d => {
+            diagnostics.delete(d.uri);
+            enqueue(async () => {
+                const config = vscode.workspace.getConfiguration('dhrlang');
+                const jar = await resolveJarPath();
+                if (!jar || !config.get<boolean>('useDaemon', true)) return;
+                const daemon = await getDaemon(config.get<string>('javaPath', 'java'), jar);
+                if (daemon.sessions.delete(d.fileName)) await daemon.request({ op: 'close', name: d.fileName });
+            });
+        })
+    );
+}
+
+function outputChannel(): vscode.OutputChannel {
+    if (!output) output = vscode.window.createOutputChannel('DhrLang');
+    return output;
+}
+
 function showDhrLangHelp() {
     const panel = vscode.window.createWebviewPanel('dhrLangHelp', 'DhrLang Help', vscode.ViewColumn.Two, { enableScripts: true });
     panel.webview.html = getDhrLangHelpContent();